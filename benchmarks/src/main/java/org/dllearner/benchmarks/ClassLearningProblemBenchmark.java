@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dllearner.core.owl.Description;
+import org.dllearner.core.owl.NamedClass;
+import org.dllearner.learningproblems.ClassLearningProblem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Scoring of the sample concepts of {@link LearningSetup} by a class learning
+ * problem over the family benchmark ontology, for each of the accuracy measures.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 2, jvmArgs = {"-Xmx4g"})
+public class ClassLearningProblemBenchmark {
+
+	private static final String NAMESPACE = "http://www.benchmark.org/family#";
+
+	@State(Scope.Benchmark)
+	public static class Data {
+
+		@Param({"Brother", "Daughter", "Grandfather", "PersonWithASibling"})
+		public String classToDescribe;
+
+		@Param({"pred_acc", "fmeasure", "generalised_fmeasure", "jaccard"})
+		public String accuracyMethod;
+
+		LearningSetup setup;
+		ClassLearningProblem learningProblem;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			setup = LearningSetup.fromOntology(LearningSetup.FAMILY_ONTOLOGY);
+			learningProblem = new ClassLearningProblem(setup.getReasoner());
+			learningProblem.setClassToDescribe(new NamedClass(NAMESPACE + classToDescribe));
+			learningProblem.setAccuracyMethod(accuracyMethod);
+			learningProblem.setCheckConsistency(false);
+			learningProblem.init();
+		}
+	}
+
+	@Benchmark
+	public void getAccuracyOrTooWeak(Data state, Blackhole bh) {
+		for(Description concept : state.setup.getConcepts()) {
+			bh.consume(state.learningProblem.getAccuracyOrTooWeak(concept, 0.05));
+		}
+	}
+
+}
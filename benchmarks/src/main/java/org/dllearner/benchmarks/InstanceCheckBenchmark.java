@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.dllearner.core.AbstractReasonerComponent;
+import org.dllearner.core.owl.Description;
+import org.dllearner.core.owl.Individual;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Instance retrieval and instance checks of the reasoner configured for the
+ * example learning problems (the fast instance checker in all of them). Each
+ * invocation processes the whole sample of concepts of {@link LearningSetup}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 2, jvmArgs = {"-Xmx4g"})
+public class InstanceCheckBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Data {
+
+		@Param({LearningSetup.FAMILY, LearningSetup.POKER})
+		public String confFile;
+
+		LearningSetup setup;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			setup = LearningSetup.fromConfFile(confFile);
+		}
+	}
+
+	@Benchmark
+	public void getIndividuals(Data state, Blackhole bh) {
+		AbstractReasonerComponent reasoner = state.setup.getReasoner();
+		for(Description concept : state.setup.getConcepts()) {
+			bh.consume(reasoner.getIndividuals(concept));
+		}
+	}
+
+	@Benchmark
+	public void hasType(Data state, Blackhole bh) {
+		AbstractReasonerComponent reasoner = state.setup.getReasoner();
+		for(Description concept : state.setup.getConcepts()) {
+			for(Individual individual : state.setup.getIndividuals()) {
+				bh.consume(reasoner.hasType(concept, individual));
+			}
+		}
+	}
+
+}
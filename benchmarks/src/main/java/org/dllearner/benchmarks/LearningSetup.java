@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.dllearner.cli.CLI;
+import org.dllearner.core.AbstractLearningProblem;
+import org.dllearner.core.AbstractReasonerComponent;
+import org.dllearner.core.ComponentInitException;
+import org.dllearner.core.KnowledgeSource;
+import org.dllearner.core.owl.Description;
+import org.dllearner.core.owl.Individual;
+import org.dllearner.core.owl.Thing;
+import org.dllearner.kb.OWLFile;
+import org.dllearner.learningproblems.PosNegLP;
+import org.dllearner.reasoning.FastInstanceChecker;
+import org.dllearner.refinementoperators.RhoDRDown;
+import org.dllearner.utilities.owl.ConceptComparator;
+
+/**
+ * A knowledge base together with a reasoner, a refinement operator and a fixed
+ * sample of class expressions and individuals, which the benchmarks operate on.
+ * The samples only depend on the knowledge base, so numbers of different runs
+ * (and different versions of DL-Learner) are comparable.
+ *
+ * Paths are resolved against the working directory, i.e. the benchmarks have to
+ * be started from the root directory of DL-Learner.
+ */
+public class LearningSetup {
+
+	/**
+	 * The learning problems of the bundled examples, which are used by the
+	 * benchmarks. The OWL files of carcinogenesis and mutagenesis are not part
+	 * of the repository and need to be generated by the corresponding scripts
+	 * (org.dllearner.examples.Carcinogenesis and org.dllearner.examples.Mutagenesis)
+	 * first. Therefore they are not run by default, but have to be selected
+	 * explicitly, e.g. with <code>-p confFile=examples/carcinogenesis/train.conf</code>.
+	 */
+	public static final String FAMILY = "examples/family-benchmark/Uncle.conf";
+	public static final String CARCINOGENESIS = "examples/carcinogenesis/train.conf";
+	public static final String MUTAGENESIS = "examples/mutagenesis/train1.conf";
+	public static final String POKER = "examples/poker/straight_owl.conf";
+
+	public static final String FAMILY_ONTOLOGY = "examples/family-benchmark/family-benchmark_rich_background.owl";
+
+	public static final int NR_OF_CONCEPTS = 200;
+	public static final int NR_OF_INDIVIDUALS = 200;
+
+	// fixed seed, such that all runs use the same samples
+	private static final long SEED = 123;
+
+	private KnowledgeSource knowledgeSource;
+	private AbstractReasonerComponent reasoner;
+	private AbstractLearningProblem learningProblem;
+	private RhoDRDown operator;
+	private List<Description> concepts;
+	private List<Individual> individuals;
+
+	private LearningSetup(KnowledgeSource knowledgeSource, AbstractReasonerComponent reasoner, AbstractLearningProblem learningProblem) throws ComponentInitException {
+		this.knowledgeSource = knowledgeSource;
+		this.reasoner = reasoner;
+		this.learningProblem = learningProblem;
+
+		operator = new RhoDRDown();
+		operator.setReasoner(reasoner);
+		operator.setSubHierarchy(reasoner.getClassHierarchy());
+		operator.setObjectPropertyHierarchy(reasoner.getObjectPropertyHierarchy());
+		operator.setDataPropertyHierarchy(reasoner.getDatatypePropertyHierarchy());
+		operator.init();
+
+		concepts = createConcepts();
+		individuals = createIndividuals();
+	}
+
+	/**
+	 * Loads the components configured in a conf file (the knowledge source,
+	 * reasoner and learning problem are used).
+	 */
+	public static LearningSetup fromConfFile(String confFile) throws IOException, ComponentInitException {
+		CLI cli = new CLI(new File(confFile));
+		cli.init();
+		return new LearningSetup(cli.getKnowledgeSource(), cli.getReasonerComponent(), cli.getLearningProblem());
+	}
+
+	/**
+	 * Loads an OWL file into a fast instance checker (without learning problem).
+	 */
+	public static LearningSetup fromOntology(String owlFile) throws ComponentInitException {
+		OWLFile ks = new OWLFile(owlFile);
+		ks.init();
+		AbstractReasonerComponent reasoner = new FastInstanceChecker(ks);
+		reasoner.init();
+		return new LearningSetup(ks, reasoner, null);
+	}
+
+	// refinements of owl:Thing and refinements of some of those refinements,
+	// which is roughly what a learning algorithm evaluates in its first seconds
+	private List<Description> createConcepts() {
+		SortedSet<Description> refinements = new TreeSet<Description>(new ConceptComparator());
+		refinements.addAll(operator.refine(Thing.instance, 3));
+		List<Description> firstLevel = new ArrayList<Description>(refinements);
+		Collections.shuffle(firstLevel, new Random(SEED));
+		for(Description concept : firstLevel.subList(0, Math.min(50, firstLevel.size()))) {
+			refinements.addAll(operator.refine(concept, concept.getLength() + 2));
+		}
+
+		List<Description> sample = new ArrayList<Description>(refinements);
+		Collections.shuffle(sample, new Random(SEED));
+		return new ArrayList<Description>(sample.subList(0, Math.min(NR_OF_CONCEPTS, sample.size())));
+	}
+
+	// the examples of the learning problem or arbitrary individuals
+	private List<Individual> createIndividuals() {
+		List<Individual> sample;
+		if(learningProblem instanceof PosNegLP) {
+			sample = new ArrayList<Individual>(((PosNegLP)learningProblem).getPositiveExamples());
+			sample.addAll(((PosNegLP)learningProblem).getNegativeExamples());
+		} else {
+			sample = new ArrayList<Individual>(reasoner.getIndividuals());
+		}
+		Collections.shuffle(sample, new Random(SEED));
+		return new ArrayList<Individual>(sample.subList(0, Math.min(NR_OF_INDIVIDUALS, sample.size())));
+	}
+
+	public KnowledgeSource getKnowledgeSource() {
+		return knowledgeSource;
+	}
+
+	public AbstractReasonerComponent getReasoner() {
+		return reasoner;
+	}
+
+	/**
+	 * @return The learning problem or null if the setup was loaded from an ontology.
+	 */
+	public AbstractLearningProblem getLearningProblem() {
+		return learningProblem;
+	}
+
+	public RhoDRDown getOperator() {
+		return operator;
+	}
+
+	public List<Description> getConcepts() {
+		return concepts;
+	}
+
+	public List<Individual> getIndividuals() {
+		return individuals;
+	}
+
+}
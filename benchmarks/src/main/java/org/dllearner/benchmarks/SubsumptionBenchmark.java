@@ -0,0 +1,86 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.dllearner.core.owl.Description;
+import org.dllearner.reasoning.OWLAPIReasoner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Subsumption checks between the sample concepts of {@link LearningSetup} by
+ * the OWL API reasoner (with the configured OWL reasoner behind it).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 2, jvmArgs = {"-Xmx4g"})
+public class SubsumptionBenchmark {
+
+	// only a part of the sample, because each pair is checked
+	private static final int NR_OF_CONCEPTS = 50;
+
+	@State(Scope.Benchmark)
+	public static class Data {
+
+		@Param({LearningSetup.FAMILY, LearningSetup.POKER})
+		public String confFile;
+
+		@Param({"pellet", "hermit"})
+		public String reasonerType;
+
+		List<Description> concepts;
+		OWLAPIReasoner reasoner;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			LearningSetup setup = LearningSetup.fromConfFile(confFile);
+			concepts = setup.getConcepts().subList(0, Math.min(NR_OF_CONCEPTS, setup.getConcepts().size()));
+			reasoner = new OWLAPIReasoner(setup.getKnowledgeSource());
+			reasoner.setReasonerTypeString(reasonerType);
+			reasoner.init();
+		}
+	}
+
+	@Benchmark
+	public void isSuperClassOf(Data state, Blackhole bh) {
+		for(Description superClass : state.concepts) {
+			for(Description subClass : state.concepts) {
+				bh.consume(state.reasoner.isSuperClassOf(superClass, subClass));
+			}
+		}
+	}
+
+}
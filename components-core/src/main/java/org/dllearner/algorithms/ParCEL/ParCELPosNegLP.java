@@ -7,11 +7,11 @@ package org.dllearner.algorithms.ParCEL;
  * @author An C. Tran
  */
 
-import java.util.Set;
-
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.Set;
 
 import org.dllearner.core.AbstractLearningProblem;
 import org.dllearner.core.ComponentAnn;
@@ -22,6 +22,10 @@ import org.dllearner.core.options.ConfigOption;
 import org.dllearner.core.options.StringSetConfigOption;
 import org.dllearner.core.owl.Description;
 import org.dllearner.core.owl.Individual;
+import org.dllearner.learningproblems.EvaluationCache;
+import org.dllearner.utilities.Helper;
+
+import com.google.common.cache.CacheStats;
 
 @ComponentAnn(name = "ParCELPosNegLP", shortName = "parcelPosNegLP", version = 0.1, description = "ParCEL Positive&Negative Learning Problem")
 public class ParCELPosNegLP extends AbstractLearningProblem {
@@ -32,6 +36,15 @@ public class ParCELPosNegLP extends AbstractLearningProblem {
 	// currently uncovered positive examples
 	protected Set<Individual> uncoveredPositiveExamples;
 
+	// cache of the examples covered by evaluated descriptions, shared by all workers
+	@org.dllearner.core.config.ConfigOption(name = "useEvaluationCache", defaultValue = "false", description = "Whether to cache the examples covered by evaluated descriptions, so that descriptions generated by several workers are only evaluated once")
+	private boolean useEvaluationCache = false;
+	@org.dllearner.core.config.ConfigOption(name = "evaluationCacheMaxEntries", defaultValue = "100000", description = "Maximum number of descriptions kept in the evaluation cache")
+	private long evaluationCacheMaxEntries = EvaluationCache.DEFAULT_MAX_ENTRIES;
+	private EvaluationCache evaluationCache;
+	private BitSet positiveExampleBits;
+	private BitSet negativeExampleBits;
+
 	// private Logger logger = Logger.getLogger(this.getClass());
 
 	// reasoner component is declared in AbstractLearningProblem class
@@ -81,6 +94,12 @@ public class ParCELPosNegLP extends AbstractLearningProblem {
 	 * @return Set of positive examples covered by the description
 	 */
 	protected Set<Individual> coveredPositiveExamples(Description description) {
+		if (evaluationCache != null) {
+			BitSet covered = evaluationCache.getCoverage(description, reasoner);
+			covered.and(positiveExampleBits);
+			return new HashSet<Individual>(evaluationCache.toIndividuals(covered));
+		}
+
 		Set<Individual> coveredPositiveExamples = new HashSet<Individual>();
 
 		for (Individual example : positiveExamples)
@@ -116,6 +135,10 @@ public class ParCELPosNegLP extends AbstractLearningProblem {
 	 * @return Number if positive examples covered by the description
 	 */
 	protected int getNumberCoveredPositiveExamples(Description description) {
+		if (evaluationCache != null)
+			return EvaluationCache.getNrOfCovered(
+					evaluationCache.getCoverage(description, reasoner), positiveExampleBits);
+
 		int coveredPos = 0;
 
 		for (Individual example : positiveExamples) {
@@ -135,6 +158,10 @@ public class ParCELPosNegLP extends AbstractLearningProblem {
 	 * @return Number of negative examples covered by the description
 	 */
 	protected int getNumberOfCoveredNegativeExamples(Description description) {
+		if (evaluationCache != null)
+			return EvaluationCache.getNrOfCovered(
+					evaluationCache.getCoverage(description, reasoner), negativeExampleBits);
+
 		int coveredNeg = 0;
 
 		for (Individual example : negativeExamples) {
@@ -209,16 +236,9 @@ public class ParCELPosNegLP extends AbstractLearningProblem {
 	 */
 	public ParCELEvaluationResult getAccuracyAndCorrectness(Description description) {
 
-		int notCoveredPos = 0;
 		int notCoveredNeg = 0;
-		Set<Individual> coveredPositiveExamples = new HashSet<Individual>();
-
-		for (Individual example : positiveExamples) {
-			if (!reasoner.hasType(description, example))
-				notCoveredPos++;
-			else
-				coveredPositiveExamples.add(example);
-		}
+		Set<Individual> coveredPositiveExamples = coveredPositiveExamples(description);
+		int notCoveredPos = positiveExamples.size() - coveredPositiveExamples.size();
 
 		if (coveredPositiveExamples.size() > 0) {
 
@@ -260,9 +280,6 @@ public class ParCELPosNegLP extends AbstractLearningProblem {
 	 */
 	public ParCELEvaluationResult getAccuracyAndCorrectness2(Description description) {
 
-		int notCoveredNeg = 0;
-		Set<Individual> coveredPositiveExamples = new HashSet<Individual>();
-
 		// create a new set which contains all members of the uncovered positive examples
 		Set<Individual> localUncoveredPositiveExamples = null;
 
@@ -274,13 +291,35 @@ public class ParCELPosNegLP extends AbstractLearningProblem {
 		} else
 			localUncoveredPositiveExamples = new HashSet<Individual>(this.positiveExamples);
 
+		return calculateAccuracyAndCorrectness2(description, localUncoveredPositiveExamples);
+	}
+
+	/**
+	 * Same as {@link #getAccuracyAndCorrectness2(Description)}, but the accuracy is based on the
+	 * given uncovered positive examples instead of the ones set in this learning problem, e.g. for
+	 * evaluating descriptions on behalf of a remote learner
+	 * 
+	 * @param description
+	 *            Description to be calculated
+	 * @param uncoveredPositiveExamples
+	 *            Positive examples which are not covered yet, this set is not modified
+	 * @return
+	 */
+	public ParCELEvaluationResult getAccuracyAndCorrectness2(Description description,
+			Set<Individual> uncoveredPositiveExamples) {
+		return calculateAccuracyAndCorrectness2(description, new HashSet<Individual>(
+				uncoveredPositiveExamples));
+	}
+
+	private ParCELEvaluationResult calculateAccuracyAndCorrectness2(Description description,
+			Set<Individual> localUncoveredPositiveExamples) {
+
+		int notCoveredNeg = 0;
+
 		int originalNoOfUncoveredPositiveExamples = localUncoveredPositiveExamples.size();
 
 		// calculate the covered positive examples, we do
-		for (Individual example : positiveExamples) {
-			if (reasoner.hasType(description, example))
-				coveredPositiveExamples.add(example);
-		}
+		Set<Individual> coveredPositiveExamples = coveredPositiveExamples(description);
 
 		int noOfUpdatedCoveredPositiveExamples = localUncoveredPositiveExamples.size();
 		localUncoveredPositiveExamples.removeAll(coveredPositiveExamples);
@@ -469,6 +508,14 @@ public class ParCELPosNegLP extends AbstractLearningProblem {
 	@Override
 	public void init() throws ComponentInitException {
 		// super.init();
+		if (useEvaluationCache) {
+			Set<Individual> allExamples = Helper.union(positiveExamples, negativeExamples);
+			if (evaluationCache == null || !evaluationCache.containsExamples(allExamples))
+				evaluationCache = new EvaluationCache(allExamples, evaluationCacheMaxEntries, 0);
+			positiveExampleBits = evaluationCache.toBitSet(positiveExamples);
+			negativeExampleBits = evaluationCache.toBitSet(negativeExamples);
+		} else
+			evaluationCache = null;
 	}
 
 	public Set<Individual> getPositiveExamples() {
@@ -491,6 +538,37 @@ public class ParCELPosNegLP extends AbstractLearningProblem {
 		this.uncoveredPositiveExamples = uncoveredPositiveExamples;
 	}
 
+	public boolean isUseEvaluationCache() {
+		return useEvaluationCache;
+	}
+
+	public void setUseEvaluationCache(boolean useEvaluationCache) {
+		this.useEvaluationCache = useEvaluationCache;
+	}
+
+	public long getEvaluationCacheMaxEntries() {
+		return evaluationCacheMaxEntries;
+	}
+
+	public void setEvaluationCacheMaxEntries(long evaluationCacheMaxEntries) {
+		this.evaluationCacheMaxEntries = evaluationCacheMaxEntries;
+	}
+
+	public EvaluationCache getEvaluationCache() {
+		return evaluationCache;
+	}
+
+	public void setEvaluationCache(EvaluationCache evaluationCache) {
+		this.evaluationCache = evaluationCache;
+	}
+
+	/**
+	 * @return Hits, misses and evictions of the evaluation cache or null if the cache is not used
+	 */
+	public CacheStats getEvaluationCacheStats() {
+		return evaluationCache == null ? null : evaluationCache.getStats();
+	}
+
 	/**
 	 * Declare possible options for this component. This methods can be used by
 	 * <code>org.dllearner.scripts.ConfigJavaGenerator</code> to generate the configuration.
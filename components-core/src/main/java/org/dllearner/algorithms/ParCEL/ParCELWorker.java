@@ -1,7 +1,9 @@
 package org.dllearner.algorithms.ParCEL;
 
+import java.util.Collections;
 import java.util.HashSet;
 
+import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
 
@@ -11,8 +13,8 @@ import org.dllearner.refinementoperators.LengthLimitedRefinementOperator;
 import org.dllearner.refinementoperators.RefinementOperator;
 
 /**
- * ParCEL worker which will do the refinement on a given node and evaluate the refinement result. It
- * will return partial definitions and/or new description to the learner if any.
+ * ParCEL worker which will do the refinement on a given node (or a batch of nodes) and evaluate the
+ * refinement result. It will return partial definitions and/or new description to the learner if any.
  * 
  * @author An C. Tran
  * 
@@ -33,7 +35,10 @@ public class ParCELWorker implements Runnable {
 	// learning proble, provides accuracy & correctness calculation
 	private ParCELPosNegLP learningProblem;
 
-	// the node to be processed
+	// the nodes to be processed
+	private List<ParCELNode> nodesToProcess;
+
+	// the node which is currently being processed
 	private ParCELNode nodeToProcess;
 
 	private Logger logger = Logger.getLogger(this.getClass());
@@ -70,6 +75,7 @@ public class ParCELWorker implements Runnable {
 
 		this.learningProblem = learningProblem;
 
+		this.nodesToProcess = Collections.singletonList(nodeToProcess);
 		this.nodeToProcess = nodeToProcess;
 		this.name = name;
 
@@ -105,6 +111,7 @@ public class ParCELWorker implements Runnable {
 
 		this.learningProblem = learningProblem;
 
+		this.nodesToProcess = Collections.singletonList(nodeToProcess);
 		this.nodeToProcess = nodeToProcess;
 		this.name = name;
 
@@ -114,12 +121,65 @@ public class ParCELWorker implements Runnable {
 
 	/**
 	 * ============================================================================================
-	 * Start the worker: Call the methods processNode() for processing the current node given by
-	 * reducer
+	 * Constructor for Worker class which processes a batch of nodes, i.e. the refinement operator
+	 * is borrowed once per batch and the scheduling overhead is shared by the nodes
+	 * 
+	 * @param learner
+	 *            A reference to reducer which will be used to make a callback to return the result
+	 *            to
+	 * @param refinementOperatorPool
+	 *            Pool of the refinement operators used to refine the given nodes
+	 * @param learningProblem
+	 *            A learning problem used to calculate description accuracy, correctness, etc.
+	 * @param nodesToProcess
+	 *            Nodes will being processed, in this order
+	 * @param name
+	 *            Name of the worker, assigned by reduce (for tracing purpose only)
+	 */
+	public ParCELWorker(ParCELearner learner, ParCELRefinementOperatorPool refinementOperatorPool,
+			ParCELPosNegLP learningProblem, List<ParCELNode> nodesToProcess, String name) {
+
+		this(learner, refinementOperatorPool, learningProblem, nodesToProcess.get(0), name);
+
+		this.nodesToProcess = nodesToProcess;
+	}
+
+	/**
+	 * ============================================================================================
+	 * Start the worker: Call the methods processNode() for processing the nodes given by reducer.
+	 * The remaining nodes are skipped if the learner is not running anymore (definition found,
+	 * timeout or stopped). The learner is always notified when the worker finishes
 	 */
 	@Override
 	public void run() {
 
+		boolean borrowed = borrowRefinementOperator();
+
+		try {
+			for (ParCELNode node : nodesToProcess) {
+				if (!learner.isRunning() || Thread.currentThread().isInterrupted())
+					break;
+
+				nodeToProcess = node;
+				processNode(node);
+			}
+		} finally {
+			if (borrowed)
+				returnRefinementOperator();
+
+			learner.taskCompleted();
+		}
+	}
+
+	/**
+	 * ============================================================================================
+	 * Refine the given node, evaluate the refinements and return the results to the learner
+	 * 
+	 * @param nodeToProcess
+	 *            Node to be processed
+	 */
+	private void processNode(ParCELNode nodeToProcess) {
+
 		if (logger.isTraceEnabled())
 			logger.trace("[PLLearning] Processing node ("
 					+ ParCELStringUtilities.replaceString(nodeToProcess.toString(), this.baseURI,
@@ -207,43 +267,53 @@ public class ParCELWorker implements Runnable {
 			logger.trace("[" + this.name + "] Refining: "
 					+ ParCELStringUtilities.replaceString(node.toString(), baseURI, prefix));
 
-		boolean refirementOperatorBorrowed = false;
-
-		// borrow refinement operator if necessary
-		if (this.refinementOperator == null) {
-			if (this.refinementOperatorPool == null) {
-				logger.error("Neither refinement operator nor refinement operator pool provided");
-				return null;
-			} else {
-				try {
-					// logger.info("borrowing a refinement operator (" +
-					// refinementOperatorPool.getNumIdle() + ")");
-					this.refinementOperator = this.refinementOperatorPool.borrowObject();
-					refirementOperatorBorrowed = true;
-				} catch (Exception e) {
-					e.printStackTrace();
-				}
-			}
-		}
-
 		TreeSet<Description> refinements = (TreeSet<Description>) refinementOperator.refine(
 				node.getDescription(), horizExp + 1);
 		node.incHorizontalExpansion();
 		node.setRefinementCount(refinements.size());
 
-		// return the refinement operator
-		if (refirementOperatorBorrowed) {
-			try {
-				if (refinementOperator != null)
-					refinementOperatorPool.returnObject(refinementOperator);
-				else
-					logger.error("Cannot return the borrowed refinement operator");
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
+		return refinements;
+	}
+
+	/**
+	 * ============================================================================================
+	 * Borrow a refinement operator from the pool if no refinement operator was given
+	 * 
+	 * @return True if the refinement operator was borrowed and must be returned
+	 */
+	private boolean borrowRefinementOperator() {
+		if (this.refinementOperator != null)
+			return false;
+
+		if (this.refinementOperatorPool == null) {
+			logger.error("Neither refinement operator nor refinement operator pool provided");
+			return false;
 		}
 
-		return refinements;
+		try {
+			this.refinementOperator = this.refinementOperatorPool.borrowObject();
+			return true;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * ============================================================================================
+	 * Return the borrowed refinement operator to the pool
+	 */
+	private void returnRefinementOperator() {
+		try {
+			if (refinementOperator != null)
+				refinementOperatorPool.returnObject(refinementOperator);
+			else
+				logger.error("Cannot return the borrowed refinement operator");
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+
+		this.refinementOperator = null;
 	}
 
 	/**============================================================================================
@@ -8,13 +8,19 @@ package org.dllearner.algorithms.ParCEL;
  * 			Basically, the number of workers should be 2 x number of cores</li>
  * 	<li>maxExecutionTimeInSecond: Timeout in ms. By default, there is no timeout for the learning</li>
  * 	<li>maxNoOfSplits: Maximal number os split used for numerical data properties. SHABDDoubleSplitter may be used.</li>
+ * 	<li>remoteWorkers: Addresses (host:port) of worker servers. If set, the nodes are refined and evaluated by
+ * 			these servers instead of local workers (see ParCELWorkerServer)</li>
+ * 	<li>remoteWorkerSecret: Secret shared by the coordinator and the worker servers, which authenticates
+ * 			the coordinator</li>
  * </ol>
  * 
  *	@author An C. Tran
  *	@author Jens Dietrich
  */
 
+import java.io.IOException;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.Collection;
 
 import java.util.HashSet;
@@ -28,9 +34,13 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
+import org.dllearner.algorithms.ParCEL.distributed.ParCELRemoteHandshake;
+import org.dllearner.algorithms.ParCEL.distributed.ParCELRemoteWorker;
+import org.dllearner.algorithms.ParCEL.distributed.ParCELRemoteWorkerPool;
 import org.dllearner.algorithms.ParCEL.split.ParCELDoubleSplitterAbstract;
 
 import org.apache.log4j.Logger;
@@ -39,6 +49,8 @@ import org.dllearner.core.AbstractReasonerComponent;
 import org.dllearner.core.ComponentAnn;
 import org.dllearner.core.ComponentInitException;
 import org.dllearner.core.EvaluatedDescription;
+import org.dllearner.core.config.ConfigOption;
+import org.dllearner.core.config.ListStringEditor;
 import org.dllearner.core.owl.ClassHierarchy;
 import org.dllearner.core.owl.DatatypeProperty;
 import org.dllearner.core.owl.Description;
@@ -54,6 +66,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 @ComponentAnn(name = "ParCEL", shortName = "parcel", version = 0.1, description = "PARallel divide and conque Class Exprerssion Learning")
 public class ParCELearner extends ParCELAbstract implements ParCELearnerMBean {
 
+	@ConfigOption(name = "maxTaskBatchSize", defaultValue = "4", description = "The maximal number of nodes processed by one task. Fewer nodes are used if the search tree is small")
+	private int maxTaskBatchSize = 4;
+
+	@ConfigOption(name = "remoteWorkers", defaultValue = "[]", required = false, propertyEditorClass = ListStringEditor.class, description = "Addresses (host:port) of ParCEL worker servers. If set, the nodes are refined and evaluated by these servers instead of local workers")
+	private List<String> remoteWorkers = new LinkedList<String>();
+
+	@ConfigOption(name = "remoteWorkerSecret", required = false, description = "Secret shared with the ParCEL worker servers. The worker servers only accept coordinators which know the secret of their own configuration")
+	private String remoteWorkerSecret = null;
 
 	private RefinementOperator refinementOperator = null; 
 
@@ -81,6 +101,24 @@ public class ParCELearner extends ParCELAbstract implements ParCELearnerMBean {
 	 */
 	ThreadPoolExecutor workerPool;
 
+	/**
+	 * Permits for the tasks which are queued or running, i.e. the learner blocks on this semaphore
+	 * instead of polling the size of the task queue
+	 */
+	private Semaphore taskPermits;
+	private int maxNumberOfTasks;
+
+	/**
+	 * Monitor the learner waits on if the search tree is empty. It is notified when new nodes are
+	 * added, a task is completed, or the learner is done or stopped
+	 */
+	private final Object searchTreeMonitor = new Object();
+
+	/**
+	 * Connections to the worker servers in the distributed mode, null otherwise
+	 */
+	private ParCELRemoteWorkerPool remoteWorkerPool;
+
 	/**
 	 * Refinement operator pool which provides refinement operators
 	 */
@@ -118,19 +156,19 @@ public class ParCELearner extends ParCELAbstract implements ParCELearnerMBean {
 	/**
 	 * The learner is stopped (reasons: done, timeout, out of memory, etc.)
 	 */
-	private boolean stop = false;
+	private volatile boolean stop = false;
 
 	
 	/**
 	 * All positive examples are covered
 	 */
-	private boolean done = false;
+	private volatile boolean done = false;
 
 	
 	/**
 	 * Learner get timeout
 	 */
-	private boolean timeout = false;
+	private volatile boolean timeout = false;
 	
 	
 	// configuration for worker pool
@@ -293,6 +331,10 @@ public class ParCELearner extends ParCELAbstract implements ParCELearnerMBean {
 					+ ", negative examples: " + negativeExamples.size());
 		}
 
+		if (remoteWorkers != null && !remoteWorkers.isEmpty()
+				&& (remoteWorkerSecret == null || remoteWorkerSecret.isEmpty()))
+			throw new ComponentInitException("The option remoteWorkerSecret must be set to use remote workers");
+
 		minNumberOfWorker = maxNumberOfWorker = numberOfWorkers;
 
 	} // init()
@@ -335,12 +377,34 @@ public class ParCELearner extends ParCELAbstract implements ParCELearnerMBean {
 
 		searchTree.add(startNode); // add the root node into the search tree
 
+		// ---------------------------------------------
+		// connect to the worker servers (distributed mode)
+		// ---------------------------------------------
+		if (remoteWorkers != null && !remoteWorkers.isEmpty()) {
+			try {
+				remoteWorkerPool = new ParCELRemoteWorkerPool(remoteWorkers,
+						new ParCELRemoteHandshake(positiveExamples, negativeExamples), remoteWorkerSecret);
+			} catch (IOException e) {
+				throw new RuntimeException("Cannot connect to the remote workers", e);
+			}
+
+			// one local worker per connection, which waits for the result of the worker server
+			minNumberOfWorker = maxNumberOfWorker = remoteWorkerPool.getNumberOfConnections();
+		} else {
+			remoteWorkerPool = null;
+			minNumberOfWorker = maxNumberOfWorker = numberOfWorkers;
+		}
+
 		// ---------------------------------------------
 		// create worker pool
 		// ---------------------------------------------
 		// taskQueue = new ArrayBlockingQueue<Runnable>(maxTaskQueueLength);
 		taskQueue = new LinkedBlockingQueue<Runnable>(maxTaskQueueLength);
 
+		// the tasks waiting in the queue and the tasks being run by the workers
+		maxNumberOfTasks = maxTaskQueueLength + maxNumberOfWorker;
+		taskPermits = new Semaphore(maxNumberOfTasks);
+
 		workerPool = new ThreadPoolExecutor(minNumberOfWorker, maxNumberOfWorker, keepAliveTime,
 				TimeUnit.MILLISECONDS, taskQueue, new ParCELWorkerThreadFactory());
 
@@ -368,38 +432,57 @@ public class ParCELearner extends ParCELAbstract implements ParCELearnerMBean {
 			// -------------------
 			// check for timeout
 			// -------------------
-			timeout = (this.maxExecutionTimeInSeconds > 0 && (System.currentTimeMillis() - miliStarttime) > this.maxExecutionTimeInSeconds * 1000);
+			long remainingTime = getRemainingTime();
+			timeout = (remainingTime <= 0);
 
 			if (timeout)
 				break;
 
-			ParCELNode nodeToProcess;
+			if (remoteWorkerPool != null && remoteWorkerPool.getNumberOfConnections() == 0) {
+				logger.error("All remote workers failed, learning is terminated");
+				break;
+			}
 
-			nodeToProcess = searchTree.pollLast();
+			try {
+				// wait for a free slot in the task queue, but not longer than the time left
+				if (!taskPermits.tryAcquire(remainingTime, TimeUnit.MILLISECONDS))
+					continue;
+			} catch (InterruptedException e) {
+				logger.error(e);
+				break;
+			}
 
-			// TODO: why this? why "blocking" concept does not help in this case?
-			// remove this checking will exploit the heap memory and no definition found
-			// NOTE: i) instead of using sleep, can we use semaphore here?
-			// ii) if using semaphore or blocking, timeout checking may not be performed on time?
-			while ((workerPool.getQueue().size() >= maxTaskQueueLength) && !done) {
+			List<ParCELNode> nodesToProcess = pollNodesToProcess();
+
+			if (nodesToProcess.isEmpty()) {
+				taskPermits.release();
+
+				// wait for the running tasks to add new nodes
 				try {
-					Thread.sleep(20);
+					if (!awaitNewNodes(getRemainingTime())) {
+						if (logger.isInfoEnabled())
+							logger.info("Search tree is empty and no task is running, the search space is exhausted");
+						break;
+					}
 				} catch (InterruptedException e) {
-					e.printStackTrace();
+					logger.error(e);
+					break;
 				}
+
+				continue;
 			}
 
-			//NOTE: the above WHILE loop and the following IF statement require checking "done" 
-			//		condition to prevent waiting for the full+finish job or the full+terminating workerpool 
-			
-			if ((nodeToProcess != null) && !done && !workerPool.isShutdown() && !workerPool.isTerminating()) {
+			//NOTE: the nodes are not processed anymore when the learner is done, see isTerminateCriteriaSatisfied() 
+			if (!done && !workerPool.isShutdown() && !workerPool.isTerminating()) {
 				try {
-					this.createNewTask(nodeToProcess);
+					this.createNewTask(nodesToProcess);
 				} catch (RejectedExecutionException re) {
 					logger.error(re);
-					this.searchTree.add(nodeToProcess);
+					taskPermits.release();
+					this.searchTree.addAll(nodesToProcess);
 				}
-			}
+			} else
+				taskPermits.release();
 		} // while the algorithm is not finish
 
 		this.miliLearningTime = System.currentTimeMillis() - miliStarttime;
@@ -471,10 +554,91 @@ public class ParCELearner extends ParCELAbstract implements ParCELearnerMBean {
 	} // start()
 
 	
-	//create a new task given a PDLLNode
-	private void createNewTask(ParCELNode nodeToProcess) {
-		workerPool.execute(new ParCELWorker(this, this.refinementOperatorPool,
-				(ParCELPosNegLP) learningProblem, nodeToProcess, "PDLLTask-" + (noOfTask++)));
+	/**
+	 * Create a new task given a batch of nodes. The task has to add the resulting nodes to the search
+	 * tree before it calls {@link #taskCompleted()}
+	 * 
+	 * @param nodesToProcess
+	 *            Nodes to be processed by the task
+	 */
+	protected void createNewTask(List<ParCELNode> nodesToProcess) {
+		if (remoteWorkerPool != null)
+			workerPool.execute(new ParCELRemoteWorker(this, remoteWorkerPool, nodesToProcess,
+					"PDLLTask-" + (noOfTask++)));
+		else
+			workerPool.execute(new ParCELWorker(this, this.refinementOperatorPool,
+					(ParCELPosNegLP) learningProblem, nodesToProcess, "PDLLTask-" + (noOfTask++)));
+	}
+
+	/**
+	 * Take the best nodes from the search tree for the next task. The batch size is reduced if the
+	 * search tree is small so that the nodes are still distributed over all workers
+	 * 
+	 * @return The nodes to be processed, empty if the search tree is empty
+	 */
+	private List<ParCELNode> pollNodesToProcess() {
+		int batchSize = Math.max(1, Math.min(maxTaskBatchSize, searchTree.size() / maxNumberOfWorker));
+
+		List<ParCELNode> nodesToProcess = new ArrayList<ParCELNode>(batchSize);
+		ParCELNode node;
+		while (nodesToProcess.size() < batchSize && (node = searchTree.pollLast()) != null)
+			nodesToProcess.add(node);
+
+		return nodesToProcess;
+	}
+
+	/**
+	 * Get the time left for learning
+	 * 
+	 * @return The remaining time in ms, Long.MAX_VALUE if there is no timeout
+	 */
+	private long getRemainingTime() {
+		if (this.maxExecutionTimeInSeconds <= 0)
+			return Long.MAX_VALUE;
+
+		return miliStarttime + this.maxExecutionTimeInSeconds * 1000L - System.currentTimeMillis();
+	}
+
+	/**
+	 * Wait until the search tree is not empty, a task is completed, the learner is done or stopped,
+	 * or the given time elapsed
+	 * 
+	 * @param maxWaitingTime
+	 *            Maximal waiting time in ms
+	 * 
+	 * @return False if the search tree is empty and there is no task which could add new nodes,
+	 *         true otherwise
+	 */
+	private boolean awaitNewNodes(long maxWaitingTime) throws InterruptedException {
+		synchronized (searchTreeMonitor) {
+			// the tasks add their nodes before they free their permits, hence the permits are checked
+			// first: if no task is running, the nodes of all tasks are in the search tree already
+			boolean noRunningTask = taskPermits.availablePermits() == maxNumberOfTasks;
+
+			if (!searchTree.isEmpty() || isTerminateCriteriaSatisfied() || maxWaitingTime <= 0)
+				return true;
+
+			if (noRunningTask)
+				return false;
+
+			searchTreeMonitor.wait(maxWaitingTime == Long.MAX_VALUE ? 0 : maxWaitingTime);
+			return true;
+		}
+	}
+
+	private void notifySearchTreeMonitor() {
+		synchronized (searchTreeMonitor) {
+			searchTreeMonitor.notifyAll();
+		}
+	}
+
+	/**
+	 * ============================================================================================
+	 * Callback method for worker when it finished its task: Frees the slot of the task
+	 */
+	public void taskCompleted() {
+		taskPermits.release();
+		notifySearchTreeMonitor();
 	}
 
 	/**
@@ -555,6 +719,7 @@ public class ParCELearner extends ParCELAbstract implements ParCELearnerMBean {
 			// check if the complete definition found
 			if (uncoveredPositiveExamplesSize <= uncoveredPositiveExampleAllowed) {
 				this.done = true;
+				notifySearchTreeMonitor();
 				// stop();
 			}
 
@@ -575,6 +740,7 @@ public class ParCELearner extends ParCELAbstract implements ParCELearnerMBean {
 	 */
 	public void newRefinementDescriptions(Set<ParCELNode> newNodes) {
 		searchTree.addAll(newNodes);
+		notifySearchTreeMonitor();
 	}
 
 	
@@ -633,8 +799,9 @@ public class ParCELearner extends ParCELAbstract implements ParCELearnerMBean {
 	 *         found, or timeout), false otherwise
 	 */
 	private boolean isTerminateCriteriaSatisfied() {
-		return stop || ((searchTree.size() == 0) && (done == true)) || timeout;
-		//return stop || done || timeout;// ||
+		// the remaining nodes are not processed anymore when the learner is done
+		return stop || done || timeout;
+		//return stop || ((searchTree.size() == 0) && (done == true)) || timeout;// ||
 		// (Runtime.getRuntime().totalMemory() >= this.maxHeapSize
 		// && Runtime.getRuntime().freeMemory() < this.outOfMemory);
 	}
@@ -661,7 +828,12 @@ public class ParCELearner extends ParCELAbstract implements ParCELearnerMBean {
 
 		if (!stop) {
 			stop = true;
+			notifySearchTreeMonitor();
 			workerPool.shutdownNow();
+
+			// the remote workers are blocked in reading the results
+			if (remoteWorkerPool != null)
+				remoteWorkerPool.close();
 			
 			//wait until all workers are terminated
 			try {
@@ -835,6 +1007,17 @@ public class ParCELearner extends ParCELAbstract implements ParCELearnerMBean {
 		return partialDefinitions;
 	}
 
+	/**
+	 * Get the positive examples which are not covered by the partial definitions found so far
+	 * 
+	 * @return A copy of the uncovered positive examples
+	 */
+	public Set<Individual> getCurrentlyUncoveredPositiveExamples() {
+		synchronized (uncoveredPositiveExamples) {
+			return new HashSet<Individual>(uncoveredPositiveExamples);
+		}
+	}
+
 	/*
 	 * public Set<PDLLNode> getSearchTree() { return searchTree; }
 	 */
@@ -876,6 +1059,10 @@ public class ParCELearner extends ParCELAbstract implements ParCELearnerMBean {
 		return this.refinementOperator;
 	}
 
+	public ParCELRefinementOperatorPool getRefinementOperatorPool() {
+		return this.refinementOperatorPool;
+	}
+
 	@Autowired(required = false)
 	public void setSplitter(ParCELDoubleSplitterAbstract splitter) {
 		this.splitter = splitter;
@@ -911,4 +1098,28 @@ public class ParCELearner extends ParCELAbstract implements ParCELearnerMBean {
 		return this.noOfUncoveredPositiveExamples;
 	}
 
+	public int getMaxTaskBatchSize() {
+		return maxTaskBatchSize;
+	}
+
+	public void setMaxTaskBatchSize(int maxTaskBatchSize) {
+		this.maxTaskBatchSize = maxTaskBatchSize;
+	}
+
+	public List<String> getRemoteWorkers() {
+		return remoteWorkers;
+	}
+
+	public void setRemoteWorkers(List<String> remoteWorkers) {
+		this.remoteWorkers = remoteWorkers;
+	}
+
+	public String getRemoteWorkerSecret() {
+		return remoteWorkerSecret;
+	}
+
+	public void setRemoteWorkerSecret(String remoteWorkerSecret) {
+		this.remoteWorkerSecret = remoteWorkerSecret;
+	}
+
 }
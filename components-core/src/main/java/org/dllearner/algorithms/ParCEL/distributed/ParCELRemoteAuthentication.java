@@ -0,0 +1,81 @@
+package org.dllearner.algorithms.ParCEL.distributed;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Authentication of a coordinator by a worker server, which takes place before any object is
+ * exchanged on a connection: the worker server sends a random challenge and the coordinator replies
+ * with the HMAC of the challenge, keyed by the secret shared by the coordinator and the worker
+ * server. Hence, the secret itself is not sent and a reply cannot be reused for another connection.
+ */
+class ParCELRemoteAuthentication {
+
+	private static final String ALGORITHM = "HmacSHA256";
+
+	static final int CHALLENGE_LENGTH = 32;
+	static final int RESPONSE_LENGTH = 32;
+
+	private static final SecureRandom random = new SecureRandom();
+
+	private ParCELRemoteAuthentication() {
+	}
+
+	/**
+	 * Send a new challenge
+	 *
+	 * @return The challenge
+	 */
+	static byte[] sendChallenge(OutputStream out) throws IOException {
+		byte[] challenge = new byte[CHALLENGE_LENGTH];
+		random.nextBytes(challenge);
+
+		out.write(challenge);
+		out.flush();
+
+		return challenge;
+	}
+
+	/**
+	 * Read the challenge of the worker server and send the response
+	 */
+	static void respond(InputStream in, OutputStream out, String secret) throws IOException {
+		byte[] challenge = new byte[CHALLENGE_LENGTH];
+		new DataInputStream(in).readFully(challenge);
+
+		out.write(computeResponse(challenge, secret));
+		out.flush();
+	}
+
+	/**
+	 * Read the response of the coordinator
+	 *
+	 * @return True if the coordinator knows the secret
+	 */
+	static boolean verify(InputStream in, byte[] challenge, String secret) throws IOException {
+		byte[] response = new byte[RESPONSE_LENGTH];
+		new DataInputStream(in).readFully(response);
+
+		// the comparison takes the same time for all responses
+		return MessageDigest.isEqual(computeResponse(challenge, secret), response);
+	}
+
+	private static byte[] computeResponse(byte[] challenge, String secret) throws IOException {
+		try {
+			Mac mac = Mac.getInstance(ALGORITHM);
+			mac.init(new SecretKeySpec(secret.getBytes(Charset.forName("UTF-8")), ALGORITHM));
+			return mac.doFinal(challenge);
+		} catch (GeneralSecurityException e) {
+			throw new IOException("Cannot compute the authentication response", e);
+		}
+	}
+}
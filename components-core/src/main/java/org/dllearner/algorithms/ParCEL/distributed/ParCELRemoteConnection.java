@@ -0,0 +1,149 @@
+package org.dllearner.algorithms.ParCEL.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Connection from the coordinator to a {@link ParCELWorkerServer}. The coordinator authenticates
+ * itself by the secret shared with the worker server, see {@link ParCELRemoteAuthentication}. Then the
+ * messages are serialised objects, i.e. a task is written and the result is read. A connection
+ * processes one task at a time.
+ */
+public class ParCELRemoteConnection {
+
+	private static final int CONNECT_TIMEOUT = 10000; // ms
+
+	private final String address;
+	private final Socket socket;
+	private final ObjectOutputStream out;
+	private final ObjectInputStream in;
+
+	private int numberOfWorkers;
+
+	/**
+	 * Connect to a worker server and send the handshake
+	 * 
+	 * @param address
+	 *            Address of the worker server: host:port
+	 * @param handshake
+	 *            Handshake containing the examples of the coordinator
+	 * @param secret
+	 *            Secret shared with the worker server
+	 * 
+	 * @throws IOException
+	 *             If the worker server cannot be reached or does not accept the handshake
+	 */
+	public ParCELRemoteConnection(String address, ParCELRemoteHandshake handshake, String secret)
+			throws IOException {
+		this.address = address;
+
+		if (secret == null || secret.isEmpty())
+			throw new IOException("No secret is set for the worker " + address);
+
+		int separator = address.lastIndexOf(':');
+		if (separator < 0)
+			throw new IOException("Invalid worker address \"" + address + "\", expected host:port");
+
+		String host = address.substring(0, separator);
+		int port;
+		try {
+			port = Integer.parseInt(address.substring(separator + 1));
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid worker address \"" + address + "\", expected host:port");
+		}
+
+		socket = new Socket();
+		try {
+			socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+			socket.setTcpNoDelay(true);
+
+			ParCELRemoteAuthentication.respond(socket.getInputStream(), socket.getOutputStream(),
+					secret);
+
+			// the output stream has to be created first, it writes the stream header
+			out = new ObjectOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			out.flush();
+			in = new ParCELRemoteObjectInputStream(new BufferedInputStream(socket.getInputStream()));
+
+			ParCELRemoteHandshake reply;
+			try {
+				reply = (ParCELRemoteHandshake) exchange(handshake);
+			} catch (EOFException e) {
+				throw new IOException("Worker " + address
+						+ " closed the connection, the secrets of the coordinator and the worker may differ");
+			}
+			if (reply.getError() != null)
+				throw new IOException("Worker " + address + " refused the connection: "
+						+ reply.getError());
+
+			numberOfWorkers = reply.getNumberOfWorkers();
+		} catch (IOException e) {
+			socket.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Send a task to the worker server and wait for the result
+	 * 
+	 * @param task
+	 *            Task to be processed
+	 * 
+	 * @return The result, which contains an error message if the worker could not process the task.
+	 *         The connection can still be used in this case
+	 * 
+	 * @throws IOException
+	 *             If the connection failed
+	 */
+	public ParCELRemoteResult process(ParCELRemoteTask task) throws IOException {
+		return (ParCELRemoteResult) exchange(task);
+	}
+
+	private Object exchange(Object request) throws IOException {
+		out.writeObject(request);
+		out.flush();
+
+		// do not keep references to the sent objects
+		out.reset();
+
+		try {
+			return in.readObject();
+		} catch (ClassNotFoundException e) {
+			throw new IOException(e);
+		}
+	}
+
+	/**
+	 * Close the connection. A task being processed fails with an IOException
+	 */
+	public void close() {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// the connection is not used anymore
+		}
+	}
+
+	public String getAddress() {
+		return address;
+	}
+
+	/**
+	 * @return The number of workers of the worker server, i.e. the number of tasks it can process
+	 *         in parallel
+	 */
+	public int getNumberOfWorkers() {
+		return numberOfWorkers;
+	}
+
+	@Override
+	public String toString() {
+		return address;
+	}
+}
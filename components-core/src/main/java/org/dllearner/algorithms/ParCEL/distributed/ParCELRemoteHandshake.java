@@ -0,0 +1,129 @@
+package org.dllearner.algorithms.ParCEL.distributed;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import org.dllearner.core.owl.Individual;
+
+/**
+ * First message of a connection between the ParCEL coordinator and a worker server. The coordinator
+ * sends its examples, which the worker checks against its own learning problem, and the worker
+ * sends the handshake back with the number of its workers or an error message.<br>
+ * The order of the positive examples defines the bits of the sets of positive examples exchanged
+ * later on this connection.
+ */
+public class ParCELRemoteHandshake implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	// identifies the learning run, the connections of a run share the generated descriptions
+	private final String sessionId = UUID.randomUUID().toString();
+
+	private final List<Individual> positiveExamples;
+	private final Set<Individual> negativeExamples;
+
+	private int numberOfWorkers = 0;
+	private String error = null;
+
+	// position of the positive examples, created on demand
+	private transient Map<Individual, Integer> positiveExampleIndex;
+
+	public ParCELRemoteHandshake(Collection<Individual> positiveExamples,
+			Set<Individual> negativeExamples) {
+		this.positiveExamples = new ArrayList<Individual>(positiveExamples);
+		this.negativeExamples = new HashSet<Individual>(negativeExamples);
+	}
+
+	/**
+	 * Check if the given examples are the same as the examples of the coordinator
+	 * 
+	 * @return True if both the positive and negative examples are the same
+	 */
+	public boolean hasExamples(Set<Individual> positiveExamples, Set<Individual> negativeExamples) {
+		return new HashSet<Individual>(this.positiveExamples).equals(positiveExamples)
+				&& this.negativeExamples.equals(negativeExamples);
+	}
+
+	/**
+	 * Encode a set of positive examples as bitset
+	 * 
+	 * @param individuals
+	 *            Positive examples, other individuals are ignored
+	 * 
+	 * @return Bitset which contains the positions of the given positive examples
+	 */
+	public BitSet encode(Set<Individual> individuals) {
+		Map<Individual, Integer> index = getPositiveExampleIndex();
+
+		BitSet bits = new BitSet(positiveExamples.size());
+		for (Individual ind : individuals) {
+			Integer i = index.get(ind);
+			if (i != null)
+				bits.set(i);
+		}
+
+		return bits;
+	}
+
+	/**
+	 * Decode a bitset created by {@link #encode(Set)}
+	 * 
+	 * @param bits
+	 *            Positions of positive examples
+	 * 
+	 * @return The positive examples
+	 */
+	public Set<Individual> decode(BitSet bits) {
+		Set<Individual> individuals = new HashSet<Individual>();
+		for (int i = bits.nextSetBit(0); i >= 0; i = bits.nextSetBit(i + 1))
+			individuals.add(positiveExamples.get(i));
+
+		return individuals;
+	}
+
+	private synchronized Map<Individual, Integer> getPositiveExampleIndex() {
+		if (positiveExampleIndex == null) {
+			positiveExampleIndex = new HashMap<Individual, Integer>();
+			for (int i = 0; i < positiveExamples.size(); i++)
+				positiveExampleIndex.put(positiveExamples.get(i), i);
+		}
+
+		return positiveExampleIndex;
+	}
+
+	public String getSessionId() {
+		return sessionId;
+	}
+
+	public List<Individual> getPositiveExamples() {
+		return positiveExamples;
+	}
+
+	public Set<Individual> getNegativeExamples() {
+		return negativeExamples;
+	}
+
+	public int getNumberOfWorkers() {
+		return numberOfWorkers;
+	}
+
+	public void setNumberOfWorkers(int numberOfWorkers) {
+		this.numberOfWorkers = numberOfWorkers;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+}
@@ -0,0 +1,83 @@
+package org.dllearner.algorithms.ParCEL.distributed;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Input stream for the messages exchanged between the coordinator and the worker servers. Only the
+ * classes of the messages are deserialised, i.e. the ParCELRemote* messages, the description and
+ * individual model classes, bitsets, collections and boxed primitives. Any other class is rejected
+ * before an instance of it is created.
+ */
+class ParCELRemoteObjectInputStream extends ObjectInputStream {
+
+	private static final Set<String> ALLOWED_CLASSES = new HashSet<String>(Arrays.asList(
+			"java.lang.Boolean", "java.lang.Number", "java.lang.Integer", "java.lang.Long",
+			"java.lang.Double", "java.lang.Enum", "java.net.URI", "java.util.ArrayList",
+			"java.util.LinkedList", "java.util.HashSet", "java.util.LinkedHashSet",
+			"java.util.HashMap", "java.util.LinkedHashMap", "java.util.BitSet"));
+
+	private static final String MESSAGE_PREFIX = ParCELRemoteObjectInputStream.class.getPackage()
+			.getName() + ".ParCELRemote";
+
+	private static final String MODEL_PACKAGE = "org.dllearner.core.owl.";
+
+	ParCELRemoteObjectInputStream(InputStream in) throws IOException {
+		super(in);
+	}
+
+	@Override
+	protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException,
+			ClassNotFoundException {
+		if (!isAllowed(desc.getName()))
+			throw new InvalidClassException(desc.getName(), "class is not allowed in ParCEL messages");
+
+		return super.resolveClass(desc);
+	}
+
+	@Override
+	protected Class<?> resolveProxyClass(String[] interfaces) throws IOException,
+			ClassNotFoundException {
+		throw new InvalidClassException("proxy classes are not allowed in ParCEL messages");
+	}
+
+	/**
+	 * Check if instances of a class may be deserialised
+	 *
+	 * @param className
+	 *            Name of the class, as given by {@link Class#getName()}
+	 *
+	 * @return True if the class is used by the messages
+	 */
+	static boolean isAllowed(String className) {
+		// arrays are allowed if their component type is
+		int dimensions = 0;
+		while (dimensions < className.length() && className.charAt(dimensions) == '[')
+			dimensions++;
+
+		if (dimensions > 0) {
+			String componentType = className.substring(dimensions);
+			if (componentType.length() == 1)
+				return true; // primitive type
+
+			className = componentType.substring(1, componentType.length() - 1); // Lname;
+		}
+
+		if (ALLOWED_CLASSES.contains(className) || className.startsWith(MESSAGE_PREFIX))
+			return true;
+
+		// the immutable collections created by java.util.Collections
+		if (className.matches("java\\.util\\.Collections\\$(Empty|Singleton|Unmodifiable)\\w*"))
+			return true;
+
+		// the model classes, but not the classes of the sub packages
+		return className.startsWith(MODEL_PACKAGE)
+				&& className.indexOf('.', MODEL_PACKAGE.length()) < 0;
+	}
+}
@@ -0,0 +1,108 @@
+package org.dllearner.algorithms.ParCEL.distributed;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import org.dllearner.core.owl.Description;
+
+/**
+ * Result of a {@link ParCELRemoteTask}: the evaluated refinements of each node of the task, in the
+ * order of the task. Refinements which are weak (cover no uncovered positive example) or which were
+ * already generated by the worker server are not included.
+ */
+public class ParCELRemoteResult implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int[] refinementCounts;
+	private final List<List<Refinement>> refinements;
+
+	// set if the task could not be processed
+	private String error = null;
+
+	public ParCELRemoteResult(int noOfNodes) {
+		this.refinementCounts = new int[noOfNodes];
+		this.refinements = new ArrayList<List<Refinement>>(noOfNodes);
+		for (int i = 0; i < noOfNodes; i++)
+			refinements.add(new ArrayList<Refinement>());
+	}
+
+	public void setRefinementCount(int node, int refinementCount) {
+		this.refinementCounts[node] = refinementCount;
+	}
+
+	/**
+	 * @return The number of refinements of the node before the redundancy check and evaluation
+	 */
+	public int getRefinementCount(int node) {
+		return refinementCounts[node];
+	}
+
+	public void addRefinement(int node, Refinement refinement) {
+		this.refinements.get(node).add(refinement);
+	}
+
+	public List<Refinement> getRefinements(int node) {
+		return refinements.get(node);
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+
+	/**
+	 * An evaluated refinement. The covered positive examples are only set for partial definitions,
+	 * i.e. refinements with correctness 1
+	 */
+	public static class Refinement implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private final Description description;
+		private final double accuracy;
+		private final double correctness;
+		private final double completeness;
+		private final BitSet coveredPositiveExamples;
+		private final long generationTime;
+
+		public Refinement(Description description, double accuracy, double correctness,
+				double completeness, BitSet coveredPositiveExamples, long generationTime) {
+			this.description = description;
+			this.accuracy = accuracy;
+			this.correctness = correctness;
+			this.completeness = completeness;
+			this.coveredPositiveExamples = coveredPositiveExamples;
+			this.generationTime = generationTime;
+		}
+
+		public Description getDescription() {
+			return description;
+		}
+
+		public double getAccuracy() {
+			return accuracy;
+		}
+
+		public double getCorrectness() {
+			return correctness;
+		}
+
+		public double getCompleteness() {
+			return completeness;
+		}
+
+		public BitSet getCoveredPositiveExamples() {
+			return coveredPositiveExamples;
+		}
+
+		public long getGenerationTime() {
+			return generationTime;
+		}
+	}
+}
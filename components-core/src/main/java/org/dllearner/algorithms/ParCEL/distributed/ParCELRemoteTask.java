@@ -0,0 +1,42 @@
+package org.dllearner.algorithms.ParCEL.distributed;
+
+import java.io.Serializable;
+import java.util.BitSet;
+import java.util.List;
+
+import org.dllearner.core.owl.Description;
+
+/**
+ * Batch of search tree nodes sent by the coordinator to a worker server. The nodes are represented
+ * by their descriptions and horizontal expansions only, the rest of the search tree stays at the
+ * coordinator.
+ */
+public class ParCELRemoteTask implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final List<Description> descriptions;
+	private final int[] horizontalExpansions;
+
+	// positive examples not covered by the partial definitions found so far
+	private final BitSet uncoveredPositiveExamples;
+
+	public ParCELRemoteTask(List<Description> descriptions, int[] horizontalExpansions,
+			BitSet uncoveredPositiveExamples) {
+		this.descriptions = descriptions;
+		this.horizontalExpansions = horizontalExpansions;
+		this.uncoveredPositiveExamples = uncoveredPositiveExamples;
+	}
+
+	public List<Description> getDescriptions() {
+		return descriptions;
+	}
+
+	public int[] getHorizontalExpansions() {
+		return horizontalExpansions;
+	}
+
+	public BitSet getUncoveredPositiveExamples() {
+		return uncoveredPositiveExamples;
+	}
+}
@@ -0,0 +1,147 @@
+package org.dllearner.algorithms.ParCEL.distributed;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.dllearner.algorithms.ParCEL.ParCELExtraNode;
+import org.dllearner.algorithms.ParCEL.ParCELNode;
+import org.dllearner.algorithms.ParCEL.ParCELearner;
+import org.dllearner.core.owl.Description;
+
+/**
+ * Counterpart of the ParCELWorker for the distributed mode: the nodes are refined and evaluated by a
+ * worker server and this task merges the result into the search tree of the coordinator, i.e. it
+ * makes the redundancy check and the callbacks to the learner.<br>
+ * If the connection fails, the nodes are given back to the search tree and the connection is
+ * removed from the pool. If the worker server cannot process the task, the nodes are given back as
+ * well, but the connection is kept.
+ */
+public class ParCELRemoteWorker implements Runnable {
+
+	private static Logger logger = Logger.getLogger(ParCELRemoteWorker.class);
+
+	private final ParCELearner learner;
+	private final ParCELRemoteWorkerPool workerPool;
+	private final List<ParCELNode> nodesToProcess;
+
+	// name of worker (for debugging purpose)
+	private final String name;
+
+	public ParCELRemoteWorker(ParCELearner learner, ParCELRemoteWorkerPool workerPool,
+			List<ParCELNode> nodesToProcess, String name) {
+		this.learner = learner;
+		this.workerPool = workerPool;
+		this.nodesToProcess = nodesToProcess;
+		this.name = name;
+	}
+
+	@Override
+	public void run() {
+		try {
+			// the nodes are not needed anymore
+			if (!learner.isRunning())
+				return;
+
+			ParCELRemoteConnection connection = workerPool.borrowConnection();
+
+			// all connections failed or the learner was stopped
+			if (connection == null) {
+				learner.newRefinementDescriptions(new HashSet<ParCELNode>(nodesToProcess));
+				return;
+			}
+
+			ParCELRemoteResult result;
+			try {
+				result = connection.process(createTask());
+			} catch (IOException e) {
+				workerPool.invalidateConnection(connection);
+
+				if (learner.isRunning()) {
+					logger.error("[" + name + "] Remote worker " + connection + " failed, "
+							+ workerPool.getNumberOfConnections() + " connections left", e);
+					learner.newRefinementDescriptions(new HashSet<ParCELNode>(nodesToProcess));
+				}
+				return;
+			}
+
+			workerPool.returnConnection(connection);
+
+			// the task failed, but the connection is fine
+			if (result.getError() != null) {
+				logger.error("[" + name + "] Remote worker " + connection
+						+ " could not process the task: " + result.getError());
+				learner.newRefinementDescriptions(new HashSet<ParCELNode>(nodesToProcess));
+				return;
+			}
+
+			processResult(result);
+		} finally {
+			learner.taskCompleted();
+		}
+	}
+
+	private ParCELRemoteTask createTask() {
+		List<Description> descriptions = new ArrayList<Description>(nodesToProcess.size());
+		int[] horizontalExpansions = new int[nodesToProcess.size()];
+
+		for (int i = 0; i < nodesToProcess.size(); i++) {
+			descriptions.add(nodesToProcess.get(i).getDescription());
+			horizontalExpansions[i] = nodesToProcess.get(i).getHorizontalExpansion();
+		}
+
+		return new ParCELRemoteTask(descriptions, horizontalExpansions, workerPool.getHandshake()
+				.encode(learner.getCurrentlyUncoveredPositiveExamples()));
+	}
+
+	/**
+	 * Create the nodes for the refinements returned by the worker server and pass them to the
+	 * learner, the same way as the ParCELWorker does for the refinements evaluated locally
+	 */
+	private void processResult(ParCELRemoteResult result) {
+		HashSet<ParCELExtraNode> definitionsFound = new HashSet<ParCELExtraNode>();
+		HashSet<ParCELNode> newNodes = new HashSet<ParCELNode>();
+
+		for (int i = 0; i < nodesToProcess.size(); i++) {
+			ParCELNode nodeToProcess = nodesToProcess.get(i);
+
+			nodeToProcess.incHorizontalExpansion();
+			nodeToProcess.setRefinementCount(result.getRefinementCount(i));
+
+			for (ParCELRemoteResult.Refinement refinement : result.getRefinements(i)) {
+
+				// redundancy check, the worker server only knows its own refinements
+				if (!learner.addDescription(refinement.getDescription()))
+					continue;
+
+				ParCELExtraNode addedNode = new ParCELExtraNode(nodeToProcess,
+						refinement.getDescription(), refinement.getAccuracy(),
+						refinement.getCorrectness(), refinement.getCompleteness(),
+						refinement.getCoveredPositiveExamples() != null ? workerPool
+								.getHandshake().decode(refinement.getCoveredPositiveExamples())
+								: null);
+				nodeToProcess.addChild(addedNode);
+
+				// PARTIAL DEFINITION (correct and not necessary to be complete)
+				if (addedNode.getCorrectness() == 1.0d) {
+					addedNode.setGenerationTime(refinement.getGenerationTime());
+					definitionsFound.add(addedNode);
+				}
+				// DESCRIPTION
+				else
+					newNodes.add(addedNode);
+			}
+
+			learner.updateMaxHorizontalExpansion(nodeToProcess.getHorizontalExpansion());
+
+			newNodes.add(nodeToProcess);
+		}
+
+		if (definitionsFound.size() > 0)
+			learner.newDefinitionsFound(definitionsFound);
+
+		learner.newRefinementDescriptions(newNodes);
+	}
+}
@@ -0,0 +1,129 @@
+package org.dllearner.algorithms.ParCEL.distributed;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+
+/**
+ * Connections of the coordinator to the worker servers. For each worker server, one connection is
+ * opened per worker of the server, so that the server is kept busy. Failed connections are removed
+ * from the pool.
+ */
+public class ParCELRemoteWorkerPool {
+
+	private static Logger logger = Logger.getLogger(ParCELRemoteWorkerPool.class);
+
+	private final ParCELRemoteHandshake handshake;
+
+	// how often a waiting task checks if there are connections left
+	private static final long CONNECTION_CHECK_INTERVAL = 100; // ms
+
+	private final BlockingQueue<ParCELRemoteConnection> idleConnections = new LinkedBlockingQueue<ParCELRemoteConnection>();
+	private final ConcurrentLinkedQueue<ParCELRemoteConnection> connections = new ConcurrentLinkedQueue<ParCELRemoteConnection>();
+	private final AtomicInteger noOfConnections = new AtomicInteger();
+
+	/**
+	 * Connect to the given worker servers. Worker servers which cannot be reached are skipped
+	 * 
+	 * @param addresses
+	 *            Addresses of the worker servers: host:port
+	 * @param handshake
+	 *            Handshake sent to the worker servers
+	 * @param secret
+	 *            Secret shared with the worker servers
+	 * 
+	 * @throws IOException
+	 *             If no worker server can be reached
+	 */
+	public ParCELRemoteWorkerPool(List<String> addresses, ParCELRemoteHandshake handshake,
+			String secret) throws IOException {
+		this.handshake = handshake;
+
+		for (String address : addresses) {
+			try {
+				ParCELRemoteConnection connection = new ParCELRemoteConnection(address, handshake, secret);
+				addConnection(connection);
+
+				for (int i = 1; i < connection.getNumberOfWorkers(); i++)
+					addConnection(new ParCELRemoteConnection(address, handshake, secret));
+
+				if (logger.isInfoEnabled())
+					logger.info("Connected to worker " + address + " with "
+							+ connection.getNumberOfWorkers() + " workers");
+			} catch (IOException e) {
+				logger.error("Cannot connect to worker " + address + ": " + e.getMessage());
+			}
+		}
+
+		if (noOfConnections.get() == 0) {
+			close();
+			throw new IOException("None of the workers " + addresses + " is available");
+		}
+	}
+
+	private void addConnection(ParCELRemoteConnection connection) {
+		connections.add(connection);
+		idleConnections.add(connection);
+		noOfConnections.incrementAndGet();
+	}
+
+	/**
+	 * Get an idle connection, waiting until one is returned if all connections are in use. The
+	 * connection must be given back by {@link #returnConnection(ParCELRemoteConnection)} or
+	 * {@link #invalidateConnection(ParCELRemoteConnection)}
+	 * 
+	 * @return An idle connection, null if all connections failed or the thread was interrupted
+	 */
+	public ParCELRemoteConnection borrowConnection() {
+		try {
+			while (noOfConnections.get() > 0) {
+				ParCELRemoteConnection connection = idleConnections.poll(
+						CONNECTION_CHECK_INTERVAL, TimeUnit.MILLISECONDS);
+				if (connection != null)
+					return connection;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		return null;
+	}
+
+	public void returnConnection(ParCELRemoteConnection connection) {
+		idleConnections.add(connection);
+	}
+
+	/**
+	 * Close a failed connection and remove it from the pool
+	 */
+	public void invalidateConnection(ParCELRemoteConnection connection) {
+		connection.close();
+		if (connections.remove(connection))
+			noOfConnections.decrementAndGet();
+	}
+
+	/**
+	 * @return The number of connections which have not failed
+	 */
+	public int getNumberOfConnections() {
+		return noOfConnections.get();
+	}
+
+	public ParCELRemoteHandshake getHandshake() {
+		return handshake;
+	}
+
+	/**
+	 * Close all connections
+	 */
+	public void close() {
+		for (ParCELRemoteConnection connection : connections)
+			connection.close();
+	}
+}
@@ -0,0 +1,340 @@
+package org.dllearner.algorithms.ParCEL.distributed;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.apache.log4j.Logger;
+import org.dllearner.algorithms.ParCEL.ParCELEvaluationResult;
+import org.dllearner.algorithms.ParCEL.ParCELPosNegLP;
+import org.dllearner.algorithms.ParCEL.ParCELRefinementOperatorPool;
+import org.dllearner.algorithms.ParCEL.ParCELearner;
+import org.dllearner.core.owl.Description;
+import org.dllearner.core.owl.Individual;
+import org.dllearner.refinementoperators.LengthLimitedRefinementOperator;
+import org.dllearner.utilities.owl.ConceptComparator;
+
+/**
+ * Worker process of the distributed ParCEL: refines and evaluates the nodes sent by a coordinator
+ * (a ParCELearner with remote workers) using its own reasoner, learning problem and refinement
+ * operators, i.e. the ones of a ParCELearner initialised from the same configuration as the
+ * coordinator.<br>
+ * Each connection is served by its own thread. A coordinator opens one connection per worker of
+ * the server, see {@link ParCELRemoteWorkerPool}.<br>
+ * The server only accepts coordinators which know the secret of the learner, see the option
+ * remoteWorkerSecret, and only deserialises the classes of the messages. Still, the connections are
+ * neither encrypted nor limited to certain hosts, hence the server should only listen on interfaces
+ * which are not reachable from untrusted networks. By default, it listens on the loopback interface.
+ */
+public class ParCELWorkerServer implements Runnable {
+
+	private static Logger logger = Logger.getLogger(ParCELWorkerServer.class);
+
+	// time a client has to authenticate itself
+	private static final int AUTHENTICATION_TIMEOUT = 10000; // ms
+
+	private final ParCELRefinementOperatorPool refinementOperatorPool;
+	private final ParCELPosNegLP learningProblem;
+	private final int numberOfWorkers;
+	private final String secret;
+
+	private final ServerSocket serverSocket;
+	private final Set<Socket> sockets = new CopyOnWriteArraySet<Socket>();
+
+	// descriptions generated in the sessions of the open connections
+	private final Map<String, Session> sessions = new HashMap<String, Session>();
+
+	private int noOfConnections = 0;
+
+	/**
+	 * Create a worker server for the given learner, listening on the loopback interface
+	 * 
+	 * @see #ParCELWorkerServer(ParCELearner, InetAddress, int)
+	 */
+	public ParCELWorkerServer(ParCELearner learner, int port) throws IOException {
+		this(learner, InetAddress.getLoopbackAddress(), port);
+	}
+
+	/**
+	 * Create a worker server for the given learner. The learner must be initialised, but it is not
+	 * started
+	 * 
+	 * @param learner
+	 *            Learner which provides the learning problem, the refinement operators and the
+	 *            secret shared with the coordinators
+	 * @param bindAddress
+	 *            Address of the interface to listen on, null for all interfaces
+	 * @param port
+	 *            Port to listen on, 0 for any free port
+	 * 
+	 * @throws IOException
+	 *             If the port cannot be opened
+	 */
+	public ParCELWorkerServer(ParCELearner learner, InetAddress bindAddress, int port)
+			throws IOException {
+		if (learner.getRefinementOperatorPool() == null)
+			throw new IllegalArgumentException("The learner has no refinement operator pool, it must be initialised");
+
+		if (learner.getRemoteWorkerSecret() == null || learner.getRemoteWorkerSecret().isEmpty())
+			throw new IllegalArgumentException("The learner has no remoteWorkerSecret, the worker server only accepts coordinators knowing the secret");
+
+		this.refinementOperatorPool = learner.getRefinementOperatorPool();
+		this.learningProblem = (ParCELPosNegLP) learner.getLearningProblem();
+		this.numberOfWorkers = learner.getNumberOfWorkers();
+		this.secret = learner.getRemoteWorkerSecret();
+
+		this.serverSocket = new ServerSocket(port, 0, bindAddress);
+	}
+
+	/**
+	 * Accept connections until the server is stopped
+	 */
+	@Override
+	public void run() {
+		if (logger.isInfoEnabled())
+			logger.info("Worker server listening on " + serverSocket.getInetAddress() + ", port "
+					+ getPort() + " with " + numberOfWorkers + " workers");
+
+		while (!serverSocket.isClosed()) {
+			try {
+				Socket socket = serverSocket.accept();
+				socket.setTcpNoDelay(true);
+				sockets.add(socket);
+
+				Thread thread = new Thread(new ConnectionHandler(socket), "ParCEL worker server - "
+						+ (++noOfConnections));
+				thread.setDaemon(true);
+				thread.start();
+			} catch (IOException e) {
+				if (!serverSocket.isClosed())
+					logger.error("Cannot accept connection", e);
+			}
+		}
+	}
+
+	/**
+	 * Stop accepting connections and close the open connections
+	 */
+	public void stop() {
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			logger.error(e);
+		}
+
+		for (Socket socket : sockets)
+			closeSocket(socket);
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	private void closeSocket(Socket socket) {
+		sockets.remove(socket);
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// the connection is not used anymore
+		}
+	}
+
+	private synchronized Set<Description> openSession(String sessionId) {
+		Session session = sessions.get(sessionId);
+		if (session == null) {
+			session = new Session();
+			sessions.put(sessionId, session);
+		}
+		session.noOfConnections++;
+
+		return session.descriptions;
+	}
+
+	private synchronized void closeSession(String sessionId) {
+		Session session = sessions.get(sessionId);
+		if (--session.noOfConnections == 0)
+			sessions.remove(sessionId);
+	}
+
+	/**
+	 * ============================================================================================
+	 * Refine and evaluate the nodes of a task, the same way as the ParCELWorker does. The
+	 * refinements are evaluated using the uncovered positive examples of the coordinator
+	 * 
+	 * @param task
+	 *            Task to be processed
+	 * @param handshake
+	 *            Handshake of the connection, used to encode the positive examples
+	 * @param descriptions
+	 *            Descriptions generated in the session so far
+	 * @param newDescriptions
+	 *            The new refinements are added to this set. They are added to the descriptions of
+	 *            the session once the result is sent
+	 * 
+	 * @return Evaluated refinements which are neither weak nor generated before
+	 */
+	private ParCELRemoteResult process(ParCELRemoteTask task, ParCELRemoteHandshake handshake,
+			Set<Description> descriptions, Set<Description> newDescriptions) throws Exception {
+		List<Description> nodeDescriptions = task.getDescriptions();
+		Set<Individual> uncoveredPositiveExamples = handshake.decode(task
+				.getUncoveredPositiveExamples());
+
+		ParCELRemoteResult result = new ParCELRemoteResult(nodeDescriptions.size());
+
+		LengthLimitedRefinementOperator refinementOperator = refinementOperatorPool.borrowObject();
+		try {
+			for (int i = 0; i < nodeDescriptions.size(); i++) {
+				int horizExp = task.getHorizontalExpansions()[i];
+
+				TreeSet<Description> refinements = (TreeSet<Description>) refinementOperator
+						.refine(nodeDescriptions.get(i), horizExp + 1);
+				result.setRefinementCount(i, refinements.size());
+
+				for (Description refinement : refinements) {
+					// we ignore all refinements with lower length (this also avoids duplicate
+					// children)
+					if (refinement.getLength() <= horizExp || descriptions.contains(refinement)
+							|| !newDescriptions.add(refinement))
+						continue;
+
+					long starttime = System.currentTimeMillis();
+					ParCELEvaluationResult evaluation = learningProblem.getAccuracyAndCorrectness2(
+							refinement, uncoveredPositiveExamples);
+
+					// description is too weak, i.e. covered no uncovered positive example
+					if (evaluation.getAccuracy() == -1.0d)
+						continue;
+
+					BitSet coveredPositiveExamples = null;
+					if (evaluation.getCoveredPossitiveExamples() != null)
+						coveredPositiveExamples = handshake.encode(evaluation
+								.getCoveredPossitiveExamples());
+
+					result.addRefinement(i, new ParCELRemoteResult.Refinement(refinement,
+							evaluation.getAccuracy(), evaluation.getCorrectness(),
+							evaluation.getCompleteness(), coveredPositiveExamples,
+							System.currentTimeMillis() - starttime));
+				}
+			}
+		} finally {
+			refinementOperatorPool.returnObject(refinementOperator);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Descriptions generated for a learning run of a coordinator, shared by its connections
+	 */
+	private static class Session {
+		final Set<Description> descriptions = new ConcurrentSkipListSet<Description>(
+				new ConceptComparator());
+		int noOfConnections = 0;
+	}
+
+	/**
+	 * Serves a connection: checks the handshake and processes the tasks until the coordinator
+	 * closes the connection
+	 */
+	private class ConnectionHandler implements Runnable {
+
+		private final Socket socket;
+
+		ConnectionHandler(Socket socket) {
+			this.socket = socket;
+		}
+
+		@Override
+		public void run() {
+			try {
+				// no object is read before the coordinator is authenticated
+				socket.setSoTimeout(AUTHENTICATION_TIMEOUT);
+				byte[] challenge = ParCELRemoteAuthentication.sendChallenge(socket.getOutputStream());
+				if (!ParCELRemoteAuthentication.verify(socket.getInputStream(), challenge, secret)) {
+					logger.warn("Rejected connection from " + socket.getRemoteSocketAddress()
+							+ ": wrong secret");
+					return;
+				}
+				socket.setSoTimeout(0);
+
+				// the output stream has to be created first, it writes the stream header
+				ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(
+						socket.getOutputStream()));
+				out.flush();
+				ObjectInputStream in = new ParCELRemoteObjectInputStream(new BufferedInputStream(
+						socket.getInputStream()));
+
+				ParCELRemoteHandshake handshake = (ParCELRemoteHandshake) in.readObject();
+				if (!handshake.hasExamples(learningProblem.getPositiveExamples(),
+						learningProblem.getNegativeExamples())) {
+					handshake.setError("the examples of the worker differ from the examples of the coordinator");
+					write(out, handshake);
+					return;
+				}
+				handshake.setNumberOfWorkers(numberOfWorkers);
+				write(out, handshake);
+
+				Set<Description> descriptions = openSession(handshake.getSessionId());
+				try {
+					while (true) {
+						ParCELRemoteTask task;
+						try {
+							task = (ParCELRemoteTask) in.readObject();
+						} catch (EOFException e) {
+							// the coordinator closed the connection
+							break;
+						}
+
+						ParCELRemoteResult result;
+						Set<Description> newDescriptions = new TreeSet<Description>(
+								new ConceptComparator());
+						try {
+							result = process(task, handshake, descriptions, newDescriptions);
+						} catch (Exception e) {
+							logger.error("Cannot process task", e);
+							result = new ParCELRemoteResult(0);
+							result.setError(e.toString());
+							newDescriptions.clear();
+						}
+
+						write(out, result);
+
+						// the refinements are only skipped by later tasks if the coordinator got them
+						descriptions.addAll(newDescriptions);
+					}
+				} finally {
+					closeSession(handshake.getSessionId());
+				}
+			} catch (IOException e) {
+				if (!serverSocket.isClosed() && logger.isDebugEnabled())
+					logger.debug("Connection " + socket.getRemoteSocketAddress() + " closed: "
+							+ e.getMessage());
+			} catch (ClassNotFoundException e) {
+				logger.error("Unknown message from " + socket.getRemoteSocketAddress(), e);
+			} finally {
+				closeSocket(socket);
+			}
+		}
+
+		private void write(ObjectOutputStream out, Object message) throws IOException {
+			out.writeObject(message);
+			out.flush();
+			out.reset();
+		}
+	}
+
+}
@@ -23,6 +23,7 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -61,8 +62,8 @@ import org.dllearner.refinementoperators.ReasoningBasedRefinementOperator;
 import org.dllearner.refinementoperators.RhoDRDown;
 import org.dllearner.utilities.Files;
 import org.dllearner.utilities.Helper;
-import org.dllearner.utilities.owl.ConceptComparator;
 import org.dllearner.utilities.owl.ConceptTransformation;
+import org.dllearner.utilities.owl.DescriptionInterner;
 import org.dllearner.utilities.owl.DescriptionMinimizer;
 import org.dllearner.utilities.owl.EvaluatedDescriptionSet;
 import org.dllearner.utilities.owl.OWLEntityTypeAdder;
@@ -116,7 +117,7 @@ public class CELOE extends AbstractCELA implements Cloneable{
 	private Description startClass;
 	
 	// all descriptions in the search tree plus those which were too weak (for fast redundancy check)
-	private TreeSet<Description> descriptions;
+	private DescriptionInterner descriptions;
 	
 	
 	// if true, then each solution is evaluated exactly instead of approximately
@@ -207,6 +208,12 @@ public class CELOE extends AbstractCELA implements Cloneable{
 	@ConfigOption(name = "stopOnFirstDefinition", defaultValue="false", description="algorithm will terminate immediately when a correct definition is found")
 	private boolean stopOnFirstDefinition = false;
 	
+	@ConfigOption(name = "useIncrementalEvaluation", defaultValue="false", description="If true, each node stores the examples covered by its description and refinements are only tested against those examples. This requires a downward refinement operator (such as rho) and a learning problem supporting incremental evaluation. Approximations of the learning problem are not used in this mode.")
+	private boolean useIncrementalEvaluation = false;
+	
+	// set if incremental evaluation is enabled and supported by the learning problem
+	private IncrementalEvaluator incrementalEvaluator;
+	
 	private int expressionTestCountLastImprovement;
 	
 	
@@ -356,6 +363,8 @@ public class CELOE extends AbstractCELA implements Cloneable{
 		
 		isClassLearningProblem = (learningProblem instanceof ClassLearningProblem);
 		
+		incrementalEvaluator = useIncrementalEvaluation ? IncrementalEvaluator.create(learningProblem) : null;
+		
 		// we put important parameters in class variables
 		noise = noisePercentage/100d;
 //		System.out.println("noise " + noise);
@@ -641,7 +650,7 @@ public class CELOE extends AbstractCELA implements Cloneable{
 //		System.out.println("d: " + description);
 		
 		// redundancy check (return if redundant)
-		boolean nonRedundant = descriptions.add(description);
+		boolean nonRedundant = descriptions.intern(description) == description;
 		if(!nonRedundant) {
 			return false;
 		}
@@ -653,7 +662,14 @@ public class CELOE extends AbstractCELA implements Cloneable{
 		
 //		System.out.println("Test " + new Date());
 		// quality of description (return if too weak)
-		double accuracy = learningProblem.getAccuracyOrTooWeak(description, noise);
+		double accuracy;
+		BitSet coveredExamples = null;
+		if(incrementalEvaluator != null) {
+			coveredExamples = incrementalEvaluator.getCoverage(description, parentNode);
+			accuracy = incrementalEvaluator.getAccuracyOrTooWeak(description, coveredExamples, noise);
+		} else {
+			accuracy = learningProblem.getAccuracyOrTooWeak(description, noise);
+		}
 		// issue a warning if accuracy is not between 0 and 1 or -1 (too weak)
 		if(accuracy > 1.0 || (accuracy < 0.0 && accuracy != -1)) {
 			logger.warn("Invalid accuracy value " + accuracy + " for description " + description + ". This could be caused by a bug in the heuristic measure and should be reported to the DL-Learner bug tracker.");
@@ -669,6 +685,7 @@ public class CELOE extends AbstractCELA implements Cloneable{
 		}
 		
 		OENode node = new OENode(parentNode, description, accuracy);
+		node.setCoveredExamples(coveredExamples);
 			
 		// link to parent (unless start node)
 		if(parentNode == null) {
@@ -880,7 +897,7 @@ public class CELOE extends AbstractCELA implements Cloneable{
 		// set all values back to their default values (used for running
 		// the algorithm more than once)
 		nodes = new TreeSet<OENode>(heuristic);
-		descriptions = new TreeSet<Description>(new ConceptComparator());
+		descriptions = new DescriptionInterner();
 		bestEvaluatedDescriptions.getSet().clear();
 		expressionTests = 0;
 	}
@@ -1151,6 +1168,14 @@ public class CELOE extends AbstractCELA implements Cloneable{
 		this.stopOnFirstDefinition = stopOnFirstDefinition;
 	}
 
+	public boolean isUseIncrementalEvaluation() {
+		return useIncrementalEvaluation;
+	}
+
+	public void setUseIncrementalEvaluation(boolean useIncrementalEvaluation) {
+		this.useIncrementalEvaluation = useIncrementalEvaluation;
+	}
+
 	public long getTotalRuntimeNs() {
 		return totalRuntimeNs;
 	}
@@ -1223,5 +1248,4 @@ public class CELOE extends AbstractCELA implements Cloneable{
 		alg.start();
 		
 	}
-	
 }
@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package org.dllearner.algorithms.celoe;
+
+import java.util.BitSet;
+
+import org.apache.log4j.Logger;
+import org.dllearner.core.AbstractLearningProblem;
+import org.dllearner.core.owl.Description;
+import org.dllearner.learningproblems.IncrementalLearningProblem;
+
+/**
+ * Evaluates the descriptions of an {@link OENode} search tree incrementally,
+ * i.e. a refinement is only tested against the examples covered by its parent
+ * node. Used by {@link CELOE} and {@link PCELOE} if incremental evaluation is
+ * enabled.
+ */
+class IncrementalEvaluator {
+
+	private static Logger logger = Logger.getLogger(IncrementalEvaluator.class);
+
+	private IncrementalLearningProblem learningProblem;
+
+	private IncrementalEvaluator(IncrementalLearningProblem learningProblem) {
+		this.learningProblem = learningProblem;
+	}
+
+	/**
+	 * @param learningProblem The learning problem of the algorithm.
+	 * @return An evaluator for the learning problem or null if the learning
+	 * problem does not support incremental evaluation.
+	 */
+	static IncrementalEvaluator create(AbstractLearningProblem learningProblem) {
+		if(learningProblem instanceof IncrementalLearningProblem) {
+			return new IncrementalEvaluator((IncrementalLearningProblem) learningProblem);
+		}
+		logger.warn("The learning problem " + learningProblem.getClass().getSimpleName() + " does not support incremental evaluation. Refinements are evaluated against all examples.");
+		return null;
+	}
+
+	/**
+	 * @param description A description, which is going to be added to the search tree.
+	 * @param parentNode The node refined to the description or null for the start node.
+	 * @return The examples covered by the description.
+	 */
+	BitSet getCoverage(Description description, OENode parentNode) {
+		// refinements can only cover examples covered by the parent description
+		if(parentNode == null || parentNode.getCoveredExamples() == null) {
+			return learningProblem.getCoverage(description);
+		}
+		return learningProblem.getCoverage(description, parentNode.getDescription(), parentNode.getCoveredExamples());
+	}
+
+	/**
+	 * @see IncrementalLearningProblem#getAccuracyOrTooWeak(Description, BitSet, double)
+	 */
+	double getAccuracyOrTooWeak(Description description, BitSet coverage, double noise) {
+		return learningProblem.getAccuracyOrTooWeak(description, coverage, noise);
+	}
+
+}
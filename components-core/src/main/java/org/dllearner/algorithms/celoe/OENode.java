@@ -20,6 +20,7 @@
 package org.dllearner.algorithms.celoe;
 
 import java.text.DecimalFormat;
+import java.util.BitSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -32,8 +33,9 @@ import org.dllearner.core.owl.Description;
  * A node in the search tree of the ontology engineering algorithm.
  * 
  * Differences to the node structures in other algorithms (this may change):
- * - covered examples are not stored in node (i.e. coverage needs to be recomputed
- * for child nodes, which costs time but saves memory)
+ * - covered examples are only stored in the node if incremental evaluation is
+ * enabled (otherwise coverage needs to be recomputed for child nodes, which costs
+ * time but saves memory)
  * - only evaluated nodes are stored
  * - too weak nodes are not stored
  * - redundant nodes are not stored (?)
@@ -59,6 +61,10 @@ public class OENode implements SearchTreeNode {
 	// (and avoids the problem that adding children changes the heuristic value)
 	private int refinementCount = 0;
 	
+	// the examples covered by the description (only set if the learning
+	// problem evaluates refinements incrementally)
+	private BitSet coveredExamples;
+	
 	private static DecimalFormat dfPercent = new DecimalFormat("0.00%");
 	
 	public OENode(OENode parentNode, Description description, double accuracy) {
@@ -189,4 +195,18 @@ public class OENode implements SearchTreeNode {
 	public void setRefinementCount(int refinementCount) {
 		this.refinementCount = refinementCount;
 	}
+
+	/**
+	 * @return the covered examples or null if they are not stored
+	 */
+	public BitSet getCoveredExamples() {
+		return coveredExamples;
+	}
+
+	/**
+	 * @param coveredExamples the covered examples to set
+	 */
+	public void setCoveredExamples(BitSet coveredExamples) {
+		this.coveredExamples = coveredExamples;
+	}
 }
@@ -21,6 +21,7 @@ package org.dllearner.algorithms.celoe;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -33,6 +34,8 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.log4j.FileAppender;
 import org.apache.log4j.Level;
@@ -55,6 +58,7 @@ import org.dllearner.core.owl.Restriction;
 import org.dllearner.core.owl.Thing;
 import org.dllearner.kb.OWLFile;
 import org.dllearner.learningproblems.ClassLearningProblem;
+import org.dllearner.learningproblems.EvaluationCache;
 import org.dllearner.learningproblems.PosNegLP;
 import org.dllearner.learningproblems.PosOnlyLP;
 import org.dllearner.reasoning.FastInstanceChecker;
@@ -68,8 +72,9 @@ import org.dllearner.refinementoperators.RhoDRDown;
 import org.dllearner.refinementoperators.SynchronizedRhoDRDown;
 import org.dllearner.utilities.Files;
 import org.dllearner.utilities.Helper;
-import org.dllearner.utilities.owl.ConceptComparator;
+import org.dllearner.utilities.datastructures.ConcurrentMultiQueue;
 import org.dllearner.utilities.owl.ConceptTransformation;
+import org.dllearner.utilities.owl.DescriptionInterner;
 import org.dllearner.utilities.owl.DescriptionMinimizer;
 import org.dllearner.utilities.owl.EvaluatedDescriptionSet;
 import org.dllearner.utilities.owl.PropertyContext;
@@ -115,7 +120,17 @@ public class PCELOE extends AbstractCELA {
 	
 	// all descriptions in the search tree plus those which were too weak (for fast redundancy check)
 //	private TreeSet<Description> descriptions;
-	private SortedSet<Description> descriptions;
+	private DescriptionInterner descriptions;
+	
+	// nodes which can still be expanded (only used with useConcurrentFrontier)
+	private ConcurrentMultiQueue<OENode> frontier;
+	// number of workers currently expanding a node taken from the frontier
+	private AtomicInteger activeWorkers = new AtomicInteger();
+	// workers without a node wait on this monitor until the frontier changes
+	private final Object frontierMonitor = new Object();
+	private AtomicInteger waitingWorkers = new AtomicInteger();
+	// one refinement operator per worker (only used with useConcurrentFrontier)
+	private List<LengthLimitedRefinementOperator> workerOperators;
 	
 	
 	// if true, then each solution is evaluated exactly instead of approximately
@@ -149,7 +164,9 @@ public class PCELOE extends AbstractCELA {
 	
 	
 	// statistical variables
-	private int expressionTests = 0;
+	private AtomicInteger expressionTests = new AtomicInteger();
+	private AtomicLong expansions = new AtomicLong();
+	private AtomicInteger searchTreeSize = new AtomicInteger();
 	private int minHorizExp = 0;
 	private int maxHorizExp = 0;
 	
@@ -202,6 +219,24 @@ public class PCELOE extends AbstractCELA {
 	
 	@ConfigOption(name = "nrOfThreads", defaultValue="2", description="number of threads running in parallel")
 	private int nrOfThreads = 2;
+	
+	@ConfigOption(name = "useIncrementalEvaluation", defaultValue="false", description="If true, each node stores the examples covered by its description and refinements are only tested against those examples. This requires a downward refinement operator (such as rho) and a learning problem supporting incremental evaluation. Approximations of the learning problem are not used in this mode.")
+	private boolean useIncrementalEvaluation = false;
+	
+	// set if incremental evaluation is enabled and supported by the learning problem
+	private IncrementalEvaluator incrementalEvaluator;
+	
+	@ConfigOption(name = "useConcurrentFrontier", defaultValue="false", description="If true, the nodes to expand are kept in a relaxed concurrent priority queue instead of a globally synchronized sorted set, and each thread uses its own refinement operator. Threads do not block each other, but do not necessarily expand the globally best node.")
+	private boolean useConcurrentFrontier = false;
+	
+	@ConfigOption(name = "scalabilityReport", defaultValue="false", description="If true, the number of node expansions per second is measured with 1, 2, 4, ... threads on the first scalabilityReportExpansions expansions of the search, each starting with empty reasoner and evaluation caches, and logged, before the search is run with nrOfThreads threads.")
+	private boolean scalabilityReport = false;
+	
+	@ConfigOption(name = "scalabilityReportExpansions", defaultValue="1000", description="The number of node expansions of each measurement run of the scalability report.")
+	private int scalabilityReportExpansions = 1000;
+	
+	// stops the search after this number of expansions (0 = no limit, only used for the scalability report)
+	private long maxExpansions = 0;
 
 	private int expressionTestCountLastImprovement;
 	private long timeLastImprovement = 0;
@@ -288,8 +323,14 @@ public class PCELOE extends AbstractCELA {
 		// create a refinement operator and pass all configuration
 		// variables to it
 		if(operator == null) {
-			// we use a default operator and inject the class hierarchy for now
-			operator = new SynchronizedRhoDRDown();
+			// we use a default operator and inject the class hierarchy for now;
+			// with a concurrent frontier each worker gets its own copy, so
+			// the operator does not need to be synchronized
+			if(useConcurrentFrontier) {
+				operator = new RhoDRDown();
+			} else {
+				operator = new SynchronizedRhoDRDown();
+			}
 			if(operator instanceof CustomStartRefinementOperator) {
 				((CustomStartRefinementOperator)operator).setStartClass(startClass);
 			}
@@ -316,6 +357,8 @@ public class PCELOE extends AbstractCELA {
 		
 		isClassLearningProblem = (learningProblem instanceof ClassLearningProblem);
 		
+		incrementalEvaluator = useIncrementalEvaluation ? IncrementalEvaluator.create(learningProblem) : null;
+		
 		// we put important parameters in class variables
 		noise = noisePercentage/100d;
 //		System.out.println("noise " + noise);
@@ -416,6 +459,20 @@ public class PCELOE extends AbstractCELA {
 		} else if(learningProblem instanceof PosNegLP) {
 			examples = Helper.union(((PosNegLP)learningProblem).getPositiveExamples(),((PosNegLP)learningProblem).getNegativeExamples());
 		}
+		
+		// the operator is copied last, since its settings may be changed above
+		workerOperators = new ArrayList<LengthLimitedRefinementOperator>();
+		if(useConcurrentFrontier) {
+			if(operator instanceof RhoDRDown) {
+				for(int i = 0; i < getNrOfWorkers(); i++) {
+					RhoDRDown workerOperator = new RhoDRDown((RhoDRDown) operator);
+					workerOperator.init();
+					workerOperators.add(workerOperator);
+				}
+			} else {
+				logger.info("The refinement operator " + operator.getClass().getSimpleName() + " cannot be copied, so it is shared between all threads.");
+			}
+		}
 	}
 
 	@Override
@@ -449,23 +506,85 @@ public class PCELOE extends AbstractCELA {
 		
 		stop = false;
 		isRunning = true;
-		reset();
-		nanoStartTime = System.nanoTime();
 		
+		int nrOfWorkers = getNrOfWorkers();
+		if(scalabilityReport) {
+			// measure 1, 2, 4, ... threads on the beginning of the search;
+			// only the final run with all threads performs the full search
+			maxExpansions = scalabilityReportExpansions;
+			for(int nrOfRunWorkers = 1; nrOfRunWorkers < nrOfWorkers && !stop; nrOfRunWorkers *= 2) {
+				clearCaches();
+				runWorkers(nrOfRunWorkers);
+				logThroughput(nrOfRunWorkers);
+			}
+			maxExpansions = 0;
+			clearCaches();
+		}
+		if(!stop) {
+			runWorkers(nrOfWorkers);
+			if(scalabilityReport) {
+				logThroughput(nrOfWorkers);
+			}
+		}
 		
+		if (stop) {
+			logger.info("Algorithm stopped ("+expressionTests+" descriptions tested). " + searchTreeSize + " nodes in the search tree.\n");
+		} else {
+			logger.info("Algorithm terminated successfully (time: " + Helper.prettyPrintNanoSeconds(System.nanoTime()-nanoStartTime) + ", "+expressionTests+" descriptions tested, "  + searchTreeSize + " nodes in the search tree).\n");
+            logger.info(reasoner.toString());
+		}
 
-		addNode(startClass, null);
+		if(singleSuggestionMode) {
+			bestEvaluatedDescriptions.add(bestDescription, bestAccuracy, learningProblem);
+		}		
 		
-		int nrOfWorkers = nrOfThreads;
-		if(nrOfWorkers == 0){
-			nrOfWorkers = Runtime.getRuntime().availableProcessors();
+		// print solution(s)
+		logger.info("solutions:\n" + getSolutionString());
+		
+//		System.out.println(startNode.toTreeString(baseURI));
+		
+		isRunning = false;
+//		System.out.println("isRunning: " + isRunning);
+	}
+	
+	private void logThroughput(int nrOfWorkers) {
+		double seconds = (System.nanoTime() - nanoStartTime) / 1000000000d;
+		logger.info("scalability report: " + nrOfWorkers + " threads, " + expansions.get() + " expansions, " + expressionTests.get() + " descriptions tested, "
+				+ Math.round(expansions.get() / seconds) + " expansions/sec, " + Math.round(expressionTests.get() / seconds) + " descriptions tested/sec");
+	}
+	
+	// discards the results cached by a previous run, such that the runs of the scalability report
+	// are not sped up by the reasoning and evaluations of the runs before them
+	private void clearCaches() {
+		reasoner.setUpdated();
+		EvaluationCache evaluationCache = null;
+		if(learningProblem instanceof ClassLearningProblem) {
+			evaluationCache = ((ClassLearningProblem) learningProblem).getEvaluationCache();
+		} else if(learningProblem instanceof PosNegLP) {
+			evaluationCache = ((PosNegLP) learningProblem).getEvaluationCache();
 		}
+		if(evaluationCache != null) {
+			evaluationCache.clear();
+		}
+	}
+	
+	private int getNrOfWorkers() {
+		return nrOfThreads == 0 ? Runtime.getRuntime().availableProcessors() : nrOfThreads;
+	}
+	
+	// runs the search from scratch with the given number of threads and blocks until all of them have finished
+	private void runWorkers(int nrOfWorkers) {
+		reset();
+		nanoStartTime = System.nanoTime();
+		
+		addNode(startClass, null);
+		
 		ExecutorService service = Executors.newFixedThreadPool(nrOfWorkers);
 		
 		List<Runnable> tasks = new ArrayList<Runnable>();
 		
 		for(int i = 0; i < nrOfWorkers; i++){
-			tasks.add(new Worker());
+			tasks.add(new Worker(i < workerOperators.size() ? workerOperators.get(i) : operator));
 		}
 		
 		//needed to block until all threads have been finished, because otherwise the main thread outputs the result to early
@@ -482,26 +601,7 @@ public class PCELOE extends AbstractCELA {
 				e.printStackTrace();
 			}
 		}
-		
-		if (stop) {
-			logger.info("Algorithm stopped ("+expressionTests+" descriptions tested). " + nodes.size() + " nodes in the search tree.\n");
-		} else {
-			logger.info("Algorithm terminated successfully (time: " + Helper.prettyPrintNanoSeconds(System.nanoTime()-nanoStartTime) + ", "+expressionTests+" descriptions tested, "  + nodes.size() + " nodes in the search tree).\n");
-            logger.info(reasoner.toString());
-		}
-
-		if(singleSuggestionMode) {
-			bestEvaluatedDescriptions.add(bestDescription, bestAccuracy, learningProblem);
-		}		
-		
-		// print solution(s)
-		logger.info("solutions:\n" + getSolutionString());
-		
-//		System.out.println(startNode.toTreeString(baseURI));
-		
-		isRunning = false;
 		service.shutdown();
-//		System.out.println("isRunning: " + isRunning);
 	}
 
 	private OENode getNextNodeToExpand() {
@@ -513,7 +613,7 @@ public class PCELOE extends AbstractCELA {
 			Iterator<OENode> it = nodes.iterator();
 			while(it.hasNext()) {
 				OENode node = it.next();
-				if(!currentlyProcessedNodes.contains(node) && (node.getAccuracy() < 1.0 || node.getHorizontalExpansion() < node.getDescription().getLength())) {
+				if(!currentlyProcessedNodes.contains(node) && isExpandable(node)) {
 					currentlyProcessedNodes.add(node);
 					return node;
 				}
@@ -526,20 +626,31 @@ public class PCELOE extends AbstractCELA {
 	}
 	
 	// expand node horizontically
-	private TreeSet<Description> refineNode(OENode node) {
+	private TreeSet<Description> refineNode(OENode node, LengthLimitedRefinementOperator operator) {
 		// we have to remove and add the node since its heuristic evaluation changes through the expansion
 		// (you *must not* include any criteria in the heuristic which are modified outside of this method,
-		// otherwise you may see rarely occurring but critical false ordering in the nodes set)
-		nodes.remove(node);
+		// otherwise you may see rarely occurring but critical false ordering in the nodes set);
+		// nodes taken from the frontier are not in it while they are refined
+		if(!useConcurrentFrontier) {
+			nodes.remove(node);
+		}
 //		System.out.println("refining: " + node);
 		int horizExp = node.getHorizontalExpansion();
 		TreeSet<Description> refinements = (TreeSet<Description>) operator.refine(node.getDescription(), horizExp+1);
 		node.incHorizontalExpansion();
 		node.setRefinementCount(refinements.size());
-		nodes.add(node);
+		if(!useConcurrentFrontier) {
+			nodes.add(node);
+		}
+		expansions.incrementAndGet();
 		return refinements;
 	}
 	
+	// nodes with 100% accuracy are only expanded until their horizontal expansion reaches their length
+	private boolean isExpandable(OENode node) {
+		return node.getAccuracy() < 1.0 || node.getHorizontalExpansion() < node.getDescription().getLength();
+	}
+	
 	// add node to search tree if it is not too weak
 	// returns true if node was added and false otherwise
 	private boolean addNode(Description description, OENode parentNode) {
@@ -547,7 +658,7 @@ public class PCELOE extends AbstractCELA {
 //		System.out.println("d: " + description);
 		
 		// redundancy check (return if redundant)
-		boolean nonRedundant = descriptions.add(description);
+		boolean nonRedundant = descriptions.intern(description) == description;
 		if(!nonRedundant) {
 			return false;
 		}
@@ -559,7 +670,14 @@ public class PCELOE extends AbstractCELA {
 		
 //		System.out.println("Test " + new Date());
 		// quality of description (return if too weak)
-		double accuracy = learningProblem.getAccuracyOrTooWeak(description, noise);
+		double accuracy;
+		BitSet coveredExamples = null;
+		if(incrementalEvaluator != null) {
+			coveredExamples = incrementalEvaluator.getCoverage(description, parentNode);
+			accuracy = incrementalEvaluator.getAccuracyOrTooWeak(description, coveredExamples, noise);
+		} else {
+			accuracy = learningProblem.getAccuracyOrTooWeak(description, noise);
+		}
 		// issue a warning if accuracy is not between 0 and 1 or -1 (too weak)
 		if(accuracy > 1.0 || (accuracy < 0.0 && accuracy != -1)) {
 			logger.warn("Invalid accuracy value " + accuracy + " for description " + description + ". This could be caused by a bug in the heuristic measure and should be reported to the DL-Learner bug tracker.");
@@ -567,7 +685,7 @@ public class PCELOE extends AbstractCELA {
 		}
 		
 //		System.out.println("Test2 " + new Date());
-		expressionTests++;
+		expressionTests.incrementAndGet();
 //		System.out.println("acc: " + accuracy);
 //		System.out.println(description + " " + accuracy);
 		if(accuracy == -1) {
@@ -575,6 +693,7 @@ public class PCELOE extends AbstractCELA {
 		}
 		
 		OENode node = new OENode(parentNode, description, accuracy);
+		node.setCoveredExamples(coveredExamples);
 			
 		// link to parent (unless start node)
 		if(parentNode == null) {
@@ -583,7 +702,13 @@ public class PCELOE extends AbstractCELA {
 			parentNode.addChild(node);
 		}
 	
-		nodes.add(node);
+		if(useConcurrentFrontier) {
+			frontier.add(node);
+			signalFrontierChange();
+		} else {
+			nodes.add(node);
+		}
+		searchTreeSize.incrementAndGet();
 //		System.out.println("Test3 " + new Date());
 		
 		// in some cases (e.g. mutation) fully evaluating even a single description is too expensive
@@ -761,8 +886,9 @@ public class PCELOE extends AbstractCELA {
 	private boolean terminationCriteriaSatisfied() {
 		return 
 		stop || 
-		(maxClassExpressionTestsAfterImprovement != 0 && (expressionTests - expressionTestCountLastImprovement >= maxClassExpressionTestsAfterImprovement)) ||
-		(maxClassExpressionTests != 0 && (expressionTests >= maxClassExpressionTests)) ||
+		(maxExpansions != 0 && expansions.get() >= maxExpansions) ||
+		(maxClassExpressionTestsAfterImprovement != 0 && (expressionTests.get() - expressionTestCountLastImprovement >= maxClassExpressionTestsAfterImprovement)) ||
+		(maxClassExpressionTests != 0 && (expressionTests.get() >= maxClassExpressionTests)) ||
 		(maxExecutionTimeInSecondsAfterImprovement != 0 && ((System.nanoTime() - nanoStartTime) >= (maxExecutionTimeInSecondsAfterImprovement*1000000000l))) ||
 		(maxExecutionTimeInSeconds != 0 && ((System.nanoTime() - nanoStartTime) >= (maxExecutionTimeInSeconds*1000000000l))) ||
 		(terminateOnNoiseReached && (100*getCurrentlyBestAccuracy()>=100-noisePercentage));
@@ -773,10 +899,18 @@ public class PCELOE extends AbstractCELA {
 		// the algorithm more than once)
 //		nodes = new TreeSet<OENode>(heuristic);
 		nodes = Collections.synchronizedSortedSet(new TreeSet<OENode>(Collections.reverseOrder(heuristic)));
-		descriptions = Collections.synchronizedSortedSet(new TreeSet<Description>(new ConceptComparator()));
+		// (the frontier polls the smallest element, so we reverse the order as for the nodes set)
+		frontier = new ConcurrentMultiQueue<OENode>(Collections.reverseOrder(heuristic), 2 * getNrOfWorkers());
+		activeWorkers.set(0);
+		waitingWorkers.set(0);
+		currentlyProcessedNodes.clear();
+		descriptions = new DescriptionInterner();
 		bestEvaluatedDescriptions.getSet().clear();
-		expressionTests = 0;
+		expressionTests.set(0);
+		expansions.set(0);
+		searchTreeSize.set(0);
 		highestAccuracy = 0.0;
+		expressionTestCountLastImprovement = 0;
 	}
 	
 	@Override
@@ -849,7 +983,14 @@ public class PCELOE extends AbstractCELA {
 	 * @return the expressionTests
 	 */
 	public int getClassExpressionTests() {
-		return expressionTests;
+		return expressionTests.get();
+	}
+	
+	/**
+	 * @return The number of node expansions in the last run.
+	 */
+	public long getNrOfExpansions() {
+		return expansions.get();
 	}
 
 	public RefinementOperator getOperator() {
@@ -1010,12 +1151,97 @@ public class PCELOE extends AbstractCELA {
 		this.nrOfThreads = nrOfThreads;
 	}
 
+	public boolean isUseIncrementalEvaluation() {
+		return useIncrementalEvaluation;
+	}
+
+	public void setUseIncrementalEvaluation(boolean useIncrementalEvaluation) {
+		this.useIncrementalEvaluation = useIncrementalEvaluation;
+	}
+
+	public boolean isUseConcurrentFrontier() {
+		return useConcurrentFrontier;
+	}
+
+	public void setUseConcurrentFrontier(boolean useConcurrentFrontier) {
+		this.useConcurrentFrontier = useConcurrentFrontier;
+	}
+
+	public int getScalabilityReportExpansions() {
+		return scalabilityReportExpansions;
+	}
+
+	public void setScalabilityReportExpansions(int scalabilityReportExpansions) {
+		this.scalabilityReportExpansions = scalabilityReportExpansions;
+	}
+
+	public boolean isScalabilityReport() {
+		return scalabilityReport;
+	}
+
+	public void setScalabilityReport(boolean scalabilityReport) {
+		this.scalabilityReport = scalabilityReport;
+	}
+
+	// wakes up workers waiting for nodes, i.e. after a node has been added to the
+	// frontier or a worker has finished expanding a node
+	private void signalFrontierChange() {
+		if(waitingWorkers.get() > 0) {
+			synchronized(frontierMonitor) {
+				frontierMonitor.notifyAll();
+			}
+		}
+	}
+	
 	private synchronized double getHighestAccuracy(){
 		return highestAccuracy;
 	}
 
 
 	class Worker implements Runnable{
+		
+		private LengthLimitedRefinementOperator operator;
+		
+		public Worker(LengthLimitedRefinementOperator operator) {
+			this.operator = operator;
+		}
+		
+		// takes the next node from the frontier; returns null if the search should stop
+		private OENode pollFrontier() {
+			while(!terminationCriteriaSatisfied()) {
+				// the worker counts as active before polling, so other workers
+				// do not stop while it may still add nodes to the frontier
+				activeWorkers.incrementAndGet();
+				OENode node = frontier.poll();
+				if(node != null) {
+					return node;
+				}
+				// the search space is exhausted if the frontier is empty and
+				// no other worker expands a node
+				if(activeWorkers.decrementAndGet() == 0 && frontier.isEmpty()) {
+					signalFrontierChange();
+					return null;
+				}
+				// otherwise wait until another worker adds a node or finishes its
+				// node; the worker is registered as waiting before the frontier is
+				// checked, so a change after the check cannot be missed
+				waitingWorkers.incrementAndGet();
+				try {
+					synchronized(frontierMonitor) {
+						if(frontier.isEmpty() && activeWorkers.get() > 0) {
+							// time based termination criteria are checked at least every 100 ms
+							frontierMonitor.wait(100);
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return null;
+				} finally {
+					waitingWorkers.decrementAndGet();
+				}
+			}
+			return null;
+		}
 
 		@Override
 		public void run() {
@@ -1028,7 +1254,7 @@ public class PCELOE extends AbstractCELA {
 				
 				if(!singleSuggestionMode && bestEvaluatedDescriptions.getBestAccuracy() > getHighestAccuracy()) {
 					highestAccuracy = bestEvaluatedDescriptions.getBestAccuracy();
-					expressionTestCountLastImprovement = expressionTests;
+					expressionTestCountLastImprovement = expressionTests.get();
 					timeLastImprovement = System.nanoTime();
 					logger.info("more accurate (" + dfPercent.format(highestAccuracy) + ") class expression found: " + descriptionToString(bestEvaluatedDescriptions.getBest().getDescription()));
 				}
@@ -1037,77 +1263,98 @@ public class PCELOE extends AbstractCELA {
 				if(logger.isDebugEnabled()){
 					logger.debug("Get next node to expand...");
 				}
-				nextNode = getNextNodeToExpand();
+				if(useConcurrentFrontier) {
+					nextNode = pollFrontier();
+					if(nextNode == null) {
+						break;
+					}
+				} else {
+					nextNode = getNextNodeToExpand();
+				}
 				if(nextNode != null){
-					int horizExp = nextNode.getHorizontalExpansion();
+					try {
+						int horizExp = nextNode.getHorizontalExpansion();
 					
-					// apply operator
-					Monitor mon = MonitorFactory.start("refineNode");
-					if(logger.isDebugEnabled()){
-						logger.debug("Refining node...");
-					}
-					TreeSet<Description> refinements = refineNode(nextNode);
-					mon.stop();
+						// apply operator
+						Monitor mon = MonitorFactory.start("refineNode");
+						if(logger.isDebugEnabled()){
+							logger.debug("Refining node...");
+						}
+						TreeSet<Description> refinements = refineNode(nextNode, operator);
+						mon.stop();
 						
-//					System.out.println("next node: " + nextNode);
-//					for(Description refinement : refinements) {
-//						System.out.println("refinement: " + refinement);
-//					}
-//					if((loop+1) % 500 == 0) {
-//						System.out.println(getMinimumHorizontalExpansion() + " - " + getMaximumHorizontalExpansion());
-//						System.exit(0);
-//					}
+//						System.out.println("next node: " + nextNode);
+//						for(Description refinement : refinements) {
+//							System.out.println("refinement: " + refinement);
+//						}
+//						if((loop+1) % 500 == 0) {
+//							System.out.println(getMinimumHorizontalExpansion() + " - " + getMaximumHorizontalExpansion());
+//							System.exit(0);
+//						}
 					
-					while(refinements.size() != 0) {
-						// pick element from set
-						Description refinement = refinements.pollFirst();
-						int length = refinement.getLength();
+						while(refinements.size() != 0) {
+							// pick element from set
+							Description refinement = refinements.pollFirst();
+							int length = refinement.getLength();
 										
-						// we ignore all refinements with lower length and too high depth
-						// (this also avoids duplicate node children)
-						if(length > horizExp && refinement.getDepth() <= maxDepth) {
+							// we ignore all refinements with lower length and too high depth
+							// (this also avoids duplicate node children)
+							if(length > horizExp && refinement.getDepth() <= maxDepth) {
 							
-//							System.out.println("potentially adding " + refinement + " to search tree as child of " + nextNode + " " + new Date());
-							Monitor mon2 = MonitorFactory.start("addNode");
-							if(logger.isDebugEnabled()){
-								logger.debug("Add node...");
+//								System.out.println("potentially adding " + refinement + " to search tree as child of " + nextNode + " " + new Date());
+								Monitor mon2 = MonitorFactory.start("addNode");
+								if(logger.isDebugEnabled()){
+									logger.debug("Add node...");
+								}
+								addNode(refinement, nextNode);
+								mon2.stop();
+								// adding nodes is potentially computationally expensive, so we have
+								// to check whether max time is exceeded	
+								if(terminationCriteriaSatisfied()) {
+									break;
+								}
+//								System.out.println("addNode finished" + " " + new Date());
 							}
-							addNode(refinement, nextNode);
-							mon2.stop();
-							// adding nodes is potentially computationally expensive, so we have
-							// to check whether max time is exceeded	
-							if(terminationCriteriaSatisfied()) {
-								break;
-							}
-//							System.out.println("addNode finished" + " " + new Date());
-						}
 				
-//						System.out.println("  refinement queue length: " + refinements.size());
-					}
+//							System.out.println("  refinement queue length: " + refinements.size());
+						}
 					
-//					updateMinMaxHorizExp(nextNode);
+//						updateMinMaxHorizExp(nextNode);
 					
-					// writing the search tree (if configured)
-					if (writeSearchTree) {
-						String treeString = "best node: " + bestEvaluatedDescriptions.getBest() + "\n";
-						if (refinements.size() > 1) {
-							treeString += "all expanded nodes:\n";
-							for (Description n : refinements) {
-								treeString += "   " + n + "\n";
+						// writing the search tree (if configured)
+						if (writeSearchTree) {
+							String treeString = "best node: " + bestEvaluatedDescriptions.getBest() + "\n";
+							if (refinements.size() > 1) {
+								treeString += "all expanded nodes:\n";
+								for (Description n : refinements) {
+									treeString += "   " + n + "\n";
+								}
 							}
-						}
-						treeString += startNode.toTreeString(baseURI);
-						treeString += "\n";
+							treeString += startNode.toTreeString(baseURI);
+							treeString += "\n";
 
-						if (replaceSearchTree)
-							Files.createFile(new File(searchTreeFile), treeString);
-						else
-							Files.appendToFile(new File(searchTreeFile), treeString);
-					}
+							if (replaceSearchTree)
+								Files.createFile(new File(searchTreeFile), treeString);
+							else
+								Files.appendToFile(new File(searchTreeFile), treeString);
+						}
 					
-//					System.out.println(loop);
-					loop++;
-					currentlyProcessedNodes.remove(nextNode);
+//						System.out.println(loop);
+						loop++;
+					} finally {
+						// also done if the expansion fails, otherwise the other
+						// workers would wait for this one forever
+						if(useConcurrentFrontier) {
+							// the node goes back to the frontier with its new score
+							if(isExpandable(nextNode)) {
+								frontier.add(nextNode);
+							}
+							activeWorkers.decrementAndGet();
+							signalFrontierChange();
+						} else {
+							currentlyProcessedNodes.remove(nextNode);
+						}
+					}
 				}
 				
 			}
@@ -1140,5 +1387,4 @@ public class PCELOE extends AbstractCELA {
 		
 		alg.start();
 	}
-	
 }
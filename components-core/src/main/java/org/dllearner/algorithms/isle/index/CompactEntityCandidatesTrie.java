@@ -0,0 +1,89 @@
+package org.dllearner.algorithms.isle.index;
+
+import org.dllearner.algorithms.isle.textretrieval.EntityTextRetriever;
+import org.dllearner.core.owl.Entity;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+/**
+ * Entity candidates trie with the same entries as {@link SimpleEntityCandidatesTrie}, which are stored in a
+ * {@link DoubleArrayTokenTrie} instead of a {@link TokenTree}, i.e. it needs much less memory for ontologies
+ * with many labels.
+ */
+public class CompactEntityCandidatesTrie implements EntityCandidatesTrie {
+    DoubleArrayTokenTrie trie;
+    EntityTextRetriever entityTextRetriever;
+
+    /**
+     * Initialize the trie with strings from the provided ontology, where WordNet hyponyms are added as
+     * alternative forms of the tokens.
+     *
+     * @param entityTextRetriever the text retriever to use
+     * @param ontology the ontology to get strings from
+     */
+    public CompactEntityCandidatesTrie(EntityTextRetriever entityTextRetriever, OWLOntology ontology) {
+        this.entityTextRetriever = entityTextRetriever;
+        buildTrie(ontology);
+    }
+
+    public void buildTrie(OWLOntology ontology) {
+        this.trie = new DoubleArrayTokenTrie();
+        Map<Entity, Set<List<Token>>> entity2TokenSet = entityTextRetriever.getRelevantText(ontology);
+
+        for (Entry<Entity, Set<List<Token>>> entry : entity2TokenSet.entrySet()) {
+            Entity entity = entry.getKey();
+            Set<List<Token>> tokenSet = entry.getValue();
+            for (List<Token> tokens : tokenSet) {
+                SimpleEntityCandidatesTrie.addAlternativeFormsFromWordNet(tokens);
+                addEntry(tokens, entity);
+                addSubsequences(entity, tokens);
+            }
+        }
+    }
+
+    /**
+     * Adds the subsequences of a text
+     * @param entity
+     * @param tokens
+     */
+    private void addSubsequences(Entity entity, List<Token> tokens) {
+        for (int size = 1; size < tokens.size(); size++) {
+            for (int start = 0; start < tokens.size() - size + 1; start++) {
+                addEntry(new ArrayList<>(tokens.subList(start, start + size)), entity);
+            }
+        }
+    }
+
+    @Override
+    public void addEntry(List<Token> s, Entity e) {
+        trie.add(s, e);
+    }
+
+    public void addEntry(List<Token> s, Entity e, List<Token> originalTokens) {
+        trie.add(s, e, originalTokens);
+    }
+
+    @Override
+    public Set<EntityScorePair> getCandidateEntities(List<Token> tokens) {
+        return trie.getAllEntitiesScored(tokens);
+    }
+
+    @Override
+    public List<Token> getGeneratingStringForLongestMatch(List<Token> tokens) {
+        return trie.getOriginalTokensForLongestMatch(tokens);
+    }
+
+    @Override
+    public List<Token> getLongestMatchingText(List<Token> tokens) {
+        return trie.getLongestMatch(tokens);
+    }
+
+    public String toString() {
+        return trie.toString();
+    }
+}
@@ -0,0 +1,721 @@
+package org.dllearner.algorithms.isle.index;
+
+import org.dllearner.core.owl.Entity;
+
+import java.util.*;
+
+/**
+ * Compact alternative to {@link TokenTree} for large sets of labels. The tokens are dictionary-encoded by their
+ * word type and stemmed form, i.e. by the same criteria as {@link Token#equals(Object)}, and the token sequences
+ * are stored in a double-array trie, i.e. the child of a state {@code s} for a label is located at
+ * {@code t = base[s] + label} and exists iff {@code check[t] == s}. The alternative forms of the tokens are expanded into two sorted
+ * indexes when the trie is compiled, which map a state and a surface form to the children whose stemmed form,
+ * respectively one of whose alternative forms, is that surface form. Hence, a lookup never iterates over all
+ * children of a state, and the scored lookup processes the tokens in a single pass by keeping the best score
+ * of each reachable state.
+ * <p>
+ * The lookups have the same semantics as the ones of {@link TokenTree}, except that the alternative forms of
+ * the tokens with the same word type and stemmed form are merged, keeping the highest score of each form,
+ * whereas {@link TokenTree} only keeps the alternative forms of the first token added for an edge.
+ * <p>
+ * The trie is compiled on the first lookup after it was modified. Lookups are thread-safe, but must not run
+ * concurrently to modifications.
+ */
+public class DoubleArrayTokenTrie {
+
+    private static final int NONE = -1;
+    // the maximum number of positions probed for a base in the used part of the array
+    private static final int MAX_PROBES = 1024;
+
+    private boolean ignoreStopWords = true;
+
+    // word type -> stemmed form -> label, stemmed and alternative forms -> form
+    private final Map<String, Map<String, Integer>> labelIds = new HashMap<>();
+    private final Map<String, Integer> formIds = new HashMap<>();
+    // label -> form of its stemmed form, POS tag of its first token, its alternative forms with score (null if
+    // there are none)
+    private int[] labelStems = new int[16];
+    private final List<String> labelPosTags = new ArrayList<>();
+    private final List<Map<Integer, Double>> labelAlternatives = new ArrayList<>();
+
+    private final Map<Entity, Integer> entityIds = new HashMap<>();
+    private final List<Entity> entities = new ArrayList<>();
+
+    // label sequence -> its entities and original tokens, in the order the sequences were first added
+    private final Map<LabelSequence, Entry> entries = new LinkedHashMap<>();
+
+    // the compiled trie, null if it has to be compiled
+    private volatile Trie trie;
+
+    /**
+     * If set to TRUE, stopwords like 'of, on' are ignored during creation operations.
+     *
+     * @param ignoreStopWords the ignoreStopWords to set
+     */
+    public void setIgnoreStopWords(boolean ignoreStopWords) {
+        this.ignoreStopWords = ignoreStopWords;
+    }
+
+    /**
+     * Adds the given entity to the end of the path resulting from the given tokens.
+     *
+     * @param tokens         tokens to locate insertion point for the entity
+     * @param entity         entity to add
+     * @param originalTokens the tokens the given tokens were generated from, which are not copied
+     */
+    public synchronized void add(List<Token> tokens, Entity entity, List<Token> originalTokens) {
+        List<Integer> labels = new ArrayList<>(tokens.size());
+        for (Token t : tokens) {
+            if (!ignoreStopWords || !t.isStopWord()) {
+                labels.add(encode(t));
+            }
+        }
+        int[] labelArray = new int[labels.size()];
+        for (int i = 0; i < labelArray.length; i++) {
+            labelArray[i] = labels.get(i);
+        }
+        Integer entityId = entityIds.get(entity);
+        if (entityId == null) {
+            entityId = entities.size();
+            entityIds.put(entity, entityId);
+            entities.add(entity);
+        }
+        LabelSequence key = new LabelSequence(labelArray);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            entry = new Entry(labelArray);
+            entries.put(key, entry);
+        }
+        entry.addEntity(entityId);
+        // only the original tokens of the last added sequence are kept, as in TokenTree
+        entry.originalTokens = originalTokens;
+        trie = null;
+    }
+
+    public void add(List<Token> tokens, Entity entity) {
+        add(tokens, entity, tokens);
+    }
+
+    /**
+     * Returns the set of entities located by the given list of tokens. This method does not consider alternative
+     * forms except for finding a child if no child is equal to the token.
+     *
+     * @param tokens tokens to locate the information to get
+     * @return located set of entities or null if token sequence not contained in tree
+     */
+    public Set<Entity> get(List<Token> tokens) {
+        Trie trie = getTrie();
+        int state = 0;
+        for (Token t : tokens) {
+            state = trie.getNextState(state, t);
+            if (state == NONE) {
+                return null;
+            }
+        }
+        return trie.getEntities(state);
+    }
+
+    /**
+     * Returns the entities located by the given token sequence, where the tokens are also matched by their
+     * alternative forms, with the highest score of each entity.
+     *
+     * @param tokens the token sequence
+     * @return the scored entities
+     */
+    public Set<EntityScorePair> getAllEntitiesScored(List<Token> tokens) {
+        Trie trie = getTrie();
+        Map<Integer, Double> states = new HashMap<>();
+        states.put(0, 1.0);
+        for (Token t : tokens) {
+            Map<Integer, Double> nextStates = new HashMap<>();
+            for (Map.Entry<Integer, Double> state : states.entrySet()) {
+                trie.addScoredNextStates(state.getKey(), state.getValue(), t, nextStates);
+            }
+            states = nextStates;
+            if (states.isEmpty()) {
+                break;
+            }
+        }
+
+        // only keep highest confidence for each entity
+        HashMap<Entity, Double> entityScores = new HashMap<>();
+        for (Map.Entry<Integer, Double> state : states.entrySet()) {
+            for (Entity e : trie.getEntities(state.getKey())) {
+                Double score = entityScores.get(e);
+                if (score == null || score < state.getValue()) {
+                    entityScores.put(e, state.getValue());
+                }
+            }
+        }
+
+        TreeSet<EntityScorePair> result = new TreeSet<>();
+        for (Map.Entry<Entity, Double> e : entityScores.entrySet()) {
+            result.add(new EntityScorePair(e.getKey(), e.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the list of tokens which are the longest match with entities assigned in this trie.
+     *
+     * @param tokens list of tokens to check for longest match
+     * @return list of tokens being the longest match, sublist of {@code tokens} anchored at the first token
+     */
+    public List<Token> getLongestMatch(List<Token> tokens) {
+        Trie trie = getTrie();
+        List<Token> fallbackTokenList = new ArrayList<>();
+        int state = 0;
+        for (Token t : tokens) {
+            state = trie.getNextState(state, t);
+            if (state == NONE) {
+                return fallbackTokenList;
+            }
+            fallbackTokenList.add(t);
+        }
+        return fallbackTokenList;
+    }
+
+    /**
+     * Returns the set of entities assigned to the longest matching token subsequence of the given token sequence.
+     *
+     * @param tokens token sequence to search for longest match
+     * @return set of entities assigned to the longest matching token subsequence of the given token sequence
+     */
+    public Set<Entity> getEntitiesForLongestMatch(List<Token> tokens) {
+        Trie trie = getTrie();
+        int fallback = trie.getLongestMatchState(tokens);
+        if (fallback == NONE) {
+            return null;
+        }
+        return fallback == Trie.NO_ENTITIES ? Collections.<Entity>emptySet() : trie.getEntities(fallback);
+    }
+
+    /**
+     * Returns the original ontology tokens for the longest match
+     */
+    public List<Token> getOriginalTokensForLongestMatch(List<Token> tokens) {
+        Trie trie = getTrie();
+        int fallback = trie.getLongestMatchState(tokens);
+        if (fallback == NONE) {
+            return null;
+        }
+        return fallback == Trie.NO_ENTITIES ? Collections.<Token>emptyList() : trie.originalTokens[fallback];
+    }
+
+    /**
+     * @return the number of states of the trie
+     */
+    public int getNrOfStates() {
+        return getTrie().nrOfStates;
+    }
+
+    /**
+     * @return the length of the arrays of the trie, i.e. the number of states including unused slots
+     */
+    int getArrayLength() {
+        return getTrie().base.length;
+    }
+
+    @Override
+    public String toString() {
+        return "DoubleArrayTokenTrie[" + entries.size() + " entries, " + labelPosTags.size() + " labels, "
+                + getNrOfStates() + " states]";
+    }
+
+    private int encode(Token t) {
+        String wordType = WordTypeComparator.wordType(t.getPOSTag());
+        Map<String, Integer> wordTypeLabels = labelIds.get(wordType);
+        if (wordTypeLabels == null) {
+            wordTypeLabels = new HashMap<>();
+            labelIds.put(wordType, wordTypeLabels);
+        }
+        Integer label = wordTypeLabels.get(t.getStemmedForm());
+        if (label == null) {
+            label = labelPosTags.size();
+            wordTypeLabels.put(t.getStemmedForm(), label);
+            if (label == labelStems.length) {
+                labelStems = Arrays.copyOf(labelStems, 2 * label);
+            }
+            labelStems[label] = encodeForm(t.getStemmedForm());
+            labelPosTags.add(t.getPOSTag());
+            labelAlternatives.add(null);
+        }
+        for (Map.Entry<String, Double> alternativeForm : t.getScoredAlternativeForms().entrySet()) {
+            Map<Integer, Double> alternatives = labelAlternatives.get(label);
+            if (alternatives == null) {
+                alternatives = new HashMap<>();
+                labelAlternatives.set(label, alternatives);
+            }
+            int form = encodeForm(alternativeForm.getKey());
+            Double score = alternatives.get(form);
+            if (score == null || score < alternativeForm.getValue()) {
+                alternatives.put(form, alternativeForm.getValue());
+            }
+        }
+        return label;
+    }
+
+    private int encodeForm(String form) {
+        Integer id = formIds.get(form);
+        if (id == null) {
+            id = formIds.size();
+            formIds.put(form, id);
+        }
+        return id;
+    }
+
+    private int getLabel(Token t) {
+        if (t.getPOSTag() == null || t.getStemmedForm() == null) {
+            return NONE;
+        }
+        Map<String, Integer> wordTypeLabels = labelIds.get(WordTypeComparator.wordType(t.getPOSTag()));
+        Integer label = wordTypeLabels == null ? null : wordTypeLabels.get(t.getStemmedForm());
+        return label == null ? NONE : label;
+    }
+
+    private int getForm(String form) {
+        Integer id = form == null ? null : formIds.get(form);
+        return id == null ? NONE : id;
+    }
+
+    private Trie getTrie() {
+        Trie trie = this.trie;
+        if (trie == null) {
+            synchronized (this) {
+                trie = this.trie;
+                if (trie == null) {
+                    trie = new Trie();
+                    this.trie = trie;
+                }
+            }
+        }
+        return trie;
+    }
+
+    /**
+     * The labels of a token sequence, compared by value.
+     */
+    private static class LabelSequence {
+        final int[] labels;
+
+        LabelSequence(int[] labels) {
+            this.labels = labels;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof LabelSequence && Arrays.equals(labels, ((LabelSequence) o).labels);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(labels);
+        }
+    }
+
+    /**
+     * A token sequence with the entities added for it.
+     */
+    private static class Entry {
+        final int[] labels;
+        // usually a single entity, hence an exactly sized array instead of a set
+        int[] entities = new int[0];
+        List<Token> originalTokens;
+
+        Entry(int[] labels) {
+            this.labels = labels;
+        }
+
+        void addEntity(int entity) {
+            for (int e : entities) {
+                if (e == entity) {
+                    return;
+                }
+            }
+            entities = Arrays.copyOf(entities, entities.length + 1);
+            entities[entities.length - 1] = entity;
+        }
+    }
+
+    /**
+     * The compiled arrays. State 0 is the root.
+     */
+    private class Trie {
+
+        // returned by getLongestMatchState if no state with entities was passed
+        static final int NO_ENTITIES = -2;
+
+        final int nrOfStates;
+
+        int[] base;
+        int[] check;
+        // the label of the edge to the state
+        int[] stateLabels;
+        // the index of the first label sequence added through the state, i.e. the insertion order of the children
+        int[] stateRanks;
+        // the entities of state s are entityIds[entityOffsets[s]..entityOffsets[s + 1])
+        int[] entityOffsets;
+        int[] stateEntities;
+        List<Token>[] originalTokens;
+
+        // (state, stemmed form of a child) -> child
+        long[] stemKeys;
+        int[] stemChildren;
+        // (state, alternative form of a child) -> child, score
+        long[] alternativeKeys;
+        int[] alternativeChildren;
+        double[] alternativeScores;
+
+        private BitSet used;
+        // the position to start the search for a free base, the positions before are (almost) all used
+        private int nextCheckPos;
+        private int maxLabel;
+        private List<Entry> entryList;
+        private Integer[] order;
+        private List<int[]> entityAssignments;
+        private Map<Integer, Entry> terminalEntries;
+
+        @SuppressWarnings("unchecked")
+        Trie() {
+            // sort the entries lexicographically, such that the entries of a state are a consecutive range
+            entryList = new ArrayList<>(entries.values());
+            order = new Integer[entryList.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, new Comparator<Integer>() {
+                @Override
+                public int compare(Integer i1, Integer i2) {
+                    int[] l1 = entryList.get(i1).labels;
+                    int[] l2 = entryList.get(i2).labels;
+                    for (int i = 0; i < l1.length && i < l2.length; i++) {
+                        if (l1[i] != l2[i]) {
+                            return Integer.compare(l1[i], l2[i]);
+                        }
+                    }
+                    return l1.length != l2.length ? Integer.compare(l1.length, l2.length) : Integer.compare(i1, i2);
+                }
+            });
+            maxLabel = labelPosTags.size();
+            base = new int[Math.max(16, 2 * maxLabel)];
+            check = new int[base.length];
+            stateLabels = new int[base.length];
+            stateRanks = new int[base.length];
+            Arrays.fill(check, NONE);
+            used = new BitSet();
+            used.set(0);
+            entityAssignments = new ArrayList<>();
+            terminalEntries = new HashMap<>();
+
+            build(0, 0, order.length, 0);
+
+            nrOfStates = used.cardinality();
+            int length = used.length();
+            base = Arrays.copyOf(base, length);
+            check = Arrays.copyOf(check, length);
+            stateLabels = Arrays.copyOf(stateLabels, length);
+            stateRanks = Arrays.copyOf(stateRanks, length);
+
+            // entities and original tokens per state
+            entityOffsets = new int[length + 1];
+            for (int[] assignment : entityAssignments) {
+                entityOffsets[assignment[0] + 1]++;
+            }
+            for (int s = 0; s < length; s++) {
+                entityOffsets[s + 1] += entityOffsets[s];
+            }
+            stateEntities = new int[entityAssignments.size()];
+            int[] next = Arrays.copyOf(entityOffsets, length);
+            for (int[] assignment : entityAssignments) {
+                stateEntities[next[assignment[0]]++] = assignment[1];
+            }
+            originalTokens = new List[length];
+            for (Map.Entry<Integer, Entry> e : terminalEntries.entrySet()) {
+                originalTokens[e.getKey()] = e.getValue().originalTokens;
+            }
+
+            buildFormIndexes(length);
+
+            entryList = null;
+            order = null;
+            used = null;
+            entityAssignments = null;
+            terminalEntries = null;
+        }
+
+        /**
+         * Adds the children of the state for the entries order[from..to), which share a prefix of the given depth.
+         */
+        private void build(int state, int from, int to, int depth) {
+            int i = from;
+            // the label sequences are distinct, hence at most one entry ends at the state
+            if (i < to && entryList.get(order[i]).labels.length == depth) {
+                Entry entry = entryList.get(order[i]);
+                for (int entity : entry.entities) {
+                    entityAssignments.add(new int[]{state, entity});
+                }
+                terminalEntries.put(state, entry);
+                i++;
+            }
+            if (i == to) {
+                return;
+            }
+            // the ranges of the entries per label at the depth
+            List<Integer> labels = new ArrayList<>();
+            List<Integer> starts = new ArrayList<>();
+            for (; i < to; i++) {
+                int label = entryList.get(order[i]).labels[depth];
+                if (labels.isEmpty() || labels.get(labels.size() - 1) != label) {
+                    labels.add(label);
+                    starts.add(i);
+                }
+            }
+            starts.add(to);
+
+            int b = findBase(labels);
+            base[state] = b;
+            for (int label : labels) {
+                used.set(b + label);
+                check[b + label] = state;
+                stateLabels[b + label] = label;
+            }
+            for (int k = 0; k < labels.size(); k++) {
+                int rank = Integer.MAX_VALUE;
+                for (int j = starts.get(k); j < starts.get(k + 1); j++) {
+                    rank = Math.min(rank, order[j]);
+                }
+                stateRanks[b + labels.get(k)] = rank;
+                build(b + labels.get(k), starts.get(k), starts.get(k + 1), depth + 1);
+            }
+        }
+
+        /**
+         * @return the first base such that all children are free
+         */
+        private int findBase(List<Integer> labels) {
+            int first = labels.get(0);
+            int start = Math.max(first + 1, nextCheckPos);
+            int position = start;
+            int nrOfFailures = 0;
+            while (true) {
+                position = used.nextClearBit(position);
+                int b = position - first;
+                boolean free = true;
+                for (int k = 1; k < labels.size() && free; k++) {
+                    free = !used.get(b + labels.get(k));
+                }
+                if (free) {
+                    // skip the scanned positions in later searches if they are almost all used
+                    if (position - start - nrOfFailures >= 0.95 * (position - start + 1)) {
+                        nextCheckPos = position;
+                    }
+                    ensureCapacity(b + labels.get(labels.size() - 1) + 1);
+                    return b;
+                }
+                nrOfFailures++;
+                // the labels are spread over a large alphabet, i.e. states with several children hardly fit
+                // into dense regions, hence they are moved to the free end of the array after some probes
+                position = nrOfFailures < MAX_PROBES ? position + 1 : Math.max(position + 1, used.length());
+            }
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > base.length) {
+                int oldLength = base.length;
+                int length = Math.max(capacity, oldLength + (oldLength >> 1));
+                base = Arrays.copyOf(base, length);
+                check = Arrays.copyOf(check, length);
+                stateLabels = Arrays.copyOf(stateLabels, length);
+                stateRanks = Arrays.copyOf(stateRanks, length);
+                Arrays.fill(check, oldLength, length, NONE);
+            }
+        }
+
+        private void buildFormIndexes(int length) {
+            List<long[]> stemEntries = new ArrayList<>();
+            List<long[]> alternativeEntries = new ArrayList<>();
+            for (int s = 1; s < length; s++) {
+                if (check[s] == NONE) {
+                    continue;
+                }
+                int label = stateLabels[s];
+                stemEntries.add(new long[]{getKey(check[s], labelStems[label]), s});
+                if (labelAlternatives.get(label) == null) {
+                    continue;
+                }
+                for (Map.Entry<Integer, Double> alternative : labelAlternatives.get(label).entrySet()) {
+                    alternativeEntries.add(new long[]{getKey(check[s], alternative.getKey()), s,
+                            Double.doubleToLongBits(alternative.getValue())});
+                }
+            }
+            Comparator<long[]> comparator = new Comparator<long[]>() {
+                @Override
+                public int compare(long[] e1, long[] e2) {
+                    int diff = Long.compare(e1[0], e2[0]);
+                    return diff != 0 ? diff : Long.compare(e1[1], e2[1]);
+                }
+            };
+            Collections.sort(stemEntries, comparator);
+            Collections.sort(alternativeEntries, comparator);
+            stemKeys = new long[stemEntries.size()];
+            stemChildren = new int[stemEntries.size()];
+            for (int i = 0; i < stemKeys.length; i++) {
+                stemKeys[i] = stemEntries.get(i)[0];
+                stemChildren[i] = (int) stemEntries.get(i)[1];
+            }
+            alternativeKeys = new long[alternativeEntries.size()];
+            alternativeChildren = new int[alternativeEntries.size()];
+            alternativeScores = new double[alternativeEntries.size()];
+            for (int i = 0; i < alternativeKeys.length; i++) {
+                long[] e = alternativeEntries.get(i);
+                alternativeKeys[i] = e[0];
+                alternativeChildren[i] = (int) e[1];
+                alternativeScores[i] = Double.longBitsToDouble(e[2]);
+            }
+        }
+
+        int getChild(int state, int label) {
+            if (label == NONE) {
+                return NONE;
+            }
+            int child = base[state] + label;
+            return child < check.length && check[child] == state ? child : NONE;
+        }
+
+        Set<Entity> getEntities(int state) {
+            Set<Entity> result = new HashSet<>();
+            for (int i = entityOffsets[state]; i < entityOffsets[state + 1]; i++) {
+                result.add(entities.get(stateEntities[i]));
+            }
+            return result;
+        }
+
+        /**
+         * Follows the child equal to the token or, if there is none, the first added child equal to the token
+         * considering alternative forms, as {@link TokenTree} does.
+         */
+        int getNextState(int state, Token t) {
+            int child = getChild(state, getLabel(t));
+            if (child != NONE) {
+                return child;
+            }
+            if (t.getPOSTag() == null) {
+                return NONE;
+            }
+            int next = NONE;
+            int stem = getForm(t.getStemmedForm());
+            next = getFirstChild(stemKeys, stemChildren, state, stem, t.getPOSTag(), next);
+            next = getFirstChild(alternativeKeys, alternativeChildren, state, stem, t.getPOSTag(), next);
+            for (String alternativeForm : t.getAlternativeForms()) {
+                next = getFirstChild(stemKeys, stemChildren, state, getForm(alternativeForm), t.getPOSTag(), next);
+            }
+            return next;
+        }
+
+        private int getFirstChild(long[] keys, int[] children, int state, int form, String posTag, int next) {
+            if (form == NONE) {
+                return next;
+            }
+            long key = getKey(state, form);
+            for (int i = lowerBound(keys, key); i < keys.length && keys[i] == key; i++) {
+                int child = children[i];
+                if ((next == NONE || stateRanks[child] < stateRanks[next]) && labelPosTags.get(stateLabels[child]).equals(posTag)) {
+                    next = child;
+                }
+            }
+            return next;
+        }
+
+        /**
+         * Adds the children of the state matching the token with their scores to the next states, keeping the
+         * highest score per state.
+         */
+        void addScoredNextStates(int state, double score, Token t, Map<Integer, Double> nextStates) {
+            int exact = getChild(state, getLabel(t));
+            if (exact != NONE) {
+                addState(nextStates, exact, score * TokenTree.ORIGINAL_FACTOR);
+            }
+            if (t.getStemmedForm() == null) {
+                return;
+            }
+            // an alternative form of the child is the stemmed form of the token
+            int stem = getForm(t.getStemmedForm());
+            if (stem != NONE) {
+                long key = getKey(state, stem);
+                for (int i = lowerBound(alternativeKeys, key); i < alternativeKeys.length && alternativeKeys[i] == key; i++) {
+                    if (alternativeChildren[i] != exact) {
+                        addState(nextStates, alternativeChildren[i], score * TokenTree.ORIGINAL_FACTOR * alternativeScores[i]);
+                    }
+                }
+            }
+            for (Map.Entry<String, Double> alternativeForm : t.getScoredAlternativeForms().entrySet()) {
+                int form = getForm(alternativeForm.getKey());
+                if (form == NONE) {
+                    continue;
+                }
+                long key = getKey(state, form);
+                // an alternative form of the token is the stemmed form of the child
+                for (int i = lowerBound(stemKeys, key); i < stemKeys.length && stemKeys[i] == key; i++) {
+                    if (stemChildren[i] != exact) {
+                        addState(nextStates, stemChildren[i], score * TokenTree.ORIGINAL_FACTOR * alternativeForm.getValue());
+                    }
+                }
+                // both have the same alternative form
+                for (int i = lowerBound(alternativeKeys, key); i < alternativeKeys.length && alternativeKeys[i] == key; i++) {
+                    if (alternativeChildren[i] != exact) {
+                        addState(nextStates, alternativeChildren[i], score * alternativeScores[i] * alternativeForm.getValue());
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return the last state with entities on the path of the tokens, {@link #NO_ENTITIES} if there is none
+         * and the path covers all tokens, or {@link DoubleArrayTokenTrie#NONE} if there is none and the path ends
+         * before
+         */
+        int getLongestMatchState(List<Token> tokens) {
+            int fallback = hasEntities(0) ? 0 : NONE;
+            int state = 0;
+            for (Token t : tokens) {
+                state = getNextState(state, t);
+                if (state == NONE) {
+                    return fallback;
+                }
+                if (hasEntities(state)) {
+                    fallback = state;
+                }
+            }
+            return fallback == NONE ? NO_ENTITIES : fallback;
+        }
+
+        private boolean hasEntities(int state) {
+            return entityOffsets[state] < entityOffsets[state + 1];
+        }
+
+        private void addState(Map<Integer, Double> states, int state, double score) {
+            Double existingScore = states.get(state);
+            if (existingScore == null || existingScore < score) {
+                states.put(state, score);
+            }
+        }
+
+        private long getKey(int state, int form) {
+            return ((long) state << 32) | form;
+        }
+
+        private int lowerBound(long[] keys, long key) {
+            int low = 0;
+            int high = keys.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (keys[mid] < key) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+}
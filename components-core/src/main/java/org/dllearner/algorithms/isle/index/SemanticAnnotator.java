@@ -37,9 +37,31 @@ public class SemanticAnnotator {
      * @return the given document extended with annotations
      */
     public AnnotatedDocument processDocument(TextDocument document){
+    	return disambiguate(document, getCandidates(document));
+    }
+
+    /**
+     * Annotates the given document linguistically and returns the entity candidates of
+     * its annotations, which is the first step of {@link #processDocument(TextDocument)}.
+     *
+     * @param document the document to annotate
+     * @return the entity candidates for each annotation of the document
+     */
+    public HashMap<Annotation, Set<EntityScorePair>> getCandidates(TextDocument document){
     	Set<Annotation> annotations = linguisticAnnotator.annotate(document);
+    	return entityCandidateGenerator.getCandidatesMap(annotations);
+    }
+
+    /**
+     * Disambiguates the entity candidates of the annotations of the given document, which
+     * is the second step of {@link #processDocument(TextDocument)}.
+     *
+     * @param document the document to annotate
+     * @param candidatesMap the entity candidates for each annotation of the document
+     * @return the given document extended with annotations
+     */
+    public AnnotatedDocument disambiguate(TextDocument document, HashMap<Annotation, Set<EntityScorePair>> candidatesMap){
     	Set<SemanticAnnotation> semanticAnnotations = new HashSet<SemanticAnnotation>();
-    	HashMap<Annotation, Set<EntityScorePair>> candidatesMap = entityCandidateGenerator.getCandidatesMap(annotations);
     	for (Annotation annotation : candidatesMap.keySet()) {
     		Set<EntityScorePair> candidateEntities = candidatesMap.get(annotation);
             if (candidateEntities == null || candidateEntities.size() == 0) {
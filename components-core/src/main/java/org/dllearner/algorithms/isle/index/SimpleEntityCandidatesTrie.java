@@ -70,7 +70,11 @@ public class SimpleEntityCandidatesTrie implements EntityCandidatesTrie {
         }
     }
 
-    private void addAlternativeFormsFromWordNet(List<Token> tokens) {
+    /**
+     * Adds the scored WordNet hyponyms of the tokens as their alternative forms.
+     * @param tokens
+     */
+    static void addAlternativeFormsFromWordNet(List<Token> tokens) {
         for (Token t : tokens) {
             POS wordnetPos = null;
             String posTag = t.getPOSTag();
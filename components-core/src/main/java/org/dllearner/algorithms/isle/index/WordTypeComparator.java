@@ -30,16 +30,27 @@ public class WordTypeComparator {
 	}
 	
 	public static int hashCode(String posTag){
+		return wordType(posTag).hashCode();
+	}
+	
+	/**
+	 * Returns the word type of the given POS tag, i.e. NN for nouns, V for verbs, JJ for adjectives, RB for
+	 * adverbs, and the POS tag itself for all other words. Two POS tags have the same word type iff
+	 * {@link #sameWordType(String, String)} holds.
+	 * @param posTag the POS tag of the word
+	 * @return the word type
+	 */
+	public static String wordType(String posTag){
 		if(posTag.startsWith("NN")){//nouns
-			return "NN".hashCode();
+			return "NN";
 		} else if(posTag.startsWith("V")){//verbs
-			return "V".hashCode();
+			return "V";
 		} else if(posTag.startsWith("JJ")){//adjectives
-			return "JJ".hashCode();
+			return "JJ";
 		} else if(posTag.startsWith("RB")){//adverbs
-			return "RB".hashCode();
+			return "RB";
 		} else {
-			return posTag.hashCode();
+			return posTag;
 		}
 	}
 }
@@ -1,7 +1,12 @@
 package org.dllearner.algorithms.isle.index.semantic;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import org.dllearner.algorithms.isle.index.AnnotatedDocument;
@@ -12,13 +17,30 @@ import org.dllearner.core.owl.Entity;
  * Interface for an index which is able to resolve a given entity's URI to the set of documents containing
  * this entity, i.e., documents which contain words disambiguated to the given entity.
  *
+ * Besides the documents, the index holds an inverted index for counting, i.e. each document has an int id
+ * and each entity a sorted array of the ids of its documents (its posting list). It is built on first use
+ * and rebuilt after the index was modified. The number of documents containing several entities is computed
+ * by intersecting the posting lists, starting with the shortest one. For a fixed set of entities, e.g. the
+ * signature of an ontology, the numbers of documents containing both entities of a pair can be precomputed
+ * by {@link #precomputeCooccurrences(Collection)}.
+ *
  * @author Lorenz Buehmann
  * @author Daniel Fleischhacker
  */
 public class SemanticIndex extends HashMap<Entity, Set<AnnotatedDocument>> implements Index{
 
+	private static final int[] EMPTY_POSTING_LIST = new int[0];
+
     private int nrOfDocuments;
 
+    // entity -> sorted ids of the documents containing it, null if not built yet
+    private transient volatile Map<Entity, int[]> postingLists;
+
+    // entity -> position in the co-occurrence matrix
+    private transient volatile Map<Entity, Integer> cooccurrenceEntities;
+    // the number of documents containing both entities of a pair of positions (only pairs which co-occur)
+    private transient volatile Map<Long, Integer> cooccurrences;
+
     /**
      * Returns the set of annotated documents which reference the given entity using one of its surface forms.
      *
@@ -28,9 +50,27 @@ public class SemanticIndex extends HashMap<Entity, Set<AnnotatedDocument>> imple
     public Set<AnnotatedDocument> getDocuments(Entity entity) {
         Set<AnnotatedDocument> annotatedDocuments = get(entity);
         if (annotatedDocuments == null) {
-            annotatedDocuments = new HashSet<AnnotatedDocument>();
+            return Collections.emptySet();
+        }
+        // modifications have to go through the index, which invalidates the counts
+        return Collections.unmodifiableSet(annotatedDocuments);
+    }
+
+    /**
+     * Adds a document to the sets of documents of all entities it contains.
+     *
+     * @param annotatedDocument the document
+     */
+    public void addDocument(AnnotatedDocument annotatedDocument) {
+    	for (Entity entity : annotatedDocument.getContainedEntities()) {
+            Set<AnnotatedDocument> existingAnnotatedDocuments = get(entity);
+            if (existingAnnotatedDocuments == null) {
+                existingAnnotatedDocuments = new HashSet<AnnotatedDocument>();
+                super.put(entity, existingAnnotatedDocuments);
+            }
+            existingAnnotatedDocuments.add(annotatedDocument);
         }
-        return annotatedDocuments;
+    	invalidate();
     }
 
     /**
@@ -40,16 +80,16 @@ public class SemanticIndex extends HashMap<Entity, Set<AnnotatedDocument>> imple
      * @return number of documents for the given entity in this index
      */
     public int getNrOfDocumentsFor(Entity entity) {
-        return get(entity).size();
+        return getPostingList(entity).length;
     }
-    
+
     /**
 	 * @param nrOfDocuments the nrOfDocuments to set
 	 */
 	public void setTotalNrOfDocuments(int nrOfDocuments) {
 		this.nrOfDocuments = nrOfDocuments;
 	}
-	
+
 	/* (non-Javadoc)
 	 * @see org.dllearner.algorithms.isle.index.Index#getTotalNumberOfDocuments()
 	 */
@@ -63,7 +103,7 @@ public class SemanticIndex extends HashMap<Entity, Set<AnnotatedDocument>> imple
 	 */
 	@Override
 	public long getNumberOfDocumentsFor(Entity entity) {
-		return getDocuments(entity).size();
+		return getPostingList(entity).length;
 	}
 
 	/* (non-Javadoc)
@@ -71,12 +111,220 @@ public class SemanticIndex extends HashMap<Entity, Set<AnnotatedDocument>> imple
 	 */
 	@Override
 	public long getNumberOfDocumentsFor(Entity... entities) {
-		
-		Set<AnnotatedDocument> documents = getDocuments(entities[0]);
-		for (int i = 1; i < entities.length; i++) {
-			documents.retainAll(getDocuments(entities[i]));
+		if(entities.length == 1){
+			return getNumberOfDocumentsFor(entities[0]);
+		}
+		if(entities.length == 2){
+			Integer count = getCooccurrences(entities[0], entities[1]);
+			if(count != null){
+				return count;
+			}
+		}
+		int[][] lists = new int[entities.length][];
+		for (int i = 0; i < entities.length; i++) {
+			lists[i] = getPostingList(entities[i]);
+		}
+		return countIntersection(lists);
+	}
+
+	/**
+	 * Precomputes the number of documents containing both entities for all pairs of the given entities,
+	 * which is worth it if the relevance between many of them is computed. Nothing is done if the
+	 * co-occurrences of all given entities have already been computed.
+	 *
+	 * @param entities the entities, e.g. the signature of the ontology
+	 */
+	public synchronized void precomputeCooccurrences(Collection<Entity> entities) {
+		if(cooccurrenceEntities != null && cooccurrences != null && cooccurrenceEntities.keySet().containsAll(entities)){
+			return;
+		}
+		Map<Entity, Integer> positions = new HashMap<Entity, Integer>();
+		for (Entity entity : entities) {
+			if(!positions.containsKey(entity)){
+				positions.put(entity, positions.size());
+			}
+		}
+		// collect the positions of the entities per document
+		Map<AnnotatedDocument, Set<Integer>> document2Entities = new HashMap<AnnotatedDocument, Set<Integer>>();
+		for (Entry<Entity, Set<AnnotatedDocument>> entry : entrySet()) {
+			Integer position = positions.get(entry.getKey());
+			if(position == null){
+				continue;
+			}
+			for (AnnotatedDocument document : entry.getValue()) {
+				Set<Integer> documentEntities = document2Entities.get(document);
+				if(documentEntities == null){
+					documentEntities = new HashSet<Integer>();
+					document2Entities.put(document, documentEntities);
+				}
+				documentEntities.add(position);
+			}
 		}
-		return 0;
+		Map<Long, Integer> counts = new HashMap<Long, Integer>();
+		for (Set<Integer> documentEntities : document2Entities.values()) {
+			int[] sorted = toSortedArray(documentEntities);
+			for (int i = 0; i < sorted.length; i++) {
+				for (int j = i + 1; j < sorted.length; j++) {
+					Long key = getPairKey(sorted[i], sorted[j]);
+					Integer count = counts.get(key);
+					counts.put(key, count == null ? 1 : count + 1);
+				}
+			}
+		}
+		cooccurrences = counts;
+		cooccurrenceEntities = positions;
+	}
+
+	@Override
+	public Set<AnnotatedDocument> put(Entity entity, Set<AnnotatedDocument> documents) {
+		invalidate();
+		return super.put(entity, documents);
+	}
+
+	@Override
+	public void putAll(Map<? extends Entity, ? extends Set<AnnotatedDocument>> m) {
+		invalidate();
+		super.putAll(m);
+	}
+
+	@Override
+	public Set<AnnotatedDocument> remove(Object entity) {
+		invalidate();
+		return super.remove(entity);
+	}
+
+	@Override
+	public void clear() {
+		invalidate();
+		super.clear();
+	}
+
+	private synchronized void invalidate() {
+		postingLists = null;
+		cooccurrences = null;
+		cooccurrenceEntities = null;
+	}
+
+	/**
+	 * @return the number of documents containing both entities or null if it was not precomputed
+	 */
+	private Integer getCooccurrences(Entity entity1, Entity entity2) {
+		Map<Entity, Integer> positions = cooccurrenceEntities;
+		Map<Long, Integer> counts = cooccurrences;
+		if(positions == null || counts == null){
+			return null;
+		}
+		Integer position1 = positions.get(entity1);
+		Integer position2 = positions.get(entity2);
+		if(position1 == null || position2 == null){
+			return null;
+		}
+		if(position1.equals(position2)){
+			return getPostingList(entity1).length;
+		}
+		Integer count = counts.get(getPairKey(Math.min(position1, position2), Math.max(position1, position2)));
+		return count == null ? 0 : count;
+	}
+
+	private int[] getPostingList(Entity entity) {
+		int[] postingList = getPostingLists().get(entity);
+		return postingList == null ? EMPTY_POSTING_LIST : postingList;
+	}
+
+	private Map<Entity, int[]> getPostingLists() {
+		Map<Entity, int[]> lists = postingLists;
+		if(lists == null){
+			synchronized (this) {
+				lists = postingLists;
+				if(lists == null){
+					lists = buildPostingLists();
+					postingLists = lists;
+				}
+			}
+		}
+		return lists;
+	}
+
+	private Map<Entity, int[]> buildPostingLists() {
+		Map<AnnotatedDocument, Integer> documentIds = new HashMap<AnnotatedDocument, Integer>();
+		Map<Entity, int[]> lists = new HashMap<Entity, int[]>(size());
+		for (Entry<Entity, Set<AnnotatedDocument>> entry : entrySet()) {
+			Set<Integer> ids = new HashSet<Integer>(entry.getValue().size());
+			for (AnnotatedDocument document : entry.getValue()) {
+				Integer id = documentIds.get(document);
+				if(id == null){
+					id = documentIds.size();
+					documentIds.put(document, id);
+				}
+				ids.add(id);
+			}
+			lists.put(entry.getKey(), toSortedArray(ids));
+		}
+		return Collections.unmodifiableMap(lists);
+	}
+
+	/**
+	 * Counts the elements contained in all of the sorted arrays. The shortest array is
+	 * iterated and its elements are searched in the others, where each search starts
+	 * behind the position of the previous one.
+	 */
+	static int countIntersection(int[]... lists) {
+		int[][] sorted = lists.clone();
+		Arrays.sort(sorted, new Comparator<int[]>() {
+			@Override
+			public int compare(int[] o1, int[] o2) {
+				return o1.length - o2.length;
+			}
+		});
+		if(sorted[0].length == 0){
+			return 0;
+		}
+		int[] positions = new int[sorted.length];
+		int count = 0;
+		candidates:
+		for (int candidate : sorted[0]) {
+			for (int i = 1; i < sorted.length; i++) {
+				int position = gallop(sorted[i], positions[i], candidate);
+				if(position >= sorted[i].length){
+					// no further candidate can be contained
+					break candidates;
+				}
+				positions[i] = position;
+				if(sorted[i][position] != candidate){
+					continue candidates;
+				}
+			}
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * @return the first position at or after from whose value is not less than the key
+	 */
+	private static int gallop(int[] list, int from, int key) {
+		int bound = 1;
+		while(from + bound < list.length && list[from + bound] < key){
+			bound <<= 1;
+		}
+		int low = from + (bound >> 1);
+		int high = Math.min(list.length, from + bound + 1);
+		int position = Arrays.binarySearch(list, low, high, key);
+		return position >= 0 ? position : -(position + 1);
+	}
+
+	private static int[] toSortedArray(Set<Integer> values) {
+		int[] array = new int[values.size()];
+		int i = 0;
+		for (Integer value : values) {
+			array[i++] = value;
+		}
+		Arrays.sort(array);
+		return array;
+	}
+
+	private static Long getPairKey(int position1, int position2) {
+		return ((long) position1 << 32) | position2;
 	}
 
 }
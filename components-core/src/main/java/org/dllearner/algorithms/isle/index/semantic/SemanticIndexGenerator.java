@@ -5,13 +5,11 @@ import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
 import org.apache.log4j.Logger;
 import org.dllearner.algorithms.isle.EntityCandidateGenerator;
-import org.dllearner.algorithms.isle.TextDocumentGenerator;
 import org.dllearner.algorithms.isle.index.*;
 import org.dllearner.algorithms.isle.textretrieval.RDFSLabelEntityTextRetriever;
 import org.dllearner.algorithms.isle.wsd.StructureBasedWordSenseDisambiguation;
 import org.dllearner.algorithms.isle.wsd.WindowBasedContextExtractor;
 import org.dllearner.algorithms.isle.wsd.WordSenseDisambiguation;
-import org.dllearner.core.owl.Entity;
 import org.semanticweb.owlapi.model.*;
 
 import java.io.*;
@@ -30,6 +28,8 @@ public abstract class SemanticIndexGenerator {
 	static HashFunction hf = Hashing.md5();
     private static final Logger logger = Logger.getLogger(SemanticIndexGenerator.class.getName());
     private static boolean useCache = false;
+    private static int nrOfThreads = Runtime.getRuntime().availableProcessors();
+    private static boolean useCompactTrie = false;
     
     public static SemanticIndex generateIndex(Set<String> documents, OWLOntology ontology, WordSenseDisambiguation wordSenseDisambiguation,
                          EntityCandidateGenerator entityCandidateGenerator, LinguisticAnnotator linguisticAnnotator){
@@ -42,6 +42,7 @@ public abstract class SemanticIndexGenerator {
     	//try to load serialized version
     	HashCode hc = hf.newHasher().putInt(documents.hashCode()).putInt(ontology.hashCode()).hash();
     	File file = new File(hc.toString() + ".ser");
+    	File checkpointFile = new File(hc.toString() + ".checkpoint");
     	if(useCache && file.exists()){
     		try {
     			logger.info("Loading semantic index from disk...");
@@ -51,11 +52,11 @@ public abstract class SemanticIndexGenerator {
 				logger.info("...done.");
 			} catch (Exception e) {
 				e.printStackTrace();
-				semanticIndex = buildIndex(semanticAnnotator, documents);
+				semanticIndex = buildIndex(semanticAnnotator, documents, checkpointFile);
 			} 
     	} else {
     		logger.info("Building semantic index...");
-    		semanticIndex = buildIndex(semanticAnnotator, documents);
+    		semanticIndex = buildIndex(semanticAnnotator, documents, checkpointFile);
     		try {
     			ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file));
     			oos.writeObject(semanticIndex);
@@ -69,10 +70,16 @@ public abstract class SemanticIndexGenerator {
     }
     
     public static SemanticIndex generateIndex(Set<String> documents, OWLOntology ontology, boolean useWordNormalization){
-    	SimpleEntityCandidatesTrie trie;
-        trie = new SimpleEntityCandidatesTrie(new RDFSLabelEntityTextRetriever(ontology),
+    	EntityCandidatesTrie trie;
+    	if(useCompactTrie){
+    		trie = new CompactEntityCandidatesTrie(new RDFSLabelEntityTextRetriever(ontology), ontology);
+    		logger.info(trie);
+    	} else {
+    		SimpleEntityCandidatesTrie simpleTrie = new SimpleEntityCandidatesTrie(new RDFSLabelEntityTextRetriever(ontology),
                     ontology);
-        trie.printTrie();
+    		simpleTrie.printTrie();
+    		trie = simpleTrie;
+    	}
         
         TrieLinguisticAnnotator linguisticAnnotator = new TrieLinguisticAnnotator(trie);
         linguisticAnnotator.setNormalizeWords(useWordNormalization);
@@ -113,31 +120,32 @@ public abstract class SemanticIndexGenerator {
         return generateIndex(documents, ontology, useWordNormalization);
     }
 
+    /**
+     * @param nrOfThreads the number of threads per stage of the annotation pipeline
+     */
+    public static void setNrOfThreads(int nrOfThreads) {
+		SemanticIndexGenerator.nrOfThreads = nrOfThreads;
+	}
+
+    /**
+     * @param useCompactTrie whether the entity candidates are looked up in a {@link CompactEntityCandidatesTrie}
+     * instead of a {@link SimpleEntityCandidatesTrie}, which needs much less memory for large ontologies
+     */
+    public static void setUseCompactTrie(boolean useCompactTrie) {
+		SemanticIndexGenerator.useCompactTrie = useCompactTrie;
+	}
+
     /**
      * Precompute the whole index, i.e. iterate over all entities and compute all annotated documents.
+     * The documents are annotated in parallel, and the progress is saved to the checkpoint file, such that
+     * an interrupted run can be resumed.
      */
-    private static SemanticIndex buildIndex(SemanticAnnotator semanticAnnotator, Set<String> documents) {
+    private static SemanticIndex buildIndex(SemanticAnnotator semanticAnnotator, Set<String> documents, File checkpointFile) {
         logger.info("Creating semantic index...");
-    	SemanticIndex index = new SemanticIndex();
-        for (String document : documents) {
-            if (document.isEmpty()) {
-                continue;
-            }
-            TextDocument textDocument = TextDocumentGenerator.getInstance().generateDocument(document);
-            logger.debug("Processing document:" + textDocument);
-            AnnotatedDocument annotatedDocument = semanticAnnotator.processDocument(textDocument);
-            for (Entity entity : annotatedDocument.getContainedEntities()) {
-                Set<AnnotatedDocument> existingAnnotatedDocuments = index.get(entity);
-                if (existingAnnotatedDocuments == null) {
-                    existingAnnotatedDocuments = new HashSet<AnnotatedDocument>();
-                    index.put(entity, existingAnnotatedDocuments);
-                }
-                existingAnnotatedDocuments.add(annotatedDocument);
-            }
-            logger.debug("Annotated document:" + annotatedDocument);
-        }
-        int size = documents.size();
-        index.setTotalNrOfDocuments(size);
+        SemanticIndexPipeline pipeline = new SemanticIndexPipeline(semanticAnnotator);
+        pipeline.setNrOfThreads(nrOfThreads);
+        pipeline.setCheckpointFile(checkpointFile);
+        SemanticIndex index = pipeline.buildIndex(documents);
         logger.info("...done.");
         return index;
     }
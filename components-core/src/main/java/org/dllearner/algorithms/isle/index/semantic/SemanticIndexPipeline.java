@@ -0,0 +1,443 @@
+package org.dllearner.algorithms.isle.index.semantic;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.dllearner.algorithms.isle.TextDocumentGenerator;
+import org.dllearner.algorithms.isle.index.AnnotatedDocument;
+import org.dllearner.algorithms.isle.index.Annotation;
+import org.dllearner.algorithms.isle.index.EntityScorePair;
+import org.dllearner.algorithms.isle.index.SemanticAnnotator;
+import org.dllearner.algorithms.isle.index.TextDocument;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Builds a {@link SemanticIndex} by a staged pipeline, i.e. the documents are
+ * <ol>
+ * <li>tokenized and lemmatized by the {@link TextDocumentGenerator},</li>
+ * <li>annotated linguistically, and the entity candidates of the annotations are looked up,</li>
+ * <li>disambiguated,</li>
+ * </ol>
+ * where each stage is run by several worker threads and the stages are connected by bounded queues,
+ * such that the documents are streamed through the pipeline. The annotated documents are added to the
+ * index as soon as they are finished. If a checkpoint file is set, the documents annotated since the
+ * last checkpoint are appended to it periodically, and a later run with the same checkpoint file rebuilds
+ * the index from it and only processes the remaining documents. Documents whose annotation fails are
+ * logged and skipped. The annotator and its components have to be thread-safe.
+ */
+public class SemanticIndexPipeline {
+
+	private static final Logger logger = Logger.getLogger(SemanticIndexPipeline.class.getName());
+
+	private static final HashFunction hf = Hashing.md5();
+
+	// marks the end of the documents in a queue
+	private static final Item END = new Item(0, null);
+
+	private final SemanticAnnotator semanticAnnotator;
+
+	private int nrOfThreads = Runtime.getRuntime().availableProcessors();
+	private int queueSize = 1000;
+	private File checkpointFile;
+	private int checkpointInterval = 10000;
+
+	// the exception of the reader which stops the pipeline
+	private volatile Throwable failure;
+
+	public SemanticIndexPipeline(SemanticAnnotator semanticAnnotator) {
+		this.semanticAnnotator = semanticAnnotator;
+	}
+
+	/**
+	 * Annotates the documents and adds them to a new index, or to the index of the checkpoint
+	 * if it exists.
+	 *
+	 * @param documents the documents, which are iterated only once
+	 * @return the index
+	 */
+	public SemanticIndex buildIndex(Iterable<String> documents) {
+		failure = null;
+		Checkpoint checkpoint = loadCheckpoint();
+
+		BlockingQueue<Item> textQueue = new ArrayBlockingQueue<Item>(queueSize);
+		BlockingQueue<Item> tokenizedQueue = new ArrayBlockingQueue<Item>(queueSize);
+		BlockingQueue<Item> candidatesQueue = new ArrayBlockingQueue<Item>(queueSize);
+		BlockingQueue<Item> annotatedQueue = new ArrayBlockingQueue<Item>(queueSize);
+
+		AtomicInteger nrOfDocuments = new AtomicInteger();
+		List<Thread> threads = new ArrayList<Thread>();
+		threads.add(new Thread(new Reader(documents, checkpoint.processedDocuments, textQueue, nrOfDocuments), "index-reader"));
+		threads.addAll(createStage("index-tokenizer", Stage.TOKENIZE, textQueue, tokenizedQueue, nrOfThreads));
+		threads.addAll(createStage("index-candidates", Stage.CANDIDATES, tokenizedQueue, candidatesQueue, nrOfThreads));
+		// the annotated documents are consumed by this thread only
+		threads.addAll(createStage("index-wsd", Stage.DISAMBIGUATE, candidatesQueue, annotatedQueue, 1));
+		for (Thread thread : threads) {
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		try {
+			// the index is only modified by this thread
+			int sinceCheckpoint = 0;
+			Item item;
+			while((item = annotatedQueue.take()) != END){
+				checkpoint.add(item.key, item.annotatedDocument, checkpointFile != null);
+				if(++sinceCheckpoint >= checkpointInterval){
+					saveCheckpoint(checkpoint);
+					sinceCheckpoint = 0;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			stop(threads);
+			throw new RuntimeException("Building the semantic index was interrupted.", e);
+		}
+		if(failure != null){
+			stop(threads);
+			// documents annotated before the failure are not lost
+			saveCheckpoint(checkpoint);
+			throw new RuntimeException("Building the semantic index failed.", failure);
+		}
+		checkpoint.index.setTotalNrOfDocuments(nrOfDocuments.get());
+		logger.info("Annotated " + checkpoint.processedDocuments.size() + " documents.");
+		if(checkpointFile != null && checkpointFile.exists() && !checkpointFile.delete()){
+			logger.warn("Could not delete checkpoint " + checkpointFile);
+		}
+		return checkpoint.index;
+	}
+
+	/**
+	 * @param nrOfThreads the number of worker threads per stage
+	 */
+	public void setNrOfThreads(int nrOfThreads) {
+		this.nrOfThreads = Math.max(1, nrOfThreads);
+	}
+
+	/**
+	 * @param queueSize the maximum number of documents waiting for a stage
+	 */
+	public void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+
+	/**
+	 * @param checkpointFile the file to save the progress to and to resume from, or null
+	 * to not save the progress
+	 */
+	public void setCheckpointFile(File checkpointFile) {
+		this.checkpointFile = checkpointFile;
+	}
+
+	/**
+	 * @param checkpointInterval the number of documents after which the progress is saved
+	 */
+	public void setCheckpointInterval(int checkpointInterval) {
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	/**
+	 * Creates the workers of a stage.
+	 * @param nrOfNextWorkers the number of threads reading the output queue
+	 */
+	private List<Thread> createStage(String name, Stage stage, BlockingQueue<Item> in, BlockingQueue<Item> out, int nrOfNextWorkers) {
+		AtomicInteger runningWorkers = new AtomicInteger(nrOfThreads);
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < nrOfThreads; i++) {
+			threads.add(new Thread(new Worker(stage, in, out, runningWorkers, nrOfNextWorkers), name + "-" + i));
+		}
+		return threads;
+	}
+
+	private void stop(List<Thread> threads) {
+		for (Thread thread : threads) {
+			thread.interrupt();
+		}
+	}
+
+	/**
+	 * Rebuilds the index from the checkpoint file, which is a sequence of segments, each of them holding the
+	 * documents annotated since the previous checkpoint. A segment is written as its length followed by the
+	 * serialized documents. An incomplete last segment, e.g. of a crashed run, is cut off.
+	 */
+	private Checkpoint loadCheckpoint() {
+		Checkpoint checkpoint = new Checkpoint();
+		if(checkpointFile != null && checkpointFile.exists()){
+			logger.info("Resuming from checkpoint " + checkpointFile + "...");
+			long validLength = 0;
+			try {
+				DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpointFile)));
+				try {
+					while(true){
+						int length;
+						try {
+							length = in.readInt();
+						} catch (EOFException e) {
+							break;
+						}
+						byte[] segment = new byte[length];
+						in.readFully(segment);
+						ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(segment));
+						@SuppressWarnings("unchecked")
+						List<SavedDocument> documents = (List<SavedDocument>) ois.readObject();
+						for (SavedDocument document : documents) {
+							checkpoint.add(document.key, document.annotatedDocument, false);
+						}
+						validLength += 4 + length;
+					}
+				} finally {
+					in.close();
+				}
+			} catch (Exception e) {
+				logger.warn("Ignoring the incomplete end of checkpoint " + checkpointFile, e);
+			}
+			try {
+				if(checkpointFile.length() > validLength){
+					RandomAccessFile file = new RandomAccessFile(checkpointFile, "rw");
+					try {
+						file.setLength(validLength);
+					} finally {
+						file.close();
+					}
+				}
+			} catch (IOException e) {
+				logger.error("Could not truncate checkpoint, starting from scratch.", e);
+				checkpointFile.delete();
+				return new Checkpoint();
+			}
+			logger.info("..." + checkpoint.processedDocuments.size() + " documents already annotated.");
+		}
+		return checkpoint;
+	}
+
+	/**
+	 * Appends the documents annotated since the last checkpoint to the checkpoint file.
+	 */
+	private void saveCheckpoint(Checkpoint checkpoint) {
+		if(checkpointFile == null || checkpoint.unsavedDocuments.isEmpty()){
+			return;
+		}
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			ObjectOutputStream oos = new ObjectOutputStream(bytes);
+			oos.writeObject(checkpoint.unsavedDocuments);
+			oos.close();
+			DataOutputStream out = new DataOutputStream(new FileOutputStream(checkpointFile, true));
+			try {
+				out.writeInt(bytes.size());
+				bytes.writeTo(out);
+			} finally {
+				out.close();
+			}
+			checkpoint.unsavedDocuments = new ArrayList<SavedDocument>();
+			logger.info("Saved checkpoint with " + checkpoint.processedDocuments.size() + " documents.");
+		} catch (IOException e) {
+			logger.error("Could not save checkpoint.", e);
+		}
+	}
+
+	/**
+	 * Tokenizes and lemmatizes a document, which is the first stage of the pipeline.
+	 *
+	 * @param text the text of the document
+	 * @return the document
+	 */
+	protected TextDocument tokenize(String text) {
+		return TextDocumentGenerator.getInstance().generateDocument(text);
+	}
+
+	private static long getKey(String document) {
+		return hf.hashUnencodedChars(document).asLong();
+	}
+
+	private enum Stage {
+		TOKENIZE, CANDIDATES, DISAMBIGUATE
+	}
+
+	/**
+	 * A document passing the stages.
+	 */
+	private static class Item {
+		final long key;
+		final String text;
+		TextDocument document;
+		HashMap<Annotation, Set<EntityScorePair>> candidates;
+		AnnotatedDocument annotatedDocument;
+
+		Item(long key, String text) {
+			this.key = key;
+			this.text = text;
+		}
+	}
+
+	/**
+	 * The index, the hashes of the documents it contains and the documents not saved yet.
+	 */
+	private static class Checkpoint {
+		SemanticIndex index = new SemanticIndex();
+		Set<Long> processedDocuments = new HashSet<Long>();
+		ArrayList<SavedDocument> unsavedDocuments = new ArrayList<SavedDocument>();
+
+		void add(long key, AnnotatedDocument annotatedDocument, boolean unsaved) {
+			index.addDocument(annotatedDocument);
+			processedDocuments.add(key);
+			if(unsaved){
+				unsavedDocuments.add(new SavedDocument(key, annotatedDocument));
+			}
+		}
+	}
+
+	/**
+	 * An annotated document in the checkpoint file.
+	 */
+	private static class SavedDocument implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		final long key;
+		final AnnotatedDocument annotatedDocument;
+
+		SavedDocument(long key, AnnotatedDocument annotatedDocument) {
+			this.key = key;
+			this.annotatedDocument = annotatedDocument;
+		}
+	}
+
+	/**
+	 * Puts the documents which were not processed yet into the first queue.
+	 */
+	private class Reader implements Runnable {
+
+		private final Iterable<String> documents;
+		private final Set<Long> processedDocuments;
+		private final BlockingQueue<Item> out;
+		private final AtomicInteger nrOfDocuments;
+
+		Reader(Iterable<String> documents, Set<Long> processedDocuments, BlockingQueue<Item> out, AtomicInteger nrOfDocuments) {
+			this.documents = documents;
+			this.processedDocuments = new HashSet<Long>(processedDocuments);
+			this.out = out;
+			this.nrOfDocuments = nrOfDocuments;
+		}
+
+		@Override
+		public void run() {
+			try {
+				try {
+					for (Iterator<String> iterator = documents.iterator(); iterator.hasNext() && failure == null;) {
+						String document = iterator.next();
+						nrOfDocuments.incrementAndGet();
+						if(document.isEmpty()){
+							continue;
+						}
+						long key = getKey(document);
+						if(!processedDocuments.contains(key)){
+							out.put(new Item(key, document));
+						}
+					}
+				} catch (RuntimeException e) {
+					fail(e);
+				}
+				for (int i = 0; i < nrOfThreads; i++) {
+					out.put(END);
+				}
+			} catch (InterruptedException e) {
+				// the pipeline was stopped
+			}
+		}
+	}
+
+	/**
+	 * Runs one stage for the documents of the input queue until the end of the documents is reached. The last
+	 * worker of a stage passes the end to the next stage.
+	 */
+	private class Worker implements Runnable {
+
+		private final Stage stage;
+		private final BlockingQueue<Item> in;
+		private final BlockingQueue<Item> out;
+		private final AtomicInteger runningWorkers;
+		private final int nrOfNextWorkers;
+
+		Worker(Stage stage, BlockingQueue<Item> in, BlockingQueue<Item> out, AtomicInteger runningWorkers, int nrOfNextWorkers) {
+			this.stage = stage;
+			this.in = in;
+			this.out = out;
+			this.runningWorkers = runningWorkers;
+			this.nrOfNextWorkers = nrOfNextWorkers;
+		}
+
+		@Override
+		public void run() {
+			try {
+				Item item;
+				while((item = in.take()) != END){
+					if(failure != null){
+						// drain the queue such that the previous stage is not blocked
+						continue;
+					}
+					try {
+						process(item);
+					} catch (RuntimeException e) {
+						logger.warn("Skipping document which could not be annotated: " + item.text, e);
+						continue;
+					}
+					out.put(item);
+				}
+				if(runningWorkers.decrementAndGet() == 0){
+					for (int i = 0; i < nrOfNextWorkers; i++) {
+						out.put(END);
+					}
+				}
+			} catch (InterruptedException e) {
+				// the pipeline was stopped
+			}
+		}
+
+		private void process(Item item) {
+			switch (stage) {
+			case TOKENIZE:
+				item.document = tokenize(item.text);
+				break;
+			case CANDIDATES:
+				item.candidates = semanticAnnotator.getCandidates(item.document);
+				break;
+			case DISAMBIGUATE:
+				item.annotatedDocument = semanticAnnotator.disambiguate(item.document, item.candidates);
+				item.candidates = null;
+				logger.debug("Annotated document:" + item.annotatedDocument);
+				break;
+			}
+		}
+	}
+
+	private synchronized void fail(Throwable t) {
+		if(failure == null){
+			logger.error("Reading the documents failed, stopping the pipeline.", t);
+			failure = t;
+		}
+	}
+
+}
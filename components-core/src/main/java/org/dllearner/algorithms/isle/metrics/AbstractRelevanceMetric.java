@@ -63,6 +63,10 @@ public abstract class AbstractRelevanceMetric implements RelevanceMetric {
 		return name;
 	}
 	
+	public Index getIndex() {
+		return index;
+	}
+	
 	public double getRelevance(Entity entity, Description desc){
 		Set<Entity> entities = desc.getSignature();
 		double score = 0;
@@ -15,6 +15,7 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.log4j.Logger;
+import org.dllearner.algorithms.isle.index.semantic.SemanticIndex;
 import org.dllearner.core.owl.Entity;
 import org.dllearner.utilities.owl.OWLAPIConverter;
 import org.semanticweb.owlapi.model.OWLEntity;
@@ -81,6 +82,13 @@ public class RelevanceUtils {
 //		Set<Entity> otherEntities = OWLAPIConverter.getEntities(new HashSet<OWLEntity>(new ArrayList<OWLEntity>(owlEntities).subList(0, 20)));
 		otherEntities.remove(entity);
 		
+		// the relevance to the whole signature is computed, hence all co-occurrences are counted at once
+		if(metric instanceof AbstractRelevanceMetric && ((AbstractRelevanceMetric) metric).getIndex() instanceof SemanticIndex){
+			Set<Entity> signature = new HashSet<Entity>(otherEntities);
+			signature.add(entity);
+			((SemanticIndex) ((AbstractRelevanceMetric) metric).getIndex()).precomputeCooccurrences(signature);
+		}
+		
 		return getRelevantEntities(entity, otherEntities, metric);
 	}
 
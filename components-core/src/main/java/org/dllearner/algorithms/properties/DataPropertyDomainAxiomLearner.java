@@ -30,6 +30,7 @@ import org.dllearner.core.ComponentAnn;
 import org.dllearner.core.EvaluatedAxiom;
 import org.dllearner.core.config.ConfigOption;
 import org.dllearner.core.config.DataPropertyEditor;
+import org.dllearner.core.owl.Axiom;
 import org.dllearner.core.owl.DatatypeProperty;
 import org.dllearner.core.owl.DatatypePropertyDomainAxiom;
 import org.dllearner.core.owl.Description;
@@ -48,7 +49,6 @@ import com.hp.hpl.jena.query.ResultSet;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.rdf.model.RDFNode;
-import com.hp.hpl.jena.rdf.model.Resource;
 import com.hp.hpl.jena.rdf.model.Statement;
 import com.hp.hpl.jena.rdf.model.StmtIterator;
 import com.hp.hpl.jena.vocabulary.OWL;
@@ -128,41 +128,30 @@ public class DataPropertyDomainAxiomLearner extends AbstractAxiomLearningAlgorit
 	
 	private void runSPARQL1_0_Mode() {
 		workingModel = ModelFactory.createDefaultModel();
+		AxiomAggregation<NamedClass> domains = new AxiomAggregation<NamedClass>(new AxiomFactory<NamedClass>() {
+			@Override
+			public Axiom createAxiom(NamedClass domain) {
+				//omit owl:Thing as trivial domain
+				if(domain.getURI().equals(OWL.Thing.getURI())){
+					return null;
+				}
+				return new DatatypePropertyDomainAxiom(propertyToDescribe, domain);
+			}
+		});
 		int limit = 1000;
 		int offset = 0;
 		String baseQuery  = "CONSTRUCT {?s a ?type.} WHERE {?s <%s> ?o. ?s a ?type.} LIMIT %d OFFSET %d";
 		String query = String.format(baseQuery, propertyToDescribe.getName(), limit, offset);
 		Model newModel = executeConstructQuery(query);
 		while(!terminationCriteriaSatisfied() && newModel.size() != 0){
-			workingModel.add(newModel);
-			// get number of distinct subjects
-			query = "SELECT (COUNT(DISTINCT ?s) AS ?all) WHERE {?s a ?type.}";
-			ResultSet rs = executeSelectQuery(query, workingModel);
-			QuerySolution qs;
-			int all = 1;
-			while (rs.hasNext()) {
-				qs = rs.next();
-				all = qs.getLiteral("all").getInt();
-			}
-			
-			// get class and number of instances
-			query = "SELECT ?type (COUNT(DISTINCT ?s) AS ?cnt) WHERE {?s a ?type.} GROUP BY ?type ORDER BY DESC(?cnt)";
-			rs = executeSelectQuery(query, workingModel);
-			
-			if (all > 0) {
-				currentlyBestAxioms.clear();
-				while(rs.hasNext()){
-					qs = rs.next();
-					Resource type = qs.get("type").asResource();
-					//omit owl:Thing as trivial domain
-					if(type.equals(OWL.Thing)){
-						continue;
-					}
-					currentlyBestAxioms.add(new EvaluatedAxiom(
-							new DatatypePropertyDomainAxiom(propertyToDescribe, new NamedClass(type.getURI())),
-							computeScore(all, qs.get("cnt").asLiteral().getInt())));
+			// only count the triples, which have not been fetched before
+			for(Statement st : addToWorkingModel(newModel)){
+				if(st.getPredicate().equals(RDF.type) && st.getObject().isURIResource()){
+					domains.add(st.getSubject(), new NamedClass(st.getObject().asResource().getURI()));
 				}
-				
+			}
+			if(domains.getNrOfSubjects() > 0){
+				currentlyBestAxioms = domains.getEvaluatedAxioms();
 			}
 			offset += limit;
 			query = String.format(baseQuery, propertyToDescribe.getName(), limit, offset);
@@ -20,12 +20,6 @@
 package org.dllearner.algorithms.properties;
 
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.apache.log4j.ConsoleAppender;
 import org.apache.log4j.Level;
@@ -35,6 +29,7 @@ import org.dllearner.core.ComponentAnn;
 import org.dllearner.core.EvaluatedAxiom;
 import org.dllearner.core.config.ConfigOption;
 import org.dllearner.core.config.ObjectPropertyEditor;
+import org.dllearner.core.owl.Axiom;
 import org.dllearner.core.owl.Description;
 import org.dllearner.core.owl.Individual;
 import org.dllearner.core.owl.NamedClass;
@@ -56,7 +51,8 @@ public class ObjectPropertyDomainAxiomLearner extends AbstractAxiomLearningAlgor
 	
 	private static final Logger logger = LoggerFactory.getLogger(ObjectPropertyDomainAxiomLearner.class);
 	
-	private Map<Individual, SortedSet<Description>> individual2Types;
+	// the number of subjects per type, updated with each fetched chunk
+	private AxiomAggregation<Description> domains;
 	
 	
 	@ConfigOption(name="propertyToDescribe", description="", propertyEditorClass=ObjectPropertyEditor.class)
@@ -128,71 +124,48 @@ public class ObjectPropertyDomainAxiomLearner extends AbstractAxiomLearningAlgor
 	}
 	
 	private void runIterativeQueryMode(){
-		individual2Types = new HashMap<Individual, SortedSet<Description>>();
+		domains = new AxiomAggregation<Description>(new AxiomFactory<Description>() {
+			@Override
+			public Axiom createAxiom(Description domain) {
+				//omit owl:Thing
+				if(domain instanceof Thing || domain.equals(new NamedClass(Thing.instance.getURI()))){
+					return null;
+				}
+				return new ObjectPropertyDomainAxiom(propertyToDescribe, domain);
+			}
+		});
 		while(!terminationCriteriaSatisfied() && !fullDataLoaded){
 			ResultSet rs = fetchData();
 			processData(rs);
-			buildEvaluatedAxioms();
+			currentlyBestAxioms = domains.getEvaluatedAxioms();
 		}
+		stopPrefetching();
 	}
 	
 	private void processData(ResultSet rs){
 		QuerySolution qs;
 		Individual ind;
 		Description type;
-		SortedSet<Description> types;
 		int cnt = 0;
 		while(rs.hasNext()){
 			cnt++;
 			qs = rs.next();
 			if(qs.get("type").isURIResource()){
-				types = new TreeSet<Description>();
 				ind = new Individual(qs.getResource("ind").getURI());
 				type = new NamedClass(qs.getResource("type").getURI());
-				types.add(type);
+				domains.add(ind, type);
 				if(reasoner.isPrepared()){
 					if(reasoner.getClassHierarchy().contains(type)){
-						types.addAll(reasoner.getClassHierarchy().getSuperClasses(type));
+						for(Description sup : reasoner.getClassHierarchy().getSuperClasses(type)){
+							domains.add(ind, sup);
+						}
 					}
 				}
-				addToMap(individual2Types, ind, types);
 			}
 		}
 		lastRowCount = cnt;
 	}
 
-	private void buildEvaluatedAxioms(){
-		List<EvaluatedAxiom> axioms = new ArrayList<EvaluatedAxiom>();
-		Map<Description, Integer> result = new HashMap<Description, Integer>();
-		for(Entry<Individual, SortedSet<Description>> entry : individual2Types.entrySet()){
-			for(Description nc : entry.getValue()){
-				Integer cnt = result.get(nc);
-				if(cnt == null){
-					cnt = Integer.valueOf(1);
-				} else {
-					cnt = Integer.valueOf(cnt + 1);
-				}
-				result.put(nc, cnt);
-			}
-		}
-		
-		//omit owl:Thing
-		result.remove(new NamedClass(Thing.instance.getURI()));
-		
-		EvaluatedAxiom evalAxiom;
-		int total = individual2Types.keySet().size();
-		for(Entry<Description, Integer> entry : sortByValues(result)){
-			evalAxiom = new EvaluatedAxiom(new ObjectPropertyDomainAxiom(propertyToDescribe, entry.getKey()),
-					computeScore(total, entry.getValue()));
-			if(existingAxioms.contains(evalAxiom.getAxiom())){
-				evalAxiom.setAsserted(true);
-			}
-			axioms.add(evalAxiom);
-		}
-		
-		currentlyBestAxioms = axioms;
-	}
-	
 	public static void main(String[] args) throws Exception{
 		org.apache.log4j.Logger.getRootLogger().addAppender(new ConsoleAppender(new SimpleLayout()));
 		org.apache.log4j.Logger.getRootLogger().setLevel(Level.INFO);
@@ -29,6 +29,7 @@ import org.dllearner.core.ComponentAnn;
 import org.dllearner.core.EvaluatedAxiom;
 import org.dllearner.core.config.ConfigOption;
 import org.dllearner.core.config.DataPropertyEditor;
+import org.dllearner.core.owl.Axiom;
 import org.dllearner.core.owl.Datatype;
 import org.dllearner.core.owl.DatatypeProperty;
 import org.dllearner.core.owl.GenericDatatypePropertyAssertion;
@@ -47,6 +48,7 @@ import com.hp.hpl.jena.query.ResultSet;
 import com.hp.hpl.jena.rdf.model.Literal;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Statement;
 
 @ComponentAnn(name="data subPropertyOf axiom learner", shortName="dplsubprop", version=0.1)
 public class SubDataPropertyOfAxiomLearner extends AbstractAxiomLearningAlgorithm {
@@ -116,36 +118,29 @@ public class SubDataPropertyOfAxiomLearner extends AbstractAxiomLearningAlgorith
 	
 	private void runSPARQL1_0_Mode() {
 		workingModel = ModelFactory.createDefaultModel();
+		AxiomAggregation<DatatypeProperty> properties = new AxiomAggregation<DatatypeProperty>(new AxiomFactory<DatatypeProperty>() {
+			@Override
+			public Axiom createAxiom(DatatypeProperty prop) {
+				//omit property to describe as it is trivial
+				if(prop.equals(propertyToDescribe)){
+					return null;
+				}
+				return new SubDatatypePropertyAxiom(propertyToDescribe, prop);
+			}
+		});
 		int limit = 1000;
 		int offset = 0;
 		String baseQuery  = "CONSTRUCT {?s ?p ?o.} WHERE {?s <%s> ?o. ?s ?p ?o.} LIMIT %d OFFSET %d";
 		String query = String.format(baseQuery, propertyToDescribe.getName(), limit, offset);
 		Model newModel = executeConstructQuery(query);
 		while(!terminationCriteriaSatisfied() && newModel.size() != 0){
-			workingModel.add(newModel);
-			// get number of triples
-			int all = (int)workingModel.size();
-			
-			if (all > 0) {
-				// get class and number of instances
-				query = "SELECT ?p (COUNT(*) AS ?cnt) WHERE {?s ?p ?o.} GROUP BY ?p ORDER BY DESC(?cnt)";
-				ResultSet rs = executeSelectQuery(query, workingModel);
-				
-				currentlyBestAxioms.clear();
-				QuerySolution qs;
-				DatatypeProperty prop;
-				while(rs.hasNext()){
-					qs = rs.next();
-					prop = new DatatypeProperty(qs.get("p").asResource().getURI());
-					//omit property to describe as it is trivial
-					if(prop.equals(propertyToDescribe)){
-						continue;
-					}
-					currentlyBestAxioms.add(new EvaluatedAxiom(
-							new SubDatatypePropertyAxiom(propertyToDescribe, prop),
-							computeScore(all, qs.get("cnt").asLiteral().getInt())));
-				}
-				
+			// each triple is counted for its property, but only if it has
+			// not been fetched before
+			for(Statement st : addToWorkingModel(newModel)){
+				properties.add(st, new DatatypeProperty(st.getPredicate().getURI()));
+			}
+			if(properties.getNrOfSubjects() > 0){
+				currentlyBestAxioms = properties.getEvaluatedAxioms();
 			}
 			offset += limit;
 			query = String.format(baseQuery, propertyToDescribe.getName(), limit, offset);
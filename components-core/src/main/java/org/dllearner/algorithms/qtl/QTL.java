@@ -51,7 +51,6 @@ import org.dllearner.algorithms.qtl.exception.TimeOutException;
 import org.dllearner.algorithms.qtl.filters.QueryTreeFilter;
 import org.dllearner.algorithms.qtl.filters.QuestionBasedQueryTreeFilter;
 import org.dllearner.algorithms.qtl.operations.NBR;
-import org.dllearner.algorithms.qtl.operations.lgg.LGGGenerator;
 import org.dllearner.algorithms.qtl.operations.lgg.LGGGeneratorImpl;
 import org.aksw.jena_sparql_api.core.QueryExecutionFactory;
 import org.dllearner.algorithms.qtl.util.SPARQLEndpointEx;
@@ -115,7 +114,7 @@ public class QTL extends AbstractCELA implements SparqlQueryLearningAlgorithm {
 
 	private QueryTreeCache treeCache;
 
-	private LGGGenerator<String> lggGenerator;
+	private LGGGeneratorImpl<String> lggGenerator;
 	private NBR<String> nbr;
 
 	private List<String> posExamples;
@@ -138,6 +137,8 @@ public class QTL extends AbstractCELA implements SparqlQueryLearningAlgorithm {
 	private Set<String> allowedNamespaces = new HashSet<String>();
 	private Map<String, String> prefixes = new HashMap<String, String>();
 	private boolean enableNumericLiteralFilters = false;
+	@org.dllearner.core.config.ConfigOption(name = "useCompactTrees", defaultValue = "true", description = "whether the LGG is computed on compact query trees, which share common subtrees")
+	private boolean useCompactTrees = true;
 
 	public static Collection<ConfigOption<?>> createConfigOptions() {
 		Collection<ConfigOption<?>> options = new LinkedList<ConfigOption<?>>();
@@ -171,6 +172,7 @@ public class QTL extends AbstractCELA implements SparqlQueryLearningAlgorithm {
 		cbdGenerator.setRecursionDepth(maxQueryTreeDepth);
 
 		lggGenerator = new LGGGeneratorImpl<String>();
+		lggGenerator.setUseCompactTrees(useCompactTrees);
 		nbr = new NBR<String>(endpoint, cacheDirectory);
 		nbr.setMaxExecutionTimeInSeconds(maxExecutionTimeInSeconds);
 
@@ -187,6 +189,7 @@ public class QTL extends AbstractCELA implements SparqlQueryLearningAlgorithm {
 		cbdGenerator.setRecursionDepth(maxQueryTreeDepth);
 
 		lggGenerator = new LGGGeneratorImpl<String>();
+		lggGenerator.setUseCompactTrees(useCompactTrees);
 		nbr = new NBR<String>(endpoint, cacheDirectory);
 		nbr.setMaxExecutionTimeInSeconds(maxExecutionTimeInSeconds);
 
@@ -202,6 +205,7 @@ public class QTL extends AbstractCELA implements SparqlQueryLearningAlgorithm {
 		cbdGenerator.setRecursionDepth(maxQueryTreeDepth);
 
 		lggGenerator = new LGGGeneratorImpl<String>();
+		lggGenerator.setUseCompactTrees(useCompactTrees);
 		nbr = new NBR<String>(model);
 		nbr.setMaxExecutionTimeInSeconds(maxExecutionTimeInSeconds);
 
@@ -414,8 +418,12 @@ public class QTL extends AbstractCELA implements SparqlQueryLearningAlgorithm {
 		//build the query trees for the positive examples
 		generatePositiveExampleTrees();
 
-		//compute the LGG
-		lgg = lggGenerator.getLGG(posExampleTrees);
+		//compute the LGG, the trees interned for it are released at the end of the run
+		try {
+			lgg = lggGenerator.getLGG(posExampleTrees);
+		} finally {
+			lggGenerator.shutdown();
+		}
 		if(queryTreeFilter != null){
 			lgg = queryTreeFilter.getFilteredQueryTree(lgg);
 		}
@@ -463,6 +471,17 @@ public class QTL extends AbstractCELA implements SparqlQueryLearningAlgorithm {
 		return enableNumericLiteralFilters;
 	}
 
+	public void setUseCompactTrees(boolean useCompactTrees) {
+		this.useCompactTrees = useCompactTrees;
+		if(lggGenerator != null){
+			lggGenerator.setUseCompactTrees(useCompactTrees);
+		}
+	}
+
+	public boolean isUseCompactTrees() {
+		return useCompactTrees;
+	}
+
 	@Override
 	public List<String> getCurrentlyBestSPARQLQueries(int nrOfSPARQLQueries) {
 		return Collections.singletonList(getBestSPARQLQuery());
@@ -532,6 +551,7 @@ public class QTL extends AbstractCELA implements SparqlQueryLearningAlgorithm {
 		cbdGenerator.setRecursionDepth(maxQueryTreeDepth);
 
 		lggGenerator = new LGGGeneratorImpl<String>();
+		lggGenerator.setUseCompactTrees(useCompactTrees);
 
 		
 
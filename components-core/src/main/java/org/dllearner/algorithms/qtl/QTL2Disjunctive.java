@@ -4,6 +4,7 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -19,10 +20,12 @@ import java.util.TreeSet;
 import org.apache.log4j.Logger;
 import org.dllearner.algorithms.qtl.cache.QueryTreeCache;
 import org.dllearner.algorithms.qtl.datastructures.QueryTree;
+import org.dllearner.algorithms.qtl.datastructures.impl.CompactQueryTree;
+import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeDictionary;
+import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeSubsumptionChecker;
 import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeImpl.LiteralNodeConversionStrategy;
 import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeImpl.LiteralNodeSubsumptionStrategy;
 import org.dllearner.algorithms.qtl.operations.lgg.EvaluatedQueryTree;
-import org.dllearner.algorithms.qtl.operations.lgg.LGGGenerator;
 import org.dllearner.algorithms.qtl.operations.lgg.LGGGeneratorImpl;
 import org.dllearner.core.AbstractCELA;
 import org.dllearner.core.AbstractReasonerComponent;
@@ -63,7 +66,7 @@ public class QTL2Disjunctive extends AbstractCELA implements Cloneable{
 	private static final Logger logger = Logger.getLogger(QTL2Disjunctive.class.getName());
 	private final DecimalFormat df = new DecimalFormat("0.00"); 
 	
-	private LGGGenerator<String> lggGenerator;
+	private LGGGeneratorImpl<String> lggGenerator;
 	
 	private Queue<EvaluatedQueryTree<String>> todoList;
 	private SortedSet<EvaluatedQueryTree<String>> currentPartialSolutions;
@@ -79,6 +82,11 @@ public class QTL2Disjunctive extends AbstractCELA implements Cloneable{
 	private Map<Individual, QueryTree<String>> individual2Tree;
 	
 	private QueryTreeCache treeCache;
+	
+	// compact versions of the example trees for the subsumption checks
+	private QueryTreeDictionary dictionary;
+	private QueryTreeSubsumptionChecker subsumptionChecker;
+	private Map<QueryTree<String>, CompactQueryTree> compactTrees;
 
 	private PosNegLP lp;
 
@@ -102,6 +110,8 @@ public class QTL2Disjunctive extends AbstractCELA implements Cloneable{
 	private double noisePercentage = 0.0;
 	@ConfigOption(defaultValue = "10", name = "maxExecutionTimeInSeconds", description = "maximum execution of the algorithm in seconds")
 	private int maxExecutionTimeInSeconds = 60;
+	@ConfigOption(name = "useCompactTrees", defaultValue = "true", description = "whether the LGGs are computed on compact query trees, which share common subtrees")
+	private boolean useCompactTrees = true;
 	
 	private double coverageWeight = 0.8;
 	private double specifityWeight = 0.1;
@@ -153,6 +163,7 @@ public class QTL2Disjunctive extends AbstractCELA implements Cloneable{
 		this.maxTreeComputationTimeInSeconds = qtl.maxTreeComputationTimeInSeconds;
 		this.tryFullCoverage = qtl.tryFullCoverage;
 		this.stopOnFirstDefinition = qtl.stopOnFirstDefinition;
+		this.useCompactTrees = qtl.useCompactTrees;
 	}
 	
 	public EvaluatedQueryTree<String> getBestSolution(){
@@ -170,8 +181,6 @@ public class QTL2Disjunctive extends AbstractCELA implements Cloneable{
 		}
 		lp = (PosNegLP) learningProblem;
 		
-		lggGenerator = new LGGGeneratorImpl<String>();
-		
 		if(heuristic == null){
 			heuristic = new QueryTreeHeuristic();
 			heuristic.setPosExamplesWeight(beta);
@@ -182,6 +191,13 @@ public class QTL2Disjunctive extends AbstractCELA implements Cloneable{
 		tree2Individual = new HashMap<QueryTree<String>, Individual>(lp.getPositiveExamples().size()+lp.getNegativeExamples().size());
 		individual2Tree = new HashMap<Individual, QueryTree<String>>(lp.getPositiveExamples().size()+lp.getNegativeExamples().size());
 		
+		dictionary = new QueryTreeDictionary();
+		subsumptionChecker = new QueryTreeSubsumptionChecker(dictionary);
+		// the LGGs are interned in the dictionary of the example trees
+		lggGenerator = new LGGGeneratorImpl<String>(dictionary, subsumptionChecker);
+		lggGenerator.setUseCompactTrees(useCompactTrees);
+		compactTrees = new HashMap<QueryTree<String>, CompactQueryTree>(lp.getPositiveExamples().size()+lp.getNegativeExamples().size());
+		
 		currentPosExampleTrees = new ArrayList<QueryTree<String>>(lp.getPositiveExamples().size());
 		currentNegExampleTrees = new ArrayList<QueryTree<String>>(lp.getNegativeExamples().size());
 		currentPosExamples = new TreeSet<Individual>(lp.getPositiveExamples());
@@ -217,12 +233,14 @@ public class QTL2Disjunctive extends AbstractCELA implements Cloneable{
 			queryTree = treeCache.getQueryTree(ind.getName());
 			tree2Individual.put(queryTree, ind);
 			individual2Tree.put(ind, queryTree);
+			compactTrees.put(queryTree, dictionary.compact(queryTree));
 			currentPosExampleTrees.add(queryTree);
 		}
 		for (Individual ind : lp.getNegativeExamples()) {
 			queryTree = treeCache.getQueryTree(ind.getName());
 			tree2Individual.put(queryTree, ind);
 			individual2Tree.put(ind, queryTree);
+			compactTrees.put(queryTree, dictionary.compact(queryTree));
 			currentNegExampleTrees.add(queryTree);
 		}
 		logger.info("...done.");
@@ -290,6 +308,9 @@ public class QTL2Disjunctive extends AbstractCELA implements Cloneable{
 		
 		logger.info(currentBestSolution.getScore());
 		
+		// the threads are started again by the checks of a further run
+		lggGenerator.shutdown();
+		subsumptionChecker.shutdown();
 	}
 	
 	private EvaluatedQueryTree<String> computeBestPartialSolution(){
@@ -435,23 +456,13 @@ public class QTL2Disjunctive extends AbstractCELA implements Cloneable{
 				LiteralNodeSubsumptionStrategy.MIN,
 				LiteralNodeSubsumptionStrategy.MAX,
 				};
+		CompactQueryTree compactTree = dictionary.compact(tree);
 		for (LiteralNodeSubsumptionStrategy strategy : strategies) {
 			//1. get a score for the coverage = recall oriented
-			List<QueryTree<String>> uncoveredPositiveExampleTrees = new ArrayList<QueryTree<String>>();
-			List<QueryTree<String>> coveredNegativeExampleTrees = new ArrayList<QueryTree<String>>();
-			
 			//compute positive examples which are not covered by LGG
-			for (QueryTree<String> posTree : currentPosExampleTrees) {
-				if(!posTree.isSubsumedBy(tree, strategy)){
-					uncoveredPositiveExampleTrees.add(posTree);
-				}
-			}
+			List<QueryTree<String>> uncoveredPositiveExampleTrees = filterTrees(compactTree, currentPosExampleTrees, strategy, false);
 			//compute negative examples which are covered by LGG
-			for (QueryTree<String> negTree : currentNegExampleTrees) {
-				if(negTree.isSubsumedBy(tree, strategy)){
-					coveredNegativeExampleTrees.add(negTree);
-				}
-			}
+			List<QueryTree<String>> coveredNegativeExampleTrees = filterTrees(compactTree, currentNegExampleTrees, strategy, true);
 			//convert to individuals
 			Set<Individual> uncoveredPosExamples = asIndividuals(uncoveredPositiveExampleTrees);
 			Set<Individual> coveredNegExamples = asIndividuals(coveredNegativeExampleTrees);
@@ -731,14 +742,7 @@ public class QTL2Disjunctive extends AbstractCELA implements Cloneable{
 	 * @return
 	 */
 	private List<QueryTree<String>> getCoveredTrees(QueryTree<String> tree, List<QueryTree<String>> trees){
-		List<QueryTree<String>> coveredTrees = new ArrayList<QueryTree<String>>();
-		for (QueryTree<String> queryTree : trees) {
-			boolean subsumed = queryTree.isSubsumedBy(tree);
-			if(subsumed){
-				coveredTrees.add(queryTree);
-			}
-		}
-		return coveredTrees;
+		return filterTrees(dictionary.compact(tree), trees, null, true);
 	}
 
 	/**
@@ -748,14 +752,37 @@ public class QTL2Disjunctive extends AbstractCELA implements Cloneable{
 	 * @return
 	 */
 	private List<QueryTree<String>> getUncoveredTrees(QueryTree<String> tree, List<QueryTree<String>> allTrees){
-		List<QueryTree<String>> uncoveredTrees = new ArrayList<QueryTree<String>>();
-		for (QueryTree<String> queryTree : allTrees) {
-			boolean subsumed = queryTree.isSubsumedBy(tree);
-			if(!subsumed){
-				uncoveredTrees.add(queryTree);
+		return filterTrees(dictionary.compact(tree), allTrees, null, false);
+	}
+	
+	/**
+	 * Return all trees from the given list {@code trees} which are (not) subsumed by {@code tree}.
+	 * The example trees are checked in parallel.
+	 * @param tree
+	 * @param trees
+	 * @param strategy the literal node subsumption strategy or null to compare literal nodes by their user object
+	 * @param subsumed whether to return the subsumed or the not subsumed trees
+	 * @return
+	 */
+	private List<QueryTree<String>> filterTrees(CompactQueryTree tree, List<QueryTree<String>> trees, LiteralNodeSubsumptionStrategy strategy, boolean subsumed){
+		List<CompactQueryTree> compactExampleTrees = new ArrayList<CompactQueryTree>(trees.size());
+		for (QueryTree<String> queryTree : trees) {
+			CompactQueryTree compactTree = compactTrees.get(queryTree);
+			if(compactTree == null){
+				compactTree = dictionary.compact(queryTree);
 			}
+			compactExampleTrees.add(compactTree);
 		}
-		return uncoveredTrees;
+		subMon.start();
+		BitSet subsumedTrees = subsumptionChecker.getSubsumedTrees(compactExampleTrees, tree, strategy);
+		subMon.stop();
+		List<QueryTree<String>> filteredTrees = new ArrayList<QueryTree<String>>();
+		for (int i = 0; i < trees.size(); i++) {
+			if(subsumedTrees.get(i) == subsumed){
+				filteredTrees.add(trees.get(i));
+			}
+		}
+		return filteredTrees;
 	}
 
 	/**
@@ -886,6 +913,13 @@ public class QTL2Disjunctive extends AbstractCELA implements Cloneable{
 		this.maxExecutionTimeInSeconds = maxExecutionTimeInSeconds;
 	}
 	
+	/**
+	 * @param useCompactTrees whether to compute the LGGs on compact query trees
+	 */
+	public void setUseCompactTrees(boolean useCompactTrees) {
+		this.useCompactTrees = useCompactTrees;
+	}
+	
 	/**
 	 * Default value is 1. Lower values force importance of covering positive examples.
 	 * @param beta the beta to set
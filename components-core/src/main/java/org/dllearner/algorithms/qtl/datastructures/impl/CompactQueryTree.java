@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2007-2010, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.dllearner.algorithms.qtl.datastructures.impl;
+
+import java.util.Arrays;
+import java.util.Set;
+
+import com.hp.hpl.jena.rdf.model.Literal;
+
+/**
+ * A compact, immutable query tree. Node and edge labels are encoded as ints by a
+ * {@link QueryTreeDictionary}, the children of a node are stored in arrays sorted
+ * by edge, and structurally equal subtrees are represented by the same object.
+ * Hence, a compact tree needs a fraction of the memory of a {@link QueryTreeImpl},
+ * in particular when many example trees share subtrees, e.g. the types of the
+ * examples.
+ *
+ * Compact trees are created and interned by a dictionary only. Since subtrees are
+ * shared, a node has no parent, and two trees of the same dictionary are
+ * structurally equal iff they are the same object. The id of a tree is unique
+ * within its dictionary, i.e. it identifies the whole subtree.
+ *
+ * Use {@link QueryTreeDictionary#compact(org.dllearner.algorithms.qtl.datastructures.QueryTree)}
+ * and {@link QueryTreeDictionary#expand(CompactQueryTree)} to convert from and to
+ * {@link QueryTreeImpl}.
+ */
+public final class CompactQueryTree {
+
+	static final byte RESOURCE = 1;
+	static final byte LITERAL = 2;
+	static final byte BLANK = 4;
+
+	private final int id;
+	private final int label;
+	private final byte flags;
+	private final Set<Literal> literals;
+	// the children sorted by edge (and by id for the same edge)
+	private final int[] edges;
+	private final CompactQueryTree[] children;
+
+	private final int hashCode;
+	private final int maxDepth;
+	// a bloom filter of the edges of the whole tree
+	private final long edgeSignature;
+
+	CompactQueryTree(int id, int label, byte flags, Set<Literal> literals, int[] edges, CompactQueryTree[] children) {
+		this.id = id;
+		this.label = label;
+		this.flags = flags;
+		this.literals = literals;
+		this.edges = edges;
+		this.children = children;
+
+		int hash = 31 * label + flags;
+		hash = 31 * hash + literals.hashCode();
+		hash = 31 * hash + Arrays.hashCode(edges);
+		int depth = 0;
+		long signature = 0;
+		for (int i = 0; i < children.length; i++) {
+			CompactQueryTree child = children[i];
+			// children are interned, i.e. their ids identify them
+			hash = 31 * hash + child.id;
+			depth = Math.max(depth, child.maxDepth + 1);
+			signature |= child.edgeSignature | edgeBit(edges[i]);
+		}
+		this.hashCode = hash;
+		this.maxDepth = depth;
+		this.edgeSignature = signature;
+	}
+
+	/**
+	 * Creates a tree with the same structure as the given tree, but another id.
+	 */
+	CompactQueryTree(int id, CompactQueryTree tree) {
+		this.id = id;
+		this.label = tree.label;
+		this.flags = tree.flags;
+		this.literals = tree.literals;
+		this.edges = tree.edges;
+		this.children = tree.children;
+		this.hashCode = tree.hashCode;
+		this.maxDepth = tree.maxDepth;
+		this.edgeSignature = tree.edgeSignature;
+	}
+
+	private static long edgeBit(int edge) {
+		// spread consecutive label ids over the bits
+		return 1L << ((edge * 0x9E3779B9) >>> 26);
+	}
+
+	/**
+	 * @return The id of the tree, which is unique within its dictionary.
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * @return The encoded label of the root node.
+	 */
+	public int getLabel() {
+		return label;
+	}
+
+	public boolean isResourceNode() {
+		return (flags & RESOURCE) != 0;
+	}
+
+	public boolean isLiteralNode() {
+		return (flags & LITERAL) != 0;
+	}
+
+	public boolean isBlankNode() {
+		return (flags & BLANK) != 0;
+	}
+
+	public boolean isVarNode() {
+		return !isResourceNode() && !isLiteralNode();
+	}
+
+	byte getFlags() {
+		return flags;
+	}
+
+	/**
+	 * @return The literals of a literal node (read-only).
+	 */
+	public Set<Literal> getLiterals() {
+		return literals;
+	}
+
+	public int getChildCount() {
+		return children.length;
+	}
+
+	public boolean isLeaf() {
+		return children.length == 0;
+	}
+
+	/**
+	 * @param i The position of a child.
+	 * @return The encoded edge to the child at the position.
+	 */
+	public int getEdge(int i) {
+		return edges[i];
+	}
+
+	/**
+	 * @param i The position of a child.
+	 * @return The child at the position.
+	 */
+	public CompactQueryTree getChild(int i) {
+		return children[i];
+	}
+
+	/**
+	 * @param edge An encoded edge.
+	 * @return The position of the first child connected by the edge or the
+	 * negative insertion point (see {@link Arrays#binarySearch(int[], int)})
+	 * if there is no such child.
+	 */
+	public int getFirstChildIndex(int edge) {
+		int i = Arrays.binarySearch(edges, edge);
+		while(i > 0 && edges[i - 1] == edge){
+			i--;
+		}
+		return i;
+	}
+
+	/**
+	 * @return The length of the longest path from the root to a leaf.
+	 */
+	public int getMaxDepth() {
+		return maxDepth;
+	}
+
+	/**
+	 * Returns a 64 bit bloom filter of all edges occurring in the tree. If a tree
+	 * contains all edges of another tree, its signature contains all bits of the
+	 * signature of the other tree.
+	 * @return The edge signature.
+	 */
+	public long getEdgeSignature() {
+		return edgeSignature;
+	}
+
+	/**
+	 * @return The number of nodes of the tree, where shared subtrees are
+	 * counted for each occurrence.
+	 */
+	public long getSize() {
+		long size = 1;
+		for (CompactQueryTree child : children) {
+			size += child.getSize();
+		}
+		return size;
+	}
+
+	@Override
+	public int hashCode() {
+		return hashCode;
+	}
+
+	/**
+	 * Structural equality, which assumes that the children of both trees have
+	 * been interned by the same dictionary.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if(this == obj){
+			return true;
+		}
+		if(!(obj instanceof CompactQueryTree)){
+			return false;
+		}
+		CompactQueryTree other = (CompactQueryTree) obj;
+		if(hashCode != other.hashCode || label != other.label || flags != other.flags
+				|| !Arrays.equals(edges, other.edges) || !literals.equals(other.literals)){
+			return false;
+		}
+		for (int i = 0; i < children.length; i++) {
+			if(children[i] != other.children[i]){
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "CompactQueryTree[id=" + id + ", label=" + label + ", children=" + children.length + "]";
+	}
+
+}
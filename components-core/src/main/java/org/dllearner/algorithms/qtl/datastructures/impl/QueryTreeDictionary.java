@@ -0,0 +1,228 @@
+/**
+ * Copyright (C) 2007-2010, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.dllearner.algorithms.qtl.datastructures.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.dllearner.algorithms.qtl.datastructures.QueryTree;
+import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeImpl.NodeType;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.MapMaker;
+import com.hp.hpl.jena.rdf.model.Literal;
+
+/**
+ * Encodes the labels of query trees as ints and interns {@link CompactQueryTree}s,
+ * i.e. each distinct subtree exists only once. All compact trees which are compared
+ * or combined with each other have to be created by the same dictionary.
+ * Trees are interned weakly, i.e. a tree is dropped from the dictionary once
+ * it is no longer referenced. The dictionary is thread-safe.
+ */
+public class QueryTreeDictionary {
+
+	/**
+	 * The label of variable nodes.
+	 */
+	public static final String VAR_LABEL = "?";
+
+	private ConcurrentMap<String, Integer> label2Id = new ConcurrentHashMap<String, Integer>();
+	private List<String> labels = new ArrayList<String>();
+
+	// maps a tree without id to the interned tree, the key does not keep the interned tree alive
+	private ConcurrentMap<CompactQueryTree, CompactQueryTree> trees = new MapMaker().weakValues().makeMap();
+	// guarded by trees
+	private int nextTreeId;
+
+	private final int varLabel;
+
+	public QueryTreeDictionary() {
+		varLabel = encode(VAR_LABEL);
+	}
+
+	/**
+	 * @param label A node or edge label.
+	 * @return The int encoding the label.
+	 */
+	public int encode(String label) {
+		Integer id = label2Id.get(label);
+		if(id == null){
+			synchronized (labels) {
+				id = label2Id.get(label);
+				if(id == null){
+					id = labels.size();
+					labels.add(label);
+					label2Id.put(label, id);
+				}
+			}
+		}
+		return id;
+	}
+
+	/**
+	 * @param id An encoded label.
+	 * @return The label.
+	 */
+	public String decode(int id) {
+		synchronized (labels) {
+			return labels.get(id);
+		}
+	}
+
+	/**
+	 * @return The encoded label of variable nodes.
+	 */
+	public int getVarLabel() {
+		return varLabel;
+	}
+
+	/**
+	 * Returns the compact tree with the given root and children.
+	 * @param label The encoded label of the root.
+	 * @param nodeType The type of the root.
+	 * @param literals The literals of a literal node.
+	 * @param edges The encoded edges to the children.
+	 * @param children The children, which have to be interned by this dictionary.
+	 * @return The interned tree.
+	 */
+	public CompactQueryTree createTree(int label, NodeType nodeType, Collection<Literal> literals, int[] edges, CompactQueryTree[] children) {
+		byte flags = 0;
+		if(nodeType == NodeType.RESOURCE){
+			flags = CompactQueryTree.RESOURCE;
+		} else if(nodeType == NodeType.LITERAL){
+			flags = CompactQueryTree.LITERAL;
+		} else if(nodeType == NodeType.BLANK){
+			flags = CompactQueryTree.BLANK;
+		}
+		return createTree(label, flags, literals, edges, children);
+	}
+
+	CompactQueryTree createTree(int label, byte flags, Collection<Literal> literals, final int[] edges, final CompactQueryTree[] children) {
+		// sort the children by edge and id
+		Integer[] order = new Integer[children.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				int diff = Integer.compare(edges[i1], edges[i2]);
+				return diff != 0 ? diff : Integer.compare(children[i1].getId(), children[i2].getId());
+			}
+		});
+		int[] sortedEdges = new int[children.length];
+		CompactQueryTree[] sortedChildren = new CompactQueryTree[children.length];
+		for (int i = 0; i < order.length; i++) {
+			sortedEdges[i] = edges[order[i]];
+			sortedChildren[i] = children[order[i]];
+		}
+		Set<Literal> literalSet = literals == null || literals.isEmpty() ? Collections.<Literal>emptySet() : ImmutableSet.copyOf(literals);
+
+		CompactQueryTree key = new CompactQueryTree(-1, label, flags, literalSet, sortedEdges, sortedChildren);
+		CompactQueryTree tree = trees.get(key);
+		if(tree == null){
+			// ids are only assigned to trees which are actually interned
+			synchronized (trees) {
+				tree = trees.get(key);
+				if(tree == null){
+					tree = new CompactQueryTree(nextTreeId++, key);
+					trees.put(key, tree);
+				}
+			}
+		}
+		return tree;
+	}
+
+	/**
+	 * Converts a query tree into a compact tree.
+	 * @param tree The query tree.
+	 * @return The interned compact tree.
+	 */
+	public CompactQueryTree compact(QueryTree<String> tree) {
+		List<QueryTree<String>> children = tree.getChildren();
+		int[] edges = new int[children.size()];
+		CompactQueryTree[] compactChildren = new CompactQueryTree[children.size()];
+		for (int i = 0; i < compactChildren.length; i++) {
+			QueryTree<String> child = children.get(i);
+			edges[i] = encode((String) tree.getEdge(child));
+			compactChildren[i] = compact(child);
+		}
+		byte flags = 0;
+		if(tree.isResourceNode()){
+			flags |= CompactQueryTree.RESOURCE;
+		}
+		if(tree.isLiteralNode()){
+			flags |= CompactQueryTree.LITERAL;
+		}
+		if(tree instanceof QueryTreeImpl && ((QueryTreeImpl<String>) tree).isBlankNode()){
+			flags |= CompactQueryTree.BLANK;
+		}
+		return createTree(encode(tree.getUserObject()), flags, tree.getLiterals(), edges, compactChildren);
+	}
+
+	/**
+	 * Converts a compact tree into a query tree. The nodes are numbered in
+	 * depth-first order, starting with 0 for the root.
+	 * @param tree The compact tree.
+	 * @return The query tree.
+	 */
+	public QueryTreeImpl<String> expand(CompactQueryTree tree) {
+		return expand(tree, new AtomicInteger());
+	}
+
+	private QueryTreeImpl<String> expand(CompactQueryTree tree, AtomicInteger nextId) {
+		QueryTreeImpl<String> node = new QueryTreeImpl<String>(decode(tree.getLabel()));
+		node.setId(nextId.getAndIncrement());
+		node.setIsResourceNode(tree.isResourceNode());
+		node.setIsLiteralNode(tree.isLiteralNode());
+		node.setIsBlankNode(tree.isBlankNode());
+		node.addLiterals(tree.getLiterals());
+		for (int i = 0; i < tree.getChildCount(); i++) {
+			node.addChild(expand(tree.getChild(i), nextId), decode(tree.getEdge(i)));
+		}
+		return node;
+	}
+
+	/**
+	 * @return The number of distinct subtrees, which may include trees that
+	 * are no longer referenced, but not yet removed.
+	 */
+	public int getNrOfTrees() {
+		return trees.size();
+	}
+
+	/**
+	 * @return The number of distinct labels.
+	 */
+	public int getNrOfLabels() {
+		synchronized (labels) {
+			return labels.size();
+		}
+	}
+
+}
@@ -548,7 +548,7 @@ public class QueryTreeImpl<N> implements QueryTree<N>{
     	return true;
     }
     
-    private boolean subsumes(Set<Literal> subsumer, Set<Literal> subsumee, LiteralNodeSubsumptionStrategy strategy){
+    static boolean subsumes(Set<Literal> subsumer, Set<Literal> subsumee, LiteralNodeSubsumptionStrategy strategy){
     	if(strategy == LiteralNodeSubsumptionStrategy.DATATYPE){
     		//check if both datatypes are the same
 			RDFDatatype subsumerDatatype = getDatatype(subsumer);
@@ -607,7 +607,7 @@ public class QueryTreeImpl<N> implements QueryTree<N>{
      * Returns the datatype of the literals. Throws exception if there are multiple datatypes.
      * @param literals
      */
-    private RDFDatatype getDatatype(Set<Literal> literals){
+    private static RDFDatatype getDatatype(Set<Literal> literals){
     	RDFDatatype datatype = literals.iterator().next().getDatatype();
     	return datatype;
     }
@@ -1236,7 +1236,7 @@ public class QueryTreeImpl<N> implements QueryTree<N>{
     	return filter;
     }
     
-    private boolean isLessOrEqual(Literal l1, Literal l2){
+    private static boolean isLessOrEqual(Literal l1, Literal l2){
     	if((l1.getDatatype() == XSDDatatype.XSDinteger || l1.getDatatype() == XSDDatatype.XSDint) &&
     			(l2.getDatatype() == XSDDatatype.XSDinteger || l2.getDatatype() == XSDDatatype.XSDint)){
 			return (l1.getInt() <= l2.getInt());
@@ -1254,7 +1254,7 @@ public class QueryTreeImpl<N> implements QueryTree<N>{
     	return false;
     }
     
-    private boolean isGreaterOrEqual(Literal l1, Literal l2){
+    private static boolean isGreaterOrEqual(Literal l1, Literal l2){
     	if((l1.getDatatype() == XSDDatatype.XSDinteger || l1.getDatatype() == XSDDatatype.XSDint) &&
     			(l2.getDatatype() == XSDDatatype.XSDinteger || l2.getDatatype() == XSDDatatype.XSDint)){
 			return (l1.getInt() >= l2.getInt());
@@ -1272,7 +1272,7 @@ public class QueryTreeImpl<N> implements QueryTree<N>{
     	return false;
     }
     
-    private Literal getMin(Set<Literal> literals){
+    private static Literal getMin(Set<Literal> literals){
     	Iterator<Literal> iter = literals.iterator();
     	Literal min = iter.next();
     	Literal l;
@@ -1291,7 +1291,7 @@ public class QueryTreeImpl<N> implements QueryTree<N>{
     	return min;
     }
     
-    private Literal getMax(Set<Literal> literals){
+    private static Literal getMax(Set<Literal> literals){
     	Iterator<Literal> iter = literals.iterator();
     	Literal max = iter.next();
     	Literal l;
@@ -0,0 +1,251 @@
+/**
+ * Copyright (C) 2007-2010, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.dllearner.algorithms.qtl.datastructures.impl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeImpl.LiteralNodeSubsumptionStrategy;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Checks subsumption between {@link CompactQueryTree}s of the same dictionary. The
+ * semantics are the same as of {@link QueryTreeImpl#isSubsumedBy(org.dllearner.algorithms.qtl.datastructures.QueryTree)}
+ * and {@link QueryTreeImpl#isSubsumedBy(org.dllearner.algorithms.qtl.datastructures.QueryTree, LiteralNodeSubsumptionStrategy)},
+ * but
+ * <ul>
+ * <li>the results for pairs of subtrees are memoized, i.e. subtrees shared by
+ * several trees are compared only once,</li>
+ * <li>the children of both nodes are matched by merging their edge-sorted arrays,</li>
+ * <li>a tree is rejected without traversal if it is less deep than the subsumer or
+ * if its edge signature does not contain the one of the subsumer.</li>
+ * </ul>
+ * The checker is thread-safe.
+ */
+public class QueryTreeSubsumptionChecker {
+
+	private static final long DEFAULT_MAX_MEMO_SIZE = 1000000;
+	// only run batches in parallel with at least that many trees per thread
+	private static final int MIN_TREES_PER_THREAD = 10;
+
+	private final int varLabel;
+	// one memo table for the plain check and one per literal strategy
+	private final List<Cache<Long, Boolean>> memos;
+
+	private final int nrOfThreads;
+	private ExecutorService executor;
+
+	/**
+	 * @param dictionary The dictionary of the trees to check.
+	 */
+	public QueryTreeSubsumptionChecker(QueryTreeDictionary dictionary) {
+		this(dictionary, Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_MEMO_SIZE);
+	}
+
+	/**
+	 * @param dictionary The dictionary of the trees to check.
+	 * @param nrOfThreads The number of threads used by the batch checks.
+	 * @param maxMemoSize The maximum number of memoized results per strategy.
+	 */
+	public QueryTreeSubsumptionChecker(QueryTreeDictionary dictionary, int nrOfThreads, long maxMemoSize) {
+		this.varLabel = dictionary.getVarLabel();
+		this.nrOfThreads = Math.max(1, nrOfThreads);
+		memos = new ArrayList<Cache<Long, Boolean>>();
+		for (int i = 0; i <= LiteralNodeSubsumptionStrategy.values().length; i++) {
+			memos.add(CacheBuilder.newBuilder().maximumSize(maxMemoSize).<Long, Boolean>build());
+		}
+	}
+
+	/**
+	 * @return Whether tree is subsumed by subsumer, where the user objects of resource
+	 * and literal nodes are compared without strategy.
+	 */
+	public boolean isSubsumedBy(CompactQueryTree tree, CompactQueryTree subsumer) {
+		return isSubsumedBy(tree, subsumer, null);
+	}
+
+	/**
+	 * @param strategy The strategy to compare literal nodes or null to compare the
+	 * user objects only, as {@link QueryTreeImpl#isSubsumedBy(org.dllearner.algorithms.qtl.datastructures.QueryTree)} does.
+	 * @return Whether tree is subsumed by subsumer.
+	 */
+	public boolean isSubsumedBy(CompactQueryTree tree, CompactQueryTree subsumer, LiteralNodeSubsumptionStrategy strategy) {
+		if(tree == subsumer){
+			return true;
+		}
+		// every path of the subsumer has to exist in the tree
+		if(subsumer.getMaxDepth() > tree.getMaxDepth()
+				|| (subsumer.getEdgeSignature() & ~tree.getEdgeSignature()) != 0){
+			return false;
+		}
+		if(subsumer.isLeaf()){
+			return isNodeSubsumedBy(tree, subsumer, strategy);
+		}
+		Cache<Long, Boolean> memo = memos.get(strategy == null ? 0 : strategy.ordinal() + 1);
+		Long key = ((long) tree.getId() << 32) | (subsumer.getId() & 0xFFFFFFFFL);
+		Boolean result = memo.getIfPresent(key);
+		if(result == null){
+			result = isNodeSubsumedBy(tree, subsumer, strategy) && areChildrenSubsumedBy(tree, subsumer, strategy);
+			memo.put(key, result);
+		}
+		return result;
+	}
+
+	/**
+	 * Checks all trees against the same subsumer. The checks are run in parallel
+	 * for large lists.
+	 * @param trees The trees.
+	 * @param subsumer The subsumer.
+	 * @param strategy The strategy to compare literal nodes or null.
+	 * @return The positions of the trees which are subsumed by subsumer.
+	 */
+	public BitSet getSubsumedTrees(final List<CompactQueryTree> trees, final CompactQueryTree subsumer,
+			final LiteralNodeSubsumptionStrategy strategy) {
+		int nrOfChunks = Math.min(nrOfThreads, trees.size() / MIN_TREES_PER_THREAD);
+		if(nrOfChunks <= 1){
+			return check(trees, 0, trees.size(), subsumer, strategy);
+		}
+		int chunkSize = (trees.size() + nrOfChunks - 1) / nrOfChunks;
+		List<Future<BitSet>> futures = new ArrayList<Future<BitSet>>();
+		for (int i = 0; i < trees.size(); i += chunkSize) {
+			final int from = i;
+			final int to = Math.min(trees.size(), i + chunkSize);
+			futures.add(getExecutor().submit(new Callable<BitSet>() {
+				@Override
+				public BitSet call() throws Exception {
+					return check(trees, from, to, subsumer, strategy);
+				}
+			}));
+		}
+		BitSet result = new BitSet(trees.size());
+		try {
+			for (Future<BitSet> future : futures) {
+				result.or(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Subsumption check interrupted.", e);
+		} catch (ExecutionException e) {
+			throw new RuntimeException("Subsumption check failed.", e.getCause());
+		}
+		return result;
+	}
+
+	/**
+	 * Removes all memoized results.
+	 */
+	public void clear() {
+		for (Cache<Long, Boolean> memo : memos) {
+			memo.invalidateAll();
+		}
+	}
+
+	/**
+	 * Stops the threads used by the batch checks.
+	 */
+	public synchronized void shutdown() {
+		if(executor != null){
+			executor.shutdown();
+			executor = null;
+		}
+	}
+
+	private synchronized ExecutorService getExecutor() {
+		if(executor == null){
+			executor = Executors.newFixedThreadPool(nrOfThreads,
+					new ThreadFactoryBuilder().setDaemon(true).setNameFormat("subsumption-%d").build());
+		}
+		return executor;
+	}
+
+	private BitSet check(List<CompactQueryTree> trees, int from, int to, CompactQueryTree subsumer, LiteralNodeSubsumptionStrategy strategy) {
+		BitSet result = new BitSet(to);
+		for (int i = from; i < to; i++) {
+			if(isSubsumedBy(trees.get(i), subsumer, strategy)){
+				result.set(i);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Compares the root nodes, which is all for a subsumer literal node.
+	 */
+	private boolean isNodeSubsumedBy(CompactQueryTree tree, CompactQueryTree subsumer, LiteralNodeSubsumptionStrategy strategy) {
+		boolean sameLabel = subsumer.getLabel() == varLabel || subsumer.getLabel() == tree.getLabel();
+		if(strategy == null){
+			return sameLabel;
+		}
+		if(subsumer.isResourceNode() && tree.isResourceNode()){
+			return sameLabel;
+		} else if(subsumer.isLiteralNode() && tree.isLiteralNode()){
+			if(subsumer.getLabel() != tree.getLabel()){
+				if(strategy == LiteralNodeSubsumptionStrategy.OFF){
+					return sameLabel;
+				}
+				return QueryTreeImpl.subsumes(subsumer.getLiterals(), tree.getLiterals(), strategy);
+			}
+		} else if(!subsumer.isVarNode() && tree.isVarNode()){
+			return false;
+		} else if(subsumer.isResourceNode() && tree.isLiteralNode() || subsumer.isLiteralNode() && tree.isResourceNode()){
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether each child of the subsumer subsumes a child of the tree
+	 * connected by the same edge.
+	 */
+	private boolean areChildrenSubsumedBy(CompactQueryTree tree, CompactQueryTree subsumer, LiteralNodeSubsumptionStrategy strategy) {
+		if(strategy != null && subsumer.isLiteralNode() && tree.isLiteralNode() && subsumer.getLabel() != tree.getLabel()){
+			// decided by the literals only
+			return true;
+		}
+		int first = 0;
+		for (int i = 0; i < subsumer.getChildCount(); i++) {
+			int edge = subsumer.getEdge(i);
+			while(first < tree.getChildCount() && tree.getEdge(first) < edge){
+				first++;
+			}
+			boolean subsumed = false;
+			for (int j = first; j < tree.getChildCount() && tree.getEdge(j) == edge; j++) {
+				if(isSubsumedBy(tree.getChild(j), subsumer.getChild(i), strategy)){
+					subsumed = true;
+					break;
+				}
+			}
+			if(!subsumed){
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
@@ -0,0 +1,271 @@
+/**
+ * Copyright (C) 2007-2010, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.dllearner.algorithms.qtl.operations.lgg;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+import org.dllearner.algorithms.qtl.datastructures.impl.CompactQueryTree;
+import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeDictionary;
+import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeImpl.NodeType;
+import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeSubsumptionChecker;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Sets;
+import com.hp.hpl.jena.datatypes.RDFDatatype;
+import com.hp.hpl.jena.rdf.model.Literal;
+
+/**
+ * Computes the LGG of {@link CompactQueryTree}s with the same semantics as
+ * {@link LGGGeneratorImpl}, but
+ * <ul>
+ * <li>the LGGs of the child pairs of different edges and of deep subtrees are
+ * computed in parallel by a fork/join pool,</li>
+ * <li>children which are more general than a sibling are skipped before computing
+ * any LGG, since the LGG is monotonic w.r.t. subsumption, i.e. their LGGs would be
+ * redundant,</li>
+ * <li>child pairs without common label and edges are not computed, since their LGG
+ * is the variable leaf, which is redundant if any other child exists,</li>
+ * <li>the LGGs of subtree pairs are cached.</li>
+ * </ul>
+ * The generator is thread-safe.
+ */
+public class CompactLGGGenerator {
+
+	private static final long DEFAULT_MAX_CACHE_SIZE = 100000;
+	// the LGG of subtrees is only computed in parallel if they are at least that deep
+	private static final int MIN_PARALLEL_DEPTH = 2;
+
+	private final QueryTreeDictionary dictionary;
+	private final QueryTreeSubsumptionChecker subsumptionChecker;
+	private final Cache<Long, CompactQueryTree> cache;
+
+	private final int nrOfThreads;
+	private ForkJoinPool pool;
+
+	private final CompactQueryTree top;
+
+	/**
+	 * @param dictionary The dictionary of the trees.
+	 * @param subsumptionChecker The checker used to remove redundant children.
+	 */
+	public CompactLGGGenerator(QueryTreeDictionary dictionary, QueryTreeSubsumptionChecker subsumptionChecker) {
+		this(dictionary, subsumptionChecker, Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_CACHE_SIZE);
+	}
+
+	/**
+	 * @param dictionary The dictionary of the trees.
+	 * @param subsumptionChecker The checker used to remove redundant children.
+	 * @param nrOfThreads The number of threads.
+	 * @param maxCacheSize The maximum number of cached LGGs of subtree pairs.
+	 */
+	public CompactLGGGenerator(QueryTreeDictionary dictionary, QueryTreeSubsumptionChecker subsumptionChecker,
+			int nrOfThreads, long maxCacheSize) {
+		this.dictionary = dictionary;
+		this.subsumptionChecker = subsumptionChecker;
+		this.nrOfThreads = Math.max(1, nrOfThreads);
+		cache = CacheBuilder.newBuilder().maximumSize(maxCacheSize).build();
+		top = dictionary.createTree(dictionary.getVarLabel(), NodeType.VARIABLE, null, new int[0], new CompactQueryTree[0]);
+	}
+
+	public CompactQueryTree getLGG(CompactQueryTree tree1, CompactQueryTree tree2) {
+		return getPool().invoke(new LGGTask(tree1, tree2));
+	}
+
+	public CompactQueryTree getLGG(List<CompactQueryTree> trees) {
+		CompactQueryTree lgg = trees.get(0);
+		for (int i = 1; i < trees.size(); i++) {
+			lgg = getLGG(lgg, trees.get(i));
+		}
+		return lgg;
+	}
+
+	/**
+	 * Removes all cached LGGs.
+	 */
+	public void clear() {
+		cache.invalidateAll();
+	}
+
+	/**
+	 * Stops the threads of the generator.
+	 */
+	public synchronized void shutdown() {
+		if(pool != null){
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	private synchronized ForkJoinPool getPool() {
+		if(pool == null){
+			pool = new ForkJoinPool(nrOfThreads);
+		}
+		return pool;
+	}
+
+	private class LGGTask extends RecursiveTask<CompactQueryTree> {
+
+		private static final long serialVersionUID = 1L;
+
+		private final CompactQueryTree tree1;
+		private final CompactQueryTree tree2;
+
+		public LGGTask(CompactQueryTree tree1, CompactQueryTree tree2) {
+			this.tree1 = tree1;
+			this.tree2 = tree2;
+		}
+
+		@Override
+		protected CompactQueryTree compute() {
+			return computeLGG(tree1, tree2);
+		}
+	}
+
+	private CompactQueryTree computeLGG(CompactQueryTree tree1, CompactQueryTree tree2) {
+		// both trees describe the same resource
+		if(tree1 == tree2 || ((tree1.isResourceNode() && tree2.isResourceNode() || tree1.isLiteralNode() && tree2.isLiteralNode())
+				&& tree1.getLabel() == tree2.getLabel())){
+			return tree1;
+		}
+		Long key = ((long) tree1.getId() << 32) | (tree2.getId() & 0xFFFFFFFFL);
+		CompactQueryTree lgg = cache.getIfPresent(key);
+		if(lgg != null){
+			return lgg;
+		}
+
+		int label = tree2.isVarNode() || tree1.getLabel() == tree2.getLabel() ? tree1.getLabel() : dictionary.getVarLabel();
+		NodeType nodeType = NodeType.VARIABLE;
+		Set<Literal> literals = null;
+		if(tree1.isLiteralNode() && tree2.isLiteralNode()){
+			nodeType = NodeType.LITERAL;
+			RDFDatatype d1 = getDatatype(tree1);
+			RDFDatatype d2 = getDatatype(tree2);
+			if(d1 != null && d2 != null && d1.equals(d2)){
+				literals = Sets.union(tree1.getLiterals(), tree2.getLiterals());
+			}
+		}
+
+		boolean parallel = ForkJoinTask.inForkJoinPool() && tree1.getMaxDepth() >= MIN_PARALLEL_DEPTH
+				&& tree2.getMaxDepth() >= MIN_PARALLEL_DEPTH;
+		List<Integer> edges = new ArrayList<Integer>();
+		List<CompactQueryTree> children = new ArrayList<CompactQueryTree>();
+		int i = 0;
+		int j = 0;
+		while(i < tree1.getChildCount() && j < tree2.getChildCount()){
+			int edge1 = tree1.getEdge(i);
+			int edge2 = tree2.getEdge(j);
+			if(edge1 < edge2){
+				i++;
+			} else if(edge1 > edge2){
+				j++;
+			} else {
+				List<CompactQueryTree> children1 = new ArrayList<CompactQueryTree>();
+				for (; i < tree1.getChildCount() && tree1.getEdge(i) == edge1; i++) {
+					addMostSpecific(children1, tree1.getChild(i));
+				}
+				List<CompactQueryTree> children2 = new ArrayList<CompactQueryTree>();
+				for (; j < tree2.getChildCount() && tree2.getEdge(j) == edge2; j++) {
+					addMostSpecific(children2, tree2.getChild(j));
+				}
+				for (CompactQueryTree child : computeChildLGGs(children1, children2, parallel)) {
+					edges.add(edge1);
+					children.add(child);
+				}
+			}
+		}
+		int[] edgeArray = new int[edges.size()];
+		for (int k = 0; k < edgeArray.length; k++) {
+			edgeArray[k] = edges.get(k);
+		}
+		lgg = dictionary.createTree(label, nodeType, literals, edgeArray, children.toArray(new CompactQueryTree[children.size()]));
+		cache.put(key, lgg);
+		return lgg;
+	}
+
+	/**
+	 * Computes the non-redundant LGGs of all pairs of children connected by the same edge.
+	 */
+	private List<CompactQueryTree> computeChildLGGs(List<CompactQueryTree> children1, List<CompactQueryTree> children2, boolean parallel) {
+		List<CompactQueryTree> lggs = new ArrayList<CompactQueryTree>();
+		List<LGGTask> tasks = new ArrayList<LGGTask>();
+		boolean containsTop = false;
+		for (CompactQueryTree child1 : children1) {
+			for (CompactQueryTree child2 : children2) {
+				if(isTop(child1, child2)){
+					containsTop = true;
+				} else if(parallel){
+					tasks.add(new LGGTask(child1, child2));
+				} else {
+					addMostSpecific(lggs, computeLGG(child1, child2));
+				}
+			}
+		}
+		if(!tasks.isEmpty()){
+			ForkJoinTask.invokeAll(tasks);
+			for (LGGTask task : tasks) {
+				addMostSpecific(lggs, task.join());
+			}
+		}
+		if(lggs.isEmpty() && containsTop){
+			lggs.add(top);
+		}
+		return lggs;
+	}
+
+	/**
+	 * @return Whether the LGG of both trees is the variable leaf, i.e. their labels
+	 * differ, they are not both literals, and they do not have a common edge.
+	 */
+	private boolean isTop(CompactQueryTree tree1, CompactQueryTree tree2) {
+		return !tree2.isVarNode() && tree1.getLabel() != tree2.getLabel()
+				&& !(tree1.isLiteralNode() && tree2.isLiteralNode())
+				&& (tree1.getEdgeSignature() & tree2.getEdgeSignature()) == 0;
+	}
+
+	/**
+	 * Adds the tree to the list unless a tree of the list is subsumed by it, and
+	 * removes all trees of the list which subsume it.
+	 */
+	private void addMostSpecific(List<CompactQueryTree> trees, CompactQueryTree tree) {
+		for (CompactQueryTree other : trees) {
+			if(subsumptionChecker.isSubsumedBy(other, tree)){
+				return;
+			}
+		}
+		for (Iterator<CompactQueryTree> iterator = trees.iterator(); iterator.hasNext();) {
+			if(subsumptionChecker.isSubsumedBy(tree, iterator.next())){
+				iterator.remove();
+			}
+		}
+		trees.add(tree);
+	}
+
+	private RDFDatatype getDatatype(CompactQueryTree tree) {
+		return tree.getLiterals().isEmpty() ? null : tree.getLiterals().iterator().next().getDatatype();
+	}
+
+}
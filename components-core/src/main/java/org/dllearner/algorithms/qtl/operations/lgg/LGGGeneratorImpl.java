@@ -28,7 +28,10 @@ import java.util.TreeSet;
 import org.apache.log4j.Logger;
 import org.dllearner.algorithms.qtl.cache.QueryTreeCache;
 import org.dllearner.algorithms.qtl.datastructures.QueryTree;
+import org.dllearner.algorithms.qtl.datastructures.impl.CompactQueryTree;
+import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeDictionary;
 import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeImpl;
+import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeSubsumptionChecker;
 import org.dllearner.kb.sparql.ConciseBoundedDescriptionGenerator;
 import org.dllearner.kb.sparql.ConciseBoundedDescriptionGeneratorImpl;
 import org.dllearner.kb.sparql.SparqlEndpoint;
@@ -50,6 +53,30 @@ public class LGGGeneratorImpl<N> implements LGGGenerator<N>{
 	private int nodeId;
 	
 	private int calls = 0;
+	
+	// trees with String user objects are generalized as compact trees
+	private boolean useCompactTrees = false;
+	// created on the first compact LGG and kept until the generator is shut down
+	private QueryTreeDictionary dictionary;
+	private QueryTreeSubsumptionChecker subsumptionChecker;
+	private CompactLGGGenerator compactLGGGenerator;
+	// whether the dictionary and the checker have been passed in and are not shut down by this generator
+	private boolean sharedDictionary = false;
+	
+	public LGGGeneratorImpl() {
+	}
+	
+	/**
+	 * @param dictionary The dictionary compact trees are interned in, e.g. the one of
+	 * the example trees of a learning algorithm.
+	 * @param subsumptionChecker A checker for trees of the dictionary, which is not
+	 * shut down by {@link #shutdown()}.
+	 */
+	public LGGGeneratorImpl(QueryTreeDictionary dictionary, QueryTreeSubsumptionChecker subsumptionChecker) {
+		this.dictionary = dictionary;
+		this.subsumptionChecker = subsumptionChecker;
+		sharedDictionary = true;
+	}
 
 	@Override
 	public QueryTree<N> getLGG(QueryTree<N> tree1, QueryTree<N> tree2) {
@@ -63,7 +90,15 @@ public class LGGGeneratorImpl<N> implements LGGGenerator<N>{
 		calls = 0;
 		Monitor mon = MonitorFactory.getTimeMonitor("LGG");
 		mon.start();
-		QueryTree<N> lgg = computeLGG(tree1, tree2, learnFilters);
+		QueryTree<N> lgg;
+		if(canUseCompactTrees(tree1) && canUseCompactTrees(tree2)){
+			List<QueryTree<N>> trees = new ArrayList<QueryTree<N>>();
+			trees.add(tree1);
+			trees.add(tree2);
+			lgg = computeCompactLGG(trees);
+		} else {
+			lgg = computeLGG(tree1, tree2, learnFilters);
+		}
 		mon.stop();
 		addNumbering(lgg);
 		logger.debug("Calls needed: " + calls);
@@ -101,6 +136,16 @@ public class LGGGeneratorImpl<N> implements LGGGenerator<N>{
 		}
 		Monitor mon = MonitorFactory.getTimeMonitor("LGG");
 		mon.start();
+		boolean compact = true;
+		for (QueryTree<N> tree : treeList) {
+			compact &= canUseCompactTrees(tree);
+		}
+		if(compact){
+			QueryTree<N> lgg = computeCompactLGG(treeList);
+			mon.stop();
+			addNumbering(lgg);
+			return lgg;
+		}
 		QueryTree<N> lgg = computeLGG(treeList.get(0), treeList.get(1), learnFilters);
 		if(logger.isDebugEnabled()){
 			logger.debug("LGG for 1 and 2:\n" + lgg.getStringRepresentation());
@@ -123,6 +168,68 @@ public class LGGGeneratorImpl<N> implements LGGGenerator<N>{
 		return lgg;
 	}
 	
+	/**
+	 * @param useCompactTrees whether to compute the LGG of trees with String user objects
+	 * by the {@link CompactLGGGenerator} (default: false)
+	 */
+	public void setUseCompactTrees(boolean useCompactTrees) {
+		this.useCompactTrees = useCompactTrees;
+	}
+	
+	public boolean isUseCompactTrees() {
+		return useCompactTrees;
+	}
+	
+	/**
+	 * Stops the threads used for compact trees and, unless it has been passed in,
+	 * releases the dictionary, i.e. the labels and trees interned so far. A later
+	 * LGG computation starts over with a new one. Learning algorithms call this at
+	 * the end of a run.
+	 */
+	public synchronized void shutdown() {
+		if(compactLGGGenerator != null){
+			compactLGGGenerator.shutdown();
+			compactLGGGenerator = null;
+		}
+		if(!sharedDictionary){
+			if(subsumptionChecker != null){
+				subsumptionChecker.shutdown();
+			}
+			subsumptionChecker = null;
+			dictionary = null;
+		}
+	}
+	
+	private boolean canUseCompactTrees(QueryTree<N> tree){
+		return useCompactTrees && tree.getUserObject() instanceof String;
+	}
+	
+	private synchronized CompactLGGGenerator getCompactLGGGenerator() {
+		if(compactLGGGenerator == null){
+			if(dictionary == null){
+				dictionary = new QueryTreeDictionary();
+				subsumptionChecker = new QueryTreeSubsumptionChecker(dictionary);
+			}
+			compactLGGGenerator = new CompactLGGGenerator(dictionary, subsumptionChecker);
+		}
+		return compactLGGGenerator;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private QueryTree<N> computeCompactLGG(List<QueryTree<N>> trees){
+		CompactLGGGenerator compactLGGGenerator;
+		QueryTreeDictionary dictionary;
+		synchronized (this) {
+			compactLGGGenerator = getCompactLGGGenerator();
+			dictionary = this.dictionary;
+		}
+		List<CompactQueryTree> compactTrees = new ArrayList<CompactQueryTree>(trees.size());
+		for (QueryTree<N> tree : trees) {
+			compactTrees.add(dictionary.compact((QueryTree<String>) tree));
+		}
+		return (QueryTree<N>) dictionary.expand(compactLGGGenerator.getLGG(compactTrees));
+	}
+	
 	private QueryTree<N> computeLGG(QueryTree<N> tree1, QueryTree<N> tree2, boolean learnFilters){
 		calls++;
 		if(logger.isDebugEnabled()){
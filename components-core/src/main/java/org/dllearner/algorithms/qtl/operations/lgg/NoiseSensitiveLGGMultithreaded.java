@@ -23,7 +23,8 @@ import com.hp.hpl.jena.rdf.model.Model;
 @Deprecated
 public class NoiseSensitiveLGGMultithreaded<N> {
 	
-	private LGGGenerator<N> lggGenerator = new LGGGeneratorImpl<N>();
+	private LGGGeneratorImpl<N> lggGenerator;
+	private boolean useCompactTrees = true;
 	
 	private BlockingQueue<EvaluatedQueryTree<N>> todoList;
 	private SortedSet<EvaluatedQueryTree<N>> solutions;
@@ -32,9 +33,18 @@ public class NoiseSensitiveLGGMultithreaded<N> {
 	
 	public NoiseSensitiveLGGMultithreaded() {
 	}
+	
+	/**
+	 * @param useCompactTrees whether to compute the LGGs on compact query trees (default: true)
+	 */
+	public void setUseCompactTrees(boolean useCompactTrees) {
+		this.useCompactTrees = useCompactTrees;
+	}
 
 	public List<EvaluatedQueryTree<N>> computeLGG(List<QueryTree<N>> trees) {
 		this.trees = trees;
+		lggGenerator = new LGGGeneratorImpl<N>();
+		lggGenerator.setUseCompactTrees(useCompactTrees);
 		ExecutorService threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() - 1);
 		init(trees);
 		EvaluatedQueryTree<N> currentElement;
@@ -51,6 +61,7 @@ public class NoiseSensitiveLGGMultithreaded<N> {
 		while (!threadPool.isTerminated()) {
 
 		}
+		lggGenerator.shutdown();
 		return new ArrayList<EvaluatedQueryTree<N>>(solutions);
 	}
 	
@@ -24,13 +24,23 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.aksw.jena_sparql_api.cache.core.QueryExecutionFactoryCacheEx;
 import org.aksw.jena_sparql_api.core.QueryExecutionFactory;
@@ -49,11 +59,14 @@ import org.dllearner.core.owl.NamedClass;
 import org.dllearner.core.owl.TypedConstant;
 import org.dllearner.kb.LocalModelBasedSparqlEndpointKS;
 import org.dllearner.kb.SparqlEndpointKS;
+import org.dllearner.kb.sparql.QueryResultCache;
+import org.dllearner.kb.sparql.QueryThrottle;
 import org.dllearner.kb.sparql.SPARQLTasks;
 import org.dllearner.kb.sparql.SparqlEndpoint;
 import org.dllearner.learningproblems.AxiomScore;
 import org.dllearner.learningproblems.Heuristics;
 import org.dllearner.reasoning.SPARQLReasoner;
+import org.dllearner.utilities.datastructures.DistinctCounter;
 import org.dllearner.utilities.owl.AxiomComparator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -68,6 +81,8 @@ import com.hp.hpl.jena.query.ResultSet;
 import com.hp.hpl.jena.rdf.model.Model;
 import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.rdf.model.RDFNode;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
 import com.hp.hpl.jena.sparql.engine.http.QueryExceptionHTTP;
 import com.hp.hpl.jena.sparql.expr.E_Regex;
 import com.hp.hpl.jena.sparql.expr.E_Str;
@@ -96,6 +111,10 @@ public abstract class AbstractAxiomLearningAlgorithm extends AbstractComponent i
 	@ConfigOption(name="maxFetchedRows", description="The maximum number of rows fetched from the endpoint to approximate the result.", propertyEditorClass=IntegerEditor.class)
 	protected int maxFetchedRows;
 	
+	@ConfigOption(name="nrOfPrefetchedChunks", defaultValue="0", description="The number of chunk queries which are sent to the endpoint in advance " +
+			"in iterative mode, i.e. while the current chunk is processed (0 = the next chunk is requested after the current one has been processed).", propertyEditorClass=IntegerEditor.class)
+	protected int nrOfPrefetchedChunks = 0;
+	
 	protected SparqlEndpointKS ks;
 	protected SPARQLReasoner reasoner;
 	private QueryExecutionFactory qef;
@@ -118,6 +137,10 @@ public abstract class AbstractAxiomLearningAlgorithm extends AbstractComponent i
 	
 	protected boolean fullDataLoaded = false;
 	
+	// the chunk queries in flight, in the order of their offsets
+	private ExecutorService prefetchExecutor;
+	private LinkedList<Future<ResultSet>> prefetchedChunks = new LinkedList<Future<ResultSet>>();
+	
 	protected List<String> allowedNamespaces = new ArrayList<String>();
 	
 	protected ParameterizedSparqlString iterativeQueryTemplate;
@@ -177,6 +200,14 @@ public abstract class AbstractAxiomLearningAlgorithm extends AbstractComponent i
 	public void setForceSPARQL_1_0_Mode(boolean forceSPARQL_1_0_Mode) {
 		this.forceSPARQL_1_0_Mode = forceSPARQL_1_0_Mode;
 	}
+	
+	public int getNrOfPrefetchedChunks() {
+		return nrOfPrefetchedChunks;
+	}
+
+	public void setNrOfPrefetchedChunks(int nrOfPrefetchedChunks) {
+		this.nrOfPrefetchedChunks = nrOfPrefetchedChunks;
+	}
 
 	@Override
 	public void start() {
@@ -298,6 +329,10 @@ public abstract class AbstractAxiomLearningAlgorithm extends AbstractComponent i
 	
 	protected Model executeConstructQuery(String query) {
 		logger.trace("Sending query\n{} ...", query);
+		QueryThrottle throttle = ks.getQueryThrottle();
+		if(throttle != null){
+			throttle.acquire();
+		}
 		QueryExecution qe = qef.createQueryExecution(query);
 		try {
 			Model model = qe.execConstruct();
@@ -315,17 +350,36 @@ public abstract class AbstractAxiomLearningAlgorithm extends AbstractComponent i
 				logger.error("Exception executing query", e);
 			}
 			return ModelFactory.createDefaultModel();
+		} finally {
+			if(throttle != null){
+				throttle.release();
+			}
 		}
 	}
 	
 	protected ResultSet executeSelectQuery(String query) {
 		logger.trace("Sending query\n{} ...", query);
-		
+		QueryResultCache resultCache = ks.getQueryResultCache();
+		if(resultCache != null){
+			ResultSet rs = resultCache.getResultSet(query);
+			if(rs != null){
+				timeout = false;
+				return rs;
+			}
+		}
+		QueryThrottle throttle = ks.getQueryThrottle();
+		if(throttle != null){
+			throttle.acquire();
+		}
 		QueryExecution qe = qef.createQueryExecution(query);
 		try {
 			ResultSet rs = qe.execSelect();
 			timeout = false;
-			return rs;
+			if(resultCache != null){
+				rs = resultCache.cacheResultSet(query, rs);
+			}
+			// a throttled query is finished only once its result has been read
+			return throttle == null || rs instanceof ResultSetMem ? rs : new ResultSetMem(rs);
 		} catch (QueryExceptionHTTP e) {
 			if(e.getCause() instanceof SocketTimeoutException){
 				if(timeout){
@@ -339,6 +393,10 @@ public abstract class AbstractAxiomLearningAlgorithm extends AbstractComponent i
 				logger.error("Exception executing query", e);
 			}
 			return new ResultSetMem();
+		} finally {
+			if(throttle != null){
+				throttle.release();
+			}
 		}
 	}
 	
@@ -352,7 +410,28 @@ public abstract class AbstractAxiomLearningAlgorithm extends AbstractComponent i
 	
 	protected boolean executeAskQuery(String query){
 		logger.trace("Sending query\n{} ...", query);
-		return qef.createQueryExecution(query).execAsk();
+		QueryResultCache resultCache = ks.getQueryResultCache();
+		if(resultCache != null){
+			Boolean result = resultCache.getAskResult(query);
+			if(result != null){
+				return result;
+			}
+		}
+		QueryThrottle throttle = ks.getQueryThrottle();
+		if(throttle != null){
+			throttle.acquire();
+		}
+		try {
+			boolean result = qef.createQueryExecution(query).execAsk();
+			if(resultCache != null){
+				resultCache.putAskResult(query, result);
+			}
+			return result;
+		} finally {
+			if(throttle != null){
+				throttle.release();
+			}
+		}
 	}
 	
 	protected <K, V extends Comparable<V>> List<Entry<K, V>> sortByValues(Map<K, V> map){
@@ -435,16 +514,89 @@ public abstract class AbstractAxiomLearningAlgorithm extends AbstractComponent i
 	
 	protected ResultSet fetchData(){
 		setChunkConditions();
-		if(!fullDataLoaded){
+		if(fullDataLoaded){
+			stopPrefetching();
+			return new ResultSetMem();
+		}
+		// the first chunk is always fetched on its own, because its size
+		// determines the chunk size of all further queries
+		if(nrOfPrefetchedChunks <= 0 || chunkCount == 0){
 			Query query = buildQuery();
 			offset += chunkSize;
 			ResultSet rs = executeSelectQuery(query.toString());
 			chunkCount++;
 			return rs;
 		}
+		return fetchPrefetchedData();
+	}
+	
+	/**
+	 * Returns the next chunk from the prefetch pipeline. Before, the pipeline
+	 * is filled up, such that the current chunk and up to
+	 * {@link #nrOfPrefetchedChunks} following chunks are requested. No queries
+	 * beyond {@link #maxFetchedRows} or after the time limit are sent.
+	 */
+	private ResultSet fetchPrefetchedData(){
+		if(prefetchExecutor == null){
+			prefetchExecutor = Executors.newFixedThreadPool(nrOfPrefetchedChunks + 1, new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, "chunk prefetcher");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		while(prefetchedChunks.size() <= nrOfPrefetchedChunks
+				&& (maxFetchedRows == 0 || offset < maxFetchedRows)
+				&& (maxExecutionTimeInSeconds == 0 || getRemainingRuntimeInMilliSeconds() > 0)){
+			final String query = buildQuery().toString();
+			offset += chunkSize;
+			prefetchedChunks.add(prefetchExecutor.submit(new Callable<ResultSet>() {
+				@Override
+				public ResultSet call() throws Exception {
+					// the result is read completely in the worker thread, i.e.
+					// the transfer overlaps with the processing of other chunks
+					return new ResultSetMem(executeSelectQuery(query));
+				}
+			}));
+		}
+		Future<ResultSet> chunk = prefetchedChunks.poll();
+		if(chunk == null){
+			return new ResultSetMem();
+		}
+		chunkCount++;
+		try {
+			if(maxExecutionTimeInSeconds == 0){
+				return chunk.get();
+			}
+			return chunk.get(getRemainingRuntimeInMilliSeconds(), TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			logger.warn("Got timeout while waiting for chunk " + chunkCount);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			logger.error("Exception executing query", e.getCause());
+		}
+		stopPrefetching();
 		return new ResultSetMem();
 	}
 	
+	/**
+	 * Cancels all chunk queries in flight. Has to be called when the iterative
+	 * mode terminates before all prefetched chunks have been fetched.
+	 */
+	protected void stopPrefetching(){
+		for(Future<ResultSet> chunk : prefetchedChunks){
+			chunk.cancel(true);
+		}
+		prefetchedChunks.clear();
+		if(prefetchExecutor != null){
+			prefetchExecutor.shutdownNow();
+			prefetchExecutor = null;
+		}
+	}
+	
 	private void setChunkConditions() {
 		// adapt chunk size if needed
 		if (chunkCount == 1 && lastRowCount < chunkSize) {
@@ -476,6 +628,23 @@ public abstract class AbstractAxiomLearningAlgorithm extends AbstractComponent i
 		return query;
 	}
 	
+	/**
+	 * Adds a chunk of fetched triples to the working model.
+	 * @param newModel The fetched triples.
+	 * @return The triples, which were not already contained in the working model.
+	 */
+	protected List<Statement> addToWorkingModel(Model newModel){
+		List<Statement> newStatements = new ArrayList<Statement>();
+		for(StmtIterator iter = newModel.listStatements(); iter.hasNext();){
+			Statement st = iter.next();
+			if(!workingModel.contains(st)){
+				newStatements.add(st);
+			}
+		}
+		workingModel.add(newModel);
+		return newStatements;
+	}
+	
 	public void addFilterNamespace(String namespace){
 		allowedNamespaces.add(namespace);
 	}
@@ -590,6 +759,85 @@ public abstract class AbstractAxiomLearningAlgorithm extends AbstractComponent i
 		
 	}
 	
+	/**
+	 * Creates the axiom, which is evaluated by the count of a key, e.g. the
+	 * domain axiom for a class.
+	 */
+	protected interface AxiomFactory<K> {
+		/**
+		 * @return The axiom or null if the key does not lead to an axiom, e.g.
+		 * owl:Thing, which is a trivial domain.
+		 */
+		Axiom createAxiom(K key);
+	}
+	
+	/**
+	 * Running aggregation of the data fetched in iterative mode. Each chunk
+	 * only updates the counters with its own rows, i.e. the accumulated data
+	 * is not counted again for each chunk. The axioms are created once per
+	 * key and only their scores are updated, because the total number of
+	 * subjects changes with every chunk.
+	 */
+	protected class AxiomAggregation<K> {
+		
+		private DistinctCounter<Object, K> counter = new DistinctCounter<Object, K>();
+		private AxiomFactory<K> factory;
+		private Map<K, EvaluatedAxiom> axioms = new HashMap<K, EvaluatedAxiom>();
+		
+		public AxiomAggregation(AxiomFactory<K> factory) {
+			this.factory = factory;
+		}
+		
+		/**
+		 * Adds an observation of a subject, e.g. an individual with a type.
+		 * Repeated observations are only counted once.
+		 */
+		public void add(Object subject, K key) {
+			counter.add(subject, key);
+		}
+		
+		public int getNrOfSubjects() {
+			return counter.getNrOfSubjects();
+		}
+		
+		/**
+		 * Scores the axioms of all keys, where the score of an axiom is the
+		 * number of subjects of its key among all subjects.
+		 * @return The evaluated axioms ordered by the count of their keys.
+		 */
+		public List<EvaluatedAxiom> getEvaluatedAxioms() {
+			return getEvaluatedAxioms(counter.getNrOfSubjects());
+		}
+		
+		/**
+		 * @param total The number of subjects the counts are related to.
+		 * @return The evaluated axioms ordered by the count of their keys.
+		 */
+		public List<EvaluatedAxiom> getEvaluatedAxioms(int total) {
+			List<EvaluatedAxiom> evaluatedAxioms = new ArrayList<EvaluatedAxiom>();
+			for(Entry<K, Integer> entry : sortByValues(counter.getCounts())){
+				EvaluatedAxiom evAxiom = axioms.get(entry.getKey());
+				if(evAxiom == null){
+					if(axioms.containsKey(entry.getKey())){
+						continue;
+					}
+					Axiom axiom = factory.createAxiom(entry.getKey());
+					if(axiom != null){
+						evAxiom = new EvaluatedAxiom(axiom, computeScore(total, entry.getValue()), existingAxioms.contains(axiom));
+					}
+					axioms.put(entry.getKey(), evAxiom);
+					if(evAxiom == null){
+						continue;
+					}
+				} else {
+					evAxiom.setScore(computeScore(total, entry.getValue()));
+				}
+				evaluatedAxioms.add(evAxiom);
+			}
+			return evaluatedAxioms;
+		}
+	}
+	
 	class OWLFilter extends Filter<OntClass>{
 
 		@Override
@@ -20,6 +20,7 @@
 package org.dllearner.core;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -450,6 +451,43 @@ public abstract class AbstractReasonerComponent extends AbstractComponent implem
 		return returnSet;
 	}
 
+	/**
+	 * Checks for a list of individuals, e.g. the examples of a learning problem
+	 * in a fixed order, which of them are instances of a concept. Reasoners
+	 * can implement this as a single operation (e.g. one retrieval) instead of
+	 * one instance check per individual.
+	 *
+	 * @param concept A concept.
+	 * @param individuals The individuals to check.
+	 * @return A bit set of the positions in the list, where bit i is set
+	 * iff the i-th individual is an instance of the concept.
+	 */
+	public final BitSet hasType(Description concept, List<Individual> individuals) {
+		reasoningStartTimeTmp = System.nanoTime();
+		BitSet result = null;
+		try {
+			result = hasTypeImpl(concept, individuals);
+		} catch (ReasoningMethodUnsupportedException e) {
+			handleExceptions(e);
+		}
+		nrOfInstanceChecks += individuals.size();
+		nrOfMultiInstanceChecks++;
+		reasoningDurationTmp = System.nanoTime() - reasoningStartTimeTmp;
+		instanceCheckReasoningTimeNs += reasoningDurationTmp;
+		overallReasoningTimeNs += reasoningDurationTmp;
+		return result;
+	}
+
+	protected BitSet hasTypeImpl(Description concept, List<Individual> individuals)
+			throws ReasoningMethodUnsupportedException {
+		BitSet covered = new BitSet(individuals.size());
+		for (int i = 0; i < individuals.size(); i++) {
+			if (hasTypeImpl(concept, individuals.get(i)))
+				covered.set(i);
+		}
+		return covered;
+	}
+
 	@Override
 	public final Set<NamedClass> getInconsistentClasses() {
 		try {
@@ -1296,4 +1334,38 @@ public abstract class AbstractReasonerComponent extends AbstractComponent implem
 	throws ReasoningMethodUnsupportedException {
 		throw new ReasoningMethodUnsupportedException();
 	}
+	
+	/**
+	 * Computes the fuzzy membership degrees of a list of individuals, e.g. the
+	 * examples of a learning problem, in a concept. Reasoners can answer all
+	 * individuals at once instead of one query per individual.
+	 *
+	 * @param description A concept.
+	 * @param individuals The individuals.
+	 * @return The membership degree of the i-th individual at position i.
+	 */
+	public final double[] hasTypeFuzzyMembership(Description description, List<FuzzyIndividual> individuals) {
+		reasoningStartTimeTmp = System.nanoTime();
+		double[] result = null;
+		try {
+			result = hasTypeFuzzyMembershipImpl(description, individuals);
+		} catch (ReasoningMethodUnsupportedException e) {
+			handleExceptions(e);
+		}
+		nrOfInstanceChecks += individuals.size();
+		nrOfMultiInstanceChecks++;
+		reasoningDurationTmp = System.nanoTime() - reasoningStartTimeTmp;
+		instanceCheckReasoningTimeNs += reasoningDurationTmp;
+		overallReasoningTimeNs += reasoningDurationTmp;
+		return result;
+	}
+	
+	protected double[] hasTypeFuzzyMembershipImpl(Description description, List<FuzzyIndividual> individuals)
+	throws ReasoningMethodUnsupportedException {
+		double[] degrees = new double[individuals.size()];
+		for (int i = 0; i < degrees.length; i++) {
+			degrees[i] = hasTypeFuzzyMembershipImpl(description, individuals.get(i));
+		}
+		return degrees;
+	}
 }
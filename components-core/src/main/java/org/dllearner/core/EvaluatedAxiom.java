@@ -76,6 +76,10 @@ public class EvaluatedAxiom implements Comparable<EvaluatedAxiom>{
 		return score;
 	}
 	
+	public void setScore(Score score) {
+		this.score = score;
+	}
+	
 	public boolean isAsserted() {
 		return asserted;
 	}
@@ -44,6 +44,11 @@ public abstract class CardinalityRestriction extends Restriction {
 	public int getCardinality() {
 		return cardinality;
 	}
+	
+	@Override
+	protected int localHashCode() {
+		return 31 * super.localHashCode() + cardinality;
+	}
 
 	/**
 	 * @return the propertyRange
@@ -19,9 +19,11 @@
 
 package org.dllearner.core.owl;
 
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.Map;
 import java.util.Set;
 
@@ -40,7 +42,10 @@ public abstract class Description implements Cloneable, PropertyRange, KBElement
 	 */
 	private static final long serialVersionUID = -3439073654652166607L;
 	protected Description parent = null;
-    protected List<Description> children = new LinkedList<Description>();
+    protected List<Description> children = new ChildList(this);
+    
+    // cached structural hash code, 0 means that it has not been computed yet
+    private transient int structuralHashCode = 0;
     
     public abstract int getArity();
     
@@ -123,7 +128,7 @@ public abstract class Description implements Cloneable, PropertyRange, KBElement
         // The addChild operation is used to ensure that the parent links are 
         // correct, i.e. all parent links point to the new clones instead of the
         // old descriptions.
-        node.children = new LinkedList<Description>();
+        node.children = new ChildList(node);
         for(Description child : children) {
         	Description clonedChild = (Description) child.clone();
         	node.addChild(clonedChild);
@@ -279,5 +284,187 @@ public abstract class Description implements Cloneable, PropertyRange, KBElement
 	public abstract String toManchesterSyntaxString(String baseURI, Map<String,String> prefixes);
 	
 	public abstract void accept(DescriptionVisitor visitor);
+	
+	/**
+	 * Returns a hash code, which only depends on the syntactic structure of
+	 * this description, i.e. two descriptions which are equal according to
+	 * {@link org.dllearner.utilities.owl.ConceptComparator} have the same 
+	 * structural hash code. The value is cached and invalidated whenever
+	 * the children of this description or of one of its descendants change.
+	 * 
+	 * @return The structural hash code of this description.
+	 */
+	public int structuralHashCode() {
+		int hash = structuralHashCode;
+		if(hash == 0) {
+			hash = 31 * getClass().getName().hashCode() + localHashCode();
+			for(Description child : children) {
+				hash = 31 * hash + child.structuralHashCode();
+			}
+			// 0 is reserved for "not computed"
+			if(hash == 0) {
+				hash = 1;
+			}
+			structuralHashCode = hash;
+		}
+		return hash;
+	}
+	
+	/**
+	 * Hash code of the information stored in this node itself (not in its 
+	 * children), e.g. the name of a class or the property and number of a 
+	 * cardinality restriction. Subclasses carrying such information override
+	 * this method.
+	 * 
+	 * @return Hash code of the node label.
+	 */
+	protected int localHashCode() {
+		return 0;
+	}
+	
+	private void invalidateStructuralHashCode() {
+		Description d = this;
+		while(d != null && d.structuralHashCode != 0) {
+			d.structuralHashCode = 0;
+			d = d.parent;
+		}
+	}
+	
+	/**
+	 * List of children which invalidates the cached structural hash code 
+	 * of its owner on every modification, including modifications via
+	 * iterators (e.g. sorting the children).
+	 */
+	private static class ChildList extends LinkedList<Description> {
+		
+		private static final long serialVersionUID = -1925485364468263290L;
+		private final Description owner;
+		
+		public ChildList(Description owner) {
+			this.owner = owner;
+		}
+		
+		private void modified() {
+			owner.invalidateStructuralHashCode();
+		}
+		
+		@Override
+		public boolean add(Description e) {
+			modified();
+			return super.add(e);
+		}
+		
+		@Override
+		public void add(int index, Description element) {
+			modified();
+			super.add(index, element);
+		}
+		
+		@Override
+		public boolean addAll(Collection<? extends Description> c) {
+			modified();
+			return super.addAll(c);
+		}
+		
+		@Override
+		public boolean addAll(int index, Collection<? extends Description> c) {
+			modified();
+			return super.addAll(index, c);
+		}
+		
+		@Override
+		public void addFirst(Description e) {
+			modified();
+			super.addFirst(e);
+		}
+		
+		@Override
+		public void addLast(Description e) {
+			modified();
+			super.addLast(e);
+		}
+		
+		@Override
+		public Description set(int index, Description element) {
+			modified();
+			return super.set(index, element);
+		}
+		
+		@Override
+		public boolean remove(Object o) {
+			modified();
+			return super.remove(o);
+		}
+		
+		@Override
+		public Description remove(int index) {
+			modified();
+			return super.remove(index);
+		}
+		
+		@Override
+		public Description removeFirst() {
+			modified();
+			return super.removeFirst();
+		}
+		
+		@Override
+		public Description removeLast() {
+			modified();
+			return super.removeLast();
+		}
+		
+		@Override
+		public void clear() {
+			modified();
+			super.clear();
+		}
+		
+		@Override
+		public ListIterator<Description> listIterator(int index) {
+			final ListIterator<Description> it = super.listIterator(index);
+			return new ListIterator<Description>() {
+				@Override
+				public boolean hasNext() {
+					return it.hasNext();
+				}
+				@Override
+				public Description next() {
+					return it.next();
+				}
+				@Override
+				public boolean hasPrevious() {
+					return it.hasPrevious();
+				}
+				@Override
+				public Description previous() {
+					return it.previous();
+				}
+				@Override
+				public int nextIndex() {
+					return it.nextIndex();
+				}
+				@Override
+				public int previousIndex() {
+					return it.previousIndex();
+				}
+				@Override
+				public void remove() {
+					modified();
+					it.remove();
+				}
+				@Override
+				public void set(Description e) {
+					modified();
+					it.set(e);
+				}
+				@Override
+				public void add(Description e) {
+					modified();
+					it.add(e);
+				}
+			};
+		}
+	}
 
 }
@@ -112,6 +112,11 @@ public class NamedClass extends Description implements Entity, NamedKBElement, C
 	public int compareTo(NamedClass o) {
 		return name.compareTo(o.name);
 	}
+	
+	@Override
+	protected int localHashCode() {
+		return name.hashCode();
+	}
 
 	@Override
 	public int hashCode() {
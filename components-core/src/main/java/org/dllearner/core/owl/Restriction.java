@@ -41,4 +41,18 @@ public abstract class Restriction extends Description {
 		return restrictedPropertyExpression;
 	}
 	
+	@Override
+	protected int localHashCode() {
+		// consistent with RoleComparator: named properties are compared
+		// by name, inverse properties by their string representation
+		if(restrictedPropertyExpression instanceof ObjectProperty) {
+			return ((ObjectProperty) restrictedPropertyExpression).getName().hashCode();
+		} else if(restrictedPropertyExpression instanceof DatatypeProperty) {
+			return ((DatatypeProperty) restrictedPropertyExpression).getName().hashCode();
+		} else if(restrictedPropertyExpression != null) {
+			return restrictedPropertyExpression.toString().hashCode();
+		}
+		return 0;
+	}
+	
 }
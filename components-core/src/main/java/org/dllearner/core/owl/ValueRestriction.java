@@ -42,4 +42,18 @@ public abstract class ValueRestriction extends Restriction {
 		return value;
 	}
 	
+	@Override
+	protected int localHashCode() {
+		// consistent with the compareTo methods of individuals and constants
+		int valueHash = 0;
+		if(value instanceof Individual) {
+			valueHash = ((Individual) value).getName().hashCode();
+		} else if(value instanceof TypedConstant) {
+			valueHash = (((TypedConstant) value).getLiteral() + ((TypedConstant) value).getDatatype()).hashCode();
+		} else if(value instanceof UntypedConstant) {
+			valueHash = (((UntypedConstant) value).getLiteral() + ((UntypedConstant) value).getLang()).hashCode();
+		}
+		return 31 * super.localHashCode() + valueHash;
+	}
+	
 }
@@ -34,6 +34,8 @@ import org.dllearner.core.ComponentInitException;
 import org.dllearner.core.KnowledgeSource;
 import org.dllearner.core.config.ConfigOption;
 import org.dllearner.core.config.ListStringEditor;
+import org.dllearner.kb.sparql.QueryResultCache;
+import org.dllearner.kb.sparql.QueryThrottle;
 import org.dllearner.kb.sparql.SPARQLTasks;
 import org.dllearner.kb.sparql.SparqlEndpoint;
 import org.springframework.beans.propertyeditors.URLEditor;
@@ -54,6 +56,10 @@ public class SparqlEndpointKS implements KnowledgeSource {
 	private boolean supportsSPARQL_1_1 = false;
 	private boolean isRemote = true;
 	private boolean initialized = false;
+	// limits the queries sent by all components using this knowledge source (may be null)
+	private QueryThrottle queryThrottle;
+	// in-memory query results shared by all components using this knowledge source
+	private QueryResultCache queryResultCache;
 
 	// TODO: turn those into config options
 	
@@ -66,6 +72,12 @@ public class SparqlEndpointKS implements KnowledgeSource {
 	@ConfigOption(name = "namedGraphs", defaultValue="[]", required=false, propertyEditorClass = ListStringEditor.class)
 	private List<String> namedGraphURIs = new LinkedList<String>();
 	
+	@ConfigOption(name = "queryResultCacheSize", defaultValue="0", description="maximum number of result rows kept in memory for repeated queries (0 = no in-memory cache)", required=false)
+	private long queryResultCacheSize = 0;
+	
+	@ConfigOption(name = "queryResultCacheTTL", defaultValue="3600", description="time in seconds after which in-memory query results expire", required=false)
+	private long queryResultCacheTTL = 3600;
+	
 	public SparqlEndpointKS() {
 		
 	}
@@ -105,6 +117,49 @@ public class SparqlEndpointKS implements KnowledgeSource {
 		this.cache = cache;
 	}
 	
+	/**
+	 * @return The throttle for queries to the endpoint or null if queries are
+	 * not throttled.
+	 */
+	public QueryThrottle getQueryThrottle() {
+		return queryThrottle;
+	}
+
+	public void setQueryThrottle(QueryThrottle queryThrottle) {
+		this.queryThrottle = queryThrottle;
+	}
+	
+	/**
+	 * @return The in-memory cache of query results or null if results are not
+	 * cached in memory. The cache is created on first access.
+	 */
+	public synchronized QueryResultCache getQueryResultCache() {
+		if(queryResultCache == null && queryResultCacheSize > 0 && isRemote()){
+			queryResultCache = new QueryResultCache(queryResultCacheSize, queryResultCacheTTL, TimeUnit.SECONDS);
+		}
+		return queryResultCache;
+	}
+
+	public synchronized void setQueryResultCache(QueryResultCache queryResultCache) {
+		this.queryResultCache = queryResultCache;
+	}
+	
+	public long getQueryResultCacheSize() {
+		return queryResultCacheSize;
+	}
+
+	public void setQueryResultCacheSize(long queryResultCacheSize) {
+		this.queryResultCacheSize = queryResultCacheSize;
+	}
+
+	public long getQueryResultCacheTTL() {
+		return queryResultCacheTTL;
+	}
+
+	public void setQueryResultCacheTTL(long queryResultCacheTTL) {
+		this.queryResultCacheTTL = queryResultCacheTTL;
+	}
+	
 	@Override
 	public void init() throws ComponentInitException {
 		if(!initialized){
@@ -1,46 +1,135 @@
 package org.dllearner.kb.sparql;
 
-import java.util.HashMap;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
+import org.apache.log4j.Logger;
+
+import com.google.common.base.Charsets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.hash.Hashing;
 import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
 
+/**
+ * Caches the CBDs computed by another generator. CBDs are cached per
+ * resource, namespace restriction and leaf type option. A request is answered
+ * from a cached CBD of the same or a larger depth, i.e. a shallower CBD is cut
+ * out of a deeper one instead of querying the endpoint again (CBDs with types
+ * of the leafs are only reused for the same depth, since the leaf types of a
+ * deeper CBD are not contained in it).
+ *
+ * The memory used by the cache is bounded by the total number of cached triples,
+ * least recently used CBDs are evicted first. Optionally, CBDs are also written
+ * to a directory as gzipped N-Triples, such that evicted CBDs and CBDs computed
+ * in earlier runs are loaded from disk.
+ *
+ * The returned models are shared with the cache and must not be modified.
+ */
 public class CachingConciseBoundedDescriptionGenerator implements ConciseBoundedDescriptionGenerator{
-	
-	private Map<String, Model> cache;
+
+	private static final Logger logger = Logger.getLogger(CachingConciseBoundedDescriptionGenerator.class);
+
+	private static final long DEFAULT_MAX_TRIPLES = 1000000;
+	// depth of requests without explicit depth, if the recursion depth was not set
+	private static final int UNKNOWN_DEPTH = -1;
+
+	private static class CachedCBD {
+		private final int depth;
+		private final Model model;
+
+		private CachedCBD(int depth, Model model) {
+			this.depth = depth;
+			this.model = model;
+		}
+	}
+
+	private Cache<String, CachedCBD> cache;
 	private ConciseBoundedDescriptionGenerator cbdGen;
-	
+
+	private List<String> namespaces;
+	private int recursionDepth = UNKNOWN_DEPTH;
+
+	// null if CBDs are not written to disk
+	private File cacheDirectory;
+	// the depth of the CBD on disk per key hash
+	private Map<String, Integer> diskIndex = new ConcurrentHashMap<String, Integer>();
+
 	public CachingConciseBoundedDescriptionGenerator(ConciseBoundedDescriptionGenerator cbdGen) {
+		this(cbdGen, DEFAULT_MAX_TRIPLES);
+	}
+
+	/**
+	 * @param cbdGen The generator computing the CBDs.
+	 * @param maxTriples The maximum number of triples of all CBDs held in memory.
+	 */
+	public CachingConciseBoundedDescriptionGenerator(ConciseBoundedDescriptionGenerator cbdGen, long maxTriples) {
+		this(cbdGen, maxTriples, null);
+	}
+
+	/**
+	 * @param cbdGen The generator computing the CBDs.
+	 * @param maxTriples The maximum number of triples of all CBDs held in memory.
+	 * @param cacheDirectory The directory in which the CBDs are stored or null
+	 * if they are only cached in memory.
+	 */
+	public CachingConciseBoundedDescriptionGenerator(ConciseBoundedDescriptionGenerator cbdGen, long maxTriples, File cacheDirectory) {
 		this.cbdGen = cbdGen;
-		cache = new HashMap<String, Model>();
+		cache = CacheBuilder.newBuilder()
+				.maximumWeight(maxTriples)
+				.weigher(new Weigher<String, CachedCBD>() {
+					@Override
+					public int weigh(String key, CachedCBD cbd) {
+						return (int) Math.max(1, Math.min(Integer.MAX_VALUE, cbd.model.size()));
+					}
+				})
+				.recordStats()
+				.build();
+		if(cacheDirectory != null){
+			this.cacheDirectory = cacheDirectory;
+			cacheDirectory.mkdirs();
+			loadDiskIndex();
+		}
 	}
-	
+
 	public Model getConciseBoundedDescription(String resourceURI){
-		Model cbd = cache.get(resourceURI);
-		if(cbd == null){
-			cbd = cbdGen.getConciseBoundedDescription(resourceURI);
-			cache.put(resourceURI, cbd);
-		}
-		return cbd;
+		return getConciseBoundedDescription(resourceURI, recursionDepth, false);
 	}
-	
+
 	public Model getConciseBoundedDescription(String resourceURI, int depth){
-		Model cbd = cache.get(resourceURI);
-		if(cbd == null){
-			cbd = cbdGen.getConciseBoundedDescription(resourceURI, depth);
-			cache.put(resourceURI, cbd);
-		}
-		return cbd;
+		return getConciseBoundedDescription(resourceURI, depth, false);
 	}
 
 	@Override
 	public void setRestrictToNamespaces(List<String> namespaces) {
+		this.namespaces = namespaces == null ? null : new ArrayList<String>(namespaces);
 		cbdGen.setRestrictToNamespaces(namespaces);
 	}
-	
+
 	@Override
 	public void setRecursionDepth(int maxRecursionDepth) {
+		this.recursionDepth = maxRecursionDepth;
 		cbdGen.setRecursionDepth(maxRecursionDepth);
 	}
 
@@ -49,12 +138,184 @@ public class CachingConciseBoundedDescriptionGenerator implements ConciseBounded
 	 */
 	@Override
 	public Model getConciseBoundedDescription(String resourceURI, int depth, boolean withTypesForLeafs) {
-		Model cbd = cache.get(resourceURI);
-		if(cbd == null){
-			cbd = cbdGen.getConciseBoundedDescription(resourceURI, depth, withTypesForLeafs);
-			cache.put(resourceURI, cbd);
+		String key = createKey(resourceURI, depth, withTypesForLeafs);
+		// only CBDs without leaf types and of known depth can be cut out of deeper ones
+		boolean reusable = !withTypesForLeafs && depth != UNKNOWN_DEPTH;
+
+		CachedCBD cbd = cache.getIfPresent(key);
+		if(cbd == null || !covers(cbd.depth, depth, reusable)){
+			CachedCBD stored = load(key);
+			if(stored != null && covers(stored.depth, depth, reusable)){
+				cbd = stored;
+			} else {
+				Model model;
+				if(depth == UNKNOWN_DEPTH){
+					model = cbdGen.getConciseBoundedDescription(resourceURI);
+				} else if(withTypesForLeafs){
+					model = cbdGen.getConciseBoundedDescription(resourceURI, depth, true);
+				} else {
+					model = cbdGen.getConciseBoundedDescription(resourceURI, depth);
+				}
+				cbd = new CachedCBD(depth, model);
+				store(key, cbd, stored);
+			}
+			cache.put(key, cbd);
+		}
+		if(cbd.depth == depth){
+			return cbd.model;
+		}
+		return restrict(cbd.model, resourceURI, depth);
+	}
+
+	/**
+	 * @return The hit and miss statistics of the in-memory cache.
+	 */
+	public CacheStats getStats() {
+		return cache.stats();
+	}
+
+	/**
+	 * @return The number of CBDs in memory.
+	 */
+	public long size() {
+		return cache.size();
+	}
+
+	private boolean covers(int cachedDepth, int depth, boolean reusable) {
+		return cachedDepth == depth || (reusable && cachedDepth > depth);
+	}
+
+	private String createKey(String resourceURI, int depth, boolean withTypesForLeafs) {
+		StringBuilder sb = new StringBuilder(resourceURI);
+		sb.append('|').append(withTypesForLeafs);
+		if(depth == UNKNOWN_DEPTH){
+			// the default depth of the underlying generator
+			sb.append("|default");
+		}
+		if(namespaces != null && !namespaces.isEmpty()){
+			List<String> sortedNamespaces = new ArrayList<String>(namespaces);
+			Collections.sort(sortedNamespaces);
+			for (String ns : sortedNamespaces) {
+				sb.append('|').append(ns);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Computes the CBD of the given depth contained in a deeper CBD, i.e. all
+	 * triples reachable from the resource via at most depth triples.
+	 */
+	private static Model restrict(Model cbd, String resourceURI, int depth) {
+		Model model = ModelFactory.createDefaultModel();
+		model.setNsPrefixes(cbd.getNsPrefixMap());
+		Set<Resource> visited = new HashSet<Resource>();
+		Set<Resource> frontier = Collections.singleton(cbd.createResource(resourceURI));
+		for(int i = 0; i < depth && !frontier.isEmpty(); i++){
+			Set<Resource> next = new HashSet<Resource>();
+			for (Resource subject : frontier) {
+				// a resource reached before has already been expanded at a lower level
+				if(!visited.add(subject)){
+					continue;
+				}
+				StmtIterator iter = cbd.listStatements(subject, null, (Resource) null);
+				while(iter.hasNext()){
+					Statement st = iter.next();
+					model.add(st);
+					if(st.getObject().isResource()){
+						next.add(st.getObject().asResource());
+					}
+				}
+			}
+			frontier = next;
+		}
+		return model;
+	}
+
+	private String hash(String key) {
+		return Hashing.md5().hashString(key, Charsets.UTF_8).toString();
+	}
+
+	private File getFile(String hash, int depth) {
+		return new File(cacheDirectory, hash + "." + depth + ".nt.gz");
+	}
+
+	/**
+	 * Builds the index of the stored CBDs from the file names, which are
+	 * of the form hash.depth.nt.gz.
+	 */
+	private void loadDiskIndex() {
+		File[] files = cacheDirectory.listFiles();
+		if(files == null){
+			return;
+		}
+		for (File file : files) {
+			String[] parts = file.getName().split("\\.");
+			if(parts.length == 4 && parts[2].equals("nt") && parts[3].equals("gz")){
+				try {
+					int depth = Integer.parseInt(parts[1]);
+					Integer indexedDepth = diskIndex.get(parts[0]);
+					if(indexedDepth == null || depth > indexedDepth){
+						diskIndex.put(parts[0], depth);
+					}
+				} catch (NumberFormatException e) {
+					// not a CBD file
+				}
+			}
+		}
+		logger.debug("Found " + diskIndex.size() + " stored CBDs in " + cacheDirectory);
+	}
+
+	private CachedCBD load(String key) {
+		if(cacheDirectory == null){
+			return null;
+		}
+		String hash = hash(key);
+		Integer depth = diskIndex.get(hash);
+		if(depth == null){
+			return null;
+		}
+		Model model = ModelFactory.createDefaultModel();
+		try {
+			InputStream in = new GZIPInputStream(new BufferedInputStream(new FileInputStream(getFile(hash, depth))));
+			try {
+				model.read(in, null, "N-TRIPLES");
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			logger.warn("Could not read stored CBD for " + key, e);
+			diskIndex.remove(hash);
+			return null;
+		}
+		return new CachedCBD(depth, model);
+	}
+
+	/**
+	 * Writes a CBD to disk, replacing the stored CBD with the same key (if any).
+	 */
+	private void store(String key, CachedCBD cbd, CachedCBD stored) {
+		if(cacheDirectory == null){
+			return;
+		}
+		String hash = hash(key);
+		Integer storedDepth = stored == null ? null : stored.depth;
+		File file = getFile(hash, cbd.depth);
+		try {
+			OutputStream out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+			try {
+				cbd.model.write(out, "N-TRIPLES");
+			} finally {
+				out.close();
+			}
+			diskIndex.put(hash, cbd.depth);
+			if(storedDepth != null && storedDepth != cbd.depth){
+				getFile(hash, storedDepth).delete();
+			}
+		} catch (IOException e) {
+			logger.warn("Could not store CBD for " + key, e);
+			file.delete();
 		}
-		return cbd;
 	}
 
 }
@@ -1,8 +1,16 @@
 package org.dllearner.kb.sparql;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import org.aksw.jena_sparql_api.cache.core.QueryExecutionFactoryCacheEx;
@@ -18,6 +26,9 @@ import org.apache.log4j.Logger;
 
 import com.hp.hpl.jena.query.QueryExecution;
 import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Statement;
+import com.hp.hpl.jena.rdf.model.StmtIterator;
 //import org.aksw.jena_sparql_api.http.QueryExecutionFactoryHttp;
 //import com.hp.hpl.jena.sparql.engine.http.QueryEngineHTTP;
 
@@ -26,6 +37,8 @@ public class ConciseBoundedDescriptionGeneratorImpl implements ConciseBoundedDes
 	private static final Logger logger = Logger.getLogger(ConciseBoundedDescriptionGeneratorImpl.class);
 	
 	private int chunkSize = 0;
+	// the number of resources bound by the VALUES clause of a batch query
+	private int batchSize = 100;
 	
 	private Model baseModel;
 	
@@ -112,6 +125,134 @@ public class ConciseBoundedDescriptionGeneratorImpl implements ConciseBoundedDes
 		this.chunkSize = chunkSize;
 	}
 	
+	/**
+	 * @param batchSize The number of resources whose triples are fetched by a
+	 * single query in {@link #getConciseBoundedDescriptions(Collection, int, boolean)}.
+	 */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+	
+	public Map<String, Model> getConciseBoundedDescriptions(Collection<String> resourceURIs, int depth){
+		return getConciseBoundedDescriptions(resourceURIs, depth, false);
+	}
+	
+	/**
+	 * Computes the CBDs of several resources at once. Instead of one query with nested
+	 * OPTIONALs per resource, the CBDs are extracted breadth-first: for each level, the
+	 * triples of all resources reached so far are fetched by queries binding a batch
+	 * of resources via VALUES, and each resource is fetched only once, even if it
+	 * is part of several CBDs. Afterwards the triples are assigned to the CBDs of
+	 * the resources they have been reached from.
+	 * 
+	 * In contrast to {@link #getConciseBoundedDescription(String, int, boolean)},
+	 * blank nodes are not expanded, since they cannot be bound in another query.
+	 * @param resourceURIs The resources.
+	 * @param depth The depth of the CBDs.
+	 * @param withTypesForLeafs Whether to add the types of the leafs of the CBDs.
+	 * @return The CBD of each resource.
+	 */
+	public Map<String, Model> getConciseBoundedDescriptions(Collection<String> resourceURIs, int depth, boolean withTypesForLeafs){
+		Map<String, Model> cbds = new HashMap<String, Model>();
+		// the resources reached at the current level and the CBDs they have been reached for
+		Map<String, Set<String>> frontier = new HashMap<String, Set<String>>();
+		for (String resource : resourceURIs) {
+			cbds.put(resource, ModelFactory.createDefaultModel());
+			frontier.put(resource, new HashSet<String>(Collections.singleton(resource)));
+		}
+		// the outgoing triples of the resources fetched so far
+		Map<String, List<Statement>> fetched = new HashMap<String, List<Statement>>();
+		
+		// as for a single CBD, depth 0 is treated like depth 1
+		int levels = Math.max(1, depth);
+		for(int level = 0; level < levels && !frontier.isEmpty(); level++){
+			// resources reached again on a higher level are not fetched again
+			Set<String> toFetch = new HashSet<String>(frontier.keySet());
+			toFetch.removeAll(fetched.keySet());
+			fetch(toFetch, "?s ?p ?o.", "?s ?p ?o.\n" + createNamespacesFilter("?p"), fetched);
+			
+			Map<String, Set<String>> nextFrontier = new HashMap<String, Set<String>>();
+			for (Entry<String, Set<String>> entry : frontier.entrySet()) {
+				for (Statement st : fetched.get(entry.getKey())) {
+					for (String resource : entry.getValue()) {
+						cbds.get(resource).add(st);
+					}
+					if(st.getObject().isURIResource()){
+						String object = st.getObject().asResource().getURI();
+						Set<String> reachedFor = nextFrontier.get(object);
+						if(reachedFor == null){
+							reachedFor = new HashSet<String>();
+							nextFrontier.put(object, reachedFor);
+						}
+						reachedFor.addAll(entry.getValue());
+					}
+				}
+			}
+			frontier = nextFrontier;
+		}
+		
+		if(withTypesForLeafs && !frontier.isEmpty()){
+			Map<String, List<Statement>> types = new HashMap<String, List<Statement>>();
+			fetch(frontier.keySet(), "?s a ?type.", "?s a ?type.", types);
+			for (Entry<String, Set<String>> entry : frontier.entrySet()) {
+				for (Statement st : types.get(entry.getKey())) {
+					for (String resource : entry.getValue()) {
+						cbds.get(resource).add(st);
+					}
+				}
+			}
+		}
+		return cbds;
+	}
+	
+	/**
+	 * Fetches the triples constructed by the template from a pattern with subject ?s
+	 * for each of the given resources by queries binding batches of the resources via VALUES.
+	 * As for a single CBD, the result of each batch is fetched in chunks if a chunk size is set,
+	 * so that it is not cut off by the result limit of the endpoint.
+	 */
+	private void fetch(Collection<String> resources, String template, String pattern, Map<String, List<Statement>> triples){
+		for (String resource : resources) {
+			triples.put(resource, new ArrayList<Statement>());
+		}
+		List<String> resourceList = new ArrayList<String>(resources);
+		int size = Math.max(1, batchSize);
+		for(int i = 0; i < resourceList.size(); i += size){
+			StringBuilder sb = new StringBuilder();
+			sb.append("CONSTRUCT {").append(template).append("}\n");
+			sb.append("WHERE {\n");
+			sb.append("VALUES ?s {");
+			for (String resource : resourceList.subList(i, Math.min(i + size, resourceList.size()))) {
+				sb.append(" <").append(resource).append(">");
+			}
+			sb.append("}\n");
+			sb.append(pattern).append("\n");
+			sb.append("}");
+			// each solution of the pattern is a distinct triple, i.e. a chunk with
+			// fewer triples than the chunk size is the last one
+			for(int offset = 0; ; offset += chunkSize){
+				String query = sb.toString();
+				if(chunkSize > 0){
+					query += "\nLIMIT " + chunkSize + "\nOFFSET " + offset;
+				}
+				logger.trace(query);
+				QueryExecution qe = qef.createQueryExecution(query);
+				Model model = qe.execConstruct();
+				qe.close();
+				for (StmtIterator iter = model.listStatements(); iter.hasNext();) {
+					Statement st = iter.next();
+					List<Statement> subjectTriples = triples.get(st.getSubject().getURI());
+					if(subjectTriples != null){
+						subjectTriples.add(st);
+					}
+				}
+				if(chunkSize <= 0 || model.size() < chunkSize){
+					break;
+				}
+			}
+		}
+	}
+	
 	private Model getModelChunked(String resource, int depth){
 		String query = makeConstructQueryOptional(resource, chunkSize, 0, depth);
 		QueryExecution qe = qef.createQueryExecution(query);
@@ -0,0 +1,214 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.kb.sparql;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.AbstractIterator;
+import com.google.common.collect.Iterators;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.sparql.engine.ResultSetStream;
+import com.hp.hpl.jena.sparql.engine.binding.Binding;
+import com.hp.hpl.jena.sparql.engine.iterator.QueryIterPlainWrapper;
+import com.hp.hpl.jena.sparql.resultset.ResultSetMem;
+
+/**
+ * An in-memory cache of parsed query results. It is meant to sit in front of
+ * the persistent H2 cache, which has to deserialize a result set on every hit.
+ * Queries are identified by their normalized string, i.e. queries differing
+ * only in whitespace share an entry.
+ *
+ * The size of the cache is bounded by the total number of cached rows (ASK
+ * results count as one row, CONSTRUCT results as many rows as triples). Entries are evicted once the bound is reached or
+ * when their time to live has expired.
+ */
+public class QueryResultCache {
+
+	private Cache<String,Object> cache;
+	private long maxRows;
+
+	/**
+	 * @param maxRows The maximum number of rows of all cached results.
+	 * @param timeToLive The time after which an entry expires.
+	 * @param unit The unit of the time to live.
+	 */
+	public QueryResultCache(long maxRows, long timeToLive, TimeUnit unit) {
+		this.maxRows = maxRows;
+		cache = CacheBuilder.newBuilder()
+				.maximumWeight(maxRows)
+				.weigher(new Weigher<String,Object>() {
+					@Override
+					public int weigh(String query, Object result) {
+						if(result instanceof ResultSetMem){
+							return Math.max(1, ((ResultSetMem) result).size());
+						} else if(result instanceof Model){
+							return (int) Math.max(1, Math.min(Integer.MAX_VALUE, ((Model) result).size()));
+						}
+						return 1;
+					}
+				})
+				.expireAfterWrite(timeToLive, unit)
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * @param query A SELECT query.
+	 * @return The cached result of the query or null if it is not cached.
+	 * Every call returns a new result set over the cached rows.
+	 */
+	public ResultSet getResultSet(String query) {
+		Object result = cache.getIfPresent(normalize(query));
+		return result instanceof ResultSetMem ? new ResultSetMem((ResultSetMem) result) : null;
+	}
+
+	/**
+	 * Caches the result of a SELECT query.
+	 * @param query The query.
+	 * @param rs The result, which must not be consumed afterwards.
+	 */
+	public void putResultSet(String query, ResultSetMem rs) {
+		cache.put(normalize(query), rs);
+	}
+
+	/**
+	 * Caches the result of a SELECT query, unless it has more rows than the
+	 * whole cache can hold. At most that many rows are read in advance, the
+	 * rows of a larger result are passed through.
+	 * @param query The query.
+	 * @param rs The result, which must not be consumed afterwards.
+	 * @return A result set over all rows of the given result.
+	 */
+	public ResultSet cacheResultSet(String query, final ResultSet rs) {
+		List<Binding> rows = new ArrayList<Binding>();
+		while(rows.size() < maxRows && rs.hasNext()) {
+			rows.add(rs.nextBinding());
+		}
+		if(rs.hasNext()) {
+			Iterator<Binding> remainingRows = new AbstractIterator<Binding>() {
+				@Override
+				protected Binding computeNext() {
+					return rs.hasNext() ? rs.nextBinding() : endOfData();
+				}
+			};
+			return new ResultSetStream(rs.getResultVars(), rs.getResourceModel(),
+					QueryIterPlainWrapper.create(Iterators.concat(rows.iterator(), remainingRows)));
+		}
+		ResultSetMem rsMem = new ResultSetMem(new ResultSetStream(rs.getResultVars(), rs.getResourceModel(),
+				QueryIterPlainWrapper.create(rows.iterator())));
+		putResultSet(query, rsMem);
+		return new ResultSetMem(rsMem);
+	}
+
+	/**
+	 * @param query An ASK query.
+	 * @return The cached result of the query or null if it is not cached.
+	 */
+	public Boolean getAskResult(String query) {
+		Object result = cache.getIfPresent(normalize(query));
+		return result instanceof Boolean ? (Boolean) result : null;
+	}
+
+	public void putAskResult(String query, boolean result) {
+		cache.put(normalize(query), result);
+	}
+
+	/**
+	 * @param query A CONSTRUCT query.
+	 * @return A copy of the cached result of the query or null if it is not
+	 * cached.
+	 */
+	public Model getModel(String query) {
+		Object result = cache.getIfPresent(normalize(query));
+		if(result instanceof Model) {
+			return ModelFactory.createDefaultModel().add((Model) result);
+		}
+		return null;
+	}
+
+	/**
+	 * Caches a copy of the result of a CONSTRUCT query, unless it has more
+	 * triples than the whole cache can hold. Each triple counts as one row.
+	 * @param query The query.
+	 * @param model The result.
+	 */
+	public void putModel(String query, Model model) {
+		if(model.size() <= maxRows) {
+			cache.put(normalize(query), ModelFactory.createDefaultModel().add(model));
+		}
+	}
+
+	public void invalidate() {
+		cache.invalidateAll();
+	}
+
+	public long size() {
+		return cache.size();
+	}
+
+	/**
+	 * @return The hit and miss statistics of the cache.
+	 */
+	public CacheStats getStats() {
+		return cache.stats();
+	}
+
+	/**
+	 * Trims the query and replaces each sequence of whitespace outside of
+	 * string literals by a single space.
+	 */
+	static String normalize(String query) {
+		StringBuilder sb = new StringBuilder(query.length());
+		char quote = 0;
+		boolean whitespace = false;
+		for (int i = 0; i < query.length(); i++) {
+			char c = query.charAt(i);
+			if(quote != 0) {
+				sb.append(c);
+				if(c == '\\' && i + 1 < query.length()) {
+					sb.append(query.charAt(++i));
+				} else if(c == quote) {
+					quote = 0;
+				}
+			} else if(Character.isWhitespace(c)) {
+				whitespace = true;
+			} else {
+				if(whitespace && sb.length() > 0) {
+					sb.append(' ');
+				}
+				whitespace = false;
+				if(c == '"' || c == '\'') {
+					quote = c;
+				}
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+}
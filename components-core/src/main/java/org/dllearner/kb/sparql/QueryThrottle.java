@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.kb.sparql;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the load, which concurrently running components put on a SPARQL
+ * endpoint: at most a fixed number of queries are executed at the same time
+ * and query starts are spaced, such that a maximum number of queries per
+ * second is not exceeded. A throttle is attached to a
+ * {@link org.dllearner.kb.SparqlEndpointKS}, i.e. it applies to all
+ * components sharing the knowledge source.
+ *
+ * Each query has to be enclosed in {@link #acquire()} and {@link #release()}.
+ */
+public class QueryThrottle {
+
+	// null if the number of concurrent queries is not limited
+	private Semaphore permits;
+	// the minimum time between two query starts (0 = no rate limit)
+	private long minIntervalNanos;
+	// the earliest start time of the next query
+	private long nextStart = System.nanoTime();
+
+	/**
+	 * @param maxConcurrentQueries The maximum number of queries executed at
+	 * the same time (0 = unlimited).
+	 * @param maxQueriesPerSecond The maximum number of queries started per
+	 * second (0 = unlimited).
+	 */
+	public QueryThrottle(int maxConcurrentQueries, double maxQueriesPerSecond) {
+		if(maxConcurrentQueries > 0) {
+			permits = new Semaphore(maxConcurrentQueries, true);
+		}
+		if(maxQueriesPerSecond > 0) {
+			minIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / maxQueriesPerSecond);
+		}
+	}
+
+	/**
+	 * Waits until a query may be sent.
+	 */
+	public void acquire() {
+		if(permits != null) {
+			permits.acquireUninterruptibly();
+		}
+		if(minIntervalNanos > 0) {
+			long start;
+			synchronized (this) {
+				start = Math.max(nextStart, System.nanoTime());
+				nextStart = start + minIntervalNanos;
+			}
+			long delay = start - System.nanoTime();
+			boolean interrupted = false;
+			while(delay > 0) {
+				try {
+					TimeUnit.NANOSECONDS.sleep(delay);
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+				delay = start - System.nanoTime();
+			}
+			if(interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Has to be called when a query, which was started after
+	 * {@link #acquire()}, has finished.
+	 */
+	public void release() {
+		if(permits != null) {
+			permits.release();
+		}
+	}
+}
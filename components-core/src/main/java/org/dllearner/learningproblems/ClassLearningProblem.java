@@ -19,6 +19,7 @@
 
 package org.dllearner.learningproblems;
 
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -44,6 +45,8 @@ import org.dllearner.core.owl.SubClassAxiom;
 import org.dllearner.learningproblems.Heuristics.HeuristicType;
 import org.dllearner.utilities.Helper;
 
+import com.google.common.cache.CacheStats;
+
 /**
  * The problem of learning the description of an existing class
  * in an OWL ontology.
@@ -52,7 +55,7 @@ import org.dllearner.utilities.Helper;
  *
  */
 @ComponentAnn(name = "ClassLearningProblem", shortName = "clp", version = 0.6)
-public class ClassLearningProblem extends AbstractLearningProblem {
+public class ClassLearningProblem extends AbstractLearningProblem implements IncrementalLearningProblem {
 	
 	private static Logger logger = Logger.getLogger(ClassLearningProblem.class);
     private long nanoStartTime;
@@ -95,6 +98,20 @@ public class ClassLearningProblem extends AbstractLearningProblem {
 	@ConfigOption(name = "checkConsistency", description = "whether to check for consistency of suggestions (when added to ontology)", required=false, defaultValue="true")
 	private boolean checkConsistency = true;
 	
+	@ConfigOption(name = "useEvaluationCache", description = "Caches the instances covered by evaluated concepts and reuses them for later evaluations of the same concept and its refinements.", defaultValue = "false", required = false)
+	private boolean useEvaluationCache = false;
+	
+	@ConfigOption(name = "evaluationCacheMaxEntries", description = "The maximum number of concepts stored in the evaluation cache.", defaultValue = "100000", required = false)
+	private long evaluationCacheMaxEntries = EvaluationCache.DEFAULT_MAX_ENTRIES;
+	
+	@ConfigOption(name = "evaluationCacheMaxMemory", description = "The approximate memory (in MB) the evaluation cache may occupy. If set, it takes precedence over the maximum number of entries.", defaultValue = "0", required = false)
+	private int evaluationCacheMaxMemory = 0;
+	
+	private EvaluationCache evaluationCache;
+	private CoverageChecker coverageChecker;
+	private BitSet classInstanceBits;
+	private BitSet superClassInstanceBits;
+	
 	public ClassLearningProblem() {
 		
 	}
@@ -217,6 +234,19 @@ public class ClassLearningProblem extends AbstractLearningProblem {
 //			System.out.println("negated class instances: " + negatedClassInstances);
 		}
 		
+		if(useEvaluationCache) {
+			// a cache set from outside is kept, e.g. if it is shared by several learning problems
+			if(evaluationCache == null || !evaluationCache.containsExamples(classAndSuperClassInstances)) {
+				evaluationCache = new EvaluationCache(classAndSuperClassInstances, evaluationCacheMaxEntries, evaluationCacheMaxMemory * 1024L * 1024L);
+			}
+			coverageChecker = evaluationCache.getCoverageChecker();
+		} else {
+			evaluationCache = null;
+			coverageChecker = new CoverageChecker(classAndSuperClassInstances);
+		}
+		classInstanceBits = coverageChecker.toBitSet(classInstances);
+		superClassInstanceBits = coverageChecker.toBitSet(superClassInstances);
+		
 //		System.out.println(classInstances.size() + " " + superClassInstances.size());
 	}
 		
@@ -226,6 +256,10 @@ public class ClassLearningProblem extends AbstractLearningProblem {
 		// TODO: reuse code to ensure that we never return inconsistent results
 		// between getAccuracy, getAccuracyOrTooWeak and computeScore
 		
+		if(evaluationCache != null) {
+			return createScore(description, evaluationCache.getCoverage(description, getReasoner()));
+		}
+		
 		// overhang
 		Set<Individual> additionalInstances = new TreeSet<Individual>();
 		for(Individual ind : superClassInstances) {
@@ -242,6 +276,26 @@ public class ClassLearningProblem extends AbstractLearningProblem {
 			}
 		}
 		
+		return createScore(description, coveredInstances, additionalInstances);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.dllearner.learningproblems.IncrementalLearningProblem#computeScore(org.dllearner.core.owl.Description, java.util.BitSet)
+	 */
+	@Override
+	public ClassScore computeScore(Description child, BitSet parentCoverage) {
+		return createScore(child, getCoverage(child, null, parentCoverage));
+	}
+	
+	private ClassScore createScore(Description description, BitSet covered) {
+		BitSet additional = (BitSet) covered.clone();
+		additional.and(superClassInstanceBits);
+		BitSet coveredClassInstances = (BitSet) covered.clone();
+		coveredClassInstances.and(classInstanceBits);
+		return createScore(description, coverageChecker.toIndividuals(coveredClassInstances), coverageChecker.toIndividuals(additional));
+	}
+	
+	private ClassScore createScore(Description description, Set<Individual> coveredInstances, Set<Individual> additionalInstances) {
 		double recall = coveredInstances.size()/(double)classInstances.size();
 		double precision = (additionalInstances.size() + coveredInstances.size() == 0) ? 0 : coveredInstances.size()/(double)(coveredInstances.size()+additionalInstances.size());
 		// for each description with less than 100% coverage, we check whether it is
@@ -583,6 +637,16 @@ public class ClassLearningProblem extends AbstractLearningProblem {
 			
 		} else if (heuristic.equals(HeuristicType.AMEASURE) || heuristic.equals(HeuristicType.FMEASURE) || heuristic.equals(HeuristicType.PRED_ACC)) {
 			
+			if(evaluationCache != null) {
+				// the covered instances are computed at once, so the time limit
+				// can only be checked afterwards
+				BitSet covered = evaluationCache.getCoverage(description, getReasoner());
+				if(terminationTimeExpired()){
+					return 0;
+				}
+				return getAccuracyOrTooWeak(description, covered, noise);
+			}
+			
 			// computing R(C) restricted to relevant instances
 			int additionalInstances = 0;
 			for(Individual ind : superClassInstances) {
@@ -605,39 +669,8 @@ public class ClassLearningProblem extends AbstractLearningProblem {
 				}
 			}
 			
-			double recall = coveredInstances/(double)classInstances.size();
+			return getAccuracyOrTooWeak(coveredInstances, additionalInstances, noise);
 			
-			// noise computation is incorrect
-//			if(recall < 1 - noise) {
-//				return -1;
-//			}
-			
-			double precision = (additionalInstances + coveredInstances == 0) ? 0 : coveredInstances / (double) (coveredInstances + additionalInstances);
-
-			if(heuristic.equals(HeuristicType.AMEASURE)) {
-				// best reachable concept has same recall and precision 1:
-				// 1/t+1 * (t*r + 1)
-				if((coverageFactor*recall+1)/(double)(coverageFactor+1) <(1-noise)) {
-					return -1;
-				} else {
-					return Heuristics.getAScore(recall, precision, coverageFactor);
-				}
-			} else if(heuristic.equals(HeuristicType.FMEASURE)) {
-				// best reachable concept has same recall and precision 1:
-				if(((1+Math.sqrt(coverageFactor))*recall)/(Math.sqrt(coverageFactor)+1)<1-noise) {
-					return -1;
-				} else {
-					return getFMeasure(recall, precision);
-				}
-			} else if(heuristic.equals(HeuristicType.PRED_ACC)) {
-				if((coverageFactor * coveredInstances + superClassInstances.size()) / (double) (coverageFactor * classInstances.size() + superClassInstances.size()) < 1 -noise) {
-					return -1;
-				} else {
-					// correctly classified divided by all examples
-					return (coverageFactor * coveredInstances + superClassInstances.size() - additionalInstances) / (double) (coverageFactor * classInstances.size() + superClassInstances.size());					
-				}
-			}
-
 //			return heuristic.equals(HeuristicType.FMEASURE) ? getFMeasure(recall, precision) : getAccuracy(recall, precision);			
 		} else if (heuristic.equals(HeuristicType.GEN_FMEASURE)) {
 			
@@ -703,6 +736,86 @@ public class ClassLearningProblem extends AbstractLearningProblem {
 		throw new Error("ClassLearningProblem error: not implemented");
 	}
 	
+	// computes A-measure, F-measure or predictive accuracy from the number of
+	// covered class instances and covered super class instances
+	private double getAccuracyOrTooWeak(int coveredInstances, int additionalInstances, double noise) {
+		double recall = coveredInstances/(double)classInstances.size();
+		
+		// noise computation is incorrect
+//		if(recall < 1 - noise) {
+//			return -1;
+//		}
+		
+		double precision = (additionalInstances + coveredInstances == 0) ? 0 : coveredInstances / (double) (coveredInstances + additionalInstances);
+
+		if(heuristic.equals(HeuristicType.AMEASURE)) {
+			// best reachable concept has same recall and precision 1:
+			// 1/t+1 * (t*r + 1)
+			if((coverageFactor*recall+1)/(double)(coverageFactor+1) <(1-noise)) {
+				return -1;
+			} else {
+				return Heuristics.getAScore(recall, precision, coverageFactor);
+			}
+		} else if(heuristic.equals(HeuristicType.FMEASURE)) {
+			// best reachable concept has same recall and precision 1:
+			if(((1+Math.sqrt(coverageFactor))*recall)/(Math.sqrt(coverageFactor)+1)<1-noise) {
+				return -1;
+			} else {
+				return getFMeasure(recall, precision);
+			}
+		} else if(heuristic.equals(HeuristicType.PRED_ACC)) {
+			if((coverageFactor * coveredInstances + superClassInstances.size()) / (double) (coverageFactor * classInstances.size() + superClassInstances.size()) < 1 -noise) {
+				return -1;
+			} else {
+				// correctly classified divided by all examples
+				return (coverageFactor * coveredInstances + superClassInstances.size() - additionalInstances) / (double) (coverageFactor * classInstances.size() + superClassInstances.size());					
+			}
+		}
+		throw new Error("ClassLearningProblem error: not implemented");
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.dllearner.learningproblems.IncrementalLearningProblem#getCoverage(org.dllearner.core.owl.Description)
+	 */
+	@Override
+	public BitSet getCoverage(Description description) {
+		if(evaluationCache != null) {
+			return evaluationCache.getCoverage(description, getReasoner());
+		}
+		return coverageChecker.getCoverage(getReasoner(), description);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.dllearner.learningproblems.IncrementalLearningProblem#getCoverage(org.dllearner.core.owl.Description, org.dllearner.core.owl.Description, java.util.BitSet)
+	 */
+	@Override
+	public BitSet getCoverage(Description child, Description parent, BitSet parentCoverage) {
+		if(evaluationCache != null) {
+			return evaluationCache.getRefinementCoverage(child, getReasoner(), parent, parentCoverage);
+		}
+		return coverageChecker.getRefinementCoverage(getReasoner(), child, parent, parentCoverage);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.dllearner.learningproblems.IncrementalLearningProblem#getAccuracyOrTooWeak(org.dllearner.core.owl.Description, java.util.BitSet, double)
+	 */
+	@Override
+	public double getAccuracyOrTooWeak(Description description, BitSet coverage, double noise) {
+		int coveredInstances = CoverageChecker.getNrOfCovered(coverage, classInstanceBits);
+		int additionalInstances = CoverageChecker.getNrOfCovered(coverage, superClassInstanceBits);
+		if(heuristic.equals(HeuristicType.JACCARD)) {
+			if(coveredInstances / (double) classInstances.size() <= 1 - noise) {
+				return -1;
+			}
+			return Heuristics.getJaccardCoefficient(coveredInstances, classInstances.size() + additionalInstances);
+		} else if (heuristic.equals(HeuristicType.AMEASURE) || heuristic.equals(HeuristicType.FMEASURE) || heuristic.equals(HeuristicType.PRED_ACC)) {
+			return getAccuracyOrTooWeak(coveredInstances, additionalInstances, noise);
+		} else {
+			// the generalised F-measure also needs instance checks for the negated description
+			return getAccuracyOrTooWeakExact(description, noise);
+		}
+	}
+	
 	private boolean terminationTimeExpired(){
 		boolean val = ((System.nanoTime() - nanoStartTime) >= (maxExecutionTimeInSeconds*1000000000l));
 		if(val) {
@@ -726,6 +839,10 @@ public class ClassLearningProblem extends AbstractLearningProblem {
 	// please note that getting recall and precision wastes some computational
 	// resource, because both methods need to compute the covered instances
 	public double getRecall(Description description) {
+		if(evaluationCache != null) {
+			BitSet covered = evaluationCache.getCoverage(description, getReasoner());
+			return CoverageChecker.getNrOfCovered(covered, classInstanceBits)/(double)classInstances.size();
+		}
 		int coveredInstances = 0;
 		for(Individual ind : classInstances) {
 			if(getReasoner().hasType(description, ind)) {
@@ -932,4 +1049,49 @@ public class ClassLearningProblem extends AbstractLearningProblem {
 	public void setAccuracyMethod(String accuracyMethod) {
 		this.accuracyMethod = accuracyMethod;
 	}
+
+	public boolean isUseEvaluationCache() {
+		return useEvaluationCache;
+	}
+
+	public void setUseEvaluationCache(boolean useEvaluationCache) {
+		this.useEvaluationCache = useEvaluationCache;
+	}
+
+	public long getEvaluationCacheMaxEntries() {
+		return evaluationCacheMaxEntries;
+	}
+
+	public void setEvaluationCacheMaxEntries(long evaluationCacheMaxEntries) {
+		this.evaluationCacheMaxEntries = evaluationCacheMaxEntries;
+	}
+
+	public int getEvaluationCacheMaxMemory() {
+		return evaluationCacheMaxMemory;
+	}
+
+	public void setEvaluationCacheMaxMemory(int evaluationCacheMaxMemory) {
+		this.evaluationCacheMaxMemory = evaluationCacheMaxMemory;
+	}
+
+	public EvaluationCache getEvaluationCache() {
+		return evaluationCache;
+	}
+
+	/**
+	 * Sets the evaluation cache, e.g. to share it between several learning
+	 * problems. Only has an effect if the evaluation cache is enabled.
+	 * @param evaluationCache The cache to use.
+	 */
+	public void setEvaluationCache(EvaluationCache evaluationCache) {
+		this.evaluationCache = evaluationCache;
+	}
+
+	/**
+	 * @return Hits, misses and evictions of the evaluation cache or null if
+	 * the cache is not used.
+	 */
+	public CacheStats getEvaluationCacheStats() {
+		return evaluationCache == null ? null : evaluationCache.getStats();
+	}
 }
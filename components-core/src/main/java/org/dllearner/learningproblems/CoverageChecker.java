@@ -0,0 +1,211 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.learningproblems;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.dllearner.core.AbstractReasonerComponent;
+import org.dllearner.core.owl.Description;
+import org.dllearner.core.owl.Individual;
+import org.dllearner.core.owl.Intersection;
+import org.dllearner.utilities.owl.DescriptionEquivalence;
+
+import com.google.common.base.Equivalence;
+
+/**
+ * Assigns a fixed position to each example of a learning problem, such that
+ * sets of covered examples can be represented as bit sets, and computes the
+ * covered examples of concepts by batch instance checks, see
+ * {@link AbstractReasonerComponent#hasType(Description, List)}.
+ *
+ * If a concept is a refinement of another concept, which is more special
+ * w.r.t. subsumption (as it is the case for all refinements of downward
+ * refinement operators like {@link org.dllearner.refinementoperators.RhoDRDown}),
+ * only the examples covered by the more general concept need to be checked.
+ *
+ */
+public class CoverageChecker {
+
+	// the examples in a fixed order and their position in this order
+	private Individual[] examples;
+	private Map<Individual,Integer> exampleIndex;
+
+	public CoverageChecker(Collection<Individual> examples) {
+		SortedSet<Individual> sortedExamples = new TreeSet<Individual>(examples);
+		this.examples = sortedExamples.toArray(new Individual[sortedExamples.size()]);
+		exampleIndex = new HashMap<Individual,Integer>();
+		for(int i=0; i<this.examples.length; i++) {
+			exampleIndex.put(this.examples[i], i);
+		}
+	}
+
+	/**
+	 * Computes the examples covered by a concept.
+	 * @param reasoner The reasoner used for instance checks.
+	 * @param concept A concept.
+	 * @return The covered examples.
+	 */
+	public BitSet getCoverage(AbstractReasonerComponent reasoner, Description concept) {
+		return reasoner.hasType(concept, getExamples());
+	}
+
+	/**
+	 * Computes which of the given candidate examples are covered by a concept.
+	 * @param reasoner The reasoner used for instance checks.
+	 * @param concept A concept.
+	 * @param candidates The examples, which should be checked.
+	 * @return The covered examples among the candidates.
+	 */
+	public BitSet getCoverage(AbstractReasonerComponent reasoner, Description concept, BitSet candidates) {
+		if(candidates.cardinality() == examples.length) {
+			return reasoner.hasType(concept, getExamples());
+		}
+		// check the candidates in one batch and map their positions back
+		int[] positions = new int[candidates.cardinality()];
+		List<Individual> candidateExamples = new ArrayList<Individual>(positions.length);
+		for(int i=candidates.nextSetBit(0), j=0; i>=0; i=candidates.nextSetBit(i+1), j++) {
+			positions[j] = i;
+			candidateExamples.add(examples[i]);
+		}
+		BitSet coveredCandidates = reasoner.hasType(concept, candidateExamples);
+		BitSet covered = new BitSet(examples.length);
+		for(int j=coveredCandidates.nextSetBit(0); j>=0; j=coveredCandidates.nextSetBit(j+1)) {
+			covered.set(positions[j]);
+		}
+		return covered;
+	}
+
+	/**
+	 * Computes the examples covered by a refinement of a concept. The refinement
+	 * has to be more special than the concept, so only the examples covered by
+	 * the concept are checked. If the refinement just adds a conjunct to the
+	 * concept, only the new conjunct is checked.
+	 * @param reasoner The reasoner used for instance checks.
+	 * @param child The refinement.
+	 * @param parent The refined concept (may be null if it is not known).
+	 * @param parentCoverage The examples covered by the refined concept.
+	 * @return The examples covered by the refinement.
+	 */
+	public BitSet getRefinementCoverage(AbstractReasonerComponent reasoner, Description child, Description parent, BitSet parentCoverage) {
+		Description newConjunct = getNewConjunct(child, parent);
+		return getCoverage(reasoner, newConjunct == null ? child : newConjunct, parentCoverage);
+	}
+
+	/**
+	 * Checks whether a concept is a conjunction of another concept (or all of
+	 * its conjuncts) and exactly one further conjunct.
+	 * @param child A concept.
+	 * @param parent Another concept (may be null).
+	 * @return The additional conjunct or null if the child does not have this form.
+	 */
+	public static Description getNewConjunct(Description child, Description parent) {
+		if(parent == null || !(child instanceof Intersection)) {
+			return null;
+		}
+		List<Description> parentConjuncts = (parent instanceof Intersection) ? parent.getChildren() : Collections.singletonList(parent);
+		if(child.getChildren().size() != parentConjuncts.size() + 1) {
+			return null;
+		}
+		Set<Equivalence.Wrapper<Description>> parentSet = new HashSet<Equivalence.Wrapper<Description>>();
+		for(Description conjunct : parentConjuncts) {
+			parentSet.add(DescriptionEquivalence.instance.wrap(conjunct));
+		}
+		Description newConjunct = null;
+		int matched = 0;
+		for(Description conjunct : child.getChildren()) {
+			if(parentSet.contains(DescriptionEquivalence.instance.wrap(conjunct))) {
+				matched++;
+			} else {
+				newConjunct = conjunct;
+			}
+		}
+		return (matched == parentConjuncts.size()) ? newConjunct : null;
+	}
+
+	/**
+	 * @param individuals A collection of examples.
+	 * @return The bit set of the positions of the examples (individuals,
+	 * which are not examples, are ignored).
+	 */
+	public BitSet toBitSet(Collection<Individual> individuals) {
+		BitSet bits = new BitSet(examples.length);
+		for(Individual ind : individuals) {
+			Integer index = exampleIndex.get(ind);
+			if(index != null) {
+				bits.set(index);
+			}
+		}
+		return bits;
+	}
+
+	public SortedSet<Individual> toIndividuals(BitSet bits) {
+		SortedSet<Individual> individuals = new TreeSet<Individual>();
+		for(int i=bits.nextSetBit(0); i>=0; i=bits.nextSetBit(i+1)) {
+			individuals.add(examples[i]);
+		}
+		return individuals;
+	}
+
+	/**
+	 * @return The position of the example or -1 if the individual is
+	 * not an example.
+	 */
+	public int getIndex(Individual example) {
+		Integer index = exampleIndex.get(example);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @return True if all individuals are examples.
+	 */
+	public boolean containsExamples(Collection<Individual> individuals) {
+		return exampleIndex.keySet().containsAll(individuals);
+	}
+
+	public List<Individual> getExamples() {
+		return Arrays.asList(examples);
+	}
+
+	public int getNrOfExamples() {
+		return examples.length;
+	}
+
+	/**
+	 * @param covered Covered examples.
+	 * @param examples A subset of the examples, e.g. the positive examples.
+	 * @return The number of examples in the subset, which are covered.
+	 */
+	public static int getNrOfCovered(BitSet covered, BitSet examples) {
+		BitSet tmp = (BitSet) covered.clone();
+		tmp.and(examples);
+		return tmp.cardinality();
+	}
+}
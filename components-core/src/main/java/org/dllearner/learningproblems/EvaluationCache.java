@@ -19,49 +19,194 @@
 
 package org.dllearner.learningproblems;
 
-import java.util.Map;
-import java.util.Set;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
 import java.util.SortedSet;
-import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.dllearner.core.AbstractReasonerComponent;
 import org.dllearner.core.owl.Description;
 import org.dllearner.core.owl.Individual;
 import org.dllearner.core.owl.Intersection;
+import org.dllearner.core.owl.Negation;
 import org.dllearner.core.owl.Union;
-import org.dllearner.utilities.Helper;
 import org.dllearner.utilities.datastructures.SortedSetTuple;
-import org.dllearner.utilities.owl.ConceptComparator;
+import org.dllearner.utilities.owl.DescriptionEquivalence;
+
+import com.google.common.base.Equivalence;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 /**
  * Caches results of previous concept evaluation to speed up
- * further evaluations. Implements a fast evaluation approach,
- * which tries to infer the covered examples of a given concept
- * from previous results.
- * 
- * TODO Under construction.
- * @author Jens Lehmann
+ * further evaluations. For each concept, the set of covered examples
+ * is stored as a bit set over a fixed indexing of the examples of the
+ * learning problem. If the covered examples of a concept are not
+ * cached, the cache tries to infer as many of them as possible from
+ * the cached results of its direct sub-concepts and only asks the
+ * reasoner for the remaining examples.
+ *
+ * The cache is bounded either by the number of entries or by an
+ * (approximated) memory budget, and evicts least recently used entries
+ * once the bound is reached. It can be accessed concurrently, i.e. it
+ * can be shared between the worker threads of a parallel learning
+ * algorithm. Hits, misses and evictions are recorded and can be
+ * retrieved via {@link #getStats()}.
  *
  */
 public class EvaluationCache {
 
-	// maps a concept to a list of individuals it covers
-	private Map<Description,SortedSet<Individual>> cache;
-	private boolean checkForEqualConcepts = false;
-	
-	// concept comparator for concept indexing 
-	// (so only logarithmic time complexity is needed to access a cached object)
-	private ConceptComparator conceptComparator;
-	
-	private SortedSet<Individual> examples;
-	
-	public EvaluationCache(SortedSet<Individual> examples) {
-		this.examples = examples;
-		conceptComparator = new ConceptComparator();
-		cache = new TreeMap<Description,SortedSet<Individual>>(conceptComparator);
-	}
-	
-	public void put(Description concept, SortedSet<Individual> individuals) {
-		cache.put(concept, individuals);
+	/**
+	 * The default maximum number of cached concepts.
+	 */
+	public static final long DEFAULT_MAX_ENTRIES = 100000;
+
+	// maps a concept to the examples it covers; concepts are indexed
+	// by their structural hash code, so access takes constant time
+	private Cache<Equivalence.Wrapper<Description>,BitSet> cache;
+	// misses of the lookups preceding a load, which are counted again by the load itself
+	private AtomicLong lookupMisses = new AtomicLong();
+
+	// assigns the positions of the examples in the bit sets
+	private CoverageChecker coverageChecker;
+	private int nrOfExamples;
+
+	/**
+	 * Creates a cache holding at most {@link #DEFAULT_MAX_ENTRIES} concepts.
+	 * @param examples The examples, which are evaluated.
+	 */
+	public EvaluationCache(Collection<Individual> examples) {
+		this(examples, DEFAULT_MAX_ENTRIES, 0);
+	}
+
+	/**
+	 * Creates a bounded evaluation cache.
+	 * @param examples The examples, which are evaluated.
+	 * @param maxEntries The maximum number of cached concepts. This
+	 * value is ignored if a memory budget is specified.
+	 * @param maxMemory The approximate maximum number of bytes occupied
+	 * by cached entries or 0 if the cache should be bounded by the number
+	 * of entries.
+	 */
+	public EvaluationCache(Collection<Individual> examples, long maxEntries, long maxMemory) {
+		coverageChecker = new CoverageChecker(examples);
+		nrOfExamples = coverageChecker.getNrOfExamples();
+
+		CacheBuilder<Object,Object> builder = CacheBuilder.newBuilder()
+				.concurrencyLevel(Runtime.getRuntime().availableProcessors())
+				.recordStats();
+		if(maxMemory > 0) {
+			final int bitSetSize = 16 + 8 * (nrOfExamples / 64 + 1);
+			cache = builder.maximumWeight(maxMemory).weigher(new Weigher<Equivalence.Wrapper<Description>,BitSet>() {
+				@Override
+				public int weigh(Equivalence.Wrapper<Description> key, BitSet value) {
+					// rough estimate: a few dozen bytes per node of the concept
+					// and the words of the bit set
+					return 32 * key.get().getLength() + bitSetSize;
+				}
+			}).build();
+		} else {
+			cache = builder.maximumSize(maxEntries).build();
+		}
+	}
+
+	/**
+	 * Returns the examples covered by a concept, if they are cached.
+	 * @param concept A concept.
+	 * @return The covered examples (the returned bit set can be modified
+	 * by the caller) or null if the concept is not cached.
+	 */
+	public BitSet getCoverage(Description concept) {
+		BitSet covered = cache.getIfPresent(DescriptionEquivalence.instance.wrap(concept));
+		return covered == null ? null : (BitSet) covered.clone();
+	}
+
+	/**
+	 * Returns the examples covered by a concept. If they are not cached,
+	 * they are inferred from cached sub-concepts where possible and the
+	 * remaining examples are checked by the reasoner. Concurrent requests
+	 * for the same concept wait for each other, so each concept is
+	 * evaluated only once.
+	 * @param concept A concept.
+	 * @param reasoner The reasoner used for instance checks.
+	 * @return The covered examples (the returned bit set can be modified
+	 * by the caller).
+	 */
+	public BitSet getCoverage(Description concept, AbstractReasonerComponent reasoner) {
+		return getRefinementCoverage(concept, reasoner, null, null);
+	}
+
+	/**
+	 * Returns the examples covered by a refinement of a concept, which is more
+	 * special than the concept. If they are not cached, only the examples
+	 * covered by the refined concept are checked (see
+	 * {@link CoverageChecker#getRefinementCoverage(AbstractReasonerComponent, Description, Description, BitSet)}).
+	 * @param child The refinement.
+	 * @param reasoner The reasoner used for instance checks.
+	 * @param parent The refined concept (may be null if it is not known).
+	 * @param parentCoverage The examples covered by the refined concept or
+	 * null if they are not known.
+	 * @return The covered examples (the returned bit set can be modified
+	 * by the caller).
+	 */
+	public BitSet getRefinementCoverage(final Description child, final AbstractReasonerComponent reasoner, final Description parent, final BitSet parentCoverage) {
+		BitSet covered = cache.getIfPresent(DescriptionEquivalence.instance.wrap(child));
+		if(covered != null) {
+			return (BitSet) covered.clone();
+		}
+		lookupMisses.incrementAndGet();
+		try {
+			// we store a copy of the concept, because learning algorithms are
+			// allowed to modify descriptions after they have been evaluated
+			covered = cache.get(DescriptionEquivalence.instance.wrap(child.clone()), new Callable<BitSet>() {
+				@Override
+				public BitSet call() throws Exception {
+					return computeCoverage(child, reasoner, parent, parentCoverage);
+				}
+			});
+			return (BitSet) covered.clone();
+		} catch (ExecutionException e) {
+			throw new UncheckedExecutionException(e.getCause());
+		}
+	}
+
+	private BitSet computeCoverage(Description concept, AbstractReasonerComponent reasoner, Description parent, BitSet parentCoverage) {
+		BitSet[] inferred = inferCoverage(concept);
+		BitSet covered = inferred[0];
+		BitSet candidates = new BitSet(nrOfExamples);
+		Description checkedConcept = concept;
+		if(parentCoverage == null) {
+			candidates.set(0, nrOfExamples);
+		} else {
+			candidates.or(parentCoverage);
+			Description newConjunct = CoverageChecker.getNewConjunct(concept, parent);
+			if(newConjunct != null) {
+				checkedConcept = newConjunct;
+			}
+		}
+		candidates.andNot(inferred[0]);
+		candidates.andNot(inferred[1]);
+		covered.or(coverageChecker.getCoverage(reasoner, checkedConcept, candidates));
+		return covered;
+	}
+
+	public void put(Description concept, BitSet covered) {
+		cache.put(DescriptionEquivalence.instance.wrap(concept.clone()), (BitSet) covered.clone());
+	}
+
+	public void put(Description concept, Collection<Individual> individuals) {
+		cache.put(DescriptionEquivalence.instance.wrap(concept.clone()), toBitSet(individuals));
+	}
+
+	// internal lookups go through the map view, so they do not count as hits or misses
+	private BitSet get(Description concept) {
+		return cache.asMap().get(DescriptionEquivalence.instance.wrap(concept));
 	}
 
 	/**
@@ -74,42 +219,146 @@ public class EvaluationCache {
 	 * safely determine whether they are concept instances or not.
 	 */
 	public SortedSetTuple<Individual> infer(Description concept) {
-		if(checkForEqualConcepts) {
-			SortedSet<Individual> pos = cache.get(concept);
-			SortedSet<Individual> neg = Helper.difference(examples, pos);
-			return new SortedSetTuple<Individual>(pos,neg);
-		} else {
-			// for a negation NOT C we can only say which concepts are not in it
-			// (those in C), but we cannot say which ones are in NOT C
-			
-			// for a conjunction we know that the intersection of instances
-			// of all children belongs to the concept			
-			if(concept instanceof Intersection) {
-				handleMultiConjunction((Intersection)concept);
-			// disjunctions are similar to conjunctions but we use union here;
-			// note that there can be instances which are neither in a concept
-			// C nor in a concept D, but in (C OR D)				
-			} else if(concept instanceof Union) {
-				SortedSet<Individual> ret = cache.get(concept.getChild(0));
-				for(int i=1; i<concept.getChildren().size(); i++) {
-					ret = Helper.union(ret, cache.get(concept.getChild(i)));
+		BitSet[] inferred = inferCoverage(concept);
+		return new SortedSetTuple<Individual>(toIndividuals(inferred[0]), toIndividuals(inferred[1]));
+	}
+
+	// returns the examples, which are known to be covered, and the
+	// examples, which are known not to be covered by the concept
+	private BitSet[] inferCoverage(Description concept) {
+		BitSet pos = new BitSet(nrOfExamples);
+		BitSet neg = new BitSet(nrOfExamples);
+
+		BitSet cached = get(concept);
+		if(cached != null) {
+			pos.or(cached);
+			neg.set(0, nrOfExamples);
+			neg.andNot(cached);
+		// for a negation NOT C we can only say which examples are not in it
+		// (those in C), but we cannot say which ones are in NOT C
+		} else if(concept instanceof Negation) {
+			BitSet child = get(concept.getChild(0));
+			if(child != null) {
+				neg.or(child);
+			}
+		// for a conjunction we know that the intersection of instances
+		// of all children belongs to the concept; all examples not covered
+		// by one of the children do not belong to it
+		} else if(concept instanceof Intersection) {
+			return handleMultiConjunction((Intersection)concept);
+		// disjunctions are similar to conjunctions but we use union here;
+		// note that there can be instances which are neither in a concept
+		// C nor in a concept D, but in (C OR D)
+		} else if(concept instanceof Union) {
+			for(Description child : concept.getChildren()) {
+				BitSet childCovered = get(child);
+				if(childCovered != null) {
+					pos.or(childCovered);
 				}
-			// in all other cases we cannot infer anything, so we return an
-			// empty tuple
+			}
+		}
+		// in all other cases we cannot infer anything
+		return new BitSet[] {pos, neg};
+	}
+
+	private BitSet[] handleMultiConjunction(Intersection mc) {
+		BitSet pos = null;
+		BitSet neg = new BitSet(nrOfExamples);
+		for(Description child : mc.getChildren()) {
+			BitSet childCovered = get(child);
+			if(childCovered == null) {
+				// if a child is not cached, we cannot say which examples
+				// are covered, but the other children still exclude examples
+				pos = new BitSet(nrOfExamples);
+				continue;
+			}
+			BitSet notCovered = new BitSet(nrOfExamples);
+			notCovered.set(0, nrOfExamples);
+			notCovered.andNot(childCovered);
+			neg.or(notCovered);
+			if(pos == null) {
+				pos = (BitSet) childCovered.clone();
 			} else {
-				return new SortedSetTuple<Individual>();
+				pos.and(childCovered);
 			}
 		}
-		
-		return null;
-	}
-	
-	private SortedSetTuple<Individual> handleMultiConjunction(Intersection mc) {
-		Set<Individual> pos = cache.get(mc.getChild(0));
-		for(int i=1; i<mc.getChildren().size(); i++) {
-			pos = Helper.intersection(pos, cache.get(mc.getChild(i)));
-		}		
-		// TODO: handle the case that some children may not be in cache
-		return null;
+		if(pos == null) {
+			pos = new BitSet(nrOfExamples);
+		}
+		return new BitSet[] {pos, neg};
+	}
+
+	/**
+	 * @param individuals A collection of examples.
+	 * @return The bit set of the positions of the examples (individuals,
+	 * which are not examples, are ignored).
+	 */
+	public BitSet toBitSet(Collection<Individual> individuals) {
+		return coverageChecker.toBitSet(individuals);
+	}
+
+	public SortedSet<Individual> toIndividuals(BitSet bits) {
+		return coverageChecker.toIndividuals(bits);
+	}
+
+	/**
+	 * @param covered Covered examples.
+	 * @param examples A subset of the examples, e.g. the positive examples.
+	 * @return The number of examples in the subset, which are covered.
+	 */
+	public static int getNrOfCovered(BitSet covered, BitSet examples) {
+		return CoverageChecker.getNrOfCovered(covered, examples);
+	}
+
+	/**
+	 * @return The position of the example or -1 if the individual is
+	 * not an example.
+	 */
+	public int getIndex(Individual example) {
+		return coverageChecker.getIndex(example);
+	}
+
+	/**
+	 * @return True if all individuals are indexed as examples by this cache.
+	 */
+	public boolean containsExamples(Collection<Individual> individuals) {
+		return coverageChecker.containsExamples(individuals);
+	}
+
+	public List<Individual> getExamples() {
+		return coverageChecker.getExamples();
+	}
+
+	public int getNrOfExamples() {
+		return nrOfExamples;
+	}
+
+	/**
+	 * @return The example indexing used by this cache.
+	 */
+	public CoverageChecker getCoverageChecker() {
+		return coverageChecker;
+	}
+
+	public long size() {
+		return cache.size();
+	}
+
+	public void clear() {
+		cache.invalidateAll();
+	}
+
+	/**
+	 * @return Hit, miss and eviction counts of the cache.
+	 */
+	public CacheStats getStats() {
+		return cache.stats().minus(new CacheStats(0, lookupMisses.get(), 0, 0, 0, 0));
+	}
+
+	@Override
+	public String toString() {
+		CacheStats stats = getStats();
+		return "evaluation cache: " + cache.size() + " entries, " + stats.hitCount() + " hits, " + stats.missCount()
+				+ " misses (hit rate " + Math.round(stats.hitRate() * 1000) / 10.0 + "%), " + stats.evictionCount() + " evictions";
 	}
 }
@@ -19,9 +19,11 @@
 
 package org.dllearner.learningproblems;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
@@ -615,8 +617,12 @@ public class FuzzyPosNegLPStandard extends FuzzyPosNegLP {
 		double invertedCoveredMembershipDegree = 0;
 		double lastMembershipDegree = 0;
 
-		for (FuzzyIndividual ind: fuzzyExamples) {
-			lastMembershipDegree = (1 - Math.abs(ind.getTruthDegree() - getReasoner().hasTypeFuzzyMembership(description, ind)));
+		// all examples are needed, so they are answered in one batch
+		List<FuzzyIndividual> examples = new ArrayList<FuzzyIndividual>(fuzzyExamples);
+		double[] memberships = getReasoner().hasTypeFuzzyMembership(description, examples);
+		for (int i = 0; i < examples.size(); i++) {
+			FuzzyIndividual ind = examples.get(i);
+			lastMembershipDegree = (1 - Math.abs(ind.getTruthDegree() - memberships[i]));
 			coveredMembershipDegree += lastMembershipDegree * ind.getTruthDegree();
 			totalMembershipDegree += ind.getTruthDegree();
 			invertedCoveredMembershipDegree += (1 - ind.getTruthDegree()) * (1 - lastMembershipDegree);
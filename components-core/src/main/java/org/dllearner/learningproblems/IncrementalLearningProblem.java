@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.learningproblems;
+
+import java.util.BitSet;
+
+import org.dllearner.core.Score;
+import org.dllearner.core.owl.Description;
+
+/**
+ * A learning problem, which can evaluate a refinement of a description
+ * based on the examples covered by the refined description. This is
+ * useful for learning algorithms using downward refinement operators:
+ * a refinement can only cover examples, which are covered by the refined
+ * description, so all other examples do not need to be checked.
+ * 
+ * Covered examples are represented as bit sets over the example indexing
+ * of the learning problem (see {@link CoverageChecker}).
+ * 
+ */
+public interface IncrementalLearningProblem {
+
+	/**
+	 * @param description A class description.
+	 * @return The examples covered by the description.
+	 */
+	public BitSet getCoverage(Description description);
+	
+	/**
+	 * Computes the examples covered by a refinement of a description.
+	 * @param child The refinement, which must be more special than the parent.
+	 * @param parent The refined description (may be null if it is not known).
+	 * @param parentCoverage The examples covered by the refined description.
+	 * @return The examples covered by the refinement.
+	 */
+	public BitSet getCoverage(Description child, Description parent, BitSet parentCoverage);
+	
+	/**
+	 * Computes the accuracy of a description from the examples it covers.
+	 * @see org.dllearner.core.LearningProblem#getAccuracyOrTooWeak(Description, double)
+	 * @param description The description.
+	 * @param coverage The examples covered by the description.
+	 * @param noise The noise value.
+	 * @return The accuracy of the description or -1 if it is too weak.
+	 */
+	public double getAccuracyOrTooWeak(Description description, BitSet coverage, double noise);
+	
+	/**
+	 * Computes the score of a refinement of a description, which is more special
+	 * than the description.
+	 * @param child The refinement.
+	 * @param parentCoverage The examples covered by the refined description.
+	 * @return The score of the refinement.
+	 */
+	public Score computeScore(Description child, BitSet parentCoverage);
+	
+}
@@ -19,6 +19,7 @@
 
 package org.dllearner.learningproblems;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.LinkedList;
 import java.util.Set;
@@ -37,6 +38,8 @@ import org.dllearner.core.owl.Individual;
 import org.dllearner.utilities.Helper;
 import org.springframework.beans.propertyeditors.StringTrimmerEditor;
 
+import com.google.common.cache.CacheStats;
+
 /**
  * @author Jens Lehmann
  *
@@ -54,6 +57,17 @@ public abstract class PosNegLP extends AbstractLearningProblem {
     private UseMultiInstanceChecks useMultiInstanceChecks = UseMultiInstanceChecks.TWOCHECKS;
     @org.dllearner.core.config.ConfigOption(name = "percentPerLengthUnit", description = "Percent Per Length Unit", defaultValue = "0.05", required = false)
     private double percentPerLengthUnit = 0.05;
+    @org.dllearner.core.config.ConfigOption(name = "useEvaluationCache", description = "Caches the examples covered by evaluated concepts and reuses them for later evaluations of the same concept and its refinements.", defaultValue = "false", required = false)
+    private boolean useEvaluationCache = false;
+    @org.dllearner.core.config.ConfigOption(name = "evaluationCacheMaxEntries", description = "The maximum number of concepts stored in the evaluation cache.", defaultValue = "100000", required = false)
+    private long evaluationCacheMaxEntries = EvaluationCache.DEFAULT_MAX_ENTRIES;
+    @org.dllearner.core.config.ConfigOption(name = "evaluationCacheMaxMemory", description = "The approximate memory (in MB) the evaluation cache may occupy. If set, it takes precedence over the maximum number of entries.", defaultValue = "0", required = false)
+    private int evaluationCacheMaxMemory = 0;
+
+    protected EvaluationCache evaluationCache;
+    protected CoverageChecker coverageChecker;
+    protected BitSet positiveExampleBits;
+    protected BitSet negativeExampleBits;
 
 
     /**
@@ -129,6 +143,53 @@ public abstract class PosNegLP extends AbstractLearningProblem {
                 logger.error(str);
             }
 		}
+		
+		if(useEvaluationCache) {
+			// a cache set from outside is kept, e.g. if it is shared by several learning problems
+			if(evaluationCache == null || !evaluationCache.containsExamples(allExamples)) {
+				evaluationCache = new EvaluationCache(allExamples, evaluationCacheMaxEntries, evaluationCacheMaxMemory * 1024L * 1024L);
+			}
+			coverageChecker = evaluationCache.getCoverageChecker();
+		} else {
+			evaluationCache = null;
+			coverageChecker = new CoverageChecker(allExamples);
+		}
+		positiveExampleBits = coverageChecker.toBitSet(positiveExamples);
+		negativeExampleBits = coverageChecker.toBitSet(negativeExamples);
+	}
+	
+	/**
+	 * Computes the examples covered by a concept (using the evaluation cache
+	 * if it is enabled).
+	 * @param description The concept to test.
+	 * @return The covered examples as bit set over the example indexing of
+	 * {@link #getCoverageChecker()}.
+	 */
+	protected BitSet getCoveredExamples(Description description) {
+		if(evaluationCache != null) {
+			return evaluationCache.getCoverage(description, getReasoner());
+		}
+		return coverageChecker.getCoverage(getReasoner(), description);
+	}
+	
+	/**
+	 * Computes the examples covered by a refinement of a concept, which is
+	 * more special than the concept (using the evaluation cache if it is enabled).
+	 * @see CoverageChecker#getRefinementCoverage(AbstractReasonerComponent, Description, Description, BitSet)
+	 */
+	protected BitSet getCoveredExamples(Description child, Description parent, BitSet parentCoverage) {
+		if(evaluationCache != null) {
+			return evaluationCache.getRefinementCoverage(child, getReasoner(), parent, parentCoverage);
+		}
+		return coverageChecker.getRefinementCoverage(getReasoner(), child, parent, parentCoverage);
+	}
+	
+	/**
+	 * @return The indexing of the examples, which is used for bit sets of
+	 * covered examples.
+	 */
+	public CoverageChecker getCoverageChecker() {
+		return coverageChecker;
 	}
 	
 	public Set<Individual> getNegativeExamples() {
@@ -173,5 +234,51 @@ public abstract class PosNegLP extends AbstractLearningProblem {
         this.useMultiInstanceChecks = useMultiInstanceChecks;
     }
 
+    public boolean isUseEvaluationCache() {
+        return useEvaluationCache;
+    }
+
+    public void setUseEvaluationCache(boolean useEvaluationCache) {
+        this.useEvaluationCache = useEvaluationCache;
+    }
+
+    public long getEvaluationCacheMaxEntries() {
+        return evaluationCacheMaxEntries;
+    }
+
+    public void setEvaluationCacheMaxEntries(long evaluationCacheMaxEntries) {
+        this.evaluationCacheMaxEntries = evaluationCacheMaxEntries;
+    }
+
+    public int getEvaluationCacheMaxMemory() {
+        return evaluationCacheMaxMemory;
+    }
+
+    public void setEvaluationCacheMaxMemory(int evaluationCacheMaxMemory) {
+        this.evaluationCacheMaxMemory = evaluationCacheMaxMemory;
+    }
+
+    public EvaluationCache getEvaluationCache() {
+        return evaluationCache;
+    }
+
+    /**
+     * Sets the evaluation cache, e.g. to share it between several learning
+     * problems over the same examples. Only has an effect if the evaluation
+     * cache is enabled.
+     * @param evaluationCache The cache to use.
+     */
+    public void setEvaluationCache(EvaluationCache evaluationCache) {
+        this.evaluationCache = evaluationCache;
+    }
+
+    /**
+     * @return Hits, misses and evictions of the evaluation cache or null if
+     * the cache is not used.
+     */
+    public CacheStats getEvaluationCacheStats() {
+        return evaluationCache == null ? null : evaluationCache.getStats();
+    }
+
 
 }
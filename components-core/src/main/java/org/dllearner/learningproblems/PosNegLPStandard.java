@@ -19,6 +19,7 @@
 
 package org.dllearner.learningproblems;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedList;
@@ -54,7 +55,7 @@ import org.springframework.beans.propertyeditors.StringTrimmerEditor;
  * 
  */
 @ComponentAnn(name = "PosNegLPStandard", shortName = "posNegStandard", version = 0.8)
-public class PosNegLPStandard extends PosNegLP implements Cloneable{
+public class PosNegLPStandard extends PosNegLP implements IncrementalLearningProblem, Cloneable{
 	
 
 	// approximation and F-measure
@@ -96,6 +97,10 @@ public class PosNegLPStandard extends PosNegLP implements Cloneable{
     	this.accuracyMethod = lp.getAccuracyMethod();
     	setUseMultiInstanceChecks(lp.getUseMultiInstanceChecks());
     	setUseRetrievalForClassification(lp.isUseRetrievalForClassification());
+    	setUseEvaluationCache(lp.isUseEvaluationCache());
+    	setEvaluationCacheMaxEntries(lp.getEvaluationCacheMaxEntries());
+    	setEvaluationCacheMaxMemory(lp.getEvaluationCacheMaxMemory());
+    	setEvaluationCache(lp.getEvaluationCache());
 	}
 
 	public PosNegLPStandard(AbstractReasonerComponent reasoningService, SortedSet<Individual> positiveExamples, SortedSet<Individual> negativeExamples) {
@@ -212,6 +217,11 @@ public class PosNegLPStandard extends PosNegLP implements Cloneable{
 					else
 						return -1;
 				}
+			} else if(evaluationCache != null) {
+				BitSet covered = getCoveredExamples(concept);
+				if(CoverageChecker.getNrOfCovered(covered, positiveExampleBits) != positiveExamples.size())
+					return -1;
+				return CoverageChecker.getNrOfCovered(covered, negativeExampleBits);
 			} else {
 				// SortedSet<Individual> posAsNeg = new TreeSet<Individual>();
 				SortedSet<Individual> negAsPos = new TreeSet<Individual>();
@@ -307,6 +317,8 @@ public class PosNegLPStandard extends PosNegLP implements Cloneable{
 							negAsNeg);
 				}
 			}
+		} else if(evaluationCache != null) {
+			return createScore(concept, getCoveredExamples(concept));
 		} else {
 			
 			SortedSet<Individual> posAsPos = new TreeSet<Individual>();
@@ -337,6 +349,60 @@ public class PosNegLPStandard extends PosNegLP implements Cloneable{
 
 	}
 
+	/* (non-Javadoc)
+	 * @see org.dllearner.learningproblems.IncrementalLearningProblem#computeScore(org.dllearner.core.owl.Description, java.util.BitSet)
+	 */
+	@Override
+	public ScorePosNeg computeScore(Description child, BitSet parentCoverage) {
+		return createScore(child, getCoveredExamples(child, null, parentCoverage));
+	}
+	
+	private ScorePosNeg createScore(Description concept, BitSet covered) {
+		BitSet posAsPos = (BitSet) positiveExampleBits.clone();
+		posAsPos.and(covered);
+		BitSet posAsNeg = (BitSet) positiveExampleBits.clone();
+		posAsNeg.andNot(covered);
+		BitSet negAsPos = (BitSet) negativeExampleBits.clone();
+		negAsPos.and(covered);
+		BitSet negAsNeg = (BitSet) negativeExampleBits.clone();
+		negAsNeg.andNot(covered);
+		
+		double accuracy = getAccuracyOrTooWeak(concept, covered, 1);
+		
+		return new ScoreTwoValued(concept.getLength(), getPercentPerLengthUnit(), coverageChecker.toIndividuals(posAsPos), 
+				coverageChecker.toIndividuals(posAsNeg), coverageChecker.toIndividuals(negAsPos), coverageChecker.toIndividuals(negAsNeg), accuracy);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.dllearner.learningproblems.IncrementalLearningProblem#getCoverage(org.dllearner.core.owl.Description)
+	 */
+	@Override
+	public BitSet getCoverage(Description description) {
+		return getCoveredExamples(description);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.dllearner.learningproblems.IncrementalLearningProblem#getCoverage(org.dllearner.core.owl.Description, org.dllearner.core.owl.Description, java.util.BitSet)
+	 */
+	@Override
+	public BitSet getCoverage(Description child, Description parent, BitSet parentCoverage) {
+		return getCoveredExamples(child, parent, parentCoverage);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.dllearner.learningproblems.IncrementalLearningProblem#getAccuracyOrTooWeak(org.dllearner.core.owl.Description, java.util.BitSet, double)
+	 */
+	@Override
+	public double getAccuracyOrTooWeak(Description description, BitSet coverage, double noise) {
+		if(heuristic.equals(HeuristicType.PRED_ACC)) {
+			return getPredAccuracyOrTooWeak(coverage, noise);
+		} else if(heuristic.equals(HeuristicType.FMEASURE)) {
+			return getFMeasureOrTooWeak(coverage, noise);
+		} else {
+			throw new Error("Heuristic " + heuristic + " not implemented.");
+		}
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.dllearner.core.LearningProblem#getAccuracy(org.dllearner.core.owl.Description)
 	 */
@@ -528,6 +594,10 @@ public class PosNegLPStandard extends PosNegLP implements Cloneable{
 		int notCoveredPos = 0;
 		int notCoveredNeg = 0;
 		
+		if(evaluationCache != null) {
+			return getPredAccuracyOrTooWeak(getCoveredExamples(description), noise);
+		}
+		
 		for (Individual example : positiveExamples) {
 			if (!getReasoner().hasType(description, example)) {
 				notCoveredPos++;
@@ -557,7 +627,25 @@ public class PosNegLPStandard extends PosNegLP implements Cloneable{
 //		}
 	}
 
+	// predictive accuracy computed from the covered examples (same results as the
+	// exact method above)
+	private double getPredAccuracyOrTooWeak(BitSet covered, double noise) {
+		int maxNotCovered = (int) Math.ceil(noise*positiveExamples.size());
+		int notCoveredPos = positiveExamples.size() - CoverageChecker.getNrOfCovered(covered, positiveExampleBits);
+		// the exact method stops as soon as the limit is reached, i.e. only
+		// if at least one positive example is not covered
+		if(notCoveredPos > 0 && notCoveredPos >= maxNotCovered) {
+			return -1;
+		}
+		int notCoveredNeg = negativeExamples.size() - CoverageChecker.getNrOfCovered(covered, negativeExampleBits);
+		return (positiveExamples.size() - notCoveredPos + notCoveredNeg) / (double) allExamples.size();
+	}
+	
 	public double getFMeasureOrTooWeakExact(Description description, double noise) {
+		if(evaluationCache != null) {
+			return getFMeasureOrTooWeak(getCoveredExamples(description), noise);
+		}
+		
 		int additionalInstances = 0;
 		for(Individual ind : negativeExamples) {
 			if(getReasoner().hasType(description, ind)) {
@@ -572,6 +660,16 @@ public class PosNegLPStandard extends PosNegLP implements Cloneable{
 			}
 		}
 		
+		return getFMeasureOrTooWeak(coveredInstances, additionalInstances, noise);
+	}
+	
+	private double getFMeasureOrTooWeak(BitSet covered, double noise) {
+		int coveredInstances = CoverageChecker.getNrOfCovered(covered, positiveExampleBits);
+		int additionalInstances = CoverageChecker.getNrOfCovered(covered, negativeExampleBits);
+		return getFMeasureOrTooWeak(coveredInstances, additionalInstances, noise);
+	}
+	
+	private double getFMeasureOrTooWeak(int coveredInstances, int additionalInstances, double noise) {
 		double recall = coveredInstances/(double)positiveExamples.size();
 		
 		if(recall < 1 - noise) {
@@ -0,0 +1,609 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.reasoning;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+import org.dllearner.core.ReasoningMethodUnsupportedException;
+import org.dllearner.core.owl.BooleanValueRestriction;
+import org.dllearner.core.owl.DatatypeProperty;
+import org.dllearner.core.owl.Description;
+import org.dllearner.core.owl.Individual;
+import org.dllearner.core.owl.Intersection;
+import org.dllearner.core.owl.NamedClass;
+import org.dllearner.core.owl.Negation;
+import org.dllearner.core.owl.Nothing;
+import org.dllearner.core.owl.ObjectAllRestriction;
+import org.dllearner.core.owl.ObjectCardinalityRestriction;
+import org.dllearner.core.owl.ObjectMaxCardinalityRestriction;
+import org.dllearner.core.owl.ObjectMinCardinalityRestriction;
+import org.dllearner.core.owl.ObjectProperty;
+import org.dllearner.core.owl.ObjectPropertyExpression;
+import org.dllearner.core.owl.ObjectSomeRestriction;
+import org.dllearner.core.owl.ObjectValueRestriction;
+import org.dllearner.core.owl.Thing;
+import org.dllearner.core.owl.Union;
+
+/**
+ * Compact storage of a dematerialised ABox as used by the fast instance checker.
+ * Each individual gets a dense integer id, class extensions and boolean datatype
+ * property extensions are stored as bit sets over those ids and object property
+ * assertions are stored as int adjacency arrays (compressed sparse rows). Retrieval
+ * of intersections, unions, negations and object restrictions is thereby reduced
+ * to word-level bit operations instead of copying and walking tree sets.
+ *
+ * Ids are assigned in the natural order of the individuals, so that iterating
+ * over a bit set yields the individuals in sorted order.
+ *
+ * Note that the store only replaces the tree based class extensions of the
+ * reasoner. The object property and datatype property maps it is built from are
+ * still used for property lookups by the reasoner and therefore stay on the heap.
+ *
+ * A store can also be built on a {@link MaterializationSnapshot}. In this case
+ * the ids are the positions in the dictionary of the snapshot, and the bit sets
+ * and adjacency arrays are read from the mapped file on each lookup instead of
+ * being copied to the heap.
+ */
+public class BitSetInstanceStore {
+
+	private static Logger logger = Logger.getLogger(BitSetInstanceStore.class);
+
+	/**
+	 * Used for descriptions which cannot be answered on the bit set level,
+	 * e.g. numeric datatype restrictions.
+	 */
+	public interface Fallback {
+		SortedSet<Individual> getIndividuals(Description description) throws ReasoningMethodUnsupportedException;
+	}
+
+	/**
+	 * The individuals and their ids.
+	 */
+	interface Dictionary {
+		/**
+		 * @return the number of ids in use
+		 */
+		int size();
+
+		/**
+		 * @return the id of the individual or -1 if it is unknown
+		 */
+		int getId(Individual individual);
+
+		Individual getIndividual(int id);
+	}
+
+	/**
+	 * A set of ids, which is either a bit set on the heap or stored in a snapshot.
+	 */
+	interface IdSet {
+		boolean get(int id);
+
+		/**
+		 * @return the first id greater than or equal to the given one or -1 if there is none
+		 */
+		int nextSetBit(int fromId);
+
+		/**
+		 * @return the ids as a bit set, which can be modified by the caller
+		 */
+		BitSet toBitSet();
+	}
+
+	/**
+	 * Object property assertions of a single property in compressed sparse row
+	 * format: the fillers of subject s are getTarget(getStart(s)) ... getTarget(getEnd(s)-1).
+	 */
+	interface Adjacency {
+		/**
+		 * @return the subjects of the property, which contain all individuals with at least one filler
+		 */
+		IdSet getSubjects();
+
+		int getStart(int subject);
+
+		int getEnd(int subject);
+
+		int getTarget(int index);
+	}
+
+	private static class HeapDictionary implements Dictionary {
+		private Individual[] individuals;
+		private Map<Individual, Integer> ids;
+
+		@Override
+		public int size() {
+			return individuals.length;
+		}
+
+		@Override
+		public int getId(Individual individual) {
+			Integer id = ids.get(individual);
+			return id == null ? -1 : id;
+		}
+
+		@Override
+		public Individual getIndividual(int id) {
+			return individuals[id];
+		}
+	}
+
+	private static class HeapIdSet implements IdSet {
+		private BitSet bits;
+
+		HeapIdSet(BitSet bits) {
+			this.bits = bits;
+		}
+
+		@Override
+		public boolean get(int id) {
+			return bits.get(id);
+		}
+
+		@Override
+		public int nextSetBit(int fromId) {
+			return bits.nextSetBit(fromId);
+		}
+
+		@Override
+		public BitSet toBitSet() {
+			return (BitSet) bits.clone();
+		}
+	}
+
+	private static class HeapAdjacency implements Adjacency {
+		private int[] offsets;
+		private int[] targets;
+		private HeapIdSet subjects;
+
+		@Override
+		public IdSet getSubjects() {
+			return subjects;
+		}
+
+		@Override
+		public int getStart(int subject) {
+			return offsets[subject];
+		}
+
+		@Override
+		public int getEnd(int subject) {
+			return offsets[subject + 1];
+		}
+
+		@Override
+		public int getTarget(int index) {
+			return targets[index];
+		}
+	}
+
+	private Dictionary dictionary;
+	// the number of ids in use
+	private int size;
+	// the individuals of the knowledge base, i.e. the extension of owl:Thing
+	private BitSet all;
+
+	private Map<NamedClass, IdSet> classInstancesPos = new HashMap<NamedClass, IdSet>();
+	private Map<NamedClass, IdSet> classInstancesNeg = new HashMap<NamedClass, IdSet>();
+	private Map<ObjectProperty, Adjacency> opPos = new HashMap<ObjectProperty, Adjacency>();
+	private Map<DatatypeProperty, IdSet> bdPos = new HashMap<DatatypeProperty, IdSet>();
+	private Map<DatatypeProperty, IdSet> bdNeg = new HashMap<DatatypeProperty, IdSet>();
+
+	private Fallback fallback;
+	// memoized instances of complex sub-expressions (null if disabled)
+	private RetrievalMemo<BitSet> memo;
+
+	/**
+	 * Builds the store for the dematerialised extensions of a fast instance checker.
+	 * The given maps are not modified, callers which answer all class related lookups
+	 * by the store may release their tree based class extensions afterwards.
+	 */
+	public static BitSetInstanceStore build(SortedSet<Individual> individuals,
+			Map<NamedClass, ? extends SortedSet<Individual>> classInstancesPos,
+			Map<NamedClass, ? extends SortedSet<Individual>> classInstancesNeg,
+			Map<ObjectProperty, Map<Individual, SortedSet<Individual>>> opPos,
+			Map<DatatypeProperty, ? extends SortedSet<Individual>> bdPos,
+			Map<DatatypeProperty, ? extends SortedSet<Individual>> bdNeg,
+			Fallback fallback) {
+		long startTime = System.currentTimeMillis();
+		logger.debug("building bit set instance store");
+		BitSetInstanceStore store = new BitSetInstanceStore(individuals, classInstancesPos, classInstancesNeg, opPos, bdPos, bdNeg, fallback);
+		logger.debug("bit set instance store built in " + (System.currentTimeMillis() - startTime) + " ms");
+		return store;
+	}
+
+	/**
+	 * Builds the store on a materialization snapshot. Nothing is decoded, all
+	 * lookups are answered from the mapped file.
+	 */
+	static BitSetInstanceStore build(MaterializationSnapshot snapshot, Fallback fallback) {
+		BitSetInstanceStore store = new BitSetInstanceStore(snapshot, fallback);
+		store.all = snapshot.getIndividuals().toBitSet();
+		store.classInstancesPos.putAll(snapshot.getClassInstancesPos());
+		store.classInstancesNeg.putAll(snapshot.getClassInstancesNeg());
+		store.opPos.putAll(snapshot.getObjectPropertyAssertions());
+		store.bdPos.putAll(snapshot.getTrueDatatypeMembers());
+		store.bdNeg.putAll(snapshot.getFalseDatatypeMembers());
+		return store;
+	}
+
+	private BitSetInstanceStore(Dictionary dictionary, Fallback fallback) {
+		this.dictionary = dictionary;
+		this.size = dictionary.size();
+		this.fallback = fallback;
+	}
+
+	public BitSetInstanceStore(SortedSet<Individual> individuals,
+			Map<NamedClass, ? extends SortedSet<Individual>> classInstancesPos,
+			Map<NamedClass, ? extends SortedSet<Individual>> classInstancesNeg,
+			Map<ObjectProperty, Map<Individual, SortedSet<Individual>>> opPos,
+			Map<DatatypeProperty, ? extends SortedSet<Individual>> bdPos,
+			Map<DatatypeProperty, ? extends SortedSet<Individual>> bdNeg,
+			Fallback fallback) {
+		this.fallback = fallback;
+
+		// role fillers are not necessarily contained in the set of individuals
+		// (e.g. generated individuals), so they get ids behind the regular ones
+		SortedSet<Individual> additionalIndividuals = new TreeSet<Individual>();
+		for (Map<Individual, SortedSet<Individual>> mapping : opPos.values()) {
+			for (Entry<Individual, SortedSet<Individual>> entry : mapping.entrySet()) {
+				if(!individuals.contains(entry.getKey())) {
+					additionalIndividuals.add(entry.getKey());
+				}
+				for (Individual filler : entry.getValue()) {
+					if(!individuals.contains(filler)) {
+						additionalIndividuals.add(filler);
+					}
+				}
+			}
+		}
+
+		size = individuals.size() + additionalIndividuals.size();
+		HeapDictionary dictionary = new HeapDictionary();
+		dictionary.individuals = new Individual[size];
+		dictionary.ids = new HashMap<Individual, Integer>(size * 2);
+		this.dictionary = dictionary;
+		int id = 0;
+		for (Individual ind : individuals) {
+			dictionary.individuals[id] = ind;
+			dictionary.ids.put(ind, id++);
+		}
+		all = new BitSet(size);
+		all.set(0, id);
+		for (Individual ind : additionalIndividuals) {
+			dictionary.individuals[id] = ind;
+			dictionary.ids.put(ind, id++);
+		}
+
+		for (Entry<NamedClass, ? extends SortedSet<Individual>> entry : classInstancesPos.entrySet()) {
+			this.classInstancesPos.put(entry.getKey(), new HeapIdSet(toBitSet(entry.getValue())));
+		}
+		for (Entry<NamedClass, ? extends SortedSet<Individual>> entry : classInstancesNeg.entrySet()) {
+			this.classInstancesNeg.put(entry.getKey(), new HeapIdSet(toBitSet(entry.getValue())));
+		}
+		for (Entry<ObjectProperty, Map<Individual, SortedSet<Individual>>> entry : opPos.entrySet()) {
+			this.opPos.put(entry.getKey(), toAdjacency(entry.getValue()));
+		}
+		for (Entry<DatatypeProperty, ? extends SortedSet<Individual>> entry : bdPos.entrySet()) {
+			this.bdPos.put(entry.getKey(), new HeapIdSet(toBitSet(entry.getValue())));
+		}
+		for (Entry<DatatypeProperty, ? extends SortedSet<Individual>> entry : bdNeg.entrySet()) {
+			this.bdNeg.put(entry.getKey(), new HeapIdSet(toBitSet(entry.getValue())));
+		}
+	}
+
+	private Adjacency toAdjacency(Map<Individual, SortedSet<Individual>> mapping) {
+		HeapAdjacency adjacency = new HeapAdjacency();
+		adjacency.offsets = new int[size + 1];
+		BitSet subjects = new BitSet(size);
+		adjacency.subjects = new HeapIdSet(subjects);
+
+		// count fillers per subject, then compute prefix sums
+		int nrOfAssertions = 0;
+		for (Entry<Individual, SortedSet<Individual>> entry : mapping.entrySet()) {
+			int subject = dictionary.getId(entry.getKey());
+			adjacency.offsets[subject + 1] = entry.getValue().size();
+			nrOfAssertions += entry.getValue().size();
+			if(!entry.getValue().isEmpty()) {
+				subjects.set(subject);
+			}
+		}
+		for (int i = 1; i < adjacency.offsets.length; i++) {
+			adjacency.offsets[i] += adjacency.offsets[i - 1];
+		}
+
+		adjacency.targets = new int[nrOfAssertions];
+		for (Entry<Individual, SortedSet<Individual>> entry : mapping.entrySet()) {
+			int pos = adjacency.offsets[dictionary.getId(entry.getKey())];
+			for (Individual filler : entry.getValue()) {
+				adjacency.targets[pos++] = dictionary.getId(filler);
+			}
+		}
+		return adjacency;
+	}
+
+	/**
+	 * @param individual an individual
+	 * @return the id of the individual or -1 if it is unknown
+	 */
+	public int getId(Individual individual) {
+		return dictionary.getId(individual);
+	}
+
+	public Individual getIndividual(int id) {
+		return dictionary.getIndividual(id);
+	}
+
+	/**
+	 * @return the number of ids in use, i.e. an upper bound for the bits set
+	 * in any bit set returned by this store
+	 */
+	public int size() {
+		return size;
+	}
+
+	public BitSet toBitSet(Collection<Individual> individuals) {
+		BitSet bitSet = new BitSet(size);
+		for (Individual ind : individuals) {
+			int id = dictionary.getId(ind);
+			if(id >= 0) {
+				bitSet.set(id);
+			}
+		}
+		return bitSet;
+	}
+
+	public SortedSet<Individual> toIndividuals(BitSet bitSet) {
+		SortedSet<Individual> individuals = new TreeSet<Individual>();
+		for (int i = bitSet.nextSetBit(0); i >= 0; i = bitSet.nextSetBit(i + 1)) {
+			individuals.add(dictionary.getIndividual(i));
+		}
+		return individuals;
+	}
+
+	public boolean hasType(NamedClass nc, Individual individual) {
+		return contains(classInstancesPos.get(nc), individual);
+	}
+
+	public boolean hasNegatedType(NamedClass nc, Individual individual) {
+		return contains(classInstancesNeg.get(nc), individual);
+	}
+
+	public SortedSet<Individual> getInstances(NamedClass nc) {
+		return toIndividuals(copy(classInstancesPos.get(nc)));
+	}
+
+	public SortedSet<Individual> getNegatedInstances(NamedClass nc) {
+		return toIndividuals(copy(classInstancesNeg.get(nc)));
+	}
+
+	private boolean contains(IdSet idSet, Individual individual) {
+		if(idSet == null) {
+			return false;
+		}
+		int id = dictionary.getId(individual);
+		return id >= 0 && idSet.get(id);
+	}
+
+	/**
+	 * Computes the instances of the given description. The returned bit set is
+	 * a fresh object, i.e. it can be modified by the caller.
+	 *
+	 * @param description a class description
+	 * @return the ids of all instances of the description
+	 * @throws ReasoningMethodUnsupportedException if the description contains
+	 * unsupported constructs
+	 */
+	public BitSet getIndividuals(Description description) throws ReasoningMethodUnsupportedException {
+		if(memo == null || !RetrievalMemo.isMemoizable(description)) {
+			return computeIndividuals(description);
+		}
+		BitSet ret = memo.get(description);
+		if(ret == null) {
+			long generation = memo.getGeneration();
+			ret = computeIndividuals(description);
+			memo.put(description, ret, generation);
+		}
+		return ret;
+	}
+
+	private BitSet computeIndividuals(Description description) throws ReasoningMethodUnsupportedException {
+		if (description instanceof NamedClass) {
+			return copy(classInstancesPos.get(description));
+		} else if (description instanceof Negation) {
+			if(description.getChild(0) instanceof NamedClass) {
+				return copy(classInstancesNeg.get(description.getChild(0)));
+			}
+			// default negation
+			BitSet ret = (BitSet) all.clone();
+			ret.andNot(getIndividuals(description.getChild(0)));
+			return ret;
+		} else if (description instanceof Thing) {
+			return (BitSet) all.clone();
+		} else if (description instanceof Nothing) {
+			return new BitSet(size);
+		} else if (description instanceof Union) {
+			List<Description> children = description.getChildren();
+			BitSet ret = getIndividuals(children.get(0));
+			for (int i = 1; i < children.size(); i++) {
+				ret.or(getIndividuals(children.get(i)));
+			}
+			return ret;
+		} else if (description instanceof Intersection) {
+			List<Description> children = description.getChildren();
+			BitSet ret = getIndividuals(children.get(0));
+			for (int i = 1; i < children.size() && !ret.isEmpty(); i++) {
+				ret.and(getIndividuals(children.get(i)));
+			}
+			return ret;
+		} else if (description instanceof ObjectSomeRestriction) {
+			Adjacency adjacency = getAdjacency(((ObjectSomeRestriction) description).getRole(), description);
+			BitSet returnSet = new BitSet(size);
+			if(adjacency == null) {
+				return returnSet;
+			}
+			BitSet targetSet = getIndividuals(description.getChild(0));
+			if(targetSet.isEmpty()) {
+				return returnSet;
+			}
+			IdSet subjects = adjacency.getSubjects();
+			for (int s = subjects.nextSetBit(0); s >= 0; s = subjects.nextSetBit(s + 1)) {
+				for (int i = adjacency.getStart(s); i < adjacency.getEnd(s); i++) {
+					if(targetSet.get(adjacency.getTarget(i))) {
+						returnSet.set(s);
+						break;
+					}
+				}
+			}
+			return returnSet;
+		} else if (description instanceof ObjectAllRestriction) {
+			Adjacency adjacency = getAdjacency(((ObjectAllRestriction) description).getRole(), description);
+			BitSet returnSet = (BitSet) all.clone();
+			if(adjacency == null) {
+				return returnSet;
+			}
+			BitSet targetSet = getIndividuals(description.getChild(0));
+			// remove all individuals with a filler not in the target set
+			IdSet subjects = adjacency.getSubjects();
+			for (int s = subjects.nextSetBit(0); s >= 0; s = subjects.nextSetBit(s + 1)) {
+				for (int i = adjacency.getStart(s); i < adjacency.getEnd(s); i++) {
+					if(!targetSet.get(adjacency.getTarget(i))) {
+						returnSet.clear(s);
+						break;
+					}
+				}
+			}
+			return returnSet;
+		} else if (description instanceof ObjectMinCardinalityRestriction) {
+			Adjacency adjacency = getAdjacency(((ObjectCardinalityRestriction) description).getRole(), description);
+			int number = ((ObjectCardinalityRestriction) description).getNumber();
+			// there are always at least zero fillers
+			if(number == 0) {
+				return (BitSet) all.clone();
+			}
+			BitSet returnSet = new BitSet(size);
+			if(adjacency == null) {
+				return returnSet;
+			}
+			BitSet targetSet = getIndividuals(description.getChild(0));
+			IdSet subjects = adjacency.getSubjects();
+			for (int s = subjects.nextSetBit(0); s >= 0; s = subjects.nextSetBit(s + 1)) {
+				int end = adjacency.getEnd(s);
+				int nrOfFillers = 0;
+				// stop as soon as the number is reached or cannot be reached anymore
+				for (int i = adjacency.getStart(s); i < end && nrOfFillers < number && nrOfFillers + end - i >= number; i++) {
+					if(targetSet.get(adjacency.getTarget(i))) {
+						nrOfFillers++;
+					}
+				}
+				if(nrOfFillers >= number) {
+					returnSet.set(s);
+				}
+			}
+			return returnSet;
+		} else if (description instanceof ObjectMaxCardinalityRestriction) {
+			Adjacency adjacency = getAdjacency(((ObjectCardinalityRestriction) description).getRole(), description);
+			BitSet returnSet = (BitSet) all.clone();
+			if(adjacency == null) {
+				return returnSet;
+			}
+			int number = ((ObjectCardinalityRestriction) description).getNumber();
+			BitSet targetSet = getIndividuals(description.getChild(0));
+			// remove all individuals with too many fillers in the target set
+			IdSet subjects = adjacency.getSubjects();
+			for (int s = subjects.nextSetBit(0); s >= 0; s = subjects.nextSetBit(s + 1)) {
+				int end = adjacency.getEnd(s);
+				if(end - adjacency.getStart(s) <= number) {
+					continue;
+				}
+				int nrOfFillers = 0;
+				for (int i = adjacency.getStart(s); i < end && nrOfFillers <= number; i++) {
+					if(targetSet.get(adjacency.getTarget(i))) {
+						nrOfFillers++;
+					}
+				}
+				if(nrOfFillers > number) {
+					returnSet.clear(s);
+				}
+			}
+			return returnSet;
+		} else if (description instanceof ObjectValueRestriction) {
+			ObjectValueRestriction ovr = (ObjectValueRestriction) description;
+			Adjacency adjacency = opPos.get(ovr.getRestrictedPropertyExpression());
+			BitSet returnSet = new BitSet(size);
+			int value = dictionary.getId(ovr.getIndividual());
+			if(adjacency == null || value < 0) {
+				return returnSet;
+			}
+			IdSet subjects = adjacency.getSubjects();
+			for (int s = subjects.nextSetBit(0); s >= 0; s = subjects.nextSetBit(s + 1)) {
+				for (int i = adjacency.getStart(s); i < adjacency.getEnd(s); i++) {
+					if(adjacency.getTarget(i) == value) {
+						returnSet.set(s);
+						break;
+					}
+				}
+			}
+			return returnSet;
+		} else if (description instanceof BooleanValueRestriction) {
+			DatatypeProperty dp = ((BooleanValueRestriction) description).getRestrictedPropertyExpression();
+			boolean value = ((BooleanValueRestriction) description).getBooleanValue();
+			return copy(value ? bdPos.get(dp) : bdNeg.get(dp));
+		}
+
+		// numeric and string datatype restrictions are answered by the
+		// underlying tree based index
+		return toBitSet(fallback.getIndividuals(description));
+	}
+
+	/**
+	 * Sets a memo for the instances of complex sub-expressions, which is used
+	 * by {@link #getIndividuals(Description)}.
+	 * @param memo The memo or null if retrieval results should not be memoized.
+	 */
+	public void setRetrievalMemo(RetrievalMemo<BitSet> memo) {
+		this.memo = memo;
+	}
+
+	public RetrievalMemo<BitSet> getRetrievalMemo() {
+		return memo;
+	}
+
+	private Adjacency getAdjacency(ObjectPropertyExpression ope, Description description) throws ReasoningMethodUnsupportedException {
+		if (!(ope instanceof ObjectProperty)) {
+			throw new ReasoningMethodUnsupportedException("Retrieval for description "
+					+ description + " unsupported. Inverse object properties not supported.");
+		}
+		return opPos.get(ope);
+	}
+
+	private BitSet copy(IdSet idSet) {
+		return idSet == null ? new BitSet(size) : idSet.toBitSet();
+	}
+
+}
@@ -20,7 +20,10 @@
 package org.dllearner.reasoning;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -30,6 +33,13 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.log4j.Logger;
 import org.dllearner.core.AbstractReasonerComponent;
@@ -148,6 +158,24 @@ public class FastInstanceChecker extends AbstractReasonerComponent {
             "use those which have at least one r-filler and do not have an r-filler not in C.",defaultValue = "standard",propertyEditorClass = StringTrimmerEditor.class)
     private ForallSemantics forallSemantics = ForallSemantics.Standard;
 
+    @ConfigOption(name = "useBitSets", description = "Whether to store the dematerialised class and boolean datatype property extensions as bit sets over dense individual ids. " +
+    		"This reduces the memory consumption of the class extensions (object and datatype property assertions are kept as before) and makes retrieval of complex descriptions considerably faster on large ABoxes.", defaultValue = "false", required = false)
+    private boolean useBitSets = false;
+
+    // only used if useBitSets is enabled
+    private BitSetInstanceStore instanceStore;
+
+    @ConfigOption(name = "nrOfDematerialisationThreads", description = "The number of threads used to dematerialise the knowledge base (0 = one thread per processor). " +
+    		"OWL reasoners are not thread-safe, so each additional thread loads the knowledge base into its own instance of the underlying reasoner, which requires additional memory.", defaultValue = "1", required = false)
+    private int nrOfDematerialisationThreads = 1;
+
+    @ConfigOption(name = "retrievalMemoSize", description = "The maximum number of complex sub-expressions, whose instances are memoized during retrieval (0 = no memoization). " +
+    		"Refinements of the same concept share most of their sub-expressions, which are then only retrieved once.", defaultValue = "0", required = false)
+    private int retrievalMemoSize = 0;
+
+    // only used if useBitSets is disabled, otherwise the instance store holds the memo
+    private RetrievalMemo<SortedSet<Individual>> retrievalMemo;
+
     public enum ForallSemantics { 
     	Standard, // standard all quantor
     	NonEmpty, // p only C for instance a returns false if there is no fact p(a,x) for any x  
@@ -263,57 +291,104 @@ public class FastInstanceChecker extends AbstractReasonerComponent {
 			// FastRetrievalReasoner later)
 			long dematStartTime = System.currentTimeMillis();
 
-			logger.debug("dematerialising concepts");
-			for (NamedClass atomicConcept : rc.getNamedClasses()) {
-				SortedSet<Individual> pos = rc.getIndividuals(atomicConcept);
-				classInstancesPos.put(atomicConcept, (TreeSet<Individual>) pos);
-
-				if (isDefaultNegation()) {
-					classInstancesNeg.put(atomicConcept, (TreeSet<Individual>) Helper.difference(individuals, pos));
-				} else {
-					// Pellet needs approximately infinite time to answer
-					// negated queries
-					// on the carcinogenesis data set (and probably others), so
-					// we have to
-					// be careful here
-					Negation negatedAtomicConcept = new Negation(atomicConcept);
-					classInstancesNeg.put(atomicConcept, (TreeSet<Individual>) rc.getIndividuals(negatedAtomicConcept));
-				}
-
-			}
-
-			logger.debug("dematerialising object properties");
-
-			for (ObjectProperty atomicRole : atomicRoles) {
-//				System.out.println(atomicRole + " " + rc.getPropertyMembers(atomicRole));
-				opPos.put(atomicRole, rc.getPropertyMembers(atomicRole));
-			}
-			
-			logger.debug("dematerialising datatype properties");
-			
-			for (DatatypeProperty atomicRole : datatypeProperties) {
-				dpPos.put(atomicRole, rc.getDatatypeMembers(atomicRole));
-			}
-
-			for (DatatypeProperty dp : booleanDatatypeProperties) {
-				bdPos.put(dp, (TreeSet<Individual>) rc.getTrueDatatypeMembers(dp));
-				bdNeg.put(dp, (TreeSet<Individual>) rc.getFalseDatatypeMembers(dp));
-			}
-
-			for (DatatypeProperty dp : intDatatypeProperties) {
-				id.put(dp, rc.getIntDatatypeMembers(dp));
-			}
-
-			for (DatatypeProperty dp : doubleDatatypeProperties) {
-				dd.put(dp, rc.getDoubleDatatypeMembers(dp));
+			int nrOfThreads = nrOfDematerialisationThreads == 0 ? Runtime.getRuntime().availableProcessors() : nrOfDematerialisationThreads;
+			Dematerialiser dematerialiser = new Dematerialiser(nrOfThreads);
+			try {
+				dematerialiser.run("concepts", atomicConcepts, new EntityDematerialiser<NamedClass>() {
+					@Override
+					public void dematerialise(NamedClass atomicConcept, OWLAPIReasoner reasoner) {
+						SortedSet<Individual> pos = reasoner.getIndividuals(atomicConcept);
+						TreeSet<Individual> neg;
+						if (isDefaultNegation()) {
+							neg = (TreeSet<Individual>) Helper.difference(individuals, pos);
+						} else {
+							// Pellet needs approximately infinite time to answer
+							// negated queries
+							// on the carcinogenesis data set (and probably others), so
+							// we have to
+							// be careful here
+							Negation negatedAtomicConcept = new Negation(atomicConcept);
+							neg = (TreeSet<Individual>) reasoner.getIndividuals(negatedAtomicConcept);
+						}
+						synchronized (classInstancesPos) {
+							classInstancesPos.put(atomicConcept, (TreeSet<Individual>) pos);
+							classInstancesNeg.put(atomicConcept, neg);
+						}
+					}
+				});
+	
+				dematerialiser.run("object properties", atomicRoles, new EntityDematerialiser<ObjectProperty>() {
+					@Override
+					public void dematerialise(ObjectProperty atomicRole, OWLAPIReasoner reasoner) {
+						Map<Individual, SortedSet<Individual>> members = reasoner.getPropertyMembers(atomicRole);
+						synchronized (opPos) {
+							opPos.put(atomicRole, members);
+						}
+					}
+				});
+				
+				dematerialiser.run("datatype properties", datatypeProperties, new EntityDematerialiser<DatatypeProperty>() {
+					@Override
+					public void dematerialise(DatatypeProperty atomicRole, OWLAPIReasoner reasoner) {
+						Map<Individual, SortedSet<Constant>> members = reasoner.getDatatypeMembers(atomicRole);
+						synchronized (dpPos) {
+							dpPos.put(atomicRole, members);
+						}
+					}
+				});
+	
+				dematerialiser.run("boolean datatype properties", booleanDatatypeProperties, new EntityDematerialiser<DatatypeProperty>() {
+					@Override
+					public void dematerialise(DatatypeProperty dp, OWLAPIReasoner reasoner) {
+						TreeSet<Individual> pos = (TreeSet<Individual>) reasoner.getTrueDatatypeMembers(dp);
+						TreeSet<Individual> neg = (TreeSet<Individual>) reasoner.getFalseDatatypeMembers(dp);
+						synchronized (bdPos) {
+							bdPos.put(dp, pos);
+							bdNeg.put(dp, neg);
+						}
+					}
+				});
+	
+				dematerialiser.run("int datatype properties", intDatatypeProperties, new EntityDematerialiser<DatatypeProperty>() {
+					@Override
+					public void dematerialise(DatatypeProperty dp, OWLAPIReasoner reasoner) {
+						Map<Individual, SortedSet<Integer>> members = reasoner.getIntDatatypeMembers(dp);
+						synchronized (id) {
+							id.put(dp, members);
+						}
+					}
+				});
+	
+				dematerialiser.run("double datatype properties", doubleDatatypeProperties, new EntityDematerialiser<DatatypeProperty>() {
+					@Override
+					public void dematerialise(DatatypeProperty dp, OWLAPIReasoner reasoner) {
+						Map<Individual, SortedSet<Double>> members = reasoner.getDoubleDatatypeMembers(dp);
+						synchronized (dd) {
+							dd.put(dp, members);
+						}
+					}
+				});
+	
+				dematerialiser.run("string datatype properties", stringDatatypeProperties, new EntityDematerialiser<DatatypeProperty>() {
+					@Override
+					public void dematerialise(DatatypeProperty dp, OWLAPIReasoner reasoner) {
+						Map<Individual, SortedSet<String>> members = reasoner.getStringDatatypeMembers(dp);
+						synchronized (sd) {
+							sd.put(dp, members);
+						}
+					}
+				});
+			} finally {
+				dematerialiser.shutdown();
 			}
-
-			for (DatatypeProperty dp : stringDatatypeProperties) {
-				sd.put(dp, rc.getStringDatatypeMembers(dp));
-			}			
 			
 			long dematDuration = System.currentTimeMillis() - dematStartTime;
 			logger.debug("TBox dematerialised in " + dematDuration + " ms");
+			
+			if(useBitSets) {
+				buildInstanceStore();
+			}
+			initRetrievalMemo();
 
 //		} catch (ReasoningMethodUnsupportedException e) {
 //			throw new ComponentInitException(
@@ -321,6 +396,47 @@ public class FastInstanceChecker extends AbstractReasonerComponent {
 //		}
 	}
 
+	/**
+	 * Converts the class and boolean datatype property extensions into a
+	 * {@link BitSetInstanceStore}. The tree based class extensions are released
+	 * afterwards, all class related lookups are answered by the store. The property
+	 * maps are kept, see {@link BitSetInstanceStore}.
+	 */
+	private void buildInstanceStore() {
+		instanceStore = BitSetInstanceStore.build(individuals, classInstancesPos, classInstancesNeg, opPos, bdPos, bdNeg,
+				new BitSetInstanceStore.Fallback() {
+					@Override
+					public SortedSet<Individual> getIndividuals(Description description) throws ReasoningMethodUnsupportedException {
+						return getIndividualsImplFast(description);
+					}
+				});
+		// the maps may be shared (e.g. with a cached materialization), so they are replaced instead of cleared
+		classInstancesPos = new TreeMap<NamedClass, TreeSet<Individual>>();
+		classInstancesNeg = new TreeMap<NamedClass, TreeSet<Individual>>();
+	}
+
+	private void initRetrievalMemo() {
+		retrievalMemo = null;
+		if(retrievalMemoSize <= 0) {
+			return;
+		}
+		if(useBitSets) {
+			instanceStore.setRetrievalMemo(new RetrievalMemo<BitSet>(retrievalMemoSize, new RetrievalMemo.Copier<BitSet>() {
+				@Override
+				public BitSet copy(BitSet value) {
+					return (BitSet) value.clone();
+				}
+			}));
+		} else {
+			retrievalMemo = new RetrievalMemo<SortedSet<Individual>>(retrievalMemoSize, new RetrievalMemo.Copier<SortedSet<Individual>>() {
+				@Override
+				public SortedSet<Individual> copy(SortedSet<Individual> value) {
+					return new TreeSet<Individual>(value);
+				}
+			});
+		}
+	}
+
 	@Override
 	public boolean hasTypeImpl(Description description, Individual individual)
 			throws ReasoningMethodUnsupportedException {
@@ -334,10 +450,16 @@ public class FastInstanceChecker extends AbstractReasonerComponent {
 			if(!atomicConcepts.contains(description)) {
 				throw new ReasoningMethodUnsupportedException("Class " + description + " is not contained in knowledge base.");
 			}
+			if(useBitSets) {
+				return instanceStore.hasType((NamedClass) description, individual);
+			}
 			return classInstancesPos.get((NamedClass) description).contains(individual);
 		} else if (description instanceof Negation) {
 			Description child = description.getChild(0);
 			if (child instanceof NamedClass) {
+				if(useBitSets) {
+					return instanceStore.hasNegatedType((NamedClass) child, individual);
+				}
 				return classInstancesNeg.get((NamedClass) child).contains(individual);
 			} else {
 				// default negation
@@ -621,14 +743,53 @@ public class FastInstanceChecker extends AbstractReasonerComponent {
 				+ description + " unsupported.");
 	}
 
+	/**
+	 * Retrieves the instances of the description once and intersects them
+	 * with the given individuals. If there are only few individuals compared to
+	 * the size of the knowledge base, single instance checks are cheaper and
+	 * used instead.
+	 */
+	@Override
+	protected BitSet hasTypeImpl(Description description, List<Individual> individuals)
+			throws ReasoningMethodUnsupportedException {
+		if(individuals.size() * 10 < this.individuals.size()) {
+			return super.hasTypeImpl(description, individuals);
+		}
+		BitSet covered = new BitSet(individuals.size());
+		if(useBitSets) {
+			BitSet instances = instanceStore.getIndividuals(description);
+			for(int i=0; i<individuals.size(); i++) {
+				int id = instanceStore.getId(individuals.get(i));
+				if(id >= 0 && instances.get(id)) {
+					covered.set(i);
+				}
+			}
+		} else {
+			SortedSet<Individual> instances = getIndividualsImpl(description);
+			for(int i=0; i<individuals.size(); i++) {
+				if(instances.contains(individuals.get(i))) {
+					covered.set(i);
+				}
+			}
+		}
+		return covered;
+	}
+
 	@Override
 	public SortedSet<Individual> getIndividualsImpl(Description concept) throws ReasoningMethodUnsupportedException {
+		if(useBitSets) {
+			return instanceStore.toIndividuals(instanceStore.getIndividuals(concept));
+		}
 		return getIndividualsImplFast(concept);
 	}
 	
 	public SortedSet<Individual> getIndividualsImplStandard(Description concept)
 		throws ReasoningMethodUnsupportedException {
-		if (concept instanceof NamedClass) {
+		if (useBitSets && concept instanceof NamedClass) {
+			return instanceStore.getInstances((NamedClass) concept);
+		} else if (useBitSets && concept instanceof Negation && concept.getChild(0) instanceof NamedClass) {
+			return instanceStore.getNegatedInstances((NamedClass) concept.getChild(0));
+		} else if (concept instanceof NamedClass) {
 	 		return classInstancesPos.get((NamedClass) concept);
 	 	} else if (concept instanceof Negation && concept.getChild(0) instanceof NamedClass) {
 	 		return classInstancesNeg.get((NamedClass) concept.getChild(0));
@@ -644,12 +805,30 @@ public class FastInstanceChecker extends AbstractReasonerComponent {
 		return inds;
 	}
 	
-	@SuppressWarnings("unchecked")
 	public SortedSet<Individual> getIndividualsImplFast(Description description)
 			throws ReasoningMethodUnsupportedException {
+		// policy: returned sets are clones, which also holds for memoized sets
+		if(retrievalMemo == null || !RetrievalMemo.isMemoizable(description)) {
+			return computeIndividualsFast(description);
+		}
+		SortedSet<Individual> ret = retrievalMemo.get(description);
+		if(ret == null) {
+			long generation = retrievalMemo.getGeneration();
+			ret = computeIndividualsFast(description);
+			retrievalMemo.put(description, ret, generation);
+		}
+		return ret;
+	}
+
+	@SuppressWarnings("unchecked")
+	private SortedSet<Individual> computeIndividualsFast(Description description)
+			throws ReasoningMethodUnsupportedException {
 		// policy: returned sets are clones, i.e. can be modified
 		// (of course we only have to clone the leafs of a class description tree)
-		if (description instanceof NamedClass) {
+		if (useBitSets && (description instanceof NamedClass
+				|| (description instanceof Negation && description.getChild(0) instanceof NamedClass))) {
+			return instanceStore.toIndividuals(instanceStore.getIndividuals(description));
+		} else if (description instanceof NamedClass) {
 			if(classInstancesPos.containsKey((NamedClass) description)){
 				return (TreeSet<Individual>) classInstancesPos.get((NamedClass) description).clone();
 			} else {
@@ -1208,6 +1387,18 @@ public class FastInstanceChecker extends AbstractReasonerComponent {
 		rc.releaseKB();
 	}
 
+	/**
+	 * Discards the memoized retrieval results, which may be outdated after
+	 * the knowledge base has changed.
+	 */
+	@Override
+	public void setUpdated() {
+		invalidateRetrievalMemo();
+		if(rc != null) {
+			rc.setUpdated();
+		}
+	}
+
 //	@Override
 //	public boolean hasDatatypeSupport() {
 //		return true;
@@ -1259,5 +1450,174 @@ public class FastInstanceChecker extends AbstractReasonerComponent {
 		this.forallSemantics = forallSemantics;
 	}
 
+	public boolean isUseBitSets() {
+		return useBitSets;
+	}
+
+	public void setUseBitSets(boolean useBitSets) {
+		this.useBitSets = useBitSets;
+	}
+
+	/**
+	 * @return the bit set based instance store or null if bit sets are not used
+	 */
+	public BitSetInstanceStore getInstanceStore() {
+		return instanceStore;
+	}
+
+	public int getNrOfDematerialisationThreads() {
+		return nrOfDematerialisationThreads;
+	}
+
+	public void setNrOfDematerialisationThreads(int nrOfDematerialisationThreads) {
+		this.nrOfDematerialisationThreads = nrOfDematerialisationThreads;
+	}
+
+	public int getRetrievalMemoSize() {
+		return retrievalMemoSize;
+	}
+
+	public void setRetrievalMemoSize(int retrievalMemoSize) {
+		this.retrievalMemoSize = retrievalMemoSize;
+	}
+
+	/**
+	 * @return the memo for the instances of complex sub-expressions or null
+	 * if memoization is disabled
+	 */
+	public RetrievalMemo<?> getRetrievalMemo() {
+		if(useBitSets) {
+			return instanceStore == null ? null : instanceStore.getRetrievalMemo();
+		}
+		return retrievalMemo;
+	}
+
+	/**
+	 * Discards all memoized retrieval results. This has to be called if the
+	 * dematerialised knowledge base is modified after initialisation.
+	 */
+	public void invalidateRetrievalMemo() {
+		RetrievalMemo<?> memo = getRetrievalMemo();
+		if(memo != null) {
+			memo.invalidate();
+		}
+	}
+
+	// dematerialises a single class or property
+	private interface EntityDematerialiser<E> {
+		void dematerialise(E entity, OWLAPIReasoner reasoner);
+	}
+
+	/**
+	 * Runs the dematerialisation of all classes or properties of one kind,
+	 * either sequentially with the underlying reasoner or in parallel in a
+	 * fork/join pool. In the latter case, each thread takes one of several
+	 * reasoner instances (the underlying reasoner and copies of it), so no
+	 * reasoner is accessed by two threads at the same time.
+	 */
+	private class Dematerialiser {
+		
+		private ForkJoinPool pool;
+		private BlockingQueue<OWLAPIReasoner> reasoners;
+		private List<OWLAPIReasoner> additionalReasoners = new ArrayList<OWLAPIReasoner>();
+		
+		public Dematerialiser(int nrOfThreads) throws ComponentInitException {
+			if(nrOfThreads <= 1) {
+				return;
+			}
+			if(rc.getSources() == null || rc.getSources().isEmpty()) {
+				logger.warn("The underlying reasoner has no knowledge sources, which could be loaded by additional reasoners. Dematerialising sequentially.");
+				return;
+			}
+			long startTime = System.currentTimeMillis();
+			pool = new ForkJoinPool(nrOfThreads);
+			
+			// the additional reasoners are initialised in parallel, too
+			List<Callable<OWLAPIReasoner>> tasks = new ArrayList<Callable<OWLAPIReasoner>>();
+			for(int i = 1; i < nrOfThreads; i++) {
+				tasks.add(new Callable<OWLAPIReasoner>() {
+					@Override
+					public OWLAPIReasoner call() throws Exception {
+						OWLAPIReasoner reasoner = new OWLAPIReasoner(rc.getSources());
+						reasoner.setReasonerTypeString(rc.getReasonerTypeString());
+						reasoner.setOwlLinkURL(rc.getOwlLinkURL());
+						reasoner.init();
+						return reasoner;
+					}
+				});
+			}
+			additionalReasoners.addAll(invokeAll(tasks));
+			reasoners = new ArrayBlockingQueue<OWLAPIReasoner>(nrOfThreads);
+			reasoners.add(rc);
+			reasoners.addAll(additionalReasoners);
+			logger.debug("initialised " + additionalReasoners.size() + " additional reasoners for dematerialisation in " + (System.currentTimeMillis() - startTime) + " ms");
+		}
+		
+		public <E> void run(final String phase, Collection<E> entities, final EntityDematerialiser<E> dematerialiser) throws ComponentInitException {
+			long startTime = System.currentTimeMillis();
+			logger.debug("dematerialising " + phase);
+			final int total = entities.size();
+			// progress is reported in steps of 10%
+			final int step = Math.max(1, total / 10);
+			final AtomicInteger done = new AtomicInteger();
+			
+			if(pool == null) {
+				for(E entity : entities) {
+					dematerialiser.dematerialise(entity, rc);
+					reportProgress(phase, done.incrementAndGet(), total, step);
+				}
+			} else {
+				List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+				for(final E entity : entities) {
+					tasks.add(new Callable<Void>() {
+						@Override
+						public Void call() throws Exception {
+							OWLAPIReasoner reasoner = reasoners.take();
+							try {
+								dematerialiser.dematerialise(entity, reasoner);
+							} finally {
+								reasoners.put(reasoner);
+							}
+							reportProgress(phase, done.incrementAndGet(), total, step);
+							return null;
+						}
+					});
+				}
+				invokeAll(tasks);
+			}
+			logger.debug(total + " " + phase + " dematerialised in " + (System.currentTimeMillis() - startTime) + " ms");
+		}
+		
+		private void reportProgress(String phase, int done, int total, int step) {
+			if(done % step == 0 && done < total) {
+				logger.debug("dematerialised " + done + " of " + total + " " + phase);
+			}
+		}
+		
+		// runs the tasks and returns their results, failures are rethrown
+		private <T> List<T> invokeAll(List<Callable<T>> tasks) throws ComponentInitException {
+			List<T> results = new ArrayList<T>();
+			for(Future<T> future : pool.invokeAll(tasks)) {
+				try {
+					results.add(future.get());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new ComponentInitException("Dematerialisation was interrupted.", e);
+				} catch (ExecutionException e) {
+					throw new ComponentInitException("Dematerialisation failed.", e.getCause());
+				}
+			}
+			return results;
+		}
+		
+		public void shutdown() {
+			if(pool != null) {
+				pool.shutdown();
+				for(OWLAPIReasoner reasoner : additionalReasoners) {
+					reasoner.releaseKB();
+				}
+			}
+		}
+	}
 
 }
@@ -20,11 +20,7 @@
 package org.dllearner.reasoning;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
@@ -154,8 +150,17 @@ public class MaterializableFastInstanceChecker extends AbstractReasonerComponent
     private boolean materializeExistentialRestrictions = false;
 
 	private boolean useCaching = true;
+	// the directory of the materialization snapshots
+	private File cacheDirectory = new File("cache");
     private boolean handlePunning = true;
 
+    @ConfigOption(name = "useBitSets", description = "Whether to store the dematerialised class and boolean datatype property extensions as bit sets over dense individual ids. " +
+    		"This reduces the memory consumption of the class extensions (object and datatype property assertions are kept as before) and makes retrieval of complex descriptions considerably faster on large ABoxes.", defaultValue = "false", required = false)
+    private boolean useBitSets = false;
+
+    // only used if useBitSets is enabled
+    private BitSetInstanceStore instanceStore;
+
     public enum ForallSemantics { 
     	Standard, // standard all quantor
     	NonEmpty, // p only C for instance a returns false if there is no fact p(a,x) for any x  
@@ -262,41 +267,93 @@ public class MaterializableFastInstanceChecker extends AbstractReasonerComponent
 		atomicRoles = rc.getObjectProperties();
 		individuals = (TreeSet<Individual>) rc.getIndividuals();
 
-		loadOrDematerialize();
+		MaterializationSnapshot snapshot = loadOrDematerialize();
+		
+		if(useBitSets) {
+			buildInstanceStore(snapshot);
+		}
+	}
+	
+	/**
+	 * Converts the class and boolean datatype property extensions into a
+	 * {@link BitSetInstanceStore}. The tree based class extensions are released
+	 * afterwards, all class related lookups are answered by the store. The property
+	 * maps are kept, see {@link BitSetInstanceStore}.
+	 * @param snapshot The snapshot the materialization was loaded from, if any.
+	 * In this case the store answers the lookups from the snapshot.
+	 */
+	private void buildInstanceStore(MaterializationSnapshot snapshot) {
+		BitSetInstanceStore.Fallback fallback = new BitSetInstanceStore.Fallback() {
+			@Override
+			public SortedSet<Individual> getIndividuals(Description description) throws ReasoningMethodUnsupportedException {
+				return getIndividualsImplFast(description);
+			}
+		};
+		if(snapshot != null) {
+			instanceStore = BitSetInstanceStore.build(snapshot, fallback);
+		} else {
+			instanceStore = BitSetInstanceStore.build(individuals, classInstancesPos, classInstancesNeg, opPos, bdPos, bdNeg, fallback);
+		}
+		// the maps may be shared (e.g. with a cached materialization), so they are replaced instead of cleared
+		classInstancesPos = new TreeMap<NamedClass, TreeSet<Individual>>();
+		classInstancesNeg = new TreeMap<NamedClass, TreeSet<Individual>>();
 	}
 	
-	private void loadOrDematerialize(){
+	/**
+	 * Loads the materialization from its snapshot or dematerialises the knowledge
+	 * base and writes a snapshot (if caching is enabled). A loaded snapshot is not
+	 * decoded, the maps of the reasoner are views of the mapped file.
+	 * @return The loaded snapshot or null if the knowledge base was dematerialised.
+	 */
+	private MaterializationSnapshot loadOrDematerialize(){
 		if(useCaching){
-			File cacheDir = new File("cache");
+			File cacheDir = cacheDirectory;
 			cacheDir.mkdirs();
 			HashFunction hf = Hashing.md5();
 			Hasher hasher = hf.newHasher();
 			hasher.putBoolean(materializeExistentialRestrictions);
 			hasher.putBoolean(handlePunning);
+			hasher.putBoolean(defaultNegation);
 			for (OWLOntology ont : rc.getOWLAPIOntologies()) {
 				hasher.putInt(ont.getLogicalAxioms().hashCode());
 				hasher.putInt(ont.getAxioms().hashCode());
 			}
-			String filename = hasher.hash().toString() + ".obj";
+			String key = hasher.hash().toString();
+			String filename = key + ".mat";
 			
 			File cacheFile = new File(cacheDir, filename);
+			MaterializationSnapshot snapshot = null;
 			if(cacheFile.exists()){
 				logger.debug("Loading materialization from disk...");
-				try(ObjectInputStream ois = new ObjectInputStream(new FileInputStream(cacheFile))){
-					Materialization mat = (Materialization) ois.readObject();
-					classInstancesPos = mat.classInstancesPos;
-					classInstancesNeg = mat.classInstancesNeg;
-					opPos = mat.opPos;
-					dpPos = mat.dpPos;
-					bdPos = mat.bdPos;
-					bdNeg = mat.bdNeg;
-					dd = mat.dd;
-					id = mat.id;
-					sd = mat.sd;
-				} catch (ClassNotFoundException | IOException e) {
-					e.printStackTrace();
-				} 
-				logger.debug("done.");
+				long startTime = System.currentTimeMillis();
+				try {
+					snapshot = MaterializationSnapshot.read(cacheFile, key);
+					if(snapshot == null) {
+						logger.info("Materialization snapshot " + cacheFile + " has an outdated format and is replaced.");
+					}
+				} catch (IOException e) {
+					logger.warn("Could not load materialization snapshot " + cacheFile + ", the knowledge base is dematerialised again.", e);
+				}
+				logger.debug("done in " + (System.currentTimeMillis() - startTime) + " ms.");
+			}
+			if(snapshot != null) {
+				Materialization mat = snapshot.getMaterialization();
+				classInstancesPos = mat.classInstancesPos;
+				classInstancesNeg = mat.classInstancesNeg;
+				opPos = mat.opPos;
+				dpPos = mat.dpPos;
+				bdPos = mat.bdPos;
+				bdNeg = mat.bdNeg;
+				dd = mat.dd;
+				id = mat.id;
+				sd = mat.sd;
+				// the punning property is part of the materialization, but not of the ontology
+				if(handlePunning && opPos.containsKey(OWLPunningDetector.punningProperty)) {
+					atomicRoles = new TreeSet<ObjectProperty>(atomicRoles);
+					atomicRoles.add(OWLPunningDetector.punningProperty);
+					atomicRoles = Collections.unmodifiableSet(atomicRoles);
+				}
+				return snapshot;
 			} else {
 				dematerialize();
 				Materialization mat = new Materialization();
@@ -309,15 +366,16 @@ public class MaterializableFastInstanceChecker extends AbstractReasonerComponent
 				mat.dd = dd;
 				mat.id = id;
 				mat.sd = sd;
-				try(ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(cacheFile))){
-					oos.writeObject(mat);
+				try {
+					MaterializationSnapshot.write(mat, individuals, key, cacheFile);
 				} catch (IOException e) {
-					e.printStackTrace();
+					logger.warn("Could not write materialization snapshot " + cacheFile, e);
 				} 
 			}
 		} else {
 			dematerialize();
 		}
+		return null;
 	}
 	
 	private void dematerialize(){
@@ -471,10 +529,16 @@ public class MaterializableFastInstanceChecker extends AbstractReasonerComponent
 			if(!atomicConcepts.contains(description)) {
 				throw new ReasoningMethodUnsupportedException("Class " + description + " is not contained in knowledge base.");
 			}
+			if(useBitSets) {
+				return instanceStore.hasType((NamedClass) description, individual);
+			}
 			return classInstancesPos.get((NamedClass) description).contains(individual);
 		} else if (description instanceof Negation) {
 			Description child = description.getChild(0);
 			if (child instanceof NamedClass) {
+				if(useBitSets) {
+					return instanceStore.hasNegatedType((NamedClass) child, individual);
+				}
 				return classInstancesNeg.get((NamedClass) child).contains(individual);
 			} else {
 				// default negation
@@ -736,12 +800,19 @@ public class MaterializableFastInstanceChecker extends AbstractReasonerComponent
 
 	@Override
 	public SortedSet<Individual> getIndividualsImpl(Description concept) throws ReasoningMethodUnsupportedException {
+		if(useBitSets) {
+			return instanceStore.toIndividuals(instanceStore.getIndividuals(concept));
+		}
 		return getIndividualsImplFast(concept);
 	}
 	
 	public SortedSet<Individual> getIndividualsImplStandard(Description concept)
 		throws ReasoningMethodUnsupportedException {
-		if (concept instanceof NamedClass) {
+		if (useBitSets && concept instanceof NamedClass) {
+			return instanceStore.getInstances((NamedClass) concept);
+		} else if (useBitSets && concept instanceof Negation && concept.getChild(0) instanceof NamedClass) {
+			return instanceStore.getNegatedInstances((NamedClass) concept.getChild(0));
+		} else if (concept instanceof NamedClass) {
 	 		return classInstancesPos.get((NamedClass) concept);
 	 	} else if (concept instanceof Negation && concept.getChild(0) instanceof NamedClass) {
 	 		return classInstancesNeg.get((NamedClass) concept.getChild(0));
@@ -762,7 +833,10 @@ public class MaterializableFastInstanceChecker extends AbstractReasonerComponent
 			throws ReasoningMethodUnsupportedException {
 		// policy: returned sets are clones, i.e. can be modified
 		// (of course we only have to clone the leafs of a class description tree)
-		if (description instanceof NamedClass) {
+		if (useBitSets && (description instanceof NamedClass
+				|| (description instanceof Negation && description.getChild(0) instanceof NamedClass))) {
+			return instanceStore.toIndividuals(instanceStore.getIndividuals(description));
+		} else if (description instanceof NamedClass) {
 			if(classInstancesPos.containsKey((NamedClass) description)){
 				return (TreeSet<Individual>) classInstancesPos.get((NamedClass) description).clone();
 			} else {
@@ -1326,4 +1400,26 @@ public class MaterializableFastInstanceChecker extends AbstractReasonerComponent
 	public void setUseMaterializationCaching(boolean useCaching) {
 		this.useCaching = useCaching;
 	}
+	
+	/**
+	 * @param cacheDirectory the directory of the materialization snapshots (default: cache)
+	 */
+	public void setCacheDirectory(File cacheDirectory) {
+		this.cacheDirectory = cacheDirectory;
+	}
+
+	public boolean isUseBitSets() {
+		return useBitSets;
+	}
+
+	public void setUseBitSets(boolean useBitSets) {
+		this.useBitSets = useBitSets;
+	}
+
+	/**
+	 * @return the bit set based instance store or null if bit sets are not used
+	 */
+	public BitSetInstanceStore getInstanceStore() {
+		return instanceStore;
+	}
 }
@@ -0,0 +1,1098 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.reasoning;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.dllearner.core.owl.Constant;
+import org.dllearner.core.owl.Datatype;
+import org.dllearner.core.owl.DatatypeProperty;
+import org.dllearner.core.owl.Individual;
+import org.dllearner.core.owl.NamedClass;
+import org.dllearner.core.owl.NamedKBElement;
+import org.dllearner.core.owl.ObjectProperty;
+import org.dllearner.core.owl.TypedConstant;
+import org.dllearner.core.owl.UntypedConstant;
+
+import com.google.common.io.CountingOutputStream;
+
+/**
+ * A {@link Materialization} stored in a compact binary file, which is memory
+ * mapped and queried in place. In contrast to Java serialization, the format does
+ * not contain any object graph: all individuals are stored once in a sorted
+ * dictionary and referred to by their position in it, class and boolean datatype
+ * property extensions are stored as bit sets over those positions, and property
+ * assertions are stored in tables indexed by the position of the subject (object
+ * property fillers in compressed sparse rows, datatype values as offsets of
+ * their encoded values).
+ *
+ * Opening a snapshot only reads the index at the end of the file. Lookups read
+ * the mapped file, so the snapshot does not occupy heap space and the operating
+ * system only loads the pages which are actually used. The
+ * {@link BitSetInstanceStore} works directly on the bit sets and adjacency tables
+ * of a snapshot, and {@link #getMaterialization()} provides the maps used by the
+ * fast instance checker as views, whose values are decoded on access.
+ *
+ * Each snapshot starts with a format version and a key describing the knowledge
+ * base it was created for; snapshots with a different version or key are rejected.
+ */
+final class MaterializationSnapshot implements BitSetInstanceStore.Dictionary {
+
+	private static final int MAGIC = 0x444c4d53;
+
+	/**
+	 * The version of the snapshot format; must be increased whenever the format changes.
+	 */
+	static final int VERSION = 2;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	// kinds of constants
+	private static final byte UNTYPED = 0;
+	private static final byte UNTYPED_WITH_LANG = 1;
+	private static final byte TYPED = 2;
+
+	// the size of the mapped regions (files larger than this are mapped piecewise)
+	private static final int REGION_BITS = 30;
+	private static final int REGION_SIZE = 1 << REGION_BITS;
+
+	/**
+	 * Writes and reads the values of a datatype property.
+	 */
+	private interface ValueCodec<V> {
+		void write(DataOutputStream out, V value) throws IOException;
+
+		V read(Cursor in);
+	}
+
+	private static final ValueCodec<Double> DOUBLES = new ValueCodec<Double>() {
+		@Override
+		public void write(DataOutputStream out, Double value) throws IOException {
+			out.writeDouble(value);
+		}
+
+		@Override
+		public Double read(Cursor in) {
+			return in.readDouble();
+		}
+	};
+
+	private static final ValueCodec<Integer> INTEGERS = new ValueCodec<Integer>() {
+		@Override
+		public void write(DataOutputStream out, Integer value) throws IOException {
+			out.writeInt(value);
+		}
+
+		@Override
+		public Integer read(Cursor in) {
+			return in.readInt();
+		}
+	};
+
+	private static final ValueCodec<String> STRINGS = new ValueCodec<String>() {
+		@Override
+		public void write(DataOutputStream out, String value) throws IOException {
+			writeString(out, value);
+		}
+
+		@Override
+		public String read(Cursor in) {
+			return in.readString();
+		}
+	};
+
+	private final MappedFile data;
+
+	// the dictionary: the number of individuals and the position of the table with the positions of their names
+	private final int size;
+	private final long namesTable;
+	// datatypes and language tags
+	private final String[] strings;
+	private final ConcurrentMap<String, Datatype> datatypes = new ConcurrentHashMap<String, Datatype>();
+
+	// the individuals of the knowledge base
+	private MappedIdSet individuals;
+	private Map<NamedClass, MappedIdSet> classInstancesPos = new TreeMap<NamedClass, MappedIdSet>();
+	private Map<NamedClass, MappedIdSet> classInstancesNeg = new TreeMap<NamedClass, MappedIdSet>();
+	private Map<ObjectProperty, MappedAdjacency> opPos = new TreeMap<ObjectProperty, MappedAdjacency>();
+	private Map<DatatypeProperty, MappedValues<Constant>> dpPos = new TreeMap<DatatypeProperty, MappedValues<Constant>>();
+	private Map<DatatypeProperty, MappedIdSet> bdPos = new TreeMap<DatatypeProperty, MappedIdSet>();
+	private Map<DatatypeProperty, MappedIdSet> bdNeg = new TreeMap<DatatypeProperty, MappedIdSet>();
+	private Map<DatatypeProperty, MappedValues<Double>> dd = new TreeMap<DatatypeProperty, MappedValues<Double>>();
+	private Map<DatatypeProperty, MappedValues<Integer>> id = new TreeMap<DatatypeProperty, MappedValues<Integer>>();
+	private Map<DatatypeProperty, MappedValues<String>> sd = new TreeMap<DatatypeProperty, MappedValues<String>>();
+
+	private MaterializationSnapshot(MappedFile data, int size, long namesTable, String[] strings) {
+		this.data = data;
+		this.size = size;
+		this.namesTable = namesTable;
+		this.strings = strings;
+	}
+
+	/**
+	 * Writes a snapshot. The snapshot is first written to a temporary file, so
+	 * that an interrupted write does not leave a corrupt snapshot behind.
+	 * @param mat The materialization.
+	 * @param kbIndividuals The individuals of the knowledge base.
+	 * @param key Identifies the knowledge base and the settings used for the materialization.
+	 * @param file The snapshot file.
+	 */
+	static void write(Materialization mat, SortedSet<Individual> kbIndividuals, String key, File file) throws IOException {
+		// dictionary of individuals (positions in sorted order)
+		TreeSet<Individual> individuals = collectIndividuals(mat);
+		individuals.addAll(kbIndividuals);
+		Map<Individual, Integer> ids = new HashMap<Individual, Integer>(individuals.size() * 2);
+		for(Individual ind : individuals) {
+			ids.put(ind, ids.size());
+		}
+		// dictionary of datatypes and language tags
+		final Map<String, Integer> strings = new HashMap<String, Integer>();
+		List<String> stringList = new ArrayList<String>();
+		for(Map<Individual, SortedSet<Constant>> members : mat.dpPos.values()) {
+			for(SortedSet<Constant> constants : members.values()) {
+				for(Constant constant : constants) {
+					String s = getQualifier(constant);
+					if(s != null && !strings.containsKey(s)) {
+						strings.put(s, stringList.size());
+						stringList.add(s);
+					}
+				}
+			}
+		}
+		ValueCodec<Constant> constants = new ValueCodec<Constant>() {
+			@Override
+			public void write(DataOutputStream out, Constant value) throws IOException {
+				writeConstant(out, value, strings);
+			}
+
+			@Override
+			public Constant read(Cursor in) {
+				throw new UnsupportedOperationException();
+			}
+		};
+
+		File tmpFile = new File(file.getPath() + ".tmp");
+		try(CountingOutputStream counter = new CountingOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile), 1 << 16));
+				DataOutputStream out = new DataOutputStream(counter)) {
+			// the index lists the positions of all tables and is written behind them
+			ByteArrayOutputStream indexBytes = new ByteArrayOutputStream();
+			DataOutputStream index = new DataOutputStream(indexBytes);
+
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			writeString(out, key);
+
+			long[] namePositions = new long[individuals.size()];
+			int i = 0;
+			for(Individual ind : individuals) {
+				namePositions[i++] = counter.getCount();
+				writeString(out, ind.getName());
+			}
+			index.writeInt(namePositions.length);
+			index.writeLong(counter.getCount());
+			for(long position : namePositions) {
+				out.writeLong(position);
+			}
+
+			index.writeInt(stringList.size());
+			for(String s : stringList) {
+				writeString(index, s);
+			}
+
+			writeIdSet(out, counter, index, kbIndividuals, ids);
+			writeIdSets(out, counter, index, mat.classInstancesPos, ids);
+			writeIdSets(out, counter, index, mat.classInstancesNeg, ids);
+
+			// object properties
+			index.writeInt(mat.opPos.size());
+			for(Entry<ObjectProperty, Map<Individual, SortedSet<Individual>>> entry : mat.opPos.entrySet()) {
+				writeString(index, entry.getKey().getName());
+				Map<Individual, SortedSet<Individual>> members = entry.getValue();
+				writeIdSet(out, counter, index, members.keySet(), ids);
+				index.writeInt(members.size());
+
+				// count fillers per subject, then compute prefix sums
+				int[] offsets = new int[ids.size() + 1];
+				for(Entry<Individual, SortedSet<Individual>> edges : members.entrySet()) {
+					offsets[ids.get(edges.getKey()) + 1] = edges.getValue().size();
+				}
+				for(int j = 1; j < offsets.length; j++) {
+					offsets[j] += offsets[j - 1];
+				}
+				int[] targets = new int[offsets[offsets.length - 1]];
+				for(Entry<Individual, SortedSet<Individual>> edges : members.entrySet()) {
+					int position = offsets[ids.get(edges.getKey())];
+					for(Individual object : edges.getValue()) {
+						targets[position++] = ids.get(object);
+					}
+				}
+				index.writeLong(counter.getCount());
+				for(int offset : offsets) {
+					out.writeInt(offset);
+				}
+				index.writeLong(counter.getCount());
+				for(int target : targets) {
+					out.writeInt(target);
+				}
+			}
+
+			writeValues(out, counter, index, mat.dpPos, ids, constants);
+			writeIdSets(out, counter, index, mat.bdPos, ids);
+			writeIdSets(out, counter, index, mat.bdNeg, ids);
+			writeValues(out, counter, index, mat.dd, ids, DOUBLES);
+			writeValues(out, counter, index, mat.id, ids, INTEGERS);
+			writeValues(out, counter, index, mat.sd, ids, STRINGS);
+
+			long indexPosition = counter.getCount();
+			index.close();
+			indexBytes.writeTo(out);
+			out.writeLong(indexPosition);
+			// end marker to detect truncated files
+			out.writeInt(MAGIC);
+		}
+
+		if(file.exists() && !file.delete()) {
+			throw new IOException("Could not replace materialization snapshot " + file);
+		}
+		if(!tmpFile.renameTo(file)) {
+			throw new IOException("Could not write materialization snapshot " + file);
+		}
+	}
+
+	/**
+	 * Opens a snapshot. Only the index is read, the tables stay in the mapped file.
+	 * @param file The snapshot file.
+	 * @param key The key of the knowledge base and settings, for which a materialization is needed.
+	 * @return The snapshot or null if the snapshot has a different format version or key.
+	 * @throws IOException if the snapshot cannot be read or is corrupt.
+	 */
+	static MaterializationSnapshot read(File file, String key) throws IOException {
+		try(RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+			// the mapping stays valid after the channel is closed
+			MappedFile data = new MappedFile(channel);
+			Cursor in = new Cursor(data, 0);
+			if(data.size() < 12 || in.readInt() != MAGIC) {
+				throw new IOException(file + " is not a materialization snapshot.");
+			}
+			if(in.readInt() != VERSION || !in.readString().equals(key)) {
+				return null;
+			}
+			if(data.getInt(data.size() - 4) != MAGIC) {
+				throw new IOException("Materialization snapshot " + file + " is corrupt.");
+			}
+			long indexPosition = data.getLong(data.size() - 12);
+			in = new Cursor(data, indexPosition);
+
+			int size = in.readInt();
+			long namesTable = in.readLong();
+			checkRange(namesTable, 8L * size, indexPosition);
+			String[] strings = new String[in.readInt()];
+			for(int i = 0; i < strings.length; i++) {
+				strings[i] = in.readString();
+			}
+			MaterializationSnapshot snapshot = new MaterializationSnapshot(data, size, namesTable, strings);
+
+			snapshot.individuals = snapshot.readIdSet(in, indexPosition);
+			int nrOfEntries = in.readInt();
+			for(int i = 0; i < nrOfEntries; i++) {
+				snapshot.classInstancesPos.put(new NamedClass(in.readString()), snapshot.readIdSet(in, indexPosition));
+			}
+			nrOfEntries = in.readInt();
+			for(int i = 0; i < nrOfEntries; i++) {
+				snapshot.classInstancesNeg.put(new NamedClass(in.readString()), snapshot.readIdSet(in, indexPosition));
+			}
+
+			nrOfEntries = in.readInt();
+			for(int i = 0; i < nrOfEntries; i++) {
+				ObjectProperty property = new ObjectProperty(in.readString());
+				MappedIdSet subjects = snapshot.readIdSet(in, indexPosition);
+				int nrOfSubjects = in.readInt();
+				long offsets = in.readLong();
+				checkRange(offsets, 4L * (size + 1), indexPosition);
+				long targets = in.readLong();
+				checkRange(targets, 4L * data.getInt(offsets + 4L * size), indexPosition);
+				snapshot.opPos.put(property, snapshot.new MappedAdjacency(subjects, nrOfSubjects, offsets, targets));
+			}
+
+			nrOfEntries = in.readInt();
+			for(int i = 0; i < nrOfEntries; i++) {
+				DatatypeProperty property = new DatatypeProperty(in.readString());
+				snapshot.dpPos.put(property, snapshot.readValues(in, indexPosition, snapshot.new ConstantCodec()));
+			}
+			nrOfEntries = in.readInt();
+			for(int i = 0; i < nrOfEntries; i++) {
+				snapshot.bdPos.put(new DatatypeProperty(in.readString()), snapshot.readIdSet(in, indexPosition));
+			}
+			nrOfEntries = in.readInt();
+			for(int i = 0; i < nrOfEntries; i++) {
+				snapshot.bdNeg.put(new DatatypeProperty(in.readString()), snapshot.readIdSet(in, indexPosition));
+			}
+			nrOfEntries = in.readInt();
+			for(int i = 0; i < nrOfEntries; i++) {
+				snapshot.dd.put(new DatatypeProperty(in.readString()), snapshot.readValues(in, indexPosition, DOUBLES));
+			}
+			nrOfEntries = in.readInt();
+			for(int i = 0; i < nrOfEntries; i++) {
+				snapshot.id.put(new DatatypeProperty(in.readString()), snapshot.readValues(in, indexPosition, INTEGERS));
+			}
+			nrOfEntries = in.readInt();
+			for(int i = 0; i < nrOfEntries; i++) {
+				snapshot.sd.put(new DatatypeProperty(in.readString()), snapshot.readValues(in, indexPosition, STRINGS));
+			}
+
+			if(in.position != data.size() - 12) {
+				throw new IOException("Materialization snapshot " + file + " is corrupt.");
+			}
+			return snapshot;
+		} catch (IndexOutOfBoundsException | BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException e) {
+			// invalid positions or lengths
+			throw new IOException("Materialization snapshot " + file + " is corrupt.", e);
+		}
+	}
+
+	private static void checkRange(long position, long length, long end) throws IOException {
+		if(position < 0 || length < 0 || position + length > end) {
+			throw new IOException("Invalid table position " + position);
+		}
+	}
+
+	private MappedIdSet readIdSet(Cursor in, long end) throws IOException {
+		long position = in.readLong();
+		int nrOfWords = in.readInt();
+		checkRange(position, 8L * nrOfWords, end);
+		return new MappedIdSet(data, position, nrOfWords);
+	}
+
+	private <V> MappedValues<V> readValues(Cursor in, long end, ValueCodec<V> codec) throws IOException {
+		MappedIdSet subjects = readIdSet(in, end);
+		int nrOfSubjects = in.readInt();
+		long offsets = in.readLong();
+		checkRange(offsets, 8L * size, end);
+		return new MappedValues<V>(subjects, nrOfSubjects, offsets, codec);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Looks up an individual in the dictionary by binary search.
+	 */
+	@Override
+	public int getId(Individual individual) {
+		String name = individual.getName();
+		int low = 0;
+		int high = size - 1;
+		while(low <= high) {
+			int mid = (low + high) >>> 1;
+			int cmp = getName(mid).compareTo(name);
+			if(cmp < 0) {
+				low = mid + 1;
+			} else if(cmp > 0) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public Individual getIndividual(int id) {
+		return new Individual(getName(id));
+	}
+
+	private String getName(int id) {
+		return new Cursor(data, data.getLong(namesTable + 8L * id)).readString();
+	}
+
+	BitSetInstanceStore.IdSet getIndividuals() {
+		return individuals;
+	}
+
+	Map<NamedClass, ? extends BitSetInstanceStore.IdSet> getClassInstancesPos() {
+		return classInstancesPos;
+	}
+
+	Map<NamedClass, ? extends BitSetInstanceStore.IdSet> getClassInstancesNeg() {
+		return classInstancesNeg;
+	}
+
+	Map<ObjectProperty, ? extends BitSetInstanceStore.Adjacency> getObjectPropertyAssertions() {
+		return opPos;
+	}
+
+	Map<DatatypeProperty, ? extends BitSetInstanceStore.IdSet> getTrueDatatypeMembers() {
+		return bdPos;
+	}
+
+	Map<DatatypeProperty, ? extends BitSetInstanceStore.IdSet> getFalseDatatypeMembers() {
+		return bdNeg;
+	}
+
+	/**
+	 * Provides the snapshot as a materialization. The maps are read-only views of
+	 * the snapshot: class and boolean datatype property extensions are decoded on
+	 * first access, property assertions whenever the values of a subject are requested.
+	 */
+	Materialization getMaterialization() {
+		Materialization mat = new Materialization();
+		mat.classInstancesPos = new DecodingMap<NamedClass, MappedIdSet, TreeSet<Individual>>(classInstancesPos) {
+			@Override
+			TreeSet<Individual> decode(MappedIdSet instances) {
+				return toIndividuals(instances);
+			}
+		};
+		mat.classInstancesNeg = new DecodingMap<NamedClass, MappedIdSet, TreeSet<Individual>>(classInstancesNeg) {
+			@Override
+			TreeSet<Individual> decode(MappedIdSet instances) {
+				return toIndividuals(instances);
+			}
+		};
+		mat.opPos = new DecodingMap<ObjectProperty, MappedAdjacency, Map<Individual, SortedSet<Individual>>>(opPos) {
+			@Override
+			Map<Individual, SortedSet<Individual>> decode(final MappedAdjacency adjacency) {
+				return new SubjectMap<SortedSet<Individual>>(adjacency.subjects, adjacency.nrOfSubjects) {
+					@Override
+					SortedSet<Individual> getValues(int subject) {
+						SortedSet<Individual> objects = new TreeSet<Individual>();
+						for(int i = adjacency.getStart(subject); i < adjacency.getEnd(subject); i++) {
+							objects.add(getIndividual(adjacency.getTarget(i)));
+						}
+						return objects;
+					}
+				};
+			}
+		};
+		mat.dpPos = valueViews(dpPos);
+		mat.bdPos = new DecodingMap<DatatypeProperty, MappedIdSet, TreeSet<Individual>>(bdPos) {
+			@Override
+			TreeSet<Individual> decode(MappedIdSet instances) {
+				return toIndividuals(instances);
+			}
+		};
+		mat.bdNeg = new DecodingMap<DatatypeProperty, MappedIdSet, TreeSet<Individual>>(bdNeg) {
+			@Override
+			TreeSet<Individual> decode(MappedIdSet instances) {
+				return toIndividuals(instances);
+			}
+		};
+		mat.dd = valueViews(dd);
+		mat.id = valueViews(id);
+		mat.sd = valueViews(sd);
+		return mat;
+	}
+
+	private <V> Map<DatatypeProperty, Map<Individual, SortedSet<V>>> valueViews(Map<DatatypeProperty, MappedValues<V>> values) {
+		return new DecodingMap<DatatypeProperty, MappedValues<V>, Map<Individual, SortedSet<V>>>(values) {
+			@Override
+			Map<Individual, SortedSet<V>> decode(final MappedValues<V> members) {
+				return new SubjectMap<SortedSet<V>>(members.subjects, members.nrOfSubjects) {
+					@Override
+					SortedSet<V> getValues(int subject) {
+						return members.getValues(subject);
+					}
+				};
+			}
+		};
+	}
+
+	private TreeSet<Individual> toIndividuals(BitSetInstanceStore.IdSet ids) {
+		TreeSet<Individual> individuals = new TreeSet<Individual>();
+		for(int i = ids.nextSetBit(0); i >= 0; i = ids.nextSetBit(i + 1)) {
+			individuals.add(getIndividual(i));
+		}
+		return individuals;
+	}
+
+	// all individuals occurring in the materialization
+	private static TreeSet<Individual> collectIndividuals(Materialization mat) {
+		TreeSet<Individual> individuals = new TreeSet<Individual>();
+		for(TreeSet<Individual> instances : mat.classInstancesPos.values()) {
+			individuals.addAll(instances);
+		}
+		for(TreeSet<Individual> instances : mat.classInstancesNeg.values()) {
+			individuals.addAll(instances);
+		}
+		for(Map<Individual, SortedSet<Individual>> members : mat.opPos.values()) {
+			for(Entry<Individual, SortedSet<Individual>> entry : members.entrySet()) {
+				individuals.add(entry.getKey());
+				individuals.addAll(entry.getValue());
+			}
+		}
+		for(Map<Individual, SortedSet<Constant>> members : mat.dpPos.values()) {
+			individuals.addAll(members.keySet());
+		}
+		for(TreeSet<Individual> instances : mat.bdPos.values()) {
+			individuals.addAll(instances);
+		}
+		for(TreeSet<Individual> instances : mat.bdNeg.values()) {
+			individuals.addAll(instances);
+		}
+		for(Map<Individual, SortedSet<Double>> members : mat.dd.values()) {
+			individuals.addAll(members.keySet());
+		}
+		for(Map<Individual, SortedSet<Integer>> members : mat.id.values()) {
+			individuals.addAll(members.keySet());
+		}
+		for(Map<Individual, SortedSet<String>> members : mat.sd.values()) {
+			individuals.addAll(members.keySet());
+		}
+		return individuals;
+	}
+
+	// the datatype or language tag of a constant
+	private static String getQualifier(Constant constant) {
+		if(constant instanceof TypedConstant) {
+			return ((TypedConstant) constant).getDatatype().getIRI().toString();
+		} else if(((UntypedConstant) constant).hasLang()) {
+			return ((UntypedConstant) constant).getLang();
+		}
+		return null;
+	}
+
+	private static void writeConstant(DataOutputStream out, Constant constant, Map<String, Integer> strings) throws IOException {
+		if(constant instanceof TypedConstant) {
+			out.writeByte(TYPED);
+		} else if(((UntypedConstant) constant).hasLang()) {
+			out.writeByte(UNTYPED_WITH_LANG);
+		} else {
+			out.writeByte(UNTYPED);
+		}
+		writeString(out, constant.getLiteral());
+		String qualifier = getQualifier(constant);
+		if(qualifier != null) {
+			out.writeInt(strings.get(qualifier));
+		}
+	}
+
+	// writes the bit set to the file and its position and length to the index
+	private static void writeIdSet(DataOutputStream out, CountingOutputStream counter, DataOutputStream index,
+			Set<Individual> individuals, Map<Individual, Integer> ids) throws IOException {
+		BitSet bits = new BitSet(ids.size());
+		for(Individual ind : individuals) {
+			bits.set(ids.get(ind));
+		}
+		long[] words = bits.toLongArray();
+		index.writeLong(counter.getCount());
+		index.writeInt(words.length);
+		for(long word : words) {
+			out.writeLong(word);
+		}
+	}
+
+	private static void writeIdSets(DataOutputStream out, CountingOutputStream counter, DataOutputStream index,
+			Map<? extends NamedKBElement, ? extends Set<Individual>> extensions, Map<Individual, Integer> ids) throws IOException {
+		index.writeInt(extensions.size());
+		for(Entry<? extends NamedKBElement, ? extends Set<Individual>> entry : extensions.entrySet()) {
+			writeString(index, entry.getKey().getName());
+			writeIdSet(out, counter, index, entry.getValue(), ids);
+		}
+	}
+
+	// the values of a subject are written as a block of their number followed by the encoded values,
+	// the table indexed by the ids of the subjects contains the positions of the blocks
+	private static <V> void writeValues(DataOutputStream out, CountingOutputStream counter, DataOutputStream index,
+			Map<DatatypeProperty, Map<Individual, SortedSet<V>>> properties, Map<Individual, Integer> ids,
+			ValueCodec<V> codec) throws IOException {
+		index.writeInt(properties.size());
+		for(Entry<DatatypeProperty, Map<Individual, SortedSet<V>>> entry : properties.entrySet()) {
+			writeString(index, entry.getKey().getName());
+			Map<Individual, SortedSet<V>> members = entry.getValue();
+			writeIdSet(out, counter, index, members.keySet(), ids);
+			index.writeInt(members.size());
+
+			long[] positions = new long[ids.size()];
+			for(Entry<Individual, SortedSet<V>> values : members.entrySet()) {
+				positions[ids.get(values.getKey())] = counter.getCount();
+				out.writeInt(values.getValue().size());
+				for(V value : values.getValue()) {
+					codec.write(out, value);
+				}
+			}
+			index.writeLong(counter.getCount());
+			for(long position : positions) {
+				out.writeLong(position);
+			}
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(UTF8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	/**
+	 * A memory mapped file. Files larger than {@link MaterializationSnapshot#REGION_SIZE}
+	 * are mapped in several regions, which overlap by 8 bytes, so that primitive values
+	 * can always be read from a single region. All reads are absolute, so a mapped file
+	 * can be read by several threads.
+	 */
+	private static class MappedFile {
+
+		private static final int OVERLAP = 8;
+
+		private final long size;
+		private final ByteBuffer[] regions;
+
+		MappedFile(FileChannel channel) throws IOException {
+			size = channel.size();
+			regions = new ByteBuffer[(int) Math.max(1, (size + REGION_SIZE - 1) >>> REGION_BITS)];
+			for(int i = 0; i < regions.length; i++) {
+				long start = (long) i << REGION_BITS;
+				regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, REGION_SIZE + OVERLAP));
+			}
+		}
+
+		long size() {
+			return size;
+		}
+
+		private ByteBuffer region(long position) {
+			if(position < 0 || position >= size) {
+				throw new IndexOutOfBoundsException("Position " + position + " is outside of the snapshot");
+			}
+			return regions[(int) (position >>> REGION_BITS)];
+		}
+
+		private static int offset(long position) {
+			return (int) (position & (REGION_SIZE - 1));
+		}
+
+		byte get(long position) {
+			return region(position).get(offset(position));
+		}
+
+		int getInt(long position) {
+			return region(position).getInt(offset(position));
+		}
+
+		long getLong(long position) {
+			return region(position).getLong(offset(position));
+		}
+
+		double getDouble(long position) {
+			return region(position).getDouble(offset(position));
+		}
+
+		byte[] getBytes(long position, int length) {
+			byte[] bytes = new byte[length];
+			int done = 0;
+			while(done < length) {
+				ByteBuffer region = region(position + done).duplicate();
+				int offset = offset(position + done);
+				int n = Math.min(length - done, REGION_SIZE - offset);
+				region.position(offset);
+				region.get(bytes, done, n);
+				done += n;
+			}
+			return bytes;
+		}
+	}
+
+	/**
+	 * Reads consecutive values from a mapped file.
+	 */
+	private static class Cursor {
+
+		private final MappedFile data;
+		private long position;
+
+		Cursor(MappedFile data, long position) {
+			this.data = data;
+			this.position = position;
+		}
+
+		byte readByte() {
+			return data.get(position++);
+		}
+
+		int readInt() {
+			int value = data.getInt(position);
+			position += 4;
+			return value;
+		}
+
+		long readLong() {
+			long value = data.getLong(position);
+			position += 8;
+			return value;
+		}
+
+		double readDouble() {
+			double value = data.getDouble(position);
+			position += 8;
+			return value;
+		}
+
+		String readString() {
+			int length = readInt();
+			if(length < 0) {
+				throw new IllegalArgumentException("Invalid string length " + length);
+			}
+			byte[] bytes = data.getBytes(position, length);
+			position += length;
+			return new String(bytes, UTF8);
+		}
+	}
+
+	/**
+	 * A bit set over the ids of the individuals, which is stored in the mapped file.
+	 */
+	private static class MappedIdSet implements BitSetInstanceStore.IdSet {
+
+		private final MappedFile data;
+		private final long position;
+		private final int nrOfWords;
+
+		MappedIdSet(MappedFile data, long position, int nrOfWords) {
+			this.data = data;
+			this.position = position;
+			this.nrOfWords = nrOfWords;
+		}
+
+		private long getWord(int index) {
+			return data.getLong(position + 8L * index);
+		}
+
+		@Override
+		public boolean get(int id) {
+			int index = id >>> 6;
+			return index < nrOfWords && (getWord(index) & (1L << id)) != 0;
+		}
+
+		@Override
+		public int nextSetBit(int fromId) {
+			int index = fromId >>> 6;
+			if(index >= nrOfWords) {
+				return -1;
+			}
+			long word = getWord(index) & (-1L << fromId);
+			while(true) {
+				if(word != 0) {
+					return (index << 6) + Long.numberOfTrailingZeros(word);
+				}
+				if(++index == nrOfWords) {
+					return -1;
+				}
+				word = getWord(index);
+			}
+		}
+
+		@Override
+		public BitSet toBitSet() {
+			long[] words = new long[nrOfWords];
+			for(int i = 0; i < nrOfWords; i++) {
+				words[i] = getWord(i);
+			}
+			return BitSet.valueOf(words);
+		}
+	}
+
+	/**
+	 * The assertions of an object property: the fillers of subject s are the targets
+	 * between the offsets at the positions s and s+1 of the offset table.
+	 */
+	private class MappedAdjacency implements BitSetInstanceStore.Adjacency {
+
+		private final MappedIdSet subjects;
+		private final int nrOfSubjects;
+		private final long offsets;
+		private final long targets;
+
+		MappedAdjacency(MappedIdSet subjects, int nrOfSubjects, long offsets, long targets) {
+			this.subjects = subjects;
+			this.nrOfSubjects = nrOfSubjects;
+			this.offsets = offsets;
+			this.targets = targets;
+		}
+
+		@Override
+		public BitSetInstanceStore.IdSet getSubjects() {
+			return subjects;
+		}
+
+		@Override
+		public int getStart(int subject) {
+			return data.getInt(offsets + 4L * subject);
+		}
+
+		@Override
+		public int getEnd(int subject) {
+			return data.getInt(offsets + 4L * (subject + 1));
+		}
+
+		@Override
+		public int getTarget(int index) {
+			return data.getInt(targets + 4L * index);
+		}
+	}
+
+	/**
+	 * The values of a datatype property: the table at the offsets position contains
+	 * the position of the values of each subject.
+	 */
+	private class MappedValues<V> {
+
+		private final MappedIdSet subjects;
+		private final int nrOfSubjects;
+		private final long offsets;
+		private final ValueCodec<V> codec;
+
+		MappedValues(MappedIdSet subjects, int nrOfSubjects, long offsets, ValueCodec<V> codec) {
+			this.subjects = subjects;
+			this.nrOfSubjects = nrOfSubjects;
+			this.offsets = offsets;
+			this.codec = codec;
+		}
+
+		SortedSet<V> getValues(int subject) {
+			Cursor in = new Cursor(data, data.getLong(offsets + 8L * subject));
+			SortedSet<V> values = new TreeSet<V>();
+			int nrOfValues = in.readInt();
+			for(int i = 0; i < nrOfValues; i++) {
+				values.add(codec.read(in));
+			}
+			return values;
+		}
+	}
+
+	private class ConstantCodec implements ValueCodec<Constant> {
+
+		@Override
+		public void write(DataOutputStream out, Constant value) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Constant read(Cursor in) {
+			byte kind = in.readByte();
+			String literal = in.readString();
+			switch(kind) {
+			case UNTYPED:
+				return new UntypedConstant(literal);
+			case UNTYPED_WITH_LANG:
+				return new UntypedConstant(literal, strings[in.readInt()]);
+			case TYPED:
+				String iri = strings[in.readInt()];
+				Datatype datatype = datatypes.get(iri);
+				if(datatype == null) {
+					datatypes.putIfAbsent(iri, new Datatype(iri));
+					datatype = datatypes.get(iri);
+				}
+				return new TypedConstant(literal, datatype);
+			default:
+				throw new IllegalArgumentException("Invalid constant type " + kind);
+			}
+		}
+	}
+
+	/**
+	 * A read-only map, whose values are decoded from the snapshot on first access.
+	 */
+	private static abstract class DecodingMap<K, S, V> extends AbstractMap<K, V> {
+
+		private final Map<K, S> sources;
+		private final ConcurrentMap<K, V> values = new ConcurrentHashMap<K, V>();
+
+		DecodingMap(Map<K, S> sources) {
+			this.sources = sources;
+		}
+
+		abstract V decode(S source);
+
+		@Override
+		public V get(Object key) {
+			if(key == null) {
+				return null;
+			}
+			V value = values.get(key);
+			if(value == null) {
+				S source;
+				try {
+					source = sources.get(key);
+				} catch (ClassCastException e) {
+					return null;
+				}
+				if(source == null) {
+					return null;
+				}
+				@SuppressWarnings("unchecked")
+				K k = (K) key;
+				values.putIfAbsent(k, decode(source));
+				value = values.get(key);
+			}
+			return value;
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			try {
+				return key != null && sources.containsKey(key);
+			} catch (ClassCastException e) {
+				return false;
+			}
+		}
+
+		@Override
+		public int size() {
+			return sources.size();
+		}
+
+		@Override
+		public Set<Entry<K, V>> entrySet() {
+			return new AbstractSet<Entry<K, V>>() {
+				@Override
+				public Iterator<Entry<K, V>> iterator() {
+					final Iterator<K> keys = sources.keySet().iterator();
+					return new Iterator<Entry<K, V>>() {
+						@Override
+						public boolean hasNext() {
+							return keys.hasNext();
+						}
+
+						@Override
+						public Entry<K, V> next() {
+							K key = keys.next();
+							return new SimpleImmutableEntry<K, V>(key, get(key));
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return sources.size();
+				}
+			};
+		}
+	}
+
+	/**
+	 * A read-only map from the subjects of a property to their values, which are
+	 * read from the snapshot whenever they are requested.
+	 */
+	private abstract class SubjectMap<V> extends AbstractMap<Individual, V> {
+
+		private final MappedIdSet subjects;
+		private final int nrOfSubjects;
+
+		SubjectMap(MappedIdSet subjects, int nrOfSubjects) {
+			this.subjects = subjects;
+			this.nrOfSubjects = nrOfSubjects;
+		}
+
+		abstract V getValues(int subject);
+
+		private int getSubject(Object key) {
+			if(!(key instanceof Individual)) {
+				return -1;
+			}
+			int id = getId((Individual) key);
+			return id >= 0 && subjects.get(id) ? id : -1;
+		}
+
+		@Override
+		public V get(Object key) {
+			int subject = getSubject(key);
+			return subject < 0 ? null : getValues(subject);
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return getSubject(key) >= 0;
+		}
+
+		@Override
+		public int size() {
+			return nrOfSubjects;
+		}
+
+		@Override
+		public Set<Entry<Individual, V>> entrySet() {
+			return new AbstractSet<Entry<Individual, V>>() {
+				@Override
+				public Iterator<Entry<Individual, V>> iterator() {
+					return new Iterator<Entry<Individual, V>>() {
+						private int next = subjects.nextSetBit(0);
+
+						@Override
+						public boolean hasNext() {
+							return next >= 0;
+						}
+
+						@Override
+						public Entry<Individual, V> next() {
+							if(next < 0) {
+								throw new NoSuchElementException();
+							}
+							int subject = next;
+							next = subjects.nextSetBit(subject + 1);
+							return new SimpleImmutableEntry<Individual, V>(getIndividual(subject), getValues(subject));
+						}
+
+						@Override
+						public void remove() {
+							throw new UnsupportedOperationException();
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return nrOfSubjects;
+				}
+			};
+		}
+	}
+
+}
@@ -23,6 +23,7 @@ import java.io.File;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -631,6 +632,24 @@ public class OWLAPIReasoner extends AbstractReasonerComponent {
         return inds;
     }
 
+    /**
+     * Checks all individuals with a single instance retrieval, which is
+     * usually much cheaper than one entailment check per individual.
+     */
+    @Override
+    protected BitSet hasTypeImpl(Description concept, List<Individual> individuals) {
+        BitSet covered = new BitSet(individuals.size());
+        if(concept instanceof Thing) {
+            covered.set(0, individuals.size());
+            return covered;
+        }
+        SortedSet<Individual> instances = getIndividualsImpl(concept);
+        for (int i = 0; i < individuals.size(); i++) {
+            if (instances.contains(individuals.get(i))) covered.set(i);
+        }
+        return covered;
+    }
+
     @Override
     public Set<NamedClass> getTypesImpl(Individual individual) {
         Set<Node<OWLClass>> result = null;
@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.reasoning;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.dllearner.core.owl.Description;
+import org.dllearner.core.owl.NamedClass;
+import org.dllearner.core.owl.Negation;
+import org.dllearner.core.owl.Nothing;
+import org.dllearner.core.owl.Thing;
+import org.dllearner.utilities.owl.DescriptionEquivalence;
+
+import com.google.common.base.Equivalence;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
+/**
+ * Memoizes the instances of complex sub-expressions during retrieval. Refinements
+ * of the same concept share most of their sub-expressions (e.g. the refinements
+ * C and \exists r.D and C and \exists r.E of C), so each shared sub-expression only
+ * needs to be retrieved once. Descriptions are indexed by their structural hash
+ * code, i.e. syntactically equal descriptions share an entry.
+ *
+ * The memo holds a bounded number of entries and evicts least recently used
+ * entries once the bound is reached. It is invalidated by starting a new
+ * generation, e.g. when the knowledge base changes. Results computed in an
+ * older generation are not stored, so a retrieval running concurrently to an
+ * invalidation cannot put an outdated result into the memo.
+ *
+ * @param <T> The representation of sets of individuals, e.g. bit sets.
+ */
+public class RetrievalMemo<T> {
+
+	/**
+	 * Creates copies of memoized values, such that callers can modify
+	 * the values they get from the memo.
+	 */
+	public interface Copier<T> {
+		T copy(T value);
+	}
+
+	private static class Entry<T> {
+		private final long generation;
+		private final T value;
+
+		private Entry(long generation, T value) {
+			this.generation = generation;
+			this.value = value;
+		}
+	}
+
+	private Cache<Equivalence.Wrapper<Description>,Entry<T>> cache;
+	private Copier<T> copier;
+	private AtomicLong generation = new AtomicLong();
+
+	/**
+	 * @param maxEntries The maximum number of memoized descriptions.
+	 * @param copier Creates copies of the memoized values.
+	 */
+	public RetrievalMemo(long maxEntries, Copier<T> copier) {
+		this.copier = copier;
+		cache = CacheBuilder.newBuilder()
+				.concurrencyLevel(Runtime.getRuntime().availableProcessors())
+				.maximumSize(maxEntries)
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * Only complex descriptions are memoized, because named classes, their
+	 * negations and top and bottom are answered by a single lookup anyway.
+	 * @param description A description.
+	 * @return True if the instances of the description are memoized.
+	 */
+	public static boolean isMemoizable(Description description) {
+		return !(description instanceof NamedClass || description instanceof Thing
+				|| description instanceof Nothing
+				|| (description instanceof Negation && description.getChild(0) instanceof NamedClass));
+	}
+
+	/**
+	 * @param description A description.
+	 * @return A copy of the memoized instances of the description or null if
+	 * they are not memoized in the current generation.
+	 */
+	public T get(Description description) {
+		Entry<T> entry = cache.getIfPresent(DescriptionEquivalence.instance.wrap(description));
+		if(entry == null || entry.generation != generation.get()) {
+			return null;
+		}
+		return copier.copy(entry.value);
+	}
+
+	/**
+	 * Memoizes the instances of a description, unless the memo has been
+	 * invalidated since the retrieval started.
+	 * @param description A description.
+	 * @param instances The instances of the description (a copy is stored).
+	 * @param generation The generation in which the retrieval started,
+	 * see {@link #getGeneration()}.
+	 */
+	public void put(Description description, T instances, long generation) {
+		if(generation == this.generation.get()) {
+			// descriptions may be modified after retrieval, so we store a copy
+			cache.put(DescriptionEquivalence.instance.wrap(description.clone()),
+					new Entry<T>(generation, copier.copy(instances)));
+		}
+	}
+
+	/**
+	 * @return The current generation of the memo.
+	 */
+	public long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * Starts a new generation, i.e. all memoized results are discarded.
+	 */
+	public void invalidate() {
+		generation.incrementAndGet();
+		cache.invalidateAll();
+	}
+
+	public long size() {
+		return cache.size();
+	}
+
+	public CacheStats getStats() {
+		return cache.stats();
+	}
+}
@@ -22,6 +22,7 @@ package org.dllearner.reasoning;
 import java.net.URL;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -32,6 +33,7 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import org.aksw.jena_sparql_api.cache.core.QueryExecutionFactoryCacheEx;
 import org.aksw.jena_sparql_api.cache.extra.CacheCoreEx;
@@ -46,6 +48,7 @@ import org.dllearner.core.AbstractReasonerComponent;
 import org.dllearner.core.ComponentAnn;
 import org.dllearner.core.ComponentInitException;
 import org.dllearner.core.IndividualReasoner;
+import org.dllearner.core.ReasoningMethodUnsupportedException;
 import org.dllearner.core.SchemaReasoner;
 import org.dllearner.core.config.BooleanEditor;
 import org.dllearner.core.config.ConfigOption;
@@ -55,6 +58,7 @@ import org.dllearner.core.owl.DataRange;
 import org.dllearner.core.owl.Datatype;
 import org.dllearner.core.owl.DatatypeProperty;
 import org.dllearner.core.owl.Description;
+import org.dllearner.core.owl.Entity;
 import org.dllearner.core.owl.Individual;
 import org.dllearner.core.owl.Intersection;
 import org.dllearner.core.owl.NamedClass;
@@ -65,6 +69,8 @@ import org.dllearner.core.owl.Thing;
 import org.dllearner.kb.LocalModelBasedSparqlEndpointKS;
 import org.dllearner.kb.SparqlEndpointKS;
 import org.dllearner.kb.sparql.ExtractionDBCache;
+import org.dllearner.kb.sparql.QueryResultCache;
+import org.dllearner.kb.sparql.QueryThrottle;
 import org.dllearner.kb.sparql.SPARQLTasks;
 import org.dllearner.kb.sparql.SparqlEndpoint;
 import org.dllearner.utilities.datastructures.SortedSetTuple;
@@ -85,6 +91,7 @@ import com.hp.hpl.jena.rdf.model.ModelFactory;
 import com.hp.hpl.jena.rdf.model.RDFNode;
 import com.hp.hpl.jena.rdf.model.Resource;
 import com.hp.hpl.jena.sparql.engine.http.QueryExceptionHTTP;
+import com.hp.hpl.jena.sparql.resultset.ResultSetMem;
 import com.hp.hpl.jena.vocabulary.OWL;
 import com.hp.hpl.jena.vocabulary.OWL2;
 import com.hp.hpl.jena.vocabulary.RDF;
@@ -95,6 +102,11 @@ public class SPARQLReasoner extends AbstractReasonerComponent implements SchemaR
 
 	private static final Logger logger = LoggerFactory.getLogger(SPARQLReasoner.class);
 
+	// the maximum number of individuals bound in a single batch instance check query
+	private static final int MAX_VALUES_PER_QUERY = 1000;
+	// the number of entities whose popularity is computed by a single query
+	private static final int POPULARITY_BATCH_SIZE = 100;
+
 	@ConfigOption(name = "useCache", description = "Whether to use a DB cache", defaultValue = "true", required = false, propertyEditorClass = BooleanEditor.class)
 	private boolean useCache = true;
 
@@ -122,19 +134,19 @@ public class SPARQLReasoner extends AbstractReasonerComponent implements SchemaR
 	public SPARQLReasoner(QueryExecutionFactory qef) {
 		this.qef = qef;
 		
-		classPopularityMap = new HashMap<NamedClass, Integer>();
-		objectPropertyPopularityMap = new HashMap<ObjectProperty, Integer>();
-		dataPropertyPopularityMap = new HashMap<DatatypeProperty, Integer>();
-		individualPopularityMap = new HashMap<Individual, Integer>();
+		classPopularityMap = new ConcurrentHashMap<NamedClass, Integer>();
+		objectPropertyPopularityMap = new ConcurrentHashMap<ObjectProperty, Integer>();
+		dataPropertyPopularityMap = new ConcurrentHashMap<DatatypeProperty, Integer>();
+		individualPopularityMap = new ConcurrentHashMap<Individual, Integer>();
 	}
 	
 	public SPARQLReasoner(SparqlEndpointKS ks, String cacheDirectory) {
 		this.ks = ks;
 
-		classPopularityMap = new HashMap<NamedClass, Integer>();
-		objectPropertyPopularityMap = new HashMap<ObjectProperty, Integer>();
-		dataPropertyPopularityMap = new HashMap<DatatypeProperty, Integer>();
-		individualPopularityMap = new HashMap<Individual, Integer>();
+		classPopularityMap = new ConcurrentHashMap<NamedClass, Integer>();
+		objectPropertyPopularityMap = new ConcurrentHashMap<ObjectProperty, Integer>();
+		dataPropertyPopularityMap = new ConcurrentHashMap<DatatypeProperty, Integer>();
+		individualPopularityMap = new ConcurrentHashMap<Individual, Integer>();
 		
 		if(ks.isRemote()){
 			SparqlEndpoint endpoint = ks.getEndpoint();
@@ -169,10 +181,10 @@ public class SPARQLReasoner extends AbstractReasonerComponent implements SchemaR
 	public SPARQLReasoner(SparqlEndpointKS ks, CacheEx cache) {
 		this.ks = ks;
 
-		classPopularityMap = new HashMap<NamedClass, Integer>();
-		objectPropertyPopularityMap = new HashMap<ObjectProperty, Integer>();
-		dataPropertyPopularityMap = new HashMap<DatatypeProperty, Integer>();
-		individualPopularityMap = new HashMap<Individual, Integer>();
+		classPopularityMap = new ConcurrentHashMap<NamedClass, Integer>();
+		objectPropertyPopularityMap = new ConcurrentHashMap<ObjectProperty, Integer>();
+		dataPropertyPopularityMap = new ConcurrentHashMap<DatatypeProperty, Integer>();
+		individualPopularityMap = new ConcurrentHashMap<Individual, Integer>();
 		
 		if(ks.isRemote()){
 			SparqlEndpoint endpoint = ks.getEndpoint();
@@ -191,10 +203,10 @@ public class SPARQLReasoner extends AbstractReasonerComponent implements SchemaR
 	public SPARQLReasoner(OntModel model) {
 		this.model = model;
 
-		classPopularityMap = new HashMap<NamedClass, Integer>();
-		objectPropertyPopularityMap = new HashMap<ObjectProperty, Integer>();
-		dataPropertyPopularityMap = new HashMap<DatatypeProperty, Integer>();
-		individualPopularityMap = new HashMap<Individual, Integer>();
+		classPopularityMap = new ConcurrentHashMap<NamedClass, Integer>();
+		objectPropertyPopularityMap = new ConcurrentHashMap<ObjectProperty, Integer>();
+		dataPropertyPopularityMap = new ConcurrentHashMap<DatatypeProperty, Integer>();
+		individualPopularityMap = new ConcurrentHashMap<Individual, Integer>();
 	}
 
 	public void precomputePopularity(){
@@ -219,7 +231,7 @@ public class SPARQLReasoner extends AbstractReasonerComponent implements SchemaR
 
 	public void precomputeObjectPropertyPopularity(){
 		logger.info("Precomputing object property popularity ...");
-		objectPropertyPopularityMap = new HashMap<ObjectProperty, Integer>();
+		objectPropertyPopularityMap = new ConcurrentHashMap<ObjectProperty, Integer>();
 
 		Set<ObjectProperty> properties = new SPARQLTasks(ks.getEndpoint()).getAllObjectProperties();
 		String queryTemplate = "SELECT (COUNT(*) AS ?cnt) WHERE {?s <%s> ?o}";
@@ -234,7 +246,7 @@ public class SPARQLReasoner extends AbstractReasonerComponent implements SchemaR
 
 	public void precomputeDataPropertyPopularity(){
 		logger.info("Precomputing data property popularity ...");
-		dataPropertyPopularityMap = new HashMap<DatatypeProperty, Integer>();
+		dataPropertyPopularityMap = new ConcurrentHashMap<DatatypeProperty, Integer>();
 
 		Set<DatatypeProperty> properties = new SPARQLTasks(ks.getEndpoint()).getAllDataProperties();
 		String queryTemplate = "SELECT (COUNT(*) AS ?cnt) WHERE {?s <%s> ?o}";
@@ -247,6 +259,85 @@ public class SPARQLReasoner extends AbstractReasonerComponent implements SchemaR
 		}
 	}
 
+	/**
+	 * Computes the popularity of the given classes. If the endpoint supports
+	 * SPARQL 1.1, the classes are counted in batches by grouped queries
+	 * instead of one query per class. Afterwards, {@link #getPopularity(NamedClass)}
+	 * does not have to query the endpoint for these classes.
+	 * @param classes The classes.
+	 */
+	public void precomputeClassPopularity(Collection<NamedClass> classes){
+		precomputePopularity(classes, "?s a ?entity", classPopularityMap);
+	}
+
+	/**
+	 * Computes the popularity of the given object properties, see
+	 * {@link #precomputeClassPopularity(Collection)}.
+	 * @param properties The object properties.
+	 */
+	public void precomputeObjectPropertyPopularity(Collection<ObjectProperty> properties){
+		precomputePopularity(properties, "?s ?entity ?o", objectPropertyPopularityMap);
+	}
+
+	/**
+	 * Computes the popularity of the given data properties, see
+	 * {@link #precomputeClassPopularity(Collection)}.
+	 * @param properties The data properties.
+	 */
+	public void precomputeDataPropertyPopularity(Collection<DatatypeProperty> properties){
+		precomputePopularity(properties, "?s ?entity ?o", dataPropertyPopularityMap);
+	}
+
+	private <T extends Entity> void precomputePopularity(Collection<T> entities, String pattern, Map<T, Integer> popularityMap){
+		List<T> batch = new ArrayList<T>();
+		for(T entity : entities){
+			if(popularityMap.containsKey(entity)){
+				continue;
+			}
+			batch.add(entity);
+			if(batch.size() == POPULARITY_BATCH_SIZE){
+				countPopularity(batch, pattern, popularityMap);
+				batch.clear();
+			}
+		}
+		if(!batch.isEmpty()){
+			countPopularity(batch, pattern, popularityMap);
+		}
+	}
+
+	private <T extends Entity> void countPopularity(List<T> batch, String pattern, Map<T, Integer> popularityMap){
+		// VALUES is part of SPARQL 1.1, otherwise each entity is counted separately
+		boolean grouped = ks == null || ks.supportsSPARQL_1_1();
+		if(!grouped || batch.size() == 1){
+			for(T entity : batch){
+				String query = "SELECT (COUNT(*) AS ?cnt) WHERE {" + pattern.replace("?entity", "<" + entity.getName() + ">") + "}";
+				ResultSet rs = executeSelectQuery(query);
+				popularityMap.put(entity, rs.next().getLiteral("cnt").getInt());
+			}
+			return;
+		}
+		Map<String, T> name2Entity = new HashMap<String, T>();
+		StringBuilder query = new StringBuilder("SELECT ?entity (COUNT(*) AS ?cnt) WHERE {VALUES ?entity {");
+		for(T entity : batch){
+			name2Entity.put(entity.getName(), entity);
+			query.append("<").append(entity.getName()).append("> ");
+		}
+		query.append("} ").append(pattern).append("} GROUP BY ?entity");
+		ResultSet rs = executeSelectQuery(query.toString());
+		// entities without any occurrence are missing in the result
+		for(T entity : batch){
+			popularityMap.put(entity, 0);
+		}
+		QuerySolution qs;
+		while(rs.hasNext()){
+			qs = rs.next();
+			T entity = name2Entity.get(qs.getResource("entity").getURI());
+			if(entity != null){
+				popularityMap.put(entity, qs.getLiteral("cnt").getInt());
+			}
+		}
+	}
+
 	public int getSubjectCountForProperty(Property p, long timeout){
 		int cnt = -1;
 		String query = String.format(
@@ -364,7 +455,7 @@ String query = String.format(queryTemplate, dp.getName());
 		}
 	}
 
-	public final ClassHierarchy prepareSubsumptionHierarchy() {
+	public final synchronized ClassHierarchy prepareSubsumptionHierarchy() {
 		if(!prepared){
 			logger.info("Preparing subsumption hierarchy ...");
 			long startTime = System.currentTimeMillis();
@@ -421,22 +512,22 @@ String query = String.format(queryTemplate, dp.getName());
 	
 	public boolean isFunctional(ObjectProperty property){
 		String query = "ASK {<" + property + "> a <" + OWL.FunctionalProperty.getURI() + ">}";
-		return qef.createQueryExecution(query).execAsk();
+		return executeAskQuery(query);
 	}
 	
 	public boolean isInverseFunctional(ObjectProperty property){
 		String query = "ASK {<" + property + "> a <" + OWL.InverseFunctionalProperty.getURI() + ">}";
-		return qef.createQueryExecution(query).execAsk();
+		return executeAskQuery(query);
 	}
 	
 	public boolean isAsymmetric(ObjectProperty property){
 		String query = "ASK {<" + property + "> a <" + OWL2.AsymmetricProperty.getURI() + ">}";
-		return qef.createQueryExecution(query).execAsk();
+		return executeAskQuery(query);
 	}
 	
 	public boolean isIrreflexive(ObjectProperty property){
 		String query = "ASK {<" + property + "> a <" + OWL2.IrreflexiveProperty.getURI() + ">}";
-		return qef.createQueryExecution(query).execAsk();
+		return executeAskQuery(query);
 	}
 
 	public final ClassHierarchy prepareSubsumptionHierarchyFast() {
@@ -622,13 +713,30 @@ String query = String.format(queryTemplate, dp.getName());
 	}
 
 	private Model loadIncrementally(String query){
-		QueryExecutionFactory old = qef;
-		qef = new QueryExecutionFactoryPaginated(qef, 10000);
-		QueryExecution qe = qef.createQueryExecution(query);
-		Model model = qe.execConstruct();
-		qe.close();
-		qef = old;
-		return model;
+		QueryResultCache resultCache = getQueryResultCache();
+		if(resultCache != null){
+			Model model = resultCache.getModel(query);
+			if(model != null){
+				return model;
+			}
+		}
+		QueryThrottle throttle = getQueryThrottle();
+		if(throttle != null){
+			throttle.acquire();
+		}
+		try {
+			QueryExecution qe = new QueryExecutionFactoryPaginated(qef, 10000).createQueryExecution(query);
+			Model model = qe.execConstruct();
+			qe.close();
+			if(resultCache != null){
+				resultCache.putModel(query, model);
+			}
+			return model;
+		} finally {
+			if(throttle != null){
+				throttle.release();
+			}
+		}
 	}
 
 	@Override
@@ -934,6 +1042,55 @@ String query = String.format(queryTemplate, dp.getName());
 		return allIndividuals;
 	}
 
+	/**
+	 * Checks the individuals with a query, which binds them via VALUES, i.e.
+	 * the endpoint only has to evaluate the description for those individuals
+	 * instead of retrieving all its instances. Long lists are split into
+	 * chunks of {@link #MAX_VALUES_PER_QUERY} individuals, because endpoints
+	 * usually limit the length of queries. VALUES is part of SPARQL 1.1,
+	 * otherwise each individual is checked separately.
+	 */
+	@Override
+	protected BitSet hasTypeImpl(Description description, List<Individual> individuals) throws ReasoningMethodUnsupportedException {
+		if(ks != null && !ks.supportsSPARQL_1_1()){
+			return super.hasTypeImpl(description, individuals);
+		}
+		BitSet covered = new BitSet(individuals.size());
+		OWLClassExpressionToSPARQLConverter converter = new OWLClassExpressionToSPARQLConverter();
+		String triplePattern = converter.convert("?ind", description);
+		for(int start = 0; start < individuals.size(); start += MAX_VALUES_PER_QUERY) {
+			List<Individual> chunk = individuals.subList(start, Math.min(start + MAX_VALUES_PER_QUERY, individuals.size()));
+			// an individual may occur several times in the list
+			Map<String, List<Integer>> positions = new HashMap<String, List<Integer>>();
+			StringBuilder query = new StringBuilder("SELECT DISTINCT ?ind WHERE {VALUES ?ind {");
+			for(int i = 0; i < chunk.size(); i++) {
+				String uri = chunk.get(i).getName();
+				List<Integer> uriPositions = positions.get(uri);
+				if(uriPositions == null) {
+					uriPositions = new ArrayList<Integer>(1);
+					positions.put(uri, uriPositions);
+					query.append('<').append(uri).append("> ");
+				}
+				uriPositions.add(start + i);
+			}
+			query.append('}').append(triplePattern).append('}');
+			ResultSet rs = executeSelectQuery(query.toString());
+			QuerySolution qs;
+			while(rs.hasNext()){
+				qs = rs.next();
+				if(qs.get("ind").isURIResource()){
+					List<Integer> uriPositions = positions.get(qs.getResource("ind").getURI());
+					if(uriPositions != null) {
+						for(int position : uriPositions) {
+							covered.set(position);
+						}
+					}
+				}
+			}
+		}
+		return covered;
+	}
+
 	@Override
 	public SortedSet<Individual> getIndividualsImpl(Description description) {
 		return getIndividuals(description, 0);
@@ -1761,32 +1918,80 @@ String query = String.format(queryTemplate, dp.getName());
 	}
 
 	private ResultSet executeSelectQuery(String query){
-		logger.trace("Sending query \n {}", query);
-		QueryExecution qe = qef.createQueryExecution(query);
-		try
-		{
-		ResultSet rs = qe.execSelect();
-		return rs;
-		}
-		catch(QueryExceptionHTTP e)
-		{
-			throw new QueryExceptionHTTP("Error sending query \""+query+"\" to endpoint "+ks,e);
-		}
+		return executeSelectQuery(query, -1);
 	}
 
 	private ResultSet executeSelectQuery(String query, long timeout){
 		logger.trace("Sending query \n {}", query);
-		QueryExecution qe = qef.createQueryExecution(query);
-		qe.setTimeout(timeout);
-		ResultSet rs = qe.execSelect();
-		return rs;
+		QueryResultCache resultCache = getQueryResultCache();
+		if(resultCache != null){
+			ResultSet rs = resultCache.getResultSet(query);
+			if(rs != null){
+				return rs;
+			}
+		}
+		QueryThrottle throttle = getQueryThrottle();
+		if(throttle != null){
+			throttle.acquire();
+		}
+		try {
+			QueryExecution qe = qef.createQueryExecution(query);
+			if(timeout >= 0){
+				qe.setTimeout(timeout);
+			}
+			ResultSet rs = qe.execSelect();
+			if(resultCache != null){
+				rs = resultCache.cacheResultSet(query, rs);
+			}
+			// a throttled query is finished only once its result has been read
+			return throttle == null || rs instanceof ResultSetMem ? rs : new ResultSetMem(rs);
+		} catch(QueryExceptionHTTP e) {
+			throw new QueryExceptionHTTP("Error sending query \""+query+"\" to endpoint "+ks,e);
+		} finally {
+			if(throttle != null){
+				throttle.release();
+			}
+		}
 	}
 	
 	private boolean executeAskQuery(String query){
 		logger.trace("Sending query \n {}", query);
-		QueryExecution qe = qef.createQueryExecution(query);
-		boolean ret = qe.execAsk();
-		return ret;
+		QueryResultCache resultCache = getQueryResultCache();
+		if(resultCache != null){
+			Boolean ret = resultCache.getAskResult(query);
+			if(ret != null){
+				return ret;
+			}
+		}
+		QueryThrottle throttle = getQueryThrottle();
+		if(throttle != null){
+			throttle.acquire();
+		}
+		try {
+			QueryExecution qe = qef.createQueryExecution(query);
+			boolean ret = qe.execAsk();
+			if(resultCache != null){
+				resultCache.putAskResult(query, ret);
+			}
+			return ret;
+		} finally {
+			if(throttle != null){
+				throttle.release();
+			}
+		}
+	}
+	
+	/**
+	 * @return The in-memory cache in front of the (optional) persistent cache
+	 * of this reasoner or null if there is none. The cache belongs to the
+	 * knowledge source and is therefore shared by all reasoners using it.
+	 */
+	public QueryResultCache getQueryResultCache(){
+		return ks == null ? null : ks.getQueryResultCache();
+	}
+	
+	private QueryThrottle getQueryThrottle(){
+		return ks == null ? null : ks.getQueryThrottle();
 	}
 
 	/**
@@ -1877,10 +2082,10 @@ String query = String.format(queryTemplate, dp.getName());
 	 */
 	@Override
 	public void init() throws ComponentInitException {
-		classPopularityMap = new HashMap<NamedClass, Integer>();
-		objectPropertyPopularityMap = new HashMap<ObjectProperty, Integer>();
-		dataPropertyPopularityMap = new HashMap<DatatypeProperty, Integer>();
-		individualPopularityMap = new HashMap<Individual, Integer>();
+		classPopularityMap = new ConcurrentHashMap<NamedClass, Integer>();
+		objectPropertyPopularityMap = new ConcurrentHashMap<ObjectProperty, Integer>();
+		dataPropertyPopularityMap = new ConcurrentHashMap<DatatypeProperty, Integer>();
+		individualPopularityMap = new ConcurrentHashMap<Individual, Integer>();
 	}
 
 	/* (non-Javadoc)
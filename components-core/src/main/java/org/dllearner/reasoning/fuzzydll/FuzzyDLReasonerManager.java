@@ -23,11 +23,17 @@ import java.io.ByteArrayOutputStream;
 import java.io.PrintStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Scanner;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
@@ -69,6 +75,9 @@ import org.semanticweb.owlapi.util.Version;
 
 import com.clarkparsia.pellet.owlapiv3.PelletReasoner;
 import com.clarkparsia.pellet.owlapiv3.PelletReasonerFactory;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import fuzzydl.AllInstancesQuery;
 import fuzzydl.Concept;
@@ -86,8 +95,12 @@ public class FuzzyDLReasonerManager implements OWLReasoner {
 	// private static final String CHANGING_JUST_HIERARCHI_PROBLEM = "../test/fuzzydll/fuzzyOWL2fuzzyDLparserOutput_manual.fuzzyDL.txt";
 	private static final String FUZZYOWL2FUZZYDLPARSEROUTPUT = "../test/fuzzydll/fuzzyOWL2fuzzyDLparserOutput.fuzzyDL.txt";
 	private static String CONFIG_FILENAME = "../test/fuzzydll/CONFIG";
+	
+	private static final Logger logger = Logger.getLogger(FuzzyDLReasonerManager.class);
+	
+	private static final long DEFAULT_MEMBERSHIP_CACHE_SIZE = 100000;
+	private static final int DEFAULT_KB_POOL_SIZE = 2;
 
-	private Solution queryResult;
 	private KnowledgeBase fuzzyKB;
 	private Parser parser;
 	private SimpleShortFormProvider shortFormParser;
@@ -107,6 +120,17 @@ public class FuzzyDLReasonerManager implements OWLReasoner {
 	
 	private ByteArrayOutputStream baos;
 	private OWLClassExpression2FuzzyDLConverter classExpression2fuzzyDLConverter;
+	
+	// (concept, individual) -> membership degree
+	private Cache<String, Double> membershipCache;
+	
+	// a query modifies the KB it is solved against, hence each query gets its own
+	// clone of the solved KB; the clones are made in advance by a background thread
+	private KnowledgeBasePool kbPool;
+	private ExecutorService cloneExecutor;
+	
+	private int nrOfThreads = 1;
+	private ExecutorService queryExecutor;
 
 	public FuzzyDLReasonerManager(String ontologyFile, OWLOntology ontology, OWLReasonerConfiguration conf, OWLDataFactory factory, String baseURI) throws Exception {
 		
@@ -126,7 +150,6 @@ public class FuzzyDLReasonerManager implements OWLReasoner {
 		
 		startPellet(ontology, conf);
 		
-		queryResult = null;
 		parser = null;
 
 		shortFormParser = new SimpleShortFormProvider();
@@ -144,6 +167,11 @@ public class FuzzyDLReasonerManager implements OWLReasoner {
 		
 		solveKB();
 		
+		membershipCache = CacheBuilder.newBuilder().maximumSize(DEFAULT_MEMBERSHIP_CACHE_SIZE).build();
+		cloneExecutor = Executors.newSingleThreadExecutor(
+				new ThreadFactoryBuilder().setDaemon(true).setNameFormat("fuzzydl-kb-clone-%d").build());
+		kbPool = new KnowledgeBasePool(fuzzyKB, DEFAULT_KB_POOL_SIZE, cloneExecutor);
+		
 		  // errorFile = new FileOutputStream("errorFile.txt")name;
 	}
 	
@@ -197,52 +225,119 @@ public class FuzzyDLReasonerManager implements OWLReasoner {
 
 	// added by Josue
 	public double getFuzzyMembership(OWLClassExpression oce, OWLIndividual i) {
-			Individual fIndividual = convert(i);
-			Concept fConcept = convert(oce);
-			try {
-				
-				Query q = new MinInstanceQuery(fConcept, fIndividual);
-			
-				KnowledgeBase clonedFuzzyKB = fuzzyKB.clone();
-//				q = new MinInstanceQuery(Concept.some("hasCar", Concept.CONCEPT_TOP), fuzzyKB.getIndividual("east1"));
-//				System.out.println(fConcept);
-//				System.out.println(Concept.some("hasCar", Concept.CONCEPT_TOP));
-//				q = new MinInstanceQuery(fuzzyKB.getConcept("Train"), fuzzyKB.getIndividual("east1"));
-				// TODO: just for testing, remove
-//				long start = System.nanoTime();
-				
-				queryResult = q.solve(clonedFuzzyKB);
-				System.out.println(q.toString() + queryResult.getSolution());
-//				System.exit(0);
-				// TODO: just for testing, remove
-//				out.println(counter + " * " + (System.nanoTime() - start));
-//				counter++;
-
-				if (!queryResult.isConsistentKB()){
-					System.err.println("Fuzzy KB is inconsistent.");
-					System.err.println("This may be a fuzzyDL reasoner bug. Press enter to continue.");
-					System.err.println("concept: " + fConcept + " individual: " + fIndividual);
-					Scanner sc = new Scanner(System.in);
-					sc.nextLine();
-					// System.exit(0);
+		return getFuzzyMemberships(oce, Collections.singletonList(i))[0];
+	}
+	
+	/**
+	 * Computes the membership degrees of several individuals in a concept. The concept
+	 * is converted only once, degrees computed before are taken from a cache, and the
+	 * remaining queries are solved in parallel if more than one thread is used.
+	 * @param oce The concept.
+	 * @param individuals The individuals.
+	 * @return The membership degree of the i-th individual at position i (0 if the
+	 * query could not be solved).
+	 */
+	public double[] getFuzzyMemberships(OWLClassExpression oce, List<? extends OWLIndividual> individuals) {
+		final Concept fConcept;
+		final Individual[] fIndividuals = new Individual[individuals.size()];
+		// the conversion may add entities to the KB
+		synchronized (fuzzyKB) {
+			fConcept = convert(oce);
+			for (int i = 0; i < fIndividuals.length; i++) {
+				fIndividuals[i] = convert(individuals.get(i));
+			}
+			kbPool.checkModifications();
+		}
+		
+		double[] degrees = new double[fIndividuals.length];
+		List<Integer> queries = new ArrayList<Integer>();
+		for (int i = 0; i < fIndividuals.length; i++) {
+			Double degree = membershipCache.getIfPresent(getCacheKey(fConcept, fIndividuals[i]));
+			if(degree != null){
+				degrees[i] = degree;
+			} else {
+				queries.add(i);
+			}
+		}
+		
+		if(nrOfThreads > 1 && queries.size() > 1){
+			List<Future<Double>> futures = new ArrayList<Future<Double>>();
+			for (final int i : queries) {
+				futures.add(getQueryExecutor().submit(new Callable<Double>() {
+					@Override
+					public Double call() throws Exception {
+						return solve(fConcept, fIndividuals[i]);
+					}
+				}));
+			}
+			for (int j = 0; j < queries.size(); j++) {
+				try {
+					degrees[queries.get(j)] = futures.get(j).get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException("Fuzzy membership computation interrupted.", e);
+				} catch (ExecutionException e) {
+					throw new RuntimeException("Fuzzy membership computation failed.", e.getCause());
 				}
-			} catch (Exception e) {
-				e.printStackTrace();
-//				try {
-//					errorFile.write(fIndividual.toString().getBytes());
-//					errorFile.write("\n".getBytes());
-//					errorFile.write(fConcept.toString().getBytes());
-//					errorFile.write("\n".getBytes());
-//					errorFile.write(getStackTrace(e).getBytes());
-//				} catch (IOException e1) {
-//					// TODO Auto-generated catch block
-//					e1.printStackTrace();
-//				}
-//				Scanner sc = new Scanner(System.in);
-//				sc.nextLine();		
 			}
-			// return (1 - Math.abs(truthDegree - queryResult.getSolution()));
+		} else {
+			for (int i : queries) {
+				degrees[i] = solve(fConcept, fIndividuals[i]);
+			}
+		}
+		return degrees;
+	}
+	
+	private double solve(Concept fConcept, Individual fIndividual) {
+		Query q = new MinInstanceQuery(fConcept, fIndividual);
+		try {
+			Solution queryResult = q.solve(kbPool.take());
+			if (!queryResult.isConsistentKB()){
+				logger.warn("Fuzzy KB is inconsistent. This may be a fuzzyDL reasoner bug. concept: " + fConcept + " individual: " + fIndividual);
+			}
+			membershipCache.put(getCacheKey(fConcept, fIndividual), queryResult.getSolution());
 			return queryResult.getSolution();
+		} catch (Exception e) {
+			logger.error("Could not solve " + q, e);
+			return 0;
+		}
+	}
+	
+	private String getCacheKey(Concept fConcept, Individual fIndividual) {
+		return fConcept + "|" + fIndividual;
+	}
+	
+	private synchronized ExecutorService getQueryExecutor() {
+		if(queryExecutor == null){
+			queryExecutor = Executors.newFixedThreadPool(nrOfThreads,
+					new ThreadFactoryBuilder().setDaemon(true).setNameFormat("fuzzydl-query-%d").build());
+		}
+		return queryExecutor;
+	}
+	
+	/**
+	 * @param nrOfThreads The number of queries solved in parallel (default: 1).
+	 */
+	public synchronized void setNrOfThreads(int nrOfThreads) {
+		this.nrOfThreads = Math.max(1, nrOfThreads);
+		if(queryExecutor != null){
+			queryExecutor.shutdown();
+			queryExecutor = null;
+		}
+	}
+	
+	/**
+	 * @param kbPoolSize The number of KB clones made in advance (default: 2).
+	 */
+	public void setKBPoolSize(int kbPoolSize) {
+		kbPool.setSize(kbPoolSize);
+	}
+	
+	/**
+	 * @param maxSize The maximum number of cached membership degrees.
+	 */
+	public void setMembershipCacheSize(long maxSize) {
+		membershipCache = CacheBuilder.newBuilder().maximumSize(maxSize).build();
 	}
 
 	public KnowledgeBase getFuzzyKB() {
@@ -261,7 +356,10 @@ public class FuzzyDLReasonerManager implements OWLReasoner {
 
 	@Override
 	public void dispose() {
-		// TODO Auto-generated method stub
+		cloneExecutor.shutdownNow();
+		if(queryExecutor != null){
+			queryExecutor.shutdownNow();
+		}
 		crispReasoner.dispose();
 	}
 
@@ -22,6 +22,7 @@ package org.dllearner.reasoning.fuzzydll;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
@@ -171,6 +172,12 @@ public class FuzzyOWLAPIReasoner extends AbstractReasonerComponent {
 	private int reasonersComparationDisparityCounter = 0;
 	private URL owlLinkURL;
 	
+	@org.dllearner.core.config.ConfigOption(name = "nrOfThreads", defaultValue = "1", description = "the number of fuzzy membership queries solved in parallel")
+	private int nrOfThreads = 1;
+	
+	@org.dllearner.core.config.ConfigOption(name = "kbPoolSize", defaultValue = "2", description = "the number of clones of the fuzzy KB made in advance by a background thread")
+	private int kbPoolSize = 2;
+	
     public FuzzyOWLAPIReasoner() {
 
     }	
@@ -314,7 +321,10 @@ public class FuzzyOWLAPIReasoner extends AbstractReasonerComponent {
 			// create actual fuzzy reasoner and computes initial fuzzy memberships
 			// ontology and conf are passed so FuzzyDLReasonerManager can instanciate also a Pellet reasoner
 			try {
-				reasoner = new FuzzyDLReasonerManager(((OWLFile)sources.iterator().next()).getURL().toString(), ontology, conf, factory, baseURI);
+				FuzzyDLReasonerManager fuzzyReasoner = new FuzzyDLReasonerManager(((OWLFile)sources.iterator().next()).getURL().toString(), ontology, conf, factory, baseURI);
+				fuzzyReasoner.setNrOfThreads(nrOfThreads);
+				fuzzyReasoner.setKBPoolSize(kbPoolSize);
+				reasoner = fuzzyReasoner;
 			} catch (Exception e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
@@ -1128,10 +1138,36 @@ public class FuzzyOWLAPIReasoner extends AbstractReasonerComponent {
 		return fuzzyReasonerOutput;
 	}
 
+	@Override
+	protected double[] hasTypeFuzzyMembershipImpl(Description description, List<FuzzyIndividual> individuals) {
+		OWLClassExpression desc = OWLAPIDescriptionConvertVisitor.getOWLClassExpression(description);
+		List<OWLIndividual> inds = new ArrayList<OWLIndividual>(individuals.size());
+		for (FuzzyIndividual individual : individuals) {
+			inds.add(factory.getOWLNamedIndividual(IRI.create(individual.getName())));
+		}
+		return ((FuzzyDLReasonerManager) reasoner).getFuzzyMemberships(desc, inds);
+	}
+
 	public void setReasoner(OWLReasoner reasoner) {
 		this.reasoner = reasoner;
 	}
 
+	public int getNrOfThreads() {
+		return nrOfThreads;
+	}
+
+	public void setNrOfThreads(int nrOfThreads) {
+		this.nrOfThreads = nrOfThreads;
+	}
+
+	public int getKbPoolSize() {
+		return kbPoolSize;
+	}
+
+	public void setKbPoolSize(int kbPoolSize) {
+		this.kbPoolSize = kbPoolSize;
+	}
+
 	public URL getOwlLinkURL() {
 		return owlLinkURL;
 	}
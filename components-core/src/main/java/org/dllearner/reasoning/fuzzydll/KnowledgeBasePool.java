@@ -0,0 +1,158 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.reasoning.fuzzydll;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import fuzzydl.KnowledgeBase;
+
+/**
+ * Clones of a fuzzyDL knowledge base, which are made in advance by a
+ * background thread. A query modifies the KB it is solved against, hence
+ * each query needs its own clone.
+ *
+ * Converting concepts and individuals may add entities to the KB. Such
+ * changes are detected by {@link #checkModifications()}, which increments the
+ * version of the KB; clones of older versions are discarded. All access to
+ * the KB has to be synchronized on the KB.
+ */
+class KnowledgeBasePool {
+
+	private static class Clone {
+		private final KnowledgeBase kb;
+		private final long version;
+
+		private Clone(KnowledgeBase kb, long version) {
+			this.kb = kb;
+			this.version = version;
+		}
+	}
+
+	private final KnowledgeBase kb;
+	private final ExecutorService executor;
+
+	private BlockingQueue<Clone> clones = new LinkedBlockingQueue<Clone>();
+	private volatile int size;
+	// set while a task filling the pool is submitted or running
+	private AtomicBoolean filling = new AtomicBoolean();
+
+	// the number of detected modifications of the KB
+	private volatile long version;
+	// the number of entities of the KB when it was checked last (guarded by kb)
+	private int nrOfEntities;
+
+	/**
+	 * @param kb The solved KB.
+	 * @param size The number of clones made in advance (0 = clones are made on demand).
+	 * @param executor The executor making the clones.
+	 */
+	KnowledgeBasePool(KnowledgeBase kb, int size, ExecutorService executor) {
+		this.kb = kb;
+		this.size = size;
+		this.executor = executor;
+		nrOfEntities = getNrOfEntities();
+		fill();
+	}
+
+	/**
+	 * Checks whether entities have been added to the KB since the last check.
+	 * Has to be called while holding the lock of the KB, after it might have
+	 * been modified.
+	 */
+	void checkModifications() {
+		int entities = getNrOfEntities();
+		if(entities != nrOfEntities){
+			nrOfEntities = entities;
+			version++;
+			// the pooled clones lack the new entities
+			clones.clear();
+		}
+	}
+
+	private int getNrOfEntities() {
+		// conversions only add entities, thus the sum changes with every modification
+		return kb.atomicConcepts.size() + kb.concreteConcepts.size() + kb.individuals.size()
+				+ kb.abstractRoles.size() + kb.concreteRoles.size()
+				+ kb.fuzzyNumbers.size() + kb.modifiers.size();
+	}
+
+	/**
+	 * @return A clone of the current version of the KB, preferably from the pool.
+	 */
+	KnowledgeBase take() {
+		Clone clone;
+		do {
+			clone = clones.poll();
+		} while(clone != null && clone.version != version);
+		fill();
+		if(clone != null){
+			return clone.kb;
+		}
+		synchronized (kb) {
+			return kb.clone();
+		}
+	}
+
+	/**
+	 * @return The number of version changes of the KB.
+	 */
+	long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return The number of clones currently in the pool.
+	 */
+	int getNrOfClones() {
+		return clones.size();
+	}
+
+	/**
+	 * @param size The number of clones made in advance.
+	 */
+	void setSize(int size) {
+		this.size = size;
+		clones.clear();
+		fill();
+	}
+
+	private void fill() {
+		// at most one task fills the pool, instead of one task per taken clone
+		if(clones.size() < size && filling.compareAndSet(false, true)){
+			executor.submit(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						while(clones.size() < size){
+							synchronized (kb) {
+								clones.offer(new Clone(kb.clone(), version));
+							}
+						}
+					} finally {
+						filling.set(false);
+					}
+				}
+			});
+		}
+	}
+}
@@ -75,9 +75,11 @@ import org.dllearner.core.owl.Union;
 import org.dllearner.utilities.Helper;
 import org.dllearner.utilities.owl.ConceptComparator;
 import org.dllearner.utilities.owl.ConceptTransformation;
+import org.dllearner.utilities.owl.DescriptionEquivalence;
 import org.dllearner.utilities.owl.OWLAPIDescriptionConvertVisitor;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.google.common.base.Equivalence;
 import com.google.common.collect.Sets;
 
 /**
@@ -233,7 +235,7 @@ public class RhoDRDown extends RefinementOperatorAdapter implements Component, C
 	private boolean dropDisjuncts = false;
 
 	// caches for reasoner queries
-	private Map<Description,Map<Description,Boolean>> cachedDisjoints = new TreeMap<Description,Map<Description,Boolean>>(conceptComparator);
+	private Map<Equivalence.Wrapper<Description>,Map<Equivalence.Wrapper<Description>,Boolean>> cachedDisjoints = new HashMap<Equivalence.Wrapper<Description>,Map<Equivalence.Wrapper<Description>,Boolean>>();
 
 //	private Map<NamedClass,Map<NamedClass,Boolean>> abDisjoint = new TreeMap<NamedClass,Map<NamedClass,Boolean>>();
 //	private Map<NamedClass,Map<NamedClass,Boolean>> notABDisjoint = new TreeMap<NamedClass,Map<NamedClass,Boolean>>();
@@ -270,6 +272,10 @@ public class RhoDRDown extends RefinementOperatorAdapter implements Component, C
 		setUseNegation(op.useNegation);
 		setUseObjectValueNegation(op.useObjectValueNegation);
 		setUseStringDatatypes(op.useStringDatatypes);
+		// options without setters
+		applyExistsFilter = op.applyExistsFilter;
+		disjointChecks = op.disjointChecks;
+		maxNrOfSplits = op.maxNrOfSplits;
 		isInitialised = false;
 	}
 	
@@ -1563,10 +1569,12 @@ public class RhoDRDown extends RefinementOperatorAdapter implements Component, C
 //		System.out.println("| " + cachedDisjoints);
 		
 		// check whether we have cached this query
-		Map<Description,Boolean> tmp = cachedDisjoints.get(d1);
+		Equivalence.Wrapper<Description> key1 = DescriptionEquivalence.instance.wrap(d1);
+		Equivalence.Wrapper<Description> key2 = DescriptionEquivalence.instance.wrap(d2);
+		Map<Equivalence.Wrapper<Description>,Boolean> tmp = cachedDisjoints.get(key1);
 		Boolean tmp2 = null;
 		if(tmp != null)
-			tmp2 = tmp.get(d2);
+			tmp2 = tmp.get(key2);
 		
 //		System.out.println("| " + tmp + " " + tmp2);
 		
@@ -1584,16 +1592,16 @@ public class RhoDRDown extends RefinementOperatorAdapter implements Component, C
 //			System.out.println("| result: " + result);
 			
 			// create new entries if necessary
-			Map<Description,Boolean> map1 = new TreeMap<Description,Boolean>(conceptComparator);
-			Map<Description,Boolean> map2 = new TreeMap<Description,Boolean>(conceptComparator);
+			Map<Equivalence.Wrapper<Description>,Boolean> map1 = new HashMap<Equivalence.Wrapper<Description>,Boolean>();
+			Map<Equivalence.Wrapper<Description>,Boolean> map2 = new HashMap<Equivalence.Wrapper<Description>,Boolean>();
 			if(tmp == null)
-				cachedDisjoints.put(d1, map1);
-			if(!cachedDisjoints.containsKey(d2))
-				cachedDisjoints.put(d2, map2);
+				cachedDisjoints.put(key1, map1);
+			if(!cachedDisjoints.containsKey(key2))
+				cachedDisjoints.put(key2, map2);
 			
 			// add result symmetrically in the description matrix
-			cachedDisjoints.get(d1).put(d2, result);
-			cachedDisjoints.get(d2).put(d1, result);
+			cachedDisjoints.get(key1).put(key2, result);
+			cachedDisjoints.get(key2).put(key1, result);
 //			System.out.println("---");
 			return result;
 		} else {
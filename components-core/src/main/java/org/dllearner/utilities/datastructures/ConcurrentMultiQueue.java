@@ -0,0 +1,153 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.utilities.datastructures;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A relaxed concurrent priority queue (multi-queue). Elements are spread
+ * over several sequential priority queues, each protected by its own lock.
+ * Insertions go to a random queue; removals look at the heads of two random
+ * queues and take the better one. Threads never wait for a lock, but try
+ * other queues instead, so many threads can insert and remove at the same
+ * time.
+ *
+ * The price is that {@link #poll()} does not necessarily return the best
+ * element, but with high probability one of the best elements (the expected
+ * rank is linear in the number of queues). For best-first search algorithms
+ * this is usually acceptable.
+ *
+ * @param <T> The type of the elements. Elements must not change their order
+ * while they are in the queue.
+ */
+public class ConcurrentMultiQueue<T> {
+
+	private final PriorityQueue<T>[] queues;
+	private final ReentrantLock[] locks;
+	// the head of each queue (read without locking to select a queue)
+	private final AtomicReferenceArray<T> heads;
+	private final Comparator<? super T> comparator;
+	private final AtomicInteger size = new AtomicInteger();
+
+	/**
+	 * @param comparator Orders the elements; {@link #poll()} prefers elements
+	 * which are smaller according to this comparator.
+	 * @param nrOfQueues The number of internal queues. Twice the number of
+	 * threads accessing the queue is a good choice.
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentMultiQueue(Comparator<? super T> comparator, int nrOfQueues) {
+		this.comparator = comparator;
+		nrOfQueues = Math.max(1, nrOfQueues);
+		queues = new PriorityQueue[nrOfQueues];
+		locks = new ReentrantLock[nrOfQueues];
+		heads = new AtomicReferenceArray<T>(nrOfQueues);
+		for(int i=0; i<nrOfQueues; i++) {
+			queues[i] = new PriorityQueue<T>(11, comparator);
+			locks[i] = new ReentrantLock();
+		}
+	}
+
+	public void add(T element) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		while(true) {
+			int i = random.nextInt(queues.length);
+			if(locks[i].tryLock()) {
+				try {
+					queues[i].add(element);
+					heads.set(i, queues[i].peek());
+				} finally {
+					locks[i].unlock();
+				}
+				size.incrementAndGet();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Removes one of the best elements.
+	 * @return The removed element or null if the queue is empty.
+	 */
+	public T poll() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int failedAttempts = 0;
+		while(size.get() > 0) {
+			int i;
+			if(failedAttempts < 2 * queues.length) {
+				// pick the better of two random queues
+				int i1 = random.nextInt(queues.length);
+				int i2 = random.nextInt(queues.length);
+				T head1 = heads.get(i1);
+				T head2 = heads.get(i2);
+				if(head1 == null) {
+					i = i2;
+				} else if(head2 == null) {
+					i = i1;
+				} else {
+					i = comparator.compare(head1, head2) <= 0 ? i1 : i2;
+				}
+			} else {
+				// only few elements are left, so we scan the queues in order
+				i = failedAttempts % queues.length;
+			}
+			if(heads.get(i) != null && locks[i].tryLock()) {
+				try {
+					T element = queues[i].poll();
+					heads.set(i, queues[i].peek());
+					if(element != null) {
+						size.decrementAndGet();
+						return element;
+					}
+				} finally {
+					locks[i].unlock();
+				}
+			}
+			failedAttempts++;
+		}
+		return null;
+	}
+
+	public int size() {
+		return size.get();
+	}
+
+	public boolean isEmpty() {
+		return size.get() == 0;
+	}
+
+	public void clear() {
+		for(int i=0; i<queues.length; i++) {
+			locks[i].lock();
+			try {
+				size.addAndGet(-queues[i].size());
+				queues[i].clear();
+				heads.set(i, null);
+			} finally {
+				locks[i].unlock();
+			}
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.utilities.datastructures;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Counts for each key the number of distinct subjects it has been observed
+ * with, e.g. the number of distinct instances of each class in a stream of
+ * (individual, class) pairs. Pairs can be added in any order and repeatedly;
+ * each distinct pair is counted once. This corresponds to the SPARQL aggregate
+ * COUNT(DISTINCT ?s) ... GROUP BY ?key, but is maintained while the pairs
+ * arrive instead of recomputing it over all pairs seen so far.
+ *
+ * @param <S> The type of the subjects.
+ * @param <K> The type of the keys.
+ */
+public class DistinctCounter<S,K> {
+
+	private Map<S,Set<K>> subject2Keys = new HashMap<S,Set<K>>();
+	private Map<K,Integer> counts = new HashMap<K,Integer>();
+
+	/**
+	 * Adds an observation of a subject with a key.
+	 * @param subject The subject.
+	 * @param key The key.
+	 * @return True if the pair has not been observed before, i.e. the count
+	 * of the key has been increased.
+	 */
+	public boolean add(S subject, K key) {
+		Set<K> keys = subject2Keys.get(subject);
+		if(keys == null) {
+			keys = new HashSet<K>(4);
+			subject2Keys.put(subject, keys);
+		}
+		if(!keys.add(key)) {
+			return false;
+		}
+		Integer cnt = counts.get(key);
+		counts.put(key, cnt == null ? 1 : cnt + 1);
+		return true;
+	}
+
+	/**
+	 * @param key A key.
+	 * @return The number of distinct subjects observed with the key.
+	 */
+	public int getCount(K key) {
+		Integer cnt = counts.get(key);
+		return cnt == null ? 0 : cnt;
+	}
+
+	/**
+	 * @return The counts of all keys (read-only view).
+	 */
+	public Map<K,Integer> getCounts() {
+		return Collections.unmodifiableMap(counts);
+	}
+
+	/**
+	 * @return The number of distinct subjects observed so far.
+	 */
+	public int getNrOfSubjects() {
+		return subject2Keys.size();
+	}
+
+	public void clear() {
+		subject2Keys.clear();
+		counts.clear();
+	}
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.utilities.owl;
+
+import java.io.Serializable;
+
+import org.dllearner.core.owl.Description;
+
+import com.google.common.base.Equivalence;
+
+/**
+ * Syntactic equivalence of class descriptions, i.e. two descriptions are
+ * equivalent if the {@link ConceptComparator} considers them equal. In contrast
+ * to the comparator, this equivalence provides a hash code (the cached 
+ * {@link Description#structuralHashCode()}), so that descriptions can be used 
+ * as keys in hash based collections via {@link #wrap(Object)}. The comparator
+ * is only invoked if the structural hash codes of two descriptions are equal.
+ */
+public class DescriptionEquivalence extends Equivalence<Description> implements Serializable {
+
+	private static final long serialVersionUID = 6436123496829145311L;
+	
+	public static final DescriptionEquivalence instance = new DescriptionEquivalence();
+	
+	private ConceptComparator conceptComparator = new ConceptComparator();
+	
+	@Override
+	protected boolean doEquivalent(Description a, Description b) {
+		return a.structuralHashCode() == b.structuralHashCode() && conceptComparator.compare(a, b) == 0;
+	}
+
+	@Override
+	protected int doHash(Description description) {
+		return description.structuralHashCode();
+	}
+
+}
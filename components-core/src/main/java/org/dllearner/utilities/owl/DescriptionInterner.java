@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.utilities.owl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.dllearner.core.owl.Description;
+
+import com.google.common.base.Equivalence;
+
+/**
+ * Hash-consing of class descriptions: for all descriptions which are
+ * syntactically equal (see {@link DescriptionEquivalence}) the same 
+ * canonical instance is returned. This allows to detect duplicates by 
+ * reference comparison and avoids keeping many copies of the same 
+ * description tree in memory.
+ * 
+ * Descriptions should be in ordered negation normal form before being
+ * interned, otherwise e.g. (A AND B) and (B AND A) are different. Canonical
+ * instances are shared, so they must not be modified afterwards.
+ * 
+ * This class is thread-safe.
+ */
+public class DescriptionInterner {
+
+	private ConcurrentMap<Equivalence.Wrapper<Description>, Description> descriptions = new ConcurrentHashMap<Equivalence.Wrapper<Description>, Description>();
+	
+	/**
+	 * Returns the canonical instance of the given description. If no
+	 * syntactically equal description was interned before, the given 
+	 * description becomes the canonical instance.
+	 * 
+	 * @param description A class description.
+	 * @return The canonical instance, which is the argument itself if and only
+	 * if the description has not been seen before.
+	 */
+	public Description intern(Description description) {
+		Description canonical = descriptions.putIfAbsent(DescriptionEquivalence.instance.wrap(description), description);
+		return canonical == null ? description : canonical;
+	}
+	
+	/**
+	 * @param description A class description.
+	 * @return Whether a syntactically equal description has already been interned.
+	 */
+	public boolean contains(Description description) {
+		return descriptions.containsKey(DescriptionEquivalence.instance.wrap(description));
+	}
+	
+	public int size() {
+		return descriptions.size();
+	}
+	
+	public void clear() {
+		descriptions.clear();
+	}
+	
+}
@@ -19,9 +19,9 @@
 
 package org.dllearner.utilities.owl;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
 
 import org.dllearner.core.AbstractReasonerComponent;
 import org.dllearner.core.owl.DataRange;
@@ -41,6 +41,8 @@ import org.dllearner.core.owl.ObjectSomeRestriction;
 import org.dllearner.core.owl.Thing;
 import org.dllearner.core.owl.Union;
 
+import com.google.common.base.Equivalence;
+
 /**
  * Rewrites a description to an equivalent shorter description. Note that
  * minimizing is not a trivial operation and requires reasoning. The class
@@ -55,8 +57,7 @@ public class DescriptionMinimizer {
 	private static final NamedClass OWL_THING = new NamedClass(Thing.uri);
 
 	private AbstractReasonerComponent reasoner;
-	private ConceptComparator conceptComparator = new ConceptComparator();
-	private Map<Description,Map<Description,Boolean>> cachedSubclassOf = new TreeMap<Description,Map<Description,Boolean>>(conceptComparator);	
+	private Map<Equivalence.Wrapper<Description>,Map<Equivalence.Wrapper<Description>,Boolean>> cachedSubclassOf = new HashMap<Equivalence.Wrapper<Description>,Map<Equivalence.Wrapper<Description>,Boolean>>();	
 
 	private boolean beautify = true;
 	
@@ -269,21 +270,23 @@ public class DescriptionMinimizer {
 		if(d2 == Thing.instance || d2.equals(OWL_THING)) return true;
 		if(!(d1.isNamedClass() && d2.isNamedClass())) return false;
 		// check whether we have cached this query
-		Map<Description,Boolean> tmp = cachedSubclassOf.get(d1);
+		Equivalence.Wrapper<Description> key1 = DescriptionEquivalence.instance.wrap(d1);
+		Equivalence.Wrapper<Description> key2 = DescriptionEquivalence.instance.wrap(d2);
+		Map<Equivalence.Wrapper<Description>,Boolean> tmp = cachedSubclassOf.get(key1);
 		Boolean tmp2 = null;
 		if(tmp != null)
-			tmp2 = tmp.get(d2);
+			tmp2 = tmp.get(key2);
 		
 		if(tmp2==null) {
 			
 			Boolean result = reasoner.isSuperClassOf(d2, d1);
 						
 			// create new entry if necessary
-			Map<Description,Boolean> map1 = new TreeMap<Description,Boolean>(conceptComparator);
+			Map<Equivalence.Wrapper<Description>,Boolean> map1 = new HashMap<Equivalence.Wrapper<Description>,Boolean>();
 			if(tmp == null)
-				cachedSubclassOf.put(d1, map1);
+				cachedSubclassOf.put(key1, map1);
 			
-			cachedSubclassOf.get(d1).put(d2, result);
+			cachedSubclassOf.get(key1).put(key2, result);
 			return result;
 		} else {
 			return tmp2;
@@ -0,0 +1,137 @@
+package org.dllearner.algorithms.ParCEL;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.dllearner.core.AbstractReasonerComponent;
+import org.dllearner.core.ComponentInitException;
+import org.dllearner.core.owl.Individual;
+import org.dllearner.core.owl.NamedClass;
+import org.dllearner.test.junit.TestOntologies;
+import org.dllearner.test.junit.TestOntologies.TestOntology;
+import org.junit.Test;
+
+/**
+ * Tests the scheduling of the tasks of the ParCEL learner. The tasks are replaced by tasks expanding
+ * a tree of nodes of a given depth and fan-out, i.e. the search space is exhausted after all nodes of
+ * the tree are processed
+ */
+public class ParCELearnerTest {
+
+	private static final String NS = "http://example.com/father#";
+
+	/**
+	 * Learner whose tasks expand the tree instead of refining the nodes
+	 */
+	private static class TreeLearner extends ParCELearner {
+
+		private final int depth;
+		private final int fanOut;
+		// if set, the tasks add their nodes only while the learner waits for new nodes, such that the
+		// learner does not poll the search tree while the nodes are added
+		private final boolean addWhileLearnerWaits;
+		private volatile Thread learnerThread;
+
+		// the nodes processed by the tasks, in the order they were processed
+		private final List<String> processedNodes = Collections.synchronizedList(new ArrayList<String>());
+		private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+
+		TreeLearner(ParCELPosNegLP learningProblem, AbstractReasonerComponent reasoner, int depth,
+				int fanOut, boolean addWhileLearnerWaits) {
+			super(learningProblem, reasoner);
+			this.depth = depth;
+			this.fanOut = fanOut;
+			this.addWhileLearnerWaits = addWhileLearnerWaits;
+		}
+
+		@Override
+		protected void createNewTask(final List<ParCELNode> nodesToProcess) {
+			learnerThread = Thread.currentThread();
+			batchSizes.add(nodesToProcess.size());
+			workerPool.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						Set<ParCELNode> newNodes = new HashSet<ParCELNode>();
+						for (ParCELNode node : nodesToProcess) {
+							String path = getPath(node);
+							processedNodes.add(path);
+							if (path.split("_").length <= depth) {
+								for (int i = 0; i < fanOut; i++)
+									newNodes.add(new ParCELNode(node, new NamedClass(NS + "n" + path + "_" + i), 0.5, 0.5, 0.5));
+							}
+						}
+						if (addWhileLearnerWaits && !newNodes.isEmpty()) {
+							while (learnerThread.getState() != Thread.State.WAITING
+									&& learnerThread.getState() != Thread.State.TIMED_WAITING)
+								Thread.yield();
+						}
+						newRefinementDescriptions(newNodes);
+					} finally {
+						taskCompleted();
+					}
+				}
+			});
+		}
+
+		private String getPath(ParCELNode node) {
+			// the root is owl:Thing
+			return node.isRoot() ? "" : ((NamedClass) node.getDescription()).getName().substring(NS.length() + 1);
+		}
+	}
+
+	private TreeLearner createLearner(int depth, int fanOut, boolean addWhileLearnerWaits,
+			int numberOfWorkers) throws ComponentInitException {
+		AbstractReasonerComponent rc = TestOntologies.getTestOntology(TestOntology.FATHER_OE);
+		Set<Individual> positiveExamples = new TreeSet<Individual>();
+		for (String name : new String[] { "stefan", "markus", "martin" })
+			positiveExamples.add(new Individual(NS + name));
+		Set<Individual> negativeExamples = new TreeSet<Individual>();
+		for (String name : new String[] { "heinz", "anna", "michelle" })
+			negativeExamples.add(new Individual(NS + name));
+		ParCELPosNegLP lp = new ParCELPosNegLP(rc, positiveExamples, negativeExamples);
+		lp.init();
+
+		TreeLearner learner = new TreeLearner(lp, rc, depth, fanOut, addWhileLearnerWaits);
+		learner.setNumberOfWorkers(numberOfWorkers);
+		learner.setMaxExecutionTimeInSeconds(60);
+		learner.init();
+		return learner;
+	}
+
+	@Test
+	public void batchingTest() throws ComponentInitException {
+		TreeLearner learner = createLearner(1, 16, true, 2);
+		learner.setMaxTaskBatchSize(4);
+		learner.start();
+
+		assertEquals(17, learner.processedNodes.size());
+		assertEquals(17, new HashSet<String>(learner.processedNodes).size());
+		// the batches are reduced if the search tree is small, such that all workers get nodes
+		assertEquals(Arrays.asList(1, 4, 4, 4, 2, 1, 1), learner.batchSizes);
+	}
+
+	@Test
+	public void exhaustionTest() throws ComponentInitException {
+		// the learner must not stop while a task may still add nodes
+		for (int i = 0; i < 20; i++) {
+			TreeLearner learner = createLearner(5, 2, false, 4);
+			learner.setMaxTaskBatchSize(1);
+			learner.start();
+
+			assertFalse(learner.isTimeout());
+			assertFalse(learner.isDone());
+			assertEquals(63, learner.processedNodes.size());
+			assertEquals(0, learner.getSearchTreeSize());
+		}
+	}
+
+}
@@ -0,0 +1,75 @@
+package org.dllearner.algorithms.ParCEL.distributed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.PriorityQueue;
+
+import org.dllearner.core.owl.Description;
+import org.dllearner.core.owl.Intersection;
+import org.dllearner.core.owl.NamedClass;
+import org.dllearner.core.owl.ObjectProperty;
+import org.dllearner.core.owl.ObjectSomeRestriction;
+import org.junit.Test;
+
+/**
+ * Tests the classes accepted in the messages of the distributed ParCEL
+ */
+public class ParCELRemoteObjectInputStreamTest {
+
+	private static final String NS = "http://example.com/father#";
+
+	private Object roundTrip(Object message) throws IOException, ClassNotFoundException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(message);
+		out.close();
+
+		return new ParCELRemoteObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))
+				.readObject();
+	}
+
+	@Test
+	public void messagesTest() throws Exception {
+		Description description = new Intersection(new NamedClass(NS + "male"),
+				new ObjectSomeRestriction(new ObjectProperty(NS + "hasChild"), new NamedClass(NS + "person")));
+		BitSet examples = new BitSet();
+		examples.set(3);
+		ParCELRemoteTask task = new ParCELRemoteTask(Arrays.asList(description), new int[] { 2 }, examples);
+
+		ParCELRemoteTask received = (ParCELRemoteTask) roundTrip(task);
+		assertEquals(description.toString(), received.getDescriptions().get(0).toString());
+		assertEquals(2, received.getHorizontalExpansions()[0]);
+		assertEquals(examples, received.getUncoveredPositiveExamples());
+
+		assertEquals(Collections.singletonList("a"), roundTrip(Collections.singletonList("a")));
+	}
+
+	@Test
+	public void rejectedClassesTest() throws Exception {
+		try {
+			roundTrip(new PriorityQueue<String>(Arrays.asList("a", "b")));
+			fail("Classes which are not used by the messages must be rejected");
+		} catch (InvalidClassException e) {
+			// expected
+		}
+
+		assertTrue(ParCELRemoteObjectInputStream.isAllowed("[J"));
+		assertTrue(ParCELRemoteObjectInputStream.isAllowed("[Lorg.dllearner.core.owl.Description;"));
+		assertTrue(ParCELRemoteObjectInputStream.isAllowed("org.dllearner.algorithms.ParCEL.distributed.ParCELRemoteResult$Refinement"));
+		assertFalse(ParCELRemoteObjectInputStream.isAllowed("org.dllearner.core.owl.fuzzydll.FuzzyIndividual"));
+		assertFalse(ParCELRemoteObjectInputStream.isAllowed("[Ljava.lang.Object;"));
+		assertFalse(ParCELRemoteObjectInputStream.isAllowed("java.util.TreeMap"));
+	}
+
+}
@@ -0,0 +1,142 @@
+package org.dllearner.algorithms.isle.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.dllearner.core.owl.Entity;
+import org.dllearner.core.owl.NamedClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class DoubleArrayTokenTrieTest {
+
+	private static final String[] STEMS = {"a", "b", "c", "d", "e", "f"};
+	private static final String[] WORD_TYPES = {"NN", "VB", "JJ", "DT"};
+	private static final String[] POS_TAGS = {"NN", "NNS", "VB", "JJ", "DT"};
+
+	private Token createToken(String stem, String posTag) {
+		return new Token(stem, stem, posTag, false, posTag.equals("DT"));
+	}
+
+	/**
+	 * Creates a label token whose alternative forms only depend on the word type and stemmed form,
+	 * such that merging the alternative forms does not change the results.
+	 */
+	private Token createLabelToken(String stem, String wordType) {
+		Token token = createToken(stem, wordType.equals("NN") && stem.compareTo("c") < 0 ? "NNS" : wordType);
+		Random random = new Random((wordType + stem).hashCode());
+		for (int i = 0; i < 2; i++) {
+			token.addAlternativeForm(STEMS[random.nextInt(STEMS.length)] + "x" + random.nextInt(2), 0.1 + random.nextInt(9) / 10.0);
+		}
+		return token;
+	}
+
+	@Test
+	public void testLookups() {
+		Entity entity1 = new NamedClass("http://example.org/TokenTree");
+		Entity entity2 = new NamedClass("http://example.org/TokenizedTree");
+		List<Token> tokens1 = Arrays.asList(createToken("token", "NN"), createToken("tree", "NN"));
+		List<Token> tokens2 = Arrays.asList(createToken("tokenize", "JJ"), createToken("tree", "NN"));
+		tokens2.get(0).addAlternativeForm("token", 0.5);
+
+		DoubleArrayTokenTrie trie = new DoubleArrayTokenTrie();
+		trie.add(tokens1, entity1);
+		trie.add(tokens2, entity2);
+
+		List<Token> text = Arrays.asList(createToken("token", "NNS"), createToken("tree", "NN"), createToken("grow", "VB"));
+		Assert.assertEquals(2, trie.getLongestMatch(text).size());
+		Assert.assertEquals(tokens1, trie.getOriginalTokensForLongestMatch(text));
+		Assert.assertEquals(1, trie.getEntitiesForLongestMatch(text).size());
+		Assert.assertTrue(trie.getEntitiesForLongestMatch(text).contains(entity1));
+
+		// the text token matches the label token of entity2 by its alternative form
+		List<EntityScorePair> scored = new ArrayList<>(trie.getAllEntitiesScored(text.subList(0, 2)));
+		Assert.assertEquals(2, scored.size());
+		Assert.assertEquals(entity2, scored.get(0).getEntity());
+		Assert.assertEquals(0.5, scored.get(0).getScore(), 0);
+		Assert.assertEquals(entity1, scored.get(1).getEntity());
+		Assert.assertEquals(1.0, scored.get(1).getScore(), 0);
+
+		// the trie is recompiled after modifications
+		trie.add(text, entity2);
+		Assert.assertEquals(3, trie.getLongestMatch(text).size());
+	}
+
+	@Test
+	public void testSameResultsAsTokenTree() {
+		Random random = new Random(42);
+		for (int round = 0; round < 50; round++) {
+			TokenTree tree = new TokenTree();
+			DoubleArrayTokenTrie trie = new DoubleArrayTokenTrie();
+			for (int i = 0; i < 40; i++) {
+				List<Token> tokens = new ArrayList<>();
+				for (int j = random.nextInt(4); j >= 0; j--) {
+					tokens.add(createLabelToken(STEMS[random.nextInt(STEMS.length)], WORD_TYPES[random.nextInt(WORD_TYPES.length)]));
+				}
+				Entity entity = new NamedClass("http://example.org/E" + random.nextInt(30));
+				tree.add(tokens, entity);
+				trie.add(tokens, entity);
+			}
+			for (int i = 0; i < 100; i++) {
+				List<Token> tokens = new ArrayList<>();
+				for (int j = random.nextInt(4); j >= 0; j--) {
+					String stem = STEMS[random.nextInt(STEMS.length)] + (random.nextInt(4) == 0 ? "x" + random.nextInt(2) : "");
+					Token token = createToken(stem, POS_TAGS[random.nextInt(POS_TAGS.length)]);
+					if (random.nextBoolean()) {
+						token.addAlternativeForm(STEMS[random.nextInt(STEMS.length)] + (random.nextBoolean() ? "x" + random.nextInt(2) : ""),
+								0.1 + random.nextInt(9) / 10.0);
+					}
+					tokens.add(token);
+				}
+				Assert.assertEquals(tree.getAllEntitiesScored(tokens), trie.getAllEntitiesScored(tokens));
+				Assert.assertEquals(tree.getLongestMatch(tokens), trie.getLongestMatch(tokens));
+				Assert.assertEquals(tree.getEntitiesForLongestMatch(tokens), trie.getEntitiesForLongestMatch(tokens));
+				Assert.assertEquals(tree.getOriginalTokensForLongestMatch(tokens), trie.getOriginalTokensForLongestMatch(tokens));
+				Assert.assertEquals(tree.get(tokens), trie.get(tokens));
+			}
+		}
+	}
+
+	/**
+	 * Creates the tokens of the i-th label from a vocabulary of a few thousand words. The tokens are created
+	 * anew for each label, as by the label parsers.
+	 */
+	private List<Token> createLabel(int i) {
+		Random random = new Random(i);
+		List<Token> tokens = new ArrayList<>();
+		for (int j = random.nextInt(4); j >= 0; j--) {
+			tokens.add(createToken("w" + random.nextInt(3000), j == 0 ? "NN" : "JJ"));
+		}
+		return tokens;
+	}
+
+	@Test
+	public void testSizeComparedToTokenTree() {
+		int nrOfLabels = 20000;
+		Entity entity = new NamedClass("http://example.org/E");
+
+		// the token tree has a node per distinct label prefix, besides its root
+		Set<List<Token>> prefixes = new HashSet<>();
+		DoubleArrayTokenTrie trie = new DoubleArrayTokenTrie();
+		for (int i = 0; i < nrOfLabels; i++) {
+			List<Token> label = createLabel(i);
+			for (int j = 1; j <= label.size(); j++) {
+				prefixes.add(new ArrayList<>(label.subList(0, j)));
+			}
+			trie.add(label, entity);
+			// adding a label again only keeps its latest original tokens
+			trie.add(createLabel(i), entity);
+		}
+		Assert.assertTrue(trie.get(createLabel(42)).contains(entity));
+
+		// the trie has a state per node of the token tree and only a few unused slots in its arrays
+		Assert.assertEquals(prefixes.size() + 1, trie.getNrOfStates());
+		Assert.assertTrue(trie + " in arrays of length " + trie.getArrayLength(),
+				trie.getArrayLength() < 1.25 * trie.getNrOfStates());
+	}
+
+}
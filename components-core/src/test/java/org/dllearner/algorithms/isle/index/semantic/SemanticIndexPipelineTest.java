@@ -0,0 +1,218 @@
+package org.dllearner.algorithms.isle.index.semantic;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.dllearner.algorithms.isle.index.AnnotatedDocument;
+import org.dllearner.algorithms.isle.index.AnnotatedTextDocument;
+import org.dllearner.algorithms.isle.index.Annotation;
+import org.dllearner.algorithms.isle.index.EntityScorePair;
+import org.dllearner.algorithms.isle.index.SemanticAnnotation;
+import org.dllearner.algorithms.isle.index.SemanticAnnotator;
+import org.dllearner.algorithms.isle.index.TextDocument;
+import org.dllearner.algorithms.isle.index.Token;
+import org.dllearner.core.owl.Entity;
+import org.dllearner.core.owl.NamedClass;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SemanticIndexPipelineTest {
+
+	private static final String NS = "http://example.org/";
+
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	/**
+	 * Annotates each token of a document with the class of the same name and records the calls
+	 * of the stages.
+	 */
+	private static class StubAnnotator extends SemanticAnnotator {
+		private List<String> candidates = Collections.synchronizedList(new ArrayList<String>());
+		private List<String> disambiguated = Collections.synchronizedList(new ArrayList<String>());
+		private CountDownLatch disambiguatedLatch = new CountDownLatch(0);
+
+		StubAnnotator() {
+			super(null, null, null);
+		}
+
+		@Override
+		public HashMap<Annotation, Set<EntityScorePair>> getCandidates(TextDocument document) {
+			if(document.getRawContent().contains("fail")){
+				throw new RuntimeException("annotation of " + document.getRawContent() + " failed");
+			}
+			candidates.add(document.getRawContent());
+			HashMap<Annotation, Set<EntityScorePair>> candidatesMap = new HashMap<Annotation, Set<EntityScorePair>>();
+			for (Token token : document) {
+				Entity entity = new NamedClass(NS + token.getRawForm());
+				candidatesMap.put(new Annotation(document, Collections.singletonList(token)),
+						Collections.singleton(new EntityScorePair(entity, 1d)));
+			}
+			return candidatesMap;
+		}
+
+		@Override
+		public AnnotatedDocument disambiguate(TextDocument document, HashMap<Annotation, Set<EntityScorePair>> candidatesMap) {
+			Assert.assertTrue(candidates.contains(document.getRawContent()));
+			Set<SemanticAnnotation> annotations = new HashSet<SemanticAnnotation>();
+			for (Annotation annotation : candidatesMap.keySet()) {
+				annotations.add(new SemanticAnnotation(annotation, candidatesMap.get(annotation).iterator().next().getEntity()));
+			}
+			disambiguated.add(document.getRawContent());
+			disambiguatedLatch.countDown();
+			return new AnnotatedTextDocument(document, annotations);
+		}
+	}
+
+	/**
+	 * Splits the documents at whitespace instead of running the NLP tools.
+	 */
+	private static class StubPipeline extends SemanticIndexPipeline {
+		StubPipeline(SemanticAnnotator semanticAnnotator) {
+			super(semanticAnnotator);
+		}
+
+		@Override
+		protected TextDocument tokenize(String text) {
+			TextDocument document = new TextDocument();
+			for (String word : text.split(" ")) {
+				document.add(new Token(word));
+			}
+			return document;
+		}
+	}
+
+	/**
+	 * Returns the documents and fails after a given number of them, once the given latch is released.
+	 */
+	private static Iterable<String> failingDocuments(final List<String> documents, final int failAfter, final CountDownLatch latch) {
+		return new Iterable<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new Iterator<String>() {
+					int i = 0;
+
+					@Override
+					public boolean hasNext() {
+						return i < documents.size();
+					}
+
+					@Override
+					public String next() {
+						if(i == failAfter){
+							try {
+								latch.await(10, TimeUnit.SECONDS);
+							} catch (InterruptedException e) {
+								Thread.currentThread().interrupt();
+							}
+							throw new RuntimeException("reading failed");
+						}
+						return documents.get(i++);
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	private static NamedClass cls(String name) {
+		return new NamedClass(NS + name);
+	}
+
+	@Test
+	public void testStages() {
+		StubAnnotator annotator = new StubAnnotator();
+		SemanticIndexPipeline pipeline = new StubPipeline(annotator);
+		pipeline.setNrOfThreads(1);
+		pipeline.setQueueSize(2);
+		List<String> documents = Arrays.asList("a b", "b c", "a fail", "", "c", "a b c");
+		SemanticIndex index = pipeline.buildIndex(documents);
+
+		// a single worker per stage keeps the order of the documents, the failing one is skipped
+		Assert.assertEquals(Arrays.asList("a b", "b c", "c", "a b c"), annotator.candidates);
+		Assert.assertEquals(annotator.candidates, annotator.disambiguated);
+		Assert.assertEquals(6, index.getTotalNumberOfDocuments());
+		Assert.assertEquals(2, index.getNumberOfDocumentsFor(cls("a")));
+		Assert.assertEquals(3, index.getNumberOfDocumentsFor(cls("b")));
+		Assert.assertEquals(2, index.getNumberOfDocumentsFor(cls("b"), cls("c")));
+	}
+
+	@Test
+	public void testParallelStages() {
+		StubAnnotator annotator = new StubAnnotator();
+		SemanticIndexPipeline pipeline = new StubPipeline(annotator);
+		pipeline.setNrOfThreads(4);
+		pipeline.setQueueSize(3);
+		List<String> documents = new ArrayList<String>();
+		for (int i = 0; i < 200; i++) {
+			documents.add("x y" + i);
+		}
+		SemanticIndex index = pipeline.buildIndex(documents);
+		Assert.assertEquals(200, annotator.disambiguated.size());
+		Assert.assertEquals(200, index.getNumberOfDocumentsFor(cls("x")));
+		Assert.assertEquals(1, index.getNumberOfDocumentsFor(cls("y42")));
+	}
+
+	@Test
+	public void testReaderFailureAndResume() throws IOException {
+		File checkpointFile = new File(tmpFolder.getRoot(), "index.checkpoint");
+		List<String> documents = Arrays.asList("a b", "b c", "a c", "c d", "a d", "b d");
+
+		StubAnnotator annotator = new StubAnnotator();
+		annotator.disambiguatedLatch = new CountDownLatch(3);
+		SemanticIndexPipeline pipeline = new StubPipeline(annotator);
+		pipeline.setNrOfThreads(2);
+		pipeline.setCheckpointFile(checkpointFile);
+		pipeline.setCheckpointInterval(1);
+		try {
+			pipeline.buildIndex(failingDocuments(documents, 4, annotator.disambiguatedLatch));
+			Assert.fail("the failure of the reader must be reported");
+		} catch (RuntimeException e) {
+			Assert.assertEquals("reading failed", e.getCause().getMessage());
+		}
+		// the documents annotated before the failure are saved
+		Assert.assertTrue(checkpointFile.exists());
+		Set<String> annotated = new HashSet<String>(annotator.disambiguated);
+		Assert.assertTrue(annotated.size() >= 3);
+
+		// a crash while appending to the checkpoint leaves an incomplete segment
+		FileOutputStream out = new FileOutputStream(checkpointFile, true);
+		out.write(new byte[] {0, 0, 1, 0, 42});
+		out.close();
+
+		// the resumed run only annotates the remaining documents
+		annotator = new StubAnnotator();
+		pipeline = new StubPipeline(annotator);
+		pipeline.setNrOfThreads(2);
+		pipeline.setCheckpointFile(checkpointFile);
+		pipeline.setCheckpointInterval(1);
+		SemanticIndex index = pipeline.buildIndex(documents);
+		Set<String> remaining = new HashSet<String>(documents);
+		remaining.removeAll(annotated);
+		Assert.assertEquals(remaining, new HashSet<String>(annotator.disambiguated));
+		Assert.assertEquals(remaining.size(), annotator.disambiguated.size());
+
+		Assert.assertEquals(6, index.getTotalNumberOfDocuments());
+		Assert.assertEquals(3, index.getNumberOfDocumentsFor(cls("a")));
+		Assert.assertEquals(3, index.getNumberOfDocumentsFor(cls("d")));
+		Assert.assertEquals(1, index.getNumberOfDocumentsFor(cls("a"), cls("b")));
+		Assert.assertFalse(checkpointFile.exists());
+	}
+}
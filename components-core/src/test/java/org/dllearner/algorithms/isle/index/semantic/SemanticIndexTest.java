@@ -0,0 +1,99 @@
+package org.dllearner.algorithms.isle.index.semantic;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.dllearner.algorithms.isle.index.AnnotatedTextDocument;
+import org.dllearner.algorithms.isle.index.Annotation;
+import org.dllearner.algorithms.isle.index.SemanticAnnotation;
+import org.dllearner.algorithms.isle.index.TextDocument;
+import org.dllearner.algorithms.isle.index.Token;
+import org.dllearner.core.owl.Entity;
+import org.dllearner.core.owl.NamedClass;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SemanticIndexTest {
+
+	private static final Entity A = new NamedClass("http://example.org/A");
+	private static final Entity B = new NamedClass("http://example.org/B");
+	private static final Entity C = new NamedClass("http://example.org/C");
+	private static final Entity D = new NamedClass("http://example.org/D");
+
+	private AnnotatedTextDocument createDocument(Entity... entities) {
+		TextDocument document = new TextDocument();
+		Set<SemanticAnnotation> annotations = new HashSet<SemanticAnnotation>();
+		for (Entity entity : entities) {
+			Token token = new Token(entity.getName());
+			document.add(token);
+			annotations.add(new SemanticAnnotation(new Annotation(document, Collections.singletonList(token)), entity));
+		}
+		return new AnnotatedTextDocument(document, annotations);
+	}
+
+	private SemanticIndex createIndex() {
+		SemanticIndex index = new SemanticIndex();
+		index.addDocument(createDocument(A, B));
+		index.addDocument(createDocument(A, B, C));
+		index.addDocument(createDocument(A, C));
+		index.addDocument(createDocument(B));
+		index.setTotalNrOfDocuments(4);
+		return index;
+	}
+
+	@Test
+	public void testCounts() {
+		SemanticIndex index = createIndex();
+		Assert.assertEquals(3, index.getNumberOfDocumentsFor(A));
+		Assert.assertEquals(0, index.getNumberOfDocumentsFor(D));
+		Assert.assertEquals(0, index.getNrOfDocumentsFor(D));
+		Assert.assertEquals(2, index.getNumberOfDocumentsFor(A, B));
+		Assert.assertEquals(1, index.getNumberOfDocumentsFor(A, B, C));
+		Assert.assertEquals(0, index.getNumberOfDocumentsFor(C, D));
+		// counting must not modify the index
+		Assert.assertEquals(3, index.getDocuments(A).size());
+		Assert.assertTrue(index.getDocuments(D).isEmpty());
+		try {
+			index.getDocuments(A).clear();
+			Assert.fail("the documents of an entity must only be modified through the index");
+		} catch (UnsupportedOperationException e) {
+		}
+
+		// modifications are reflected
+		index.addDocument(createDocument(B, C));
+		Assert.assertEquals(2, index.getNumberOfDocumentsFor(B, C));
+		index.remove(C);
+		Assert.assertEquals(0, index.getNumberOfDocumentsFor(B, C));
+	}
+
+	@Test
+	public void testPrecomputedCooccurrences() {
+		SemanticIndex index = createIndex();
+		index.precomputeCooccurrences(Arrays.asList(A, B, C));
+		Assert.assertEquals(2, index.getNumberOfDocumentsFor(A, B));
+		Assert.assertEquals(2, index.getNumberOfDocumentsFor(B, A));
+		Assert.assertEquals(1, index.getNumberOfDocumentsFor(B, C));
+		Assert.assertEquals(3, index.getNumberOfDocumentsFor(A, A));
+		Assert.assertEquals(0, index.getNumberOfDocumentsFor(C, D));
+
+		// a subset of the precomputed entities keeps the counts, modifications drop them
+		index.precomputeCooccurrences(Arrays.asList(A, B));
+		Assert.assertEquals(1, index.getNumberOfDocumentsFor(B, C));
+		index.addDocument(createDocument(B, C));
+		index.precomputeCooccurrences(Arrays.asList(B, C));
+		Assert.assertEquals(2, index.getNumberOfDocumentsFor(B, C));
+	}
+
+	@Test
+	public void testCountIntersection() {
+		int[] list1 = {1, 3, 5, 7, 9, 11, 13, 15, 100};
+		int[] list2 = {0, 1, 2, 3, 4, 13, 14, 15, 16, 17, 18, 19, 20, 100};
+		int[] list3 = {15};
+		Assert.assertEquals(4, SemanticIndex.countIntersection(list1, list2));
+		Assert.assertEquals(1, SemanticIndex.countIntersection(list1, list2, list3));
+		Assert.assertEquals(0, SemanticIndex.countIntersection(list1, new int[0]));
+	}
+
+}
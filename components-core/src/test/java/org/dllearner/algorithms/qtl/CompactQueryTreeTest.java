@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2007-2010, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.dllearner.algorithms.qtl;
+
+import org.dllearner.algorithms.qtl.datastructures.impl.CompactQueryTree;
+import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeDictionary;
+import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeImpl;
+import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeImpl.NodeType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactQueryTreeTest {
+
+	private QueryTreeImpl<String> createTree(String root) {
+		QueryTreeImpl<String> tree = new QueryTreeImpl<String>(root, NodeType.RESOURCE);
+		QueryTreeImpl<String> child = new QueryTreeImpl<String>("?");
+		child.addChild(new QueryTreeImpl<String>("A", NodeType.RESOURCE), "type");
+		child.addChild(new QueryTreeImpl<String>("?", NodeType.LITERAL), "label");
+		tree.addChild(child, "r");
+		tree.addChild(new QueryTreeImpl<String>("A", NodeType.RESOURCE), "type");
+		return tree;
+	}
+
+	@Test
+	public void testRoundTrip() {
+		QueryTreeDictionary dict = new QueryTreeDictionary();
+
+		CompactQueryTree tree1 = dict.compact(createTree("x"));
+		QueryTreeImpl<String> expanded = dict.expand(tree1);
+		Assert.assertTrue(expanded.isSubsumedBy(createTree("x")));
+		Assert.assertTrue(createTree("x").isSubsumedBy(expanded));
+		Assert.assertSame(tree1, dict.compact(expanded));
+
+		// equal subtrees are shared
+		CompactQueryTree tree2 = dict.compact(createTree("y"));
+		Assert.assertNotSame(tree1, tree2);
+		Assert.assertSame(tree1.getChild(tree1.getFirstChildIndex(dict.encode("r"))),
+				tree2.getChild(tree2.getFirstChildIndex(dict.encode("r"))));
+		Assert.assertEquals(2, tree1.getMaxDepth());
+		Assert.assertEquals(5, tree1.getSize());
+		// x, y, A, ?-literal, ?-with children
+		Assert.assertEquals(5, dict.getNrOfTrees());
+	}
+
+	@Test
+	public void testIdsOfInternedTrees() {
+		QueryTreeDictionary dict = new QueryTreeDictionary();
+		CompactQueryTree tree1 = dict.compact(createTree("x"));
+		Assert.assertEquals(3, tree1.getId());
+		// looking up existing trees does not use up ids
+		for (int i = 0; i < 10; i++) {
+			Assert.assertSame(tree1, dict.compact(createTree("x")));
+		}
+		Assert.assertEquals(4, dict.compact(createTree("y")).getId());
+	}
+
+}
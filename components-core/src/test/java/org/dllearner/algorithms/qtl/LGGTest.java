@@ -160,6 +160,30 @@ public class LGGTest {
 		
 	}
 	
+	@Test
+	public void testCompactLGG(){
+		List<QueryTree<String>> posExampleTrees = DBpediaExample.getPosExampleTrees();
+		
+		QueryTree<String> expectedLGG = new LGGGeneratorImpl<String>().getLGG(posExampleTrees);
+		
+		LGGGeneratorImpl<String> lggGenerator = new LGGGeneratorImpl<String>();
+		lggGenerator.setUseCompactTrees(true);
+		QueryTree<String> lgg = lggGenerator.getLGG(posExampleTrees);
+		lgg.dump();
+		
+		Assert.assertTrue(lgg.isSubsumedBy(expectedLGG));
+		Assert.assertTrue(expectedLGG.isSubsumedBy(lgg));
+		
+		// the dictionary is kept for further LGGs until the generator is shut down
+		for (int i = 0; i < 2; i++) {
+			lgg = lggGenerator.getLGG(posExampleTrees.get(0), posExampleTrees.get(1));
+			QueryTree<String> expectedPairLGG = new LGGGeneratorImpl<String>().getLGG(posExampleTrees.get(0), posExampleTrees.get(1));
+			Assert.assertTrue(lgg.isSubsumedBy(expectedPairLGG));
+			Assert.assertTrue(expectedPairLGG.isSubsumedBy(lgg));
+			lggGenerator.shutdown();
+		}
+	}
+	
 	@Test
 	public void testLGGEarlyTermination(){
 		QueryTreeFactory<String> factory = new QueryTreeFactoryImpl();
@@ -19,8 +19,16 @@
  */
 package org.dllearner.algorithms.qtl;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import org.dllearner.algorithms.qtl.datastructures.impl.CompactQueryTree;
+import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeDictionary;
 import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeImpl;
 import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeImpl.NodeType;
+import org.dllearner.algorithms.qtl.datastructures.impl.QueryTreeSubsumptionChecker;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -90,4 +98,46 @@ public class TreeSubsumptionTest{
 		System.out.println(tree2.isSubsumedBy(tree1));
 	}
 
+	@Test
+	public void testCompactSubsumption(){
+		QueryTreeImpl<String> tree1 = new QueryTreeImpl<String>("?");
+		tree1.addChild(new QueryTreeImpl<String>("B", NodeType.RESOURCE), "r");
+		tree1.addChild(new QueryTreeImpl<String>("A", NodeType.RESOURCE), "s");
+		
+		QueryTreeImpl<String> tree2 = new QueryTreeImpl<String>("?");
+		tree2.addChild(new QueryTreeImpl<String>("A", NodeType.RESOURCE), "r");
+		tree2.addChild(new QueryTreeImpl<String>("B", NodeType.RESOURCE), "r");
+		tree2.addChild(new QueryTreeImpl<String>("A", NodeType.RESOURCE), "s");
+		tree2.addChild(new QueryTreeImpl<String>("C", NodeType.RESOURCE), "s");
+		
+		QueryTreeImpl<String> tree3 = new QueryTreeImpl<String>("?");
+		tree3.addChild(new QueryTreeImpl<String>("?"), "r");
+		
+		QueryTreeImpl<String> tree4 = new QueryTreeImpl<String>("?");
+		QueryTreeImpl<String> child = new QueryTreeImpl<String>("?");
+		child.addChild(new QueryTreeImpl<String>("A", NodeType.RESOURCE), "t");
+		tree4.addChild(child, "r");
+		
+		List<QueryTreeImpl<String>> trees = Arrays.asList(tree1, tree2, tree3, tree4);
+		
+		QueryTreeDictionary dictionary = new QueryTreeDictionary();
+		QueryTreeSubsumptionChecker checker = new QueryTreeSubsumptionChecker(dictionary);
+		List<CompactQueryTree> compactTrees = new ArrayList<CompactQueryTree>();
+		for (QueryTreeImpl<String> tree : trees) {
+			compactTrees.add(dictionary.compact(tree));
+		}
+		for (int i = 0; i < trees.size(); i++) {
+			BitSet subsumed = checker.getSubsumedTrees(compactTrees, compactTrees.get(i), null);
+			for (int j = 0; j < trees.size(); j++) {
+				boolean expected = trees.get(j).isSubsumedBy(trees.get(i));
+				Assert.assertEquals(expected, checker.isSubsumedBy(compactTrees.get(j), compactTrees.get(i)));
+				// memoized result
+				Assert.assertEquals(expected, checker.isSubsumedBy(compactTrees.get(j), compactTrees.get(i)));
+				Assert.assertEquals(expected, subsumed.get(j));
+			}
+		}
+		Assert.assertTrue(checker.isSubsumedBy(compactTrees.get(1), compactTrees.get(0)));
+		Assert.assertFalse(checker.isSubsumedBy(compactTrees.get(2), compactTrees.get(3)));
+	}
+
 }
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.reasoning.fuzzydll;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import fuzzydl.KnowledgeBase;
+
+/**
+ * Tests the pool of fuzzyDL KB clones used by {@link FuzzyDLReasonerManager}.
+ */
+public class KnowledgeBasePoolTest {
+
+	private ThreadPoolExecutor executor;
+
+	@Before
+	public void setUp() {
+		executor = (ThreadPoolExecutor) Executors.newFixedThreadPool(1);
+	}
+
+	@After
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+
+	private void awaitFilled(KnowledgeBasePool pool, int size) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000;
+		while(pool.getNrOfClones() < size && System.currentTimeMillis() < deadline){
+			Thread.sleep(10);
+		}
+		assertEquals(size, pool.getNrOfClones());
+	}
+
+	@Test
+	public void modificationsDiscardClones() throws InterruptedException {
+		KnowledgeBase kb = new KnowledgeBase();
+		KnowledgeBasePool pool = new KnowledgeBasePool(kb, 2, executor);
+		awaitFilled(pool, 2);
+
+		// no modification, the clones are kept
+		synchronized (kb) {
+			pool.checkModifications();
+		}
+		assertEquals(0, pool.getVersion());
+		assertEquals(2, pool.getNrOfClones());
+
+		// looking up an unknown individual adds it to the KB, which is not an atomic concept
+		synchronized (kb) {
+			kb.getIndividual("a");
+			pool.checkModifications();
+		}
+		assertEquals(1, pool.getVersion());
+		KnowledgeBase clone = pool.take();
+		assertNotNull(clone);
+		assertTrue(clone.individuals.containsKey("a"));
+	}
+
+	@Test
+	public void oneFillTask() throws InterruptedException {
+		// keep the executor busy, such that fill tasks are queued
+		final CountDownLatch latch = new CountDownLatch(1);
+		executor.submit(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					latch.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		KnowledgeBasePool pool = new KnowledgeBasePool(new KnowledgeBase(), 2, executor);
+		for(int i = 0; i < 20; i++){
+			assertNotNull(pool.take());
+		}
+		// taking clones does not submit a task each time
+		assertEquals(1, executor.getQueue().size());
+		latch.countDown();
+		awaitFilled(pool, 2);
+	}
+
+	@Test
+	public void noPool() throws InterruptedException {
+		ExecutorService unused = Executors.newSingleThreadExecutor();
+		KnowledgeBasePool pool = new KnowledgeBasePool(new KnowledgeBase(), 0, unused);
+		assertNotNull(pool.take());
+		assertEquals(0, pool.getNrOfClones());
+		unused.shutdown();
+	}
+}
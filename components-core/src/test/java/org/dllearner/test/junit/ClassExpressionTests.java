@@ -20,6 +20,8 @@
 package org.dllearner.test.junit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.dllearner.core.AbstractReasonerComponent;
@@ -36,6 +38,8 @@ import org.dllearner.parser.KBParser;
 import org.dllearner.parser.ParseException;
 import org.dllearner.test.junit.TestOntologies.TestOntology;
 import org.dllearner.utilities.owl.ConceptTransformation;
+import org.dllearner.utilities.owl.DescriptionEquivalence;
+import org.dllearner.utilities.owl.DescriptionInterner;
 import org.dllearner.utilities.owl.DescriptionMinimizer;
 import org.junit.Test;
 
@@ -90,6 +94,26 @@ public class ClassExpressionTests {
 		
 	}
 	
+	@Test
+	public void structuralHashTest() throws ParseException {
+		Description d1 = KBParser.parseConcept("(\"http://example.com/father#male\" AND EXISTS \"http://example.com/father#hasChild\".TOP)");
+		Description d2 = KBParser.parseConcept("(\"http://example.com/father#male\" AND EXISTS \"http://example.com/father#hasChild\".TOP)");
+		assertEquals(d1.structuralHashCode(), d2.structuralHashCode());
+		assertTrue(DescriptionEquivalence.instance.equivalent(d1, d2));
+		
+		// modifying a child has to invalidate the cached hash code of the parents
+		d2.getChild(1).replaceChild(0, new NamedClass("http://example.com/father#female"));
+		assertFalse(DescriptionEquivalence.instance.equivalent(d1, d2));
+		d2.getChild(1).replaceChild(0, KBParser.parseConcept("TOP"));
+		assertEquals(d1.structuralHashCode(), d2.structuralHashCode());
+		
+		DescriptionInterner interner = new DescriptionInterner();
+		assertSame(d1, interner.intern(d1));
+		assertSame(d1, interner.intern(d2));
+		assertSame(d1, interner.intern(d1.clone()));
+		assertEquals(1, interner.size());
+	}
+	
 	/**
 	 * We test a method, which delivers in which context all quantifiers occur
 	 * (i.e. how they are nested in a class expression).
@@ -24,6 +24,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.net.MalformedURLException;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -34,6 +35,7 @@ import org.dllearner.core.ComponentManager;
 import org.dllearner.core.owl.ClassAssertionAxiom;
 import org.dllearner.core.owl.Description;
 import org.dllearner.core.owl.Individual;
+import org.dllearner.core.owl.Intersection;
 import org.dllearner.core.owl.KB;
 import org.dllearner.core.owl.NamedClass;
 import org.dllearner.core.owl.Thing;
@@ -214,6 +216,25 @@ public class HeuristicTests {
 		
 		assertEqualsPosNegLPStandard(problem, nc[0], 0.5); // precision 2/3, recall 2/5
 		assertEqualsPosNegLPStandard(problem, nc[1], 2/3d); // precision 3/4, recall 3/5
+		
+		// F-Measure and evaluation cache (the second evaluation of a concept must be a cache hit)
+		problem.setUseEvaluationCache(true);
+		HeuristicTests.configurePosNegStandardLP(problem, pos1, neg1, "fmeasure", false);
+		
+		assertEqualsPosNegLPStandard(problem, nc[0], 0.5);
+		assertEqualsPosNegLPStandard(problem, nc[1], 2/3d);
+		assertEqualsPosNegLPStandard(problem, new Intersection(nc[0], nc[1]), 0.5);
+		assertEquals(3, problem.getEvaluationCache().size());
+		assertTrue(problem.getEvaluationCacheStats().hitCount() > 0);
+		problem.setUseEvaluationCache(false);
+		
+		// incremental evaluation of a refinement against the examples covered by its parent
+		HeuristicTests.configurePosNegStandardLP(problem, pos1, neg1, "fmeasure", false);
+		Description refinement = new Intersection(nc[1], nc[0]);
+		BitSet parentCoverage = problem.getCoverage(nc[1]);
+		assertEquals(problem.getCoverage(refinement), problem.getCoverage(refinement, nc[1], parentCoverage));
+		assertEquals(0.5, problem.computeScore(refinement, parentCoverage).getAccuracy(), delta);
+		assertEquals(0.5, problem.getAccuracyOrTooWeak(refinement, problem.getCoverage(refinement, nc[1], parentCoverage), 1.0), delta);
 	}
 	
 	
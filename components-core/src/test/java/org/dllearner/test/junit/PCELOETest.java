@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.dllearner.test.junit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.dllearner.algorithms.celoe.PCELOE;
+import org.dllearner.core.AbstractReasonerComponent;
+import org.dllearner.core.ComponentInitException;
+import org.dllearner.core.owl.NamedClass;
+import org.dllearner.learningproblems.ClassLearningProblem;
+import org.dllearner.test.junit.TestOntologies.TestOntology;
+import org.junit.Test;
+
+/**
+ * Tests for the parallel class expression learner.
+ */
+public class PCELOETest {
+
+	private PCELOE createFatherLearner() throws ComponentInitException {
+		AbstractReasonerComponent rc = TestOntologies.getTestOntology(TestOntology.FATHER_OE);
+		ClassLearningProblem lp = new ClassLearningProblem(rc);
+		lp.setClassToDescribe(new NamedClass("http://example.com/father#father"));
+		lp.setCheckConsistency(false);
+		lp.init();
+		
+		PCELOE alg = new PCELOE(lp, rc);
+		alg.setNrOfThreads(4);
+		alg.setUseConcurrentFrontier(true);
+		alg.setTerminateOnNoiseReached(true);
+		alg.setMaxExecutionTimeInSeconds(60);
+		return alg;
+	}
+	
+	@Test
+	public void concurrentFrontierTest() throws ComponentInitException {
+		PCELOE alg = createFatherLearner();
+		alg.init();
+		alg.start();
+		
+		// the fathers are exactly the males having a child
+		assertEquals(1.0, alg.getCurrentlyBestAccuracy(), 0.00001);
+		assertTrue(alg.getNrOfExpansions() > 0);
+	}
+	
+	@Test
+	public void scalabilityReportTest() throws ComponentInitException {
+		PCELOE alg = createFatherLearner();
+		ClassLearningProblem lp = (ClassLearningProblem) alg.getLearningProblem();
+		lp.setUseEvaluationCache(true);
+		lp.init();
+		alg.setScalabilityReport(true);
+		alg.setScalabilityReportExpansions(20);
+		alg.init();
+		alg.start();
+		
+		// the measurement runs are limited, but the final run performs the full search
+		assertEquals(1.0, alg.getCurrentlyBestAccuracy(), 0.00001);
+		// the evaluation cache is cleared before each run and filled again by the final run
+		assertTrue(lp.getEvaluationCache().size() > 0);
+	}
+	
+}
@@ -19,19 +19,37 @@
 
 package org.dllearner.test.junit;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
 import org.dllearner.core.ComponentInitException;
+import org.dllearner.core.owl.Description;
 import org.dllearner.core.owl.Individual;
 import org.dllearner.core.owl.Intersection;
 import org.dllearner.core.owl.NamedClass;
+import org.dllearner.core.owl.Negation;
+import org.dllearner.core.owl.ObjectAllRestriction;
+import org.dllearner.core.owl.ObjectMaxCardinalityRestriction;
+import org.dllearner.core.owl.ObjectMinCardinalityRestriction;
 import org.dllearner.core.owl.ObjectProperty;
 import org.dllearner.core.owl.ObjectSomeRestriction;
 import org.dllearner.core.owl.Thing;
+import org.dllearner.core.owl.Union;
+import org.dllearner.kb.LocalModelBasedSparqlEndpointKS;
 import org.dllearner.kb.OWLFile;
 import org.dllearner.reasoning.FastInstanceChecker;
+import org.dllearner.reasoning.MaterializableFastInstanceChecker;
+import org.dllearner.reasoning.SPARQLReasoner;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /**
  * 
@@ -65,4 +83,207 @@ public class ReasonerTest {
 			
 	}
 	
+	@Test
+	public void bitSetRetrievalTest() throws ComponentInitException {
+		OWLFile file = new OWLFile("../examples/family/father.owl");
+		file.init();
+		FastInstanceChecker fic = new FastInstanceChecker();
+		fic.setSources(file);
+		fic.init();
+		FastInstanceChecker bitSetFic = new FastInstanceChecker();
+		bitSetFic.setSources(file);
+		bitSetFic.setUseBitSets(true);
+		bitSetFic.init();
+		
+		NamedClass male = new NamedClass("http://example.com/father#male");
+		NamedClass female = new NamedClass("http://example.com/father#female");
+		ObjectProperty hasChild = new ObjectProperty("http://example.com/father#hasChild");
+		Description[] descriptions = new Description[] {
+				male,
+				new Negation(male),
+				new Intersection(male, new ObjectSomeRestriction(hasChild, Thing.instance)),
+				new Union(female, new ObjectSomeRestriction(hasChild, male)),
+				new ObjectAllRestriction(hasChild, male),
+				new Negation(new ObjectSomeRestriction(hasChild, female)),
+				new ObjectMinCardinalityRestriction(1, hasChild, Thing.instance),
+				new ObjectMaxCardinalityRestriction(1, hasChild, Thing.instance)
+		};
+		
+		// both modes have to agree on instance checks, retrieval via bit sets
+		// has to be consistent with the instance checks
+		for (Description d : descriptions) {
+			for (Individual ind : fic.getIndividuals()) {
+				assertEquals(d.toString(), fic.hasType(d, ind), bitSetFic.hasType(d, ind));
+				assertEquals(d.toString(), bitSetFic.hasType(d, ind), bitSetFic.getIndividuals(d).contains(ind));
+			}
+		}
+	}
+	
+	@Test
+	public void parallelDematerialisationTest() throws ComponentInitException {
+		OWLFile file = new OWLFile("../examples/family/father.owl");
+		file.init();
+		FastInstanceChecker fic = new FastInstanceChecker();
+		fic.setSources(file);
+		fic.init();
+		FastInstanceChecker parallelFic = new FastInstanceChecker();
+		parallelFic.setSources(file);
+		parallelFic.setNrOfDematerialisationThreads(3);
+		parallelFic.init();
+		
+		for (NamedClass nc : fic.getNamedClasses()) {
+			assertEquals(nc.toString(), fic.getIndividuals(nc), parallelFic.getIndividuals(nc));
+			assertEquals(nc.toString(), fic.getIndividuals(new Negation(nc)), parallelFic.getIndividuals(new Negation(nc)));
+		}
+		for (ObjectProperty op : fic.getObjectProperties()) {
+			assertEquals(op.toString(), fic.getPropertyMembers(op), parallelFic.getPropertyMembers(op));
+		}
+	}
+	
+	@Test
+	public void batchInstanceCheckTest() throws ComponentInitException {
+		OWLFile file = new OWLFile("../examples/family/father.owl");
+		file.init();
+		FastInstanceChecker fic = new FastInstanceChecker();
+		fic.setSources(file);
+		fic.init();
+		FastInstanceChecker bitSetFic = new FastInstanceChecker();
+		bitSetFic.setSources(file);
+		bitSetFic.setUseBitSets(true);
+		bitSetFic.init();
+		
+		NamedClass male = new NamedClass("http://example.com/father#male");
+		ObjectProperty hasChild = new ObjectProperty("http://example.com/father#hasChild");
+		Description[] descriptions = new Description[] {
+				male,
+				new Negation(male),
+				new Intersection(male, new ObjectSomeRestriction(hasChild, Thing.instance))
+		};
+		
+		// the batch check has to agree with single instance checks, also for
+		// individuals, which are not part of the knowledge base
+		List<Individual> individuals = new ArrayList<Individual>(fic.getIndividuals());
+		individuals.add(new Individual("http://example.com/father#unknown"));
+		for (Description d : descriptions) {
+			for (FastInstanceChecker reasoner : new FastInstanceChecker[] {fic, bitSetFic}) {
+				BitSet covered = reasoner.hasType(d, individuals);
+				for (int i = 0; i < individuals.size(); i++) {
+					assertEquals(d.toString(), reasoner.hasType(d, individuals.get(i)), covered.get(i));
+				}
+			}
+		}
+	}
+	
+	@Test
+	public void sparqlBatchInstanceCheckTest() throws ComponentInitException {
+		LocalModelBasedSparqlEndpointKS ks = new LocalModelBasedSparqlEndpointKS();
+		ks.setBaseDir("../examples/family");
+		ks.setFileName("father.owl");
+		ks.init();
+		// an endpoint without VALUES support
+		LocalModelBasedSparqlEndpointKS sparql10Ks = new LocalModelBasedSparqlEndpointKS(ks.getModel()) {
+			@Override
+			public boolean supportsSPARQL_1_1() {
+				return false;
+			}
+		};
+		
+		NamedClass male = new NamedClass("http://example.com/father#male");
+		List<Individual> individuals = new ArrayList<Individual>();
+		for (String name : new String[] {"stefan", "anna", "markus", "stefan", "unknown", "anna"}) {
+			individuals.add(new Individual("http://example.com/father#" + name));
+		}
+		// individuals occurring several times are covered at each of their positions
+		for (SPARQLReasoner reasoner : new SPARQLReasoner[] {new SPARQLReasoner(ks), new SPARQLReasoner(sparql10Ks)}) {
+			BitSet covered = reasoner.hasType(male, individuals);
+			for (int i = 0; i < individuals.size(); i++) {
+				assertEquals(individuals.get(i).toString(), reasoner.hasType(male, individuals.get(i)), covered.get(i));
+			}
+			assertEquals(3, covered.cardinality());
+		}
+	}
+	
+	@Test
+	public void retrievalMemoTest() throws ComponentInitException {
+		OWLFile file = new OWLFile("../examples/family/father.owl");
+		file.init();
+		FastInstanceChecker fic = new FastInstanceChecker();
+		fic.setSources(file);
+		fic.setRetrievalMemoSize(0);
+		fic.init();
+		
+		NamedClass male = new NamedClass("http://example.com/father#male");
+		NamedClass female = new NamedClass("http://example.com/father#female");
+		ObjectProperty hasChild = new ObjectProperty("http://example.com/father#hasChild");
+		Description shared = new ObjectSomeRestriction(hasChild, Thing.instance);
+		// refinements of the same concept sharing a sub-expression
+		Description[] descriptions = new Description[] {
+				new Intersection(male, shared),
+				new Intersection(female, shared),
+				new Union(female, new ObjectSomeRestriction(hasChild, male)),
+				new Negation(new Intersection(male, shared))
+		};
+		
+		for (boolean useBitSets : new boolean[] {false, true}) {
+			FastInstanceChecker memoFic = new FastInstanceChecker();
+			memoFic.setSources(file);
+			memoFic.setUseBitSets(useBitSets);
+			memoFic.setRetrievalMemoSize(1000);
+			memoFic.init();
+			// memoized results have to be equal to computed ones and must not be
+			// affected by modifications of returned sets
+			for (int i = 0; i < 2; i++) {
+				for (Description d : descriptions) {
+					assertEquals(d.toString(), fic.getIndividuals(d), memoFic.getIndividuals(d));
+					memoFic.getIndividuals(d).clear();
+				}
+			}
+			assertTrue(memoFic.getRetrievalMemo().getStats().hitCount() > 0);
+			
+			// changes of the knowledge base discard the memoized results
+			memoFic.setUpdated();
+			assertEquals(0, memoFic.getRetrievalMemo().size());
+		}
+	}
+	
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+	
+	@Test
+	public void materializationSnapshotTest() throws ComponentInitException, IOException {
+		OWLFile file = new OWLFile("../examples/family/father.owl");
+		file.init();
+		MaterializableFastInstanceChecker reasoner = new MaterializableFastInstanceChecker(file);
+		reasoner.setUseMaterializationCaching(false);
+		reasoner.init();
+		// the first reasoner with caching writes the snapshot, the others answer their queries from it
+		File cacheDirectory = tmpFolder.newFolder("cache");
+		MaterializableFastInstanceChecker[] cachingReasoners = new MaterializableFastInstanceChecker[3];
+		for (int i = 0; i < cachingReasoners.length; i++) {
+			cachingReasoners[i] = new MaterializableFastInstanceChecker(file);
+			cachingReasoners[i].setCacheDirectory(cacheDirectory);
+			cachingReasoners[i].setUseBitSets(i == 2);
+			cachingReasoners[i].init();
+			assertEquals(1, cacheDirectory.listFiles().length);
+		}
+		
+		NamedClass male = new NamedClass("http://example.com/father#male");
+		ObjectProperty hasChild = new ObjectProperty("http://example.com/father#hasChild");
+		Description[] descriptions = new Description[] {
+				male,
+				new Negation(male),
+				new ObjectSomeRestriction(hasChild, male),
+				new ObjectAllRestriction(hasChild, new Negation(male))
+		};
+		for (MaterializableFastInstanceChecker cachingReasoner : cachingReasoners) {
+			for (Description d : descriptions) {
+				assertEquals(d.toString(), reasoner.getIndividuals(d), cachingReasoner.getIndividuals(d));
+				for (Individual ind : reasoner.getIndividuals()) {
+					assertEquals(reasoner.hasType(d, ind), cachingReasoner.hasType(d, ind));
+				}
+			}
+			assertEquals(reasoner.getPropertyMembers(hasChild), cachingReasoner.getPropertyMembers(hasChild));
+		}
+	}
+	
 }
@@ -19,15 +19,61 @@
 
 package org.dllearner.test.junit;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.dllearner.algorithms.DisjointClassesLearner;
 import org.dllearner.core.AbstractReasonerComponent;
+import org.dllearner.core.ComponentInitException;
+import org.dllearner.core.owl.Description;
 import org.dllearner.core.owl.Individual;
+import org.dllearner.core.owl.Intersection;
+import org.dllearner.core.owl.NamedClass;
+import org.dllearner.core.owl.Negation;
+import org.dllearner.core.owl.ObjectProperty;
+import org.dllearner.core.owl.ObjectSomeRestriction;
+import org.dllearner.core.owl.Thing;
+import org.dllearner.core.owl.Union;
+import org.dllearner.kb.LocalModelBasedSparqlEndpointKS;
+import org.dllearner.kb.OWLFile;
+import org.dllearner.kb.SparqlEndpointKS;
+import org.dllearner.kb.sparql.CachingConciseBoundedDescriptionGenerator;
+import org.dllearner.kb.sparql.ConciseBoundedDescriptionGenerator;
+import org.dllearner.kb.sparql.ConciseBoundedDescriptionGeneratorImpl;
+import org.dllearner.kb.sparql.QueryResultCache;
+import org.dllearner.kb.sparql.QueryThrottle;
+import org.dllearner.learningproblems.EvaluationCache;
+import org.dllearner.reasoning.FastInstanceChecker;
 import org.dllearner.test.junit.TestOntologies.TestOntology;
+import org.dllearner.utilities.datastructures.ConcurrentMultiQueue;
+import org.dllearner.utilities.datastructures.DistinctCounter;
 import org.dllearner.utilities.learn.UsedEntitiesDetection;
 import org.junit.Test;
 
+import com.hp.hpl.jena.query.QueryExecutionFactory;
+import com.hp.hpl.jena.query.ResultSet;
+import com.hp.hpl.jena.rdf.model.Model;
+import com.hp.hpl.jena.rdf.model.ModelFactory;
+import com.hp.hpl.jena.rdf.model.Property;
+import com.hp.hpl.jena.rdf.model.Resource;
+import com.hp.hpl.jena.sparql.resultset.ResultSetMem;
+import com.hp.hpl.jena.vocabulary.RDF;
+import com.hp.hpl.jena.vocabulary.RDFS;
+
 /**
  * Various tests for methods/classes in the utilities package.
  * 
@@ -46,4 +92,345 @@ public class UtilitiesTests {
 		System.out.println(detection);
 	}
 	
+	@Test
+	public void concurrentMultiQueue() throws InterruptedException {
+		final ConcurrentMultiQueue<Integer> queue = new ConcurrentMultiQueue<Integer>(Collections.reverseOrder(), 4);
+		Thread[] threads = new Thread[4];
+		for(int t=0; t<threads.length; t++) {
+			final int offset = t * 1000;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for(int i=0; i<1000; i++) {
+						queue.add(offset + i);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(4000, queue.size());
+		
+		// concurrent consumers: all elements come out exactly once
+		final Set<Integer> polled = Collections.synchronizedSet(new TreeSet<Integer>());
+		final List<Integer> duplicates = Collections.synchronizedList(new ArrayList<Integer>());
+		for(int t=0; t<threads.length; t++) {
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					Integer element;
+					while((element = queue.poll()) != null) {
+						if(!polled.add(element)) {
+							duplicates.add(element);
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(duplicates.isEmpty());
+		assertEquals(4000, polled.size());
+		assertTrue(queue.isEmpty());
+		assertNull(queue.poll());
+	}
+	
+	@Test
+	public void concurrentMultiQueueOrder() {
+		// with a single queue, elements are polled in exact priority order
+		ConcurrentMultiQueue<Integer> queue = new ConcurrentMultiQueue<Integer>(Collections.reverseOrder(), 1);
+		for(int i : new int[] {3, 1, 4, 1, 5, 9, 2, 6}) {
+			queue.add(i);
+		}
+		int[] expected = {9, 6, 5, 4, 3, 2, 1, 1};
+		for(int i : expected) {
+			assertEquals(Integer.valueOf(i), queue.poll());
+		}
+		assertNull(queue.poll());
+	}
+	
+	@Test
+	public void distinctCounter() {
+		DistinctCounter<String, String> counter = new DistinctCounter<String, String>();
+		assertTrue(counter.add("a", "A"));
+		assertTrue(counter.add("a", "B"));
+		assertTrue(counter.add("b", "A"));
+		// repeated observations are not counted again
+		assertFalse(counter.add("a", "A"));
+		assertEquals(2, counter.getCount("A"));
+		assertEquals(1, counter.getCount("B"));
+		assertEquals(0, counter.getCount("C"));
+		assertEquals(2, counter.getNrOfSubjects());
+	}
+	
+	@Test
+	public void queryResultCache() {
+		Model model = ModelFactory.createDefaultModel();
+		model.add(model.createResource("http://localhost/foo#a"), RDFS.label, "a  b");
+		String query = "SELECT ?l WHERE {?s ?p ?l}";
+		QueryResultCache cache = new QueryResultCache(100, 1, TimeUnit.MINUTES);
+		cache.putResultSet(query, new ResultSetMem(QueryExecutionFactory.create(query, model).execSelect()));
+		
+		// queries differing only in whitespace share an entry, each hit can be consumed independently
+		for (int i = 0; i < 2; i++) {
+			ResultSet rs = cache.getResultSet(" SELECT ?l\nWHERE  {?s ?p ?l} ");
+			assertEquals("a  b", rs.next().getLiteral("l").getLexicalForm());
+			assertFalse(rs.hasNext());
+		}
+		// whitespace in literals is significant
+		cache.putAskResult("ASK {?s ?p \"a  b\"}", true);
+		assertNull(cache.getAskResult("ASK {?s ?p \"a b\"}"));
+		assertTrue(cache.getAskResult("ASK  {?s ?p \"a  b\"}"));
+		assertEquals(3, cache.getStats().hitCount());
+		
+		// results larger than the cache are passed through without being cached
+		model.add(model.createResource("http://localhost/foo#b"), RDFS.label, "b");
+		QueryResultCache smallCache = new QueryResultCache(1, 1, TimeUnit.MINUTES);
+		ResultSet rs = smallCache.cacheResultSet(query, QueryExecutionFactory.create(query, model).execSelect());
+		int rows = 0;
+		while(rs.hasNext()) {
+			rs.next();
+			rows++;
+		}
+		assertEquals(2, rows);
+		assertNull(smallCache.getResultSet(query));
+	}
+	
+	@Test
+	public void learnerQueryResultCache() throws ComponentInitException {
+		LocalModelBasedSparqlEndpointKS ks = new LocalModelBasedSparqlEndpointKS();
+		ks.setBaseDir("../examples/family");
+		ks.setFileName("father.owl");
+		ks.init();
+		QueryResultCache cache = new QueryResultCache(100, 1, TimeUnit.MINUTES);
+		ks.setQueryResultCache(cache);
+		
+		class QueryingLearner extends DisjointClassesLearner {
+			QueryingLearner(SparqlEndpointKS ks) {
+				super(ks);
+			}
+			ResultSet select(String query) {
+				return executeSelectQuery(query);
+			}
+			boolean ask(String query) {
+				return executeAskQuery(query);
+			}
+		}
+		QueryingLearner learner = new QueryingLearner(ks);
+		learner.init();
+		
+		// the learners send the same queries repeatedly, e.g. once per class to describe
+		String query = "SELECT ?type (COUNT(*) AS ?cnt) WHERE {?s a <http://example.com/father#male>. ?s a ?type.} GROUP BY ?type";
+		String askQuery = "ASK {?s a <http://example.com/father#male>}";
+		List<String> rows = new ArrayList<String>();
+		for (int i = 0; i < 2; i++) {
+			StringBuilder sb = new StringBuilder();
+			ResultSet rs = learner.select(query);
+			while(rs.hasNext()) {
+				sb.append(rs.next()).append('\n');
+			}
+			rows.add(sb.toString());
+			assertTrue(learner.ask(askQuery));
+		}
+		assertEquals(rows.get(0), rows.get(1));
+		assertEquals(2, cache.getStats().missCount());
+		assertEquals(2, cache.getStats().hitCount());
+	}
+	
+	@Test
+	public void queryThrottle() throws InterruptedException {
+		// the number of concurrent queries never exceeds the limit
+		final QueryThrottle throttle = new QueryThrottle(2, 0);
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maxRunning = new AtomicInteger();
+		List<Thread> threads = new ArrayList<Thread>();
+		for(int i = 0; i < 8; i++) {
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					for(int j = 0; j < 20; j++) {
+						throttle.acquire();
+						try {
+							int current = running.incrementAndGet();
+							synchronized (maxRunning) {
+								maxRunning.set(Math.max(maxRunning.get(), current));
+							}
+							Thread.yield();
+							running.decrementAndGet();
+						} finally {
+							throttle.release();
+						}
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for(Thread thread : threads) {
+			thread.join();
+		}
+		assertTrue(maxRunning.get() <= 2);
+		
+		// query starts are spaced according to the rate limit
+		QueryThrottle rateThrottle = new QueryThrottle(0, 20);
+		long start = System.nanoTime();
+		for(int i = 0; i < 5; i++) {
+			rateThrottle.acquire();
+			rateThrottle.release();
+		}
+		// the first query starts immediately, the other four are 50 ms apart
+		assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+	}
+	
+	@Test
+	public void cbdCache() throws IOException {
+		String ns = "http://localhost/foo#";
+		Model model = ModelFactory.createDefaultModel();
+		Property p = model.createProperty(ns + "p");
+		model.add(model.createResource(ns + "a"), p, model.createResource(ns + "b"));
+		model.add(model.createResource(ns + "b"), p, model.createResource(ns + "c"));
+		model.add(model.createResource(ns + "c"), p, model.createResource(ns + "d"));
+		ConciseBoundedDescriptionGenerator cbdGen = new ConciseBoundedDescriptionGeneratorImpl(model);
+		
+		File dir = File.createTempFile("cbd", "");
+		dir.delete();
+		CachingConciseBoundedDescriptionGenerator cachingCbdGen = new CachingConciseBoundedDescriptionGenerator(cbdGen, 100, dir);
+		// a shallower CBD is cut out of the deeper one
+		assertTrue(cbdGen.getConciseBoundedDescription(ns + "a", 3).isIsomorphicWith(cachingCbdGen.getConciseBoundedDescription(ns + "a", 3)));
+		assertTrue(cbdGen.getConciseBoundedDescription(ns + "a", 2).isIsomorphicWith(cachingCbdGen.getConciseBoundedDescription(ns + "a", 2)));
+		assertEquals(1, cachingCbdGen.getStats().hitCount());
+		
+		// a new cache loads the CBD from disk
+		cachingCbdGen = new CachingConciseBoundedDescriptionGenerator(new ConciseBoundedDescriptionGeneratorImpl(ModelFactory.createDefaultModel()), 100, dir);
+		assertEquals(2, cachingCbdGen.getConciseBoundedDescription(ns + "a", 2).size());
+	}
+	
+	@Test
+	public void batchedCbdExtraction() {
+		String ns = "http://localhost/foo#";
+		Model model = ModelFactory.createDefaultModel();
+		Property p = model.createProperty(ns + "p");
+		Resource[] resources = new Resource[5];
+		for (int i = 0; i < resources.length; i++) {
+			resources[i] = model.createResource(ns + i);
+			model.add(resources[i], RDF.type, model.createResource(ns + "C" + i));
+		}
+		// a chain with a cycle, resources are part of several CBDs
+		for (int i = 0; i < resources.length - 1; i++) {
+			model.add(resources[i], p, resources[i + 1]);
+		}
+		model.add(resources[3], p, resources[1]);
+		model.add(resources[0], RDFS.label, "zero");
+		
+		ConciseBoundedDescriptionGeneratorImpl cbdGen = new ConciseBoundedDescriptionGeneratorImpl(model);
+		cbdGen.setBatchSize(2);
+		List<String> uris = new ArrayList<String>();
+		for (Resource resource : resources) {
+			uris.add(resource.getURI());
+		}
+		// the triples of a batch exceed the chunk size, i.e. they are fetched in several chunks
+		ConciseBoundedDescriptionGeneratorImpl chunkedCbdGen = new ConciseBoundedDescriptionGeneratorImpl(model);
+		chunkedCbdGen.setBatchSize(2);
+		chunkedCbdGen.setChunkSize(2);
+		for (int depth = 1; depth <= 3; depth++) {
+			for (boolean withTypesForLeafs : new boolean[] {false, true}) {
+				Map<String, Model> cbds = cbdGen.getConciseBoundedDescriptions(uris, depth, withTypesForLeafs);
+				Map<String, Model> chunkedCbds = chunkedCbdGen.getConciseBoundedDescriptions(uris, depth, withTypesForLeafs);
+				for (String uri : uris) {
+					Model cbd = cbdGen.getConciseBoundedDescription(uri, depth, withTypesForLeafs);
+					assertTrue(uri + " " + depth, cbd.isIsomorphicWith(cbds.get(uri)));
+					assertTrue(uri + " " + depth, cbd.isIsomorphicWith(chunkedCbds.get(uri)));
+				}
+			}
+		}
+	}
+	
+	private static FastInstanceChecker createFatherReasoner() throws ComponentInitException {
+		OWLFile file = new OWLFile("../examples/family/father.owl");
+		file.init();
+		FastInstanceChecker reasoner = new FastInstanceChecker();
+		reasoner.setSources(file);
+		reasoner.init();
+		return reasoner;
+	}
+	
+	@Test
+	public void evaluationCacheEviction() throws ComponentInitException {
+		FastInstanceChecker reasoner = createFatherReasoner();
+		String ns = "http://example.com/father#";
+		NamedClass male = new NamedClass(ns + "male");
+		NamedClass female = new NamedClass(ns + "female");
+		Description parent = new ObjectSomeRestriction(new ObjectProperty(ns + "hasChild"), Thing.instance);
+		
+		EvaluationCache cache = new EvaluationCache(reasoner.getIndividuals(), 2, 0);
+		for (Description d : new Description[] {male, female, parent}) {
+			assertEquals(cache.toBitSet(reasoner.getIndividuals(d)), cache.getCoverage(d, reasoner));
+		}
+		// the least recently used concept has been evicted
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getStats().evictionCount());
+		assertNull(cache.getCoverage(male));
+		assertEquals(cache.toBitSet(reasoner.getIndividuals(female)), cache.getCoverage(female));
+		assertEquals(cache.toBitSet(reasoner.getIndividuals(parent)), cache.getCoverage(parent));
+		// an evicted concept is evaluated again
+		assertEquals(cache.toBitSet(reasoner.getIndividuals(male)), cache.getCoverage(male, reasoner));
+		assertEquals(2, cache.size());
+		assertEquals(4, cache.getStats().loadCount());
+	}
+	
+	@Test
+	public void evaluationCacheConcurrency() throws ComponentInitException, InterruptedException {
+		final FastInstanceChecker reasoner = createFatherReasoner();
+		String ns = "http://example.com/father#";
+		NamedClass male = new NamedClass(ns + "male");
+		NamedClass female = new NamedClass(ns + "female");
+		Description parent = new ObjectSomeRestriction(new ObjectProperty(ns + "hasChild"), Thing.instance);
+		// concepts whose coverage is partly inferred from the cached coverage of their children
+		final Description[] descriptions = new Description[] {
+				male, female, parent,
+				new Intersection(male, parent),
+				new Union(female, parent),
+				new Negation(male)
+		};
+		final List<BitSet> expected = new ArrayList<BitSet>();
+		for (Description d : descriptions) {
+			expected.add(new EvaluationCache(reasoner.getIndividuals()).getCoverage(d, reasoner));
+		}
+		
+		// all threads evaluate all concepts, starting with different ones
+		final EvaluationCache cache = new EvaluationCache(reasoner.getIndividuals());
+		final AtomicInteger errors = new AtomicInteger();
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; i++) {
+			final int offset = i;
+			Thread thread = new Thread() {
+				@Override
+				public void run() {
+					for (int j = 0; j < 100; j++) {
+						int index = (offset + j) % descriptions.length;
+						BitSet covered = cache.getCoverage(descriptions[index], reasoner);
+						if(!covered.equals(expected.get(index))) {
+							errors.incrementAndGet();
+						}
+						// modifying a returned bit set must not affect the cache
+						covered.clear();
+					}
+				}
+			};
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(0, errors.get());
+		// each concept has been evaluated only once
+		assertEquals(descriptions.length, cache.size());
+		assertEquals(descriptions.length, cache.getStats().loadCount());
+	}
+	
 }
@@ -123,6 +123,7 @@ import org.dllearner.kb.SparqlEndpointKS;
 import org.dllearner.kb.sparql.ConciseBoundedDescriptionGenerator;
 import org.dllearner.kb.sparql.ConciseBoundedDescriptionGeneratorImpl;
 import org.dllearner.kb.sparql.ExtractionDBCache;
+import org.dllearner.kb.sparql.QueryThrottle;
 import org.dllearner.kb.sparql.SPARQLTasks;
 import org.dllearner.kb.sparql.SparqlEndpoint;
 import org.dllearner.kb.sparql.SparqlQuery;
@@ -239,7 +240,10 @@ public class Enrichment {
 	private int maxNrOfNegativeExamples = 20;
 	
 	private boolean useInference;
+	// shared by all learners, only created if inference is used
 	private SPARQLReasoner reasoner;
+	// used for listing entities, computing their popularity and finding examples
+	private SPARQLReasoner queryReasoner;
 	private ExtractionDBCache cache;
 	private String cacheDir = "cache";
 	
@@ -266,6 +270,11 @@ public class Enrichment {
 	private boolean processDataProperties;
 	private boolean processClasses;
 	
+	// number of entities enriched concurrently
+	private int nrOfThreads = 1;
+	// file in which finished entities are recorded (null = no checkpoints)
+	private File checkpointFile;
+	
 	public Enrichment(SparqlEndpoint se, Entity resource, double threshold, int nrOfAxiomsToLearn, 
 			boolean useInference, boolean verbose, int chunksize, 
 			int maxExecutionTimeInSeconds, boolean omitExistingAxioms) {
@@ -315,10 +324,10 @@ public class Enrichment {
 //		classAlgorithms.add(SimpleSubclassLearner.class);
 		classAlgorithms.add(CELOE.class);		
 		
-		algorithmRuns = new LinkedList<AlgorithmRun>();
+		algorithmRuns = Collections.synchronizedList(new LinkedList<AlgorithmRun>());
 		
-		learnedOWLAxioms = new HashSet<OWLAxiom>();
-		learnedEvaluatedAxioms = new HashSet<EvaluatedAxiom>();
+		learnedOWLAxioms = Collections.synchronizedSet(new HashSet<OWLAxiom>());
+		learnedEvaluatedAxioms = Collections.synchronizedSet(new HashSet<EvaluatedAxiom>());
 		
 		// instantiate SPARQL endpoint wrapper component
 				ks = new SparqlEndpointKS(se);
@@ -383,10 +392,10 @@ public class Enrichment {
 //		classAlgorithms.add(SimpleSubclassLearner.class);
 		classAlgorithms.add(CELOE.class);		
 		
-		algorithmRuns = new LinkedList<AlgorithmRun>();
+		algorithmRuns = Collections.synchronizedList(new LinkedList<AlgorithmRun>());
 		
-		learnedOWLAxioms = new HashSet<OWLAxiom>();
-		learnedEvaluatedAxioms = new HashSet<EvaluatedAxiom>();
+		learnedOWLAxioms = Collections.synchronizedSet(new HashSet<OWLAxiom>());
+		learnedEvaluatedAxioms = Collections.synchronizedSet(new HashSet<EvaluatedAxiom>());
 	}
 	
 	public void setAllowedNamespaces(List<String> allowedNamespaces) {
@@ -410,80 +419,98 @@ public class Enrichment {
 //		ks.setSupportsSPARQL_1_1(supportsSPARQL_1_1);
 		
 		if(useInference){
+			// a single reasoner is shared by all learners, such that they share its caches
 			reasoner = new SPARQLReasoner(ks, cacheDir);
 			System.out.print("Precomputing subsumption hierarchy ... ");
 			long startTime = System.currentTimeMillis();
 			reasoner.prepareSubsumptionHierarchy();
 			System.out.println("done in " + (System.currentTimeMillis() - startTime) + " ms");
+			queryReasoner = reasoner;
+		} else {
+			// without inference, the learners use their own reasoners
+			queryReasoner = new SPARQLReasoner(ks, cacheDir);
 		}
 		
 		if(resource == null) {
 
-			// loop over all entities and call appropriate algorithms
-			int entities = 0;
+			// collect all entities and schedule them by popularity
+			EnrichmentScheduler scheduler;
+			try {
+				scheduler = new EnrichmentScheduler(nrOfThreads, checkpointFile);
+			} catch (IOException e) {
+				throw new ComponentInitException("Could not read checkpoint file " + checkpointFile, e);
+			}
+			// the entities are collected first, such that their popularity can be computed in batches
+			Set<NamedClass> classes = new HashSet<NamedClass>();
+			Set<ObjectProperty> objectProperties = new HashSet<ObjectProperty>();
+			Set<DatatypeProperty> dataProperties = new HashSet<DatatypeProperty>();
 			Set<org.dllearner.core.owl.Property> processedProperties = new HashSet<org.dllearner.core.owl.Property>();
 			if(processClasses){
-				Set<NamedClass> classes = allowedNamespaces.isEmpty() ? reasoner.getOWLClasses() : reasoner.getOWLClasses(allowedNamespaces.iterator().next());//st.getAllClasses();
-				filterByNamespaces(classes);//classes = Sets.newHashSet(new NamedClass("http://dbpedia.org/ontology/Arachnid"));
-				for(NamedClass nc : classes) {
-					try {
-						runClassLearningAlgorithms(ks, nc);
-					} catch (Exception e) {
-						e.printStackTrace();
-					}		
-					entities++;
-					if(maxEntitiesPerType != -1 && entities > maxEntitiesPerType) {
-						break;
-					}	
-				}
+				Set<NamedClass> allClasses = allowedNamespaces.isEmpty() ? queryReasoner.getOWLClasses() : queryReasoner.getOWLClasses(allowedNamespaces.iterator().next());//st.getAllClasses();
+				filterByNamespaces(allClasses);//classes = Sets.newHashSet(new NamedClass("http://dbpedia.org/ontology/Arachnid"));
+				selectUnfinished(allClasses, classes, scheduler);
 			}
-			entities = 0;
 			if(processObjectProperties){
-				Set<ObjectProperty> objectProperties = st.getAllObjectProperties();
-				filterByNamespaces(objectProperties);
-				for(ObjectProperty property : objectProperties) {
-					runObjectPropertyAlgorithms(ks, property);	
-					entities++;
-					if(maxEntitiesPerType != -1 && entities > maxEntitiesPerType) {
-						break;
-					}				
-				}
-				processedProperties.addAll(objectProperties);
+				Set<ObjectProperty> allObjectProperties = st.getAllObjectProperties();
+				filterByNamespaces(allObjectProperties);
+				selectUnfinished(allObjectProperties, objectProperties, scheduler);
+				processedProperties.addAll(allObjectProperties);
 			}
-			entities = 0;
 			if(processDataProperties){
-				Set<DatatypeProperty> dataProperties = st.getAllDataProperties();
-				filterByNamespaces(dataProperties);
-				for(DatatypeProperty property : dataProperties) {
-					runDataPropertyAlgorithms(ks, property);
-					entities++;
-					if(maxEntitiesPerType != -1 && entities > maxEntitiesPerType) {
-						break;
-					}					
-				}
-				processedProperties.addAll(dataProperties);
+				Set<DatatypeProperty> allDataProperties = st.getAllDataProperties();
+				filterByNamespaces(allDataProperties);
+				selectUnfinished(allDataProperties, dataProperties, scheduler);
+				processedProperties.addAll(allDataProperties);
 			}
 			
 			//optionally, get all properties and infer its type
 			if(processPropertiesTypeInferred ){
-				reasoner.precomputePopularity();
-				Set<org.dllearner.core.owl.Property> properties = allowedNamespaces.isEmpty() ? reasoner.getProperties(true) : reasoner.getProperties(true, allowedNamespaces.iterator().next());
+				Set<org.dllearner.core.owl.Property> properties = allowedNamespaces.isEmpty() ? queryReasoner.getProperties(true) : queryReasoner.getProperties(true, allowedNamespaces.iterator().next());
 				properties.removeAll(processedProperties);
 				filterByNamespaces(properties);
-				for(org.dllearner.core.owl.Property property : properties) {
+				Set<org.dllearner.core.owl.Property> inferredProperties = new HashSet<org.dllearner.core.owl.Property>();
+				selectUnfinished(properties, inferredProperties, scheduler);
+				for(org.dllearner.core.owl.Property property : inferredProperties) {
 					if(property instanceof ObjectProperty){
-						runObjectPropertyAlgorithms(ks, (ObjectProperty) property);
-						entities++;
+						objectProperties.add((ObjectProperty) property);
 					} else if(property instanceof DatatypeProperty){
-						runDataPropertyAlgorithms(ks, (DatatypeProperty) property);
-						entities++;
+						dataProperties.add((DatatypeProperty) property);
 					}
-					
-					if(maxEntitiesPerType != -1 && entities > maxEntitiesPerType) {
-						break;
-					}					
 				}
 			}
+			
+			System.out.print("Computing popularity of " + (classes.size() + objectProperties.size() + dataProperties.size()) + " entities ... ");
+			long startTime = System.currentTimeMillis();
+			queryReasoner.precomputeClassPopularity(classes);
+			queryReasoner.precomputeObjectPropertyPopularity(objectProperties);
+			queryReasoner.precomputeDataPropertyPopularity(dataProperties);
+			System.out.println("done in " + (System.currentTimeMillis() - startTime) + " ms");
+			for(NamedClass nc : classes) {
+				scheduler.schedule(nc, queryReasoner.getPopularity(nc));
+			}
+			for(ObjectProperty property : objectProperties) {
+				scheduler.schedule(property, queryReasoner.getPopularity(property));
+			}
+			for(DatatypeProperty property : dataProperties) {
+				scheduler.schedule(property, queryReasoner.getPopularity(property));
+			}
+			
+			try {
+				scheduler.run(new EnrichmentScheduler.EntityProcessor() {
+					@Override
+					public void process(Entity entity) throws Exception {
+						if(entity instanceof NamedClass){
+							runClassLearningAlgorithms(ks, (NamedClass) entity);
+						} else if(entity instanceof ObjectProperty){
+							runObjectPropertyAlgorithms(ks, (ObjectProperty) entity);
+						} else if(entity instanceof DatatypeProperty){
+							runDataPropertyAlgorithms(ks, (DatatypeProperty) entity);
+						}
+					}
+				});
+			} catch (IOException e) {
+				throw new ComponentInitException("Could not write checkpoint file " + checkpointFile, e);
+			}
 		} else {
 			if(resource instanceof ObjectProperty) {
 				System.out.println(resource + " appears to be an object property. Running appropriate algorithms.\n");
@@ -506,6 +533,25 @@ public class Enrichment {
 		}
 	}
 	
+	/**
+	 * Adds the entities, which are not finished according to the checkpoint of
+	 * the scheduler, to the selected entities, respecting the maximum number of
+	 * entities per type.
+	 */
+	private <T extends Entity> void selectUnfinished(Collection<T> entities, Collection<? super T> selected, EnrichmentScheduler scheduler){
+		int count = 0;
+		for(T entity : entities) {
+			if(scheduler.isFinished(entity)){
+				continue;
+			}
+			selected.add(entity);
+			count++;
+			if(maxEntitiesPerType != -1 && count > maxEntitiesPerType) {
+				break;
+			}
+		}
+	}
+	
 	private <T extends Entity> void filterByNamespaces(Collection<T> entities){
 		if(allowedNamespaces != null && !allowedNamespaces.isEmpty()){
 			for (Iterator<T> iterator = entities.iterator(); iterator.hasNext();) {
@@ -588,26 +634,29 @@ public class Enrichment {
 	}	
 	
 	private List<EvaluatedAxiom> applyCELOE(SparqlEndpointKS ks, NamedClass nc, boolean equivalence, boolean reuseKnowledgeSource) throws ComponentInitException {
+		// the output is collected and printed at once, since other entities might be enriched concurrently
+		StringBuilder out = new StringBuilder();
 		// get instances of class as positive examples
-		System.out.print("finding positives ... ");
+		out.append("finding positives ... ");
 		long startTime = System.currentTimeMillis();
-		SortedSet<Individual> posExamples = reasoner.getIndividuals(nc, maxNrOfPositiveExamples);
+		SortedSet<Individual> posExamples = queryReasoner.getIndividuals(nc, maxNrOfPositiveExamples);
 		long runTime = System.currentTimeMillis() - startTime;
 		if(posExamples.isEmpty()){
-			System.out.println("Skipping CELOE because class " + nc.toString() + " is empty.");
+			out.append("Skipping CELOE because class " + nc.toString() + " is empty.");
+			System.out.println(out);
 			return Collections.emptyList();
 		}
 		SortedSet<String> posExStr = Helper.getStringSet(posExamples);
-		System.out.println("done (" + posExStr.size()+ " examples found in " + runTime + " ms)");
+		out.append("done (" + posExStr.size()+ " examples found in " + runTime + " ms)\n");
 		
 		// use own implementation of negative example finder
-		System.out.print("finding negatives ... ");
+		out.append("finding negatives ... ");
 		startTime = System.currentTimeMillis();
-		AutomaticNegativeExampleFinderSPARQL2 finder = new AutomaticNegativeExampleFinderSPARQL2(reasoner, "http://dbpedia.org/ontology");
+		AutomaticNegativeExampleFinderSPARQL2 finder = new AutomaticNegativeExampleFinderSPARQL2(queryReasoner, "http://dbpedia.org/ontology");
 		SortedSet<Individual> negExamples = finder.getNegativeExamples(nc, posExamples, maxNrOfNegativeExamples);
 		SortedSetTuple<Individual> examples = new SortedSetTuple<Individual>(posExamples, negExamples);
 		runTime = System.currentTimeMillis() - startTime;
-		System.out.println("done (" + negExamples.size()+ " examples found in " + runTime + " ms)");
+		out.append("done (" + negExamples.size()+ " examples found in " + runTime + " ms)\n");
 		
 		AbstractReasonerComponent rc;
 		KnowledgeSource ksFragment;
@@ -615,11 +664,16 @@ public class Enrichment {
 			ksFragment = ksCached;
 			rc = rcCached;
 		} else {
-			System.out.print("extracting fragment ... ");//com.hp.hpl.jena.shared.impl.JenaParameters.enableEagerLiteralValidation = true;
+			out.append("extracting fragment ... ");//com.hp.hpl.jena.shared.impl.JenaParameters.enableEagerLiteralValidation = true;
 			startTime = System.currentTimeMillis();
 			Model model;
 			if(ks.isRemote()){
-				model = getFragmentMultithreaded(ks, Sets.union(posExamples, negExamples));
+				// batched extraction binds the individuals by VALUES, which requires SPARQL 1.1
+				if(ks.supportsSPARQL_1_1()){
+					model = getFragmentBatched(ks, Sets.union(posExamples, negExamples));
+				} else {
+					model = getFragmentMultithreaded(ks, Sets.union(posExamples, negExamples));
+				}
 			} else {
 				model = ((LocalModelBasedSparqlEndpointKS)ks).getModel();
 			}
@@ -629,9 +683,9 @@ public class Enrichment {
 			OWLEntityTypeAdder.addEntityTypes(model);
 			
 			runTime = System.currentTimeMillis() - startTime;
-			System.out.println("done (" + model.size()+ " triples found in " + runTime + " ms)");
+			out.append("done (" + model.size()+ " triples found in " + runTime + " ms)\n");
 			OWLOntology ontology = asOWLOntology(model);
-			if(reasoner.getClassHierarchy() != null){
+			if(reasoner != null && reasoner.getClassHierarchy() != null){
 				ontology.getOWLOntologyManager().addAxioms(ontology, reasoner.getClassHierarchy().toOWLAPIAxioms());
 			}
 			ksFragment = new OWLAPIOntology(ontology);
@@ -661,10 +715,10 @@ public class Enrichment {
         la.init();
 //        ((RhoDRDown)la.getOperator()).setUseNegation(false);
         startTime = System.currentTimeMillis();
-        System.out.print("running CELOE (for " + (equivalence ? "equivalent classes" : "sub classes") + ") ... ");
+        out.append("running CELOE (for " + (equivalence ? "equivalent classes" : "sub classes") + ") ... ");
         la.start();
         runTime = System.currentTimeMillis() - startTime;
-        System.out.println("done in " + runTime + " ms");	
+        out.append("done in " + runTime + " ms\n");	
 
         // convert the result to axioms (to make it compatible with the other algorithms)
         List<? extends EvaluatedDescription> learnedDescriptions = la.getCurrentlyBestEvaluatedDescriptions(threshold);
@@ -679,7 +733,8 @@ public class Enrichment {
         	Score score = lp.computeScore(learnedDescription.getDescription());
         	learnedAxioms.add(new EvaluatedAxiom(axiom, score)); 
         }
-        System.out.println(prettyPrint(learnedAxioms));	
+        out.append(prettyPrint(learnedAxioms));
+        System.out.println(out);	
         learnedEvaluatedAxioms.addAll(learnedAxioms);
         algorithmRuns.add(new AlgorithmRun(CELOE.class, learnedAxioms, ConfigHelper.getConfigOptionValues(la)));	
 		return learnedAxioms;
@@ -695,6 +750,15 @@ public class Enrichment {
 		return model;
 	}
 	
+	private Model getFragmentBatched(SparqlEndpointKS ks, Set<Individual> individuals){
+		ConciseBoundedDescriptionGeneratorImpl cbdGen = new ConciseBoundedDescriptionGeneratorImpl(ks.getEndpoint(), "enrichment-cache", 2);
+		Model model = ModelFactory.createDefaultModel();
+		for (Model cbd : cbdGen.getConciseBoundedDescriptions(Helper.getStringSet(individuals), 2).values()) {
+			model.add(cbd);
+		}
+		return model;
+	}
+	
 	private Model getFragmentMultithreaded(final SparqlEndpointKS ks, Set<Individual> individuals){
 		Model model = ModelFactory.createDefaultModel();
 		ExecutorService threadPool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
@@ -738,27 +802,31 @@ public class Enrichment {
 				maxExecutionTimeInSeconds);
 		((AbstractAxiomLearningAlgorithm)learner).setLimit(chunksize);
 		((AbstractAxiomLearningAlgorithm)learner).setReturnOnlyNewAxioms(omitExistingAxioms);
-		learner.init();
+		// has to be set before init(), otherwise the learner creates its own reasoner
 		if(reasoner != null){
 			((AbstractAxiomLearningAlgorithm)learner).setReasoner(reasoner);
 		}
+		learner.init();
 		String algName = AnnComponentManager.getName(learner);
-		System.out.print("Applying " + algName + " on " + entity + " ... ");
+		// the output is collected and printed at once, since other entities might be enriched concurrently
+		StringBuilder out = new StringBuilder();
+		out.append("Applying " + algName + " on " + entity + " ... ");
 		long startTime = System.currentTimeMillis();
 		try {
 			learner.start();
 		} catch (Exception e) {
 			if(e.getCause() instanceof SocketTimeoutException){
-				System.out.println("Query timed out (endpoint possibly too slow).");
+				out.append("Query timed out (endpoint possibly too slow).\n");
 			} else {
 				e.printStackTrace();
 			}
 		}
 		long runtime = System.currentTimeMillis() - startTime;
-		System.out.println("done in " + runtime + " ms");
+		out.append("done in " + runtime + " ms\n");
 		List<EvaluatedAxiom> learnedAxioms = learner
 				.getCurrentlyBestEvaluatedAxioms(nrOfAxiomsToLearn, threshold);
-		System.out.println(prettyPrint(learnedAxioms));
+		out.append(prettyPrint(learnedAxioms));
+		System.out.println(out);
 		learnedEvaluatedAxioms.addAll(learnedAxioms);
 		for(EvaluatedAxiom evAx : learnedAxioms){
 			learnedOWLAxioms.add(OWLAPIAxiomConvertVisitor.convertAxiom(evAx.getAxiom()));
@@ -782,7 +850,11 @@ public class Enrichment {
 	
 	private String prettyPrint(EvaluatedAxiom axiom) {
 		double acc = axiom.getScore().getAccuracy() * 100;
-		String accs = df.format(acc);
+		String accs;
+		// the format is shared by concurrently enriched entities
+		synchronized (df) {
+			accs = df.format(acc);
+		}
 		if(accs.length()==3) { accs = "  " + accs; }
 		if(accs.length()==4) { accs = " " + accs; }
 		String str =  accs + "%\t" + axiom.getAxiom().toManchesterSyntaxString(null, PrefixCCMap.getInstance());
@@ -1120,6 +1192,21 @@ public class Enrichment {
 	public void setProcessPropertiesTypeInferred(boolean processPropertiesTypeInferred) {
 		this.processPropertiesTypeInferred = processPropertiesTypeInferred;
 	}
+	
+	/**
+	 * @param nrOfThreads the number of entities enriched concurrently
+	 */
+	public void setNrOfThreads(int nrOfThreads) {
+		this.nrOfThreads = nrOfThreads;
+	}
+	
+	/**
+	 * @param checkpointFile the file in which finished entities are recorded;
+	 * entities already contained in it are skipped
+	 */
+	public void setCheckpointFile(File checkpointFile) {
+		this.checkpointFile = checkpointFile;
+	}
 
 	public static void main(String[] args) throws IOException, ComponentInitException, IllegalArgumentException, SecurityException, InstantiationException, IllegalAccessException, InvocationTargetException, NoSuchMethodException, LearningProblemUnsupportedException {
 		
@@ -1176,6 +1263,17 @@ public class Enrichment {
 		parser.acceptsAll(asList("cls"),
 				"Specifies whether compute axiom for classes.").withOptionalArg().ofType(Boolean.class).defaultsTo(true);
 		
+		//concurrent enrichment of all entities
+		parser.acceptsAll(asList("threads"),
+				"Number of entities which are enriched concurrently.").withRequiredArg().ofType(Integer.class).defaultsTo(1);
+		parser.acceptsAll(asList("maxConcurrentQueries"),
+				"Maximum number of queries sent to the endpoint at the same time (0 = unlimited).").withRequiredArg().ofType(Integer.class).defaultsTo(0);
+		parser.acceptsAll(asList("maxQueriesPerSecond"),
+				"Maximum number of queries sent to the endpoint per second (0 = unlimited).").withRequiredArg().ofType(Double.class).defaultsTo(0d);
+		parser.acceptsAll(asList("checkpoint"),
+				"Specify a file where finished entities are recorded. A run with an existing file skips the entities contained in it.")
+		.withRequiredArg().ofType(File.class);
+		
 		
 		//username and password if endpoint is protected
 		parser.acceptsAll(asList("u", "username"), "Specify the username.")
@@ -1319,12 +1417,21 @@ public class Enrichment {
 			boolean processDataProperties = (Boolean) options.valueOf("dp");
 			boolean processClasses = (Boolean) options.valueOf("cls");
 			
+			//limit the load on the endpoint
+			int maxConcurrentQueries = (Integer) options.valueOf("maxConcurrentQueries");
+			double maxQueriesPerSecond = (Double) options.valueOf("maxQueriesPerSecond");
+			if(maxConcurrentQueries > 0 || maxQueriesPerSecond > 0){
+				ks.setQueryThrottle(new QueryThrottle(maxConcurrentQueries, maxQueriesPerSecond));
+			}
+			
 			Enrichment e = new Enrichment(ks, resource, threshold, maxNrOfResults, useInference, false, chunksize, maxExecutionTimeInSeconds, omitExistingAxioms);
 			e.setAllowedNamespaces(allowedNamespaces);
 			e.setIterativeMode(iterativeMode);
 			e.setProcessObjectProperties(processObjectProperties);
 			e.setProcessDataProperties(processDataProperties);
 			e.setProcessClasses(processClasses);
+			e.setNrOfThreads((Integer) options.valueOf("threads"));
+			e.setCheckpointFile((File) options.valueOf("checkpoint"));
 			e.start();
 
 			// print output in correct format
@@ -0,0 +1,190 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.dllearner.cli;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.dllearner.core.owl.Entity;
+
+/**
+ * Runs the enrichment of many entities concurrently. Entities are processed
+ * by a fixed number of worker threads in the order of their priority, i.e.
+ * popular entities are enriched first. Optionally, finished entities are
+ * recorded in a checkpoint file (one URI per line), such that an interrupted
+ * run can be resumed by skipping the entities listed there.
+ *
+ * The load on the endpoint is not limited here, but by the
+ * {@link org.dllearner.kb.sparql.QueryThrottle} of the knowledge source
+ * shared by the learners.
+ */
+public class EnrichmentScheduler {
+
+	/**
+	 * Enriches a single entity.
+	 */
+	public interface EntityProcessor {
+		void process(Entity entity) throws Exception;
+	}
+
+	private static class ScheduledEntity {
+		private final Entity entity;
+		private final int priority;
+
+		private ScheduledEntity(Entity entity, int priority) {
+			this.entity = entity;
+			this.priority = priority;
+		}
+	}
+
+	private static Logger logger = Logger.getLogger(EnrichmentScheduler.class);
+
+	private int nrOfThreads;
+	private File checkpointFile;
+	private BufferedWriter checkpointWriter;
+
+	private Set<String> finishedEntities = new HashSet<String>();
+	private List<ScheduledEntity> scheduledEntities = new ArrayList<ScheduledEntity>();
+
+	/**
+	 * @param nrOfThreads The number of entities enriched at the same time.
+	 * @param checkpointFile The file in which finished entities are recorded
+	 * or null if no checkpoints are written. Entities contained in an existing
+	 * file are skipped.
+	 * @throws IOException if the checkpoint file cannot be read.
+	 */
+	public EnrichmentScheduler(int nrOfThreads, File checkpointFile) throws IOException {
+		this.nrOfThreads = Math.max(1, nrOfThreads);
+		this.checkpointFile = checkpointFile;
+		if(checkpointFile != null && checkpointFile.exists()){
+			BufferedReader reader = new BufferedReader(new FileReader(checkpointFile));
+			try {
+				String line;
+				while((line = reader.readLine()) != null){
+					line = line.trim();
+					if(!line.isEmpty()){
+						finishedEntities.add(line);
+					}
+				}
+			} finally {
+				reader.close();
+			}
+			logger.info("Resuming enrichment, skipping " + finishedEntities.size() + " finished entities.");
+		}
+	}
+
+	/**
+	 * @param entity An entity.
+	 * @return True if the entity has been enriched in a previous run.
+	 */
+	public boolean isFinished(Entity entity) {
+		return finishedEntities.contains(entity.getName());
+	}
+
+	/**
+	 * Schedules an entity for enrichment, unless it has been enriched in a
+	 * previous run.
+	 * @param entity The entity.
+	 * @param priority The priority of the entity, e.g. its popularity. Entities
+	 * with higher priority are processed first.
+	 * @return True if the entity has been scheduled.
+	 */
+	public boolean schedule(Entity entity, int priority) {
+		if(isFinished(entity)){
+			return false;
+		}
+		scheduledEntities.add(new ScheduledEntity(entity, priority));
+		return true;
+	}
+
+	/**
+	 * Processes all scheduled entities and returns when all of them are finished.
+	 * Entities, whose processing fails, are not recorded in the checkpoint file.
+	 * @param processor The enrichment applied on each entity.
+	 * @throws IOException if the checkpoint file cannot be written.
+	 */
+	public void run(final EntityProcessor processor) throws IOException {
+		// stable sort, i.e. entities of equal priority keep the order they were scheduled in
+		Collections.sort(scheduledEntities, new Comparator<ScheduledEntity>() {
+			@Override
+			public int compare(ScheduledEntity o1, ScheduledEntity o2) {
+				return Integer.compare(o2.priority, o1.priority);
+			}
+		});
+
+		if(checkpointFile != null){
+			checkpointWriter = new BufferedWriter(new FileWriter(checkpointFile, true));
+		}
+		// the pool queue is FIFO, thus entities are started in the order of their priority
+		ExecutorService threadPool = Executors.newFixedThreadPool(nrOfThreads);
+		try {
+			for (final ScheduledEntity scheduledEntity : scheduledEntities) {
+				threadPool.submit(new Runnable() {
+					@Override
+					public void run() {
+						Entity entity = scheduledEntity.entity;
+						try {
+							processor.process(entity);
+							finished(entity);
+						} catch (Exception e) {
+							logger.error("Enrichment of " + entity + " failed.", e);
+						}
+					}
+				});
+			}
+			threadPool.shutdown();
+			while(!threadPool.awaitTermination(1, TimeUnit.MINUTES)){
+				logger.debug("Waiting for enrichment threads to finish ...");
+			}
+		} catch (InterruptedException e) {
+			threadPool.shutdownNow();
+			Thread.currentThread().interrupt();
+		} finally {
+			scheduledEntities.clear();
+			if(checkpointWriter != null){
+				checkpointWriter.close();
+				checkpointWriter = null;
+			}
+		}
+	}
+
+	private synchronized void finished(Entity entity) throws IOException {
+		finishedEntities.add(entity.getName());
+		if(checkpointWriter != null){
+			checkpointWriter.write(entity.getName());
+			checkpointWriter.newLine();
+			checkpointWriter.flush();
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package org.dllearner.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+import org.dllearner.algorithms.ParCEL.ParCELearner;
+import org.dllearner.algorithms.ParCEL.distributed.ParCELWorkerServer;
+import org.dllearner.core.AbstractCELA;
+
+/**
+ * Starts a worker server of the distributed ParCEL. The worker loads the same conf file as the
+ * coordinator, i.e. it has its own copy of the knowledge base and reasoner, and serves the
+ * coordinators which list it in the option "remoteWorkers" of the learning algorithm. The conf file
+ * has to set the option "remoteWorkerSecret" of the learning algorithm, the coordinators are
+ * authenticated by this secret.<br>
+ * Usage: parcel-worker &lt;port&gt; &lt;conf file&gt; [&lt;bind address&gt;]<br>
+ * By default, the worker only listens on the loopback interface. If another bind address is given,
+ * the port must not be exposed to untrusted networks, e.g. the internet: the connections are not
+ * encrypted and a coordinator can make the worker run arbitrary expensive refinements.
+ */
+public class ParCELWorkerCLI {
+
+	public static void main(String[] args) throws IOException {
+
+		System.out.println("DL-Learner ParCEL worker");
+
+		if (args.length < 2) {
+			System.out.println("You need to give a port and a conf file as arguments, optionally followed by the address to listen on.");
+			System.exit(0);
+		}
+
+		int port;
+		try {
+			port = Integer.parseInt(args[0]);
+		} catch (NumberFormatException e) {
+			System.out.println("Invalid port \"" + args[0] + "\".");
+			System.exit(0);
+			return;
+		}
+
+		InetAddress bindAddress = InetAddress.getLoopbackAddress();
+		if (args.length > 2) {
+			try {
+				bindAddress = InetAddress.getByName(args[2]);
+			} catch (UnknownHostException e) {
+				System.out.println("Invalid bind address \"" + args[2] + "\".");
+				System.exit(0);
+			}
+		}
+
+		File file = new File(args[1]);
+		if (!file.exists()) {
+			System.out.println("File \"" + file + "\" does not exist.");
+			System.exit(0);
+		}
+
+		// load the components, the learning algorithm is initialised but not started
+		CLI cli = new CLI(file);
+		cli.init();
+
+		AbstractCELA la = cli.getLearningAlgorithm();
+		if (!(la instanceof ParCELearner)) {
+			System.out.println("The learning algorithm of \"" + file + "\" is not ParCEL.");
+			System.exit(0);
+		}
+
+		String secret = ((ParCELearner) la).getRemoteWorkerSecret();
+		if (secret == null || secret.isEmpty()) {
+			System.out.println("The learning algorithm of \"" + file + "\" has no remoteWorkerSecret.");
+			System.exit(0);
+		}
+
+		if (!bindAddress.isLoopbackAddress())
+			System.out.println("Listening on " + bindAddress + ", the port must not be reachable from untrusted networks.");
+
+		new ParCELWorkerServer((ParCELearner) la, bindAddress, port).run();
+	}
+
+}
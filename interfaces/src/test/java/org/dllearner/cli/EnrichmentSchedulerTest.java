@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2007-2011, Jens Lehmann
+ *
+ * This file is part of DL-Learner.
+ *
+ * DL-Learner is free software; you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation; either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * DL-Learner is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+package org.dllearner.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.dllearner.core.owl.Entity;
+import org.dllearner.core.owl.NamedClass;
+import org.dllearner.core.owl.ObjectProperty;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the order of enrichment and the checkpoints of the
+ * {@link EnrichmentScheduler}.
+ */
+public class EnrichmentSchedulerTest {
+
+	private static final String NS = "http://localhost/foo#";
+
+	@Rule
+	public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+	private static class RecordingProcessor implements EnrichmentScheduler.EntityProcessor {
+		private List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+		private String failingEntity;
+
+		@Override
+		public void process(Entity entity) throws Exception {
+			processed.add(entity.getName());
+			if(entity.getName().equals(failingEntity)){
+				throw new Exception("enrichment of " + entity + " failed");
+			}
+		}
+	}
+
+	@Test
+	public void priorityOrder() throws IOException {
+		EnrichmentScheduler scheduler = new EnrichmentScheduler(1, null);
+		scheduler.schedule(new NamedClass(NS + "a"), 1);
+		scheduler.schedule(new ObjectProperty(NS + "b"), 5);
+		scheduler.schedule(new NamedClass(NS + "c"), 3);
+		scheduler.schedule(new NamedClass(NS + "d"), 3);
+		RecordingProcessor processor = new RecordingProcessor();
+		scheduler.run(processor);
+		// entities of equal priority keep the order they were scheduled in
+		assertEquals(Arrays.asList(NS + "b", NS + "c", NS + "d", NS + "a"), processor.processed);
+	}
+
+	@Test
+	public void checkpointResume() throws IOException {
+		File checkpointFile = new File(tmpFolder.getRoot(), "checkpoint.txt");
+		EnrichmentScheduler scheduler = new EnrichmentScheduler(2, checkpointFile);
+		for(String name : new String[] {"a", "b", "c"}) {
+			scheduler.schedule(new NamedClass(NS + name), 1);
+		}
+		RecordingProcessor processor = new RecordingProcessor();
+		processor.failingEntity = NS + "b";
+		scheduler.run(processor);
+		assertEquals(3, processor.processed.size());
+		assertTrue(checkpointFile.exists());
+
+		// a resumed run skips the finished entities, but retries the failed one
+		scheduler = new EnrichmentScheduler(2, checkpointFile);
+		assertTrue(scheduler.isFinished(new NamedClass(NS + "a")));
+		assertFalse(scheduler.isFinished(new NamedClass(NS + "b")));
+		assertTrue(scheduler.isFinished(new NamedClass(NS + "c")));
+		assertFalse(scheduler.schedule(new NamedClass(NS + "a"), 1));
+		assertTrue(scheduler.schedule(new NamedClass(NS + "b"), 1));
+		processor = new RecordingProcessor();
+		scheduler.run(processor);
+		assertEquals(Arrays.asList(NS + "b"), processor.processed);
+		assertTrue(new EnrichmentScheduler(1, checkpointFile).isFinished(new NamedClass(NS + "b")));
+	}
+}
@@ -0,0 +1,89 @@
+package org.dllearner.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Arrays;
+
+import org.dllearner.algorithms.ParCEL.ParCELPosNegLP;
+import org.dllearner.algorithms.ParCEL.ParCELearner;
+import org.dllearner.algorithms.ParCEL.distributed.ParCELRemoteHandshake;
+import org.dllearner.algorithms.ParCEL.distributed.ParCELRemoteWorkerPool;
+import org.dllearner.algorithms.ParCEL.distributed.ParCELWorkerServer;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * JUnit test for the distributed ParCEL: a coordinator and two worker servers, each with its own
+ * copy of the knowledge base, connected over sockets on localhost
+ */
+public class ParCELDistributedTest {
+
+	private static final String CONF_FILE = "../examples/family-benchmark/Aunt_parcel.conf";
+
+	private static final String SECRET = "worker secret";
+
+	// the worker servers listen on the loopback interface
+	private static final String HOST = InetAddress.getLoopbackAddress().getHostAddress();
+
+	private ParCELearner createLearner() throws IOException {
+		CLI cli = new CLI(new File(CONF_FILE));
+		cli.init();
+
+		ParCELearner learner = (ParCELearner) cli.getContext().getBean("alg");
+		learner.setRemoteWorkerSecret(SECRET);
+		return learner;
+	}
+
+	@Test
+	public void testDistributedLearning() throws IOException {
+		ParCELWorkerServer server1 = new ParCELWorkerServer(createLearner(), 0);
+		ParCELWorkerServer server2 = new ParCELWorkerServer(createLearner(), 0);
+		new Thread(server1).start();
+		new Thread(server2).start();
+
+		try {
+			ParCELearner coordinator = createLearner();
+			coordinator.setRemoteWorkers(Arrays.asList(HOST + ":" + server1.getPort(),
+					HOST + ":" + server2.getPort()));
+			coordinator.setMaxExecutionTimeInSeconds(30);
+			coordinator.start();
+
+			Assert.assertTrue(coordinator.getNumberOfPartialDefinitions() > 0);
+			Assert.assertNotNull(coordinator.getUnionCurrenlyBestDescription());
+		} finally {
+			server1.stop();
+			server2.stop();
+		}
+	}
+
+	@Test
+	public void testWrongSecret() throws IOException {
+		ParCELearner learner = createLearner();
+		ParCELWorkerServer server = new ParCELWorkerServer(learner, 0);
+		new Thread(server).start();
+
+		try {
+			ParCELPosNegLP lp = (ParCELPosNegLP) learner.getLearningProblem();
+			ParCELRemoteHandshake handshake = new ParCELRemoteHandshake(lp.getPositiveExamples(),
+					lp.getNegativeExamples());
+			String address = HOST + ":" + server.getPort();
+
+			ParCELRemoteWorkerPool pool = new ParCELRemoteWorkerPool(Arrays.asList(address),
+					handshake, SECRET);
+			Assert.assertEquals(learner.getNumberOfWorkers(), pool.getNumberOfConnections());
+			pool.close();
+
+			// the server closes the connection before it reads the handshake
+			try {
+				new ParCELRemoteWorkerPool(Arrays.asList(address), handshake, "another secret");
+				Assert.fail("The worker server must reject coordinators with another secret");
+			} catch (IOException e) {
+				// expected
+			}
+		} finally {
+			server.stop();
+		}
+	}
+
+}